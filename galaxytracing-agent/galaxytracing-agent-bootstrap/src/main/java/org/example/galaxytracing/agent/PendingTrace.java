@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent;
+
+import lombok.RequiredArgsConstructor;
+import org.example.galaxytracing.agent.reporter.SchemaKeyNames;
+import org.example.galaxytracing.agent.reporter.TraceMessage;
+import org.example.galaxytracing.infra.common.traceid.IdGenerator;
+import org.slf4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Trace started before the node identity was known, its traceId is stamped on the reporter thread.
+ *
+ * <p>The trace is serialized without a traceId by the thread which finished it. The reporter thread waits for the
+ * generator of the traceIds, inserts the traceId at the head of the trace and logs it.</p>
+ *
+ * @author JiekerTime
+ */
+@RequiredArgsConstructor
+final class PendingTrace implements TraceMessage {
+    
+    private static final String TRACE_ID_PREFIX = "{\"traceId\":\"";
+    
+    private final String json;
+    
+    private final CompletableFuture<IdGenerator> idGenerator;
+    
+    private final Logger logger;
+    
+    private final SchemaKeyNames schemaKeyNames;
+    
+    @Override
+    public String serialize() {
+        String result = stamp(json, idGenerator.join().generateId());
+        logger.info(result);
+        return result;
+    }
+    
+    @Override
+    public SchemaKeyNames getSchemaKeyNames() {
+        return schemaKeyNames;
+    }
+    
+    static String stamp(final String json, final long traceId) {
+        if (json.isEmpty() || '{' != json.charAt(0)) {
+            return json;
+        }
+        StringBuilder result = new StringBuilder(json.length() + TRACE_ID_PREFIX.length() + 21);
+        result.append(TRACE_ID_PREFIX).append(traceId).append('"');
+        if (json.length() > 1 && '}' != json.charAt(1) && ',' != json.charAt(1)) {
+            result.append(',');
+        }
+        return result.append(json, 1, json.length()).toString();
+    }
+}
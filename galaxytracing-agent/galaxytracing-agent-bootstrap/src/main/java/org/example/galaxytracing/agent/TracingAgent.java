@@ -20,24 +20,57 @@ package org.example.galaxytracing.agent;
 import com.google.common.base.Strings;
 import com.huawei.shade.com.alibaba.fastjson.JSONObject;
 import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.agent.core.governor.DegradationLevel;
+import org.example.galaxytracing.agent.core.governor.OverheadGovernor;
+import org.example.galaxytracing.agent.core.schema.TraceSchema;
+import org.example.galaxytracing.agent.core.span.Span;
+import org.example.galaxytracing.agent.core.span.SpanRecorder;
+import org.example.galaxytracing.agent.core.storage.TraceStorage;
 import org.example.galaxytracing.agent.core.storage.impl.SnowFlakeTraceStorage;
 import org.example.galaxytracing.agent.initializer.TracingAgentBase;
+import org.example.galaxytracing.agent.reporter.Reporter;
+import org.example.galaxytracing.agent.reporter.SchemaKeyNames;
+import org.example.galaxytracing.agent.reporter.TraceMessage;
 import org.example.galaxytracing.infra.common.constant.GalaxyTracingAgentMessage;
 import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.config.entity.impl.AgentConfiguration;
 import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Agent entry.
  *
+ * <p>Besides key/values, a trace can hold spans timing the operations of the current thread, see
+ * {@link #startSpan(String)}. The spans are reported with the trace on {@link #finish()}.</p>
+ *
+ * <p>The typed keys of a schema generated for an {@code @Agent} class are reported with the trace on
+ * {@link #finish(TraceSchema)}, as their IDs. The names of the keys are handed to the reporter along with the trace, so
+ * it can register them with the collectors.</p>
+ *
+ * <p>When the agent costs too much, {@link OverheadGovernor} samples the traces, drops their attributes or stops
+ * reporting them on {@link #finish()}, see {@link DegradationLevel}.</p>
+ *
+ * <p>A trace started before the node identity was known has no traceId, it is stamped and logged on the reporter
+ * thread, see {@link PendingTrace}.</p>
+ *
  * @author JiekerTime
  */
 @Slf4j(topic = "agent")
 public final class TracingAgent {
     
+    private static final String TRACE_ID = "traceId";
+    
+    private static final Map<Class<?>, SchemaKeyNames> SCHEMA_KEY_NAMES = new ConcurrentHashMap<>();
+    
     private final TracingAgentBase singleton;
     
     public TracingAgent() {
@@ -220,6 +253,29 @@ public final class TracingAgent {
             throw new GalaxyTracingException(GalaxyTracingAgentMessage.NULL_TRACE_STORAGE_ERROR);
         }
         singleton.getStorage().clear();
+        SpanRecorder.current().reset();
+    }
+    
+    /**
+     * Start a span in the trace of the current thread, its parent is the innermost span not yet ended.
+     *
+     * <p>The returned span is pooled: it must be ended on this thread and must not be used once the trace is
+     * finished.</p>
+     *
+     * @param name name of the span
+     * @return span
+     */
+    public Span startSpan(final String name) {
+        return SpanRecorder.current().start(name);
+    }
+    
+    /**
+     * Get the innermost span not yet ended in the trace of the current thread.
+     *
+     * @return span, null if there is none
+     */
+    public Span getActiveSpan() {
+        return SpanRecorder.current().getActiveSpan();
     }
     
     /**
@@ -238,23 +294,129 @@ public final class TracingAgent {
      * @throws GalaxyTracingException System exception
      */
     public void finish(final Logger logger) throws GalaxyTracingException {
+        finish(logger, null);
+    }
+    
+    /**
+     * Finish the storage even, with the keys put to the schema.
+     *
+     * @param schema typed keys of the trace
+     * @throws GalaxyTracingException System exception
+     */
+    public void finish(final TraceSchema schema) throws GalaxyTracingException {
+        finish(log, schema);
+    }
+    
+    /**
+     * Finish the storage even, with the keys put to the schema.
+     *
+     * @param logger log engine
+     * @param schema typed keys of the trace, null if there is none
+     * @throws GalaxyTracingException System exception
+     */
+    public void finish(final Logger logger, final TraceSchema schema) throws GalaxyTracingException {
         if (singleton.getStorage() == null) {
             throw new GalaxyTracingException(GalaxyTracingAgentMessage.NULL_TRACE_STORAGE_ERROR);
         }
-        if (!singleton.getReporter().isAlive()) {
+        Reporter reporter = singleton.getReporter();
+        if (null != reporter && !reporter.isAlive()) {
             throw new GalaxyTracingException(GalaxyTracingAgentMessage.REPORTER_SHUTDOWN_ERROR);
         }
         if (singleton.getConfiguration().getBasic().isLogging()) {
-            final String msg = singleton.getStorage().clear();
-            logger.info(msg);
-            singleton.getMq().offer(msg);
+            OverheadGovernor governor = singleton.getGovernor();
+            DegradationLevel level = governor.getLevel();
+            if (!governor.sample(level)) {
+                discard(schema);
+                return;
+            }
+            if (null != schema) {
+                singleton.getStorage().start();
+            }
+            long startNanos = System.nanoTime();
+            TraceStorage storage = singleton.getStorage();
+            boolean stamped = storage.hasTraceId();
+            final String msg = DegradationLevel.ATTRIBUTES_DROPPED == level
+                    ? finishWithKeptKeys(governor.getKeptKeys(), schema) : SpanRecorder.current().finish(drain(storage.clear(), schema, null));
+            SchemaKeyNames keyNames = getSchemaKeyNames(schema);
+            if (stamped) {
+                logger.info(msg);
+                singleton.getMq().offer(TraceMessage.of(msg, keyNames));
+            } else {
+                singleton.getMq().offer(new PendingTrace(msg, storage.getIdGenerator(), logger, keyNames));
+            }
+            governor.recordFinish(System.nanoTime() - startNanos);
+        }
+    }
+    
+    private void discard(final TraceSchema schema) {
+        singleton.getStorage().discard();
+        SpanRecorder.current().reset();
+        if (null != schema) {
+            schema.reset();
         }
     }
     
+    private String finishWithKeptKeys(final List<String> keptKeys, final TraceSchema schema) {
+        TraceStorage storage = singleton.getStorage();
+        Map<String, String> data = storage.getDataMap();
+        Map<String, String> kept = new HashMap<>(keptKeys.size() + 2, 1F);
+        if (null != data) {
+            kept.put(TRACE_ID, data.get(TRACE_ID));
+            for (String each : keptKeys) {
+                String value = data.get(each);
+                if (null != value) {
+                    kept.put(each, value);
+                }
+            }
+        }
+        storage.discard();
+        SpanRecorder.current().reset();
+        return drain(JSONObject.toJSONString(kept), schema, keptKeys);
+    }
+    
+    private static SchemaKeyNames getSchemaKeyNames(final TraceSchema schema) {
+        if (null == schema) {
+            return null;
+        }
+        SchemaKeyNames result = SCHEMA_KEY_NAMES.get(schema.getClass());
+        if (null == result) {
+            Map<Integer, String> keyNames = new LinkedHashMap<>();
+            for (int each : schema.getKeyIds()) {
+                keyNames.put(each, schema.getKeyName(each));
+            }
+            result = new SchemaKeyNames(schema.getName(), keyNames);
+            SCHEMA_KEY_NAMES.putIfAbsent(schema.getClass(), result);
+        }
+        return result;
+    }
+    
+    private static String drain(final String traceJson, final TraceSchema schema, final Collection<String> keptKeys) {
+        if (null == schema) {
+            return traceJson;
+        }
+        int end = traceJson.lastIndexOf('}');
+        if (end < 0) {
+            schema.reset();
+            return traceJson;
+        }
+        StringBuilder result = new StringBuilder(traceJson.length() << 1).append(traceJson, 0, end);
+        schema.drainTo(result, keptKeys);
+        return result.append('}').toString();
+    }
+    
+    /**
+     * Reload the configuration file in background.
+     *
+     * @return future of the applied configuration
+     */
+    public CompletableFuture<AgentConfiguration> reloadConfiguration() {
+        return singleton.reload();
+    }
+    
     /**
      * Shutdown the Reporter server.
      */
     public void shutdown() {
-        singleton.getReporter().shutdown();
+        singleton.shutdown();
     }
 }
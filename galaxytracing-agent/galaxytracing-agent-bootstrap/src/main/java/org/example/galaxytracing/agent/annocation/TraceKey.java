@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.annocation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Trace key declared by a field of an {@link Agent} class.
+ *
+ * <p>The field type is the type of the value, one of {@code String}, {@code int}, {@code long}, {@code boolean},
+ * {@code double} or their wrappers. The ID identifies the key in the generated schema, it must not be reused by
+ * another key of the class.</p>
+ *
+ * @author JiekerTime
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface TraceKey {
+    
+    /**
+     * Numeric ID of the key.
+     *
+     * @return ID
+     */
+    int id();
+    
+    /**
+     * Name of the key.
+     *
+     * @return name, the field name if empty
+     */
+    String name() default "";
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.annocation.processor;
+
+import com.google.common.base.CaseFormat;
+import com.google.common.base.Strings;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import lombok.RequiredArgsConstructor;
+import org.example.galaxytracing.agent.annocation.TraceKey;
+import org.example.galaxytracing.agent.core.schema.TraceJson;
+import org.example.galaxytracing.agent.core.schema.TraceSchema;
+import org.example.galaxytracing.infra.common.constant.GalaxyTracingProtocolConstant;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generate the trace schema of an {@link org.example.galaxytracing.agent.annocation.Agent} class from its
+ * {@link TraceKey} fields.
+ *
+ * <p>The schema holds the values of the current trace in typed fields, a bit per key marking the keys put. It is a
+ * {@link TraceSchema} handed to {@code TracingAgent#finish}, which appends the keys put to the JSON message of the
+ * trace next to its traceId, so the key names are not hashed on put and the values are never boxed.</p>
+ *
+ * <p>The keys are written as their IDs rather than their names. The names are registered with each collector once,
+ * from {@code getKeyName}, and the collector maps the IDs back to them.</p>
+ *
+ * @author JiekerTime
+ */
+@RequiredArgsConstructor
+public final class TraceSchemaGenerator {
+    
+    /**
+     * Suffix of the generated schema classes.
+     */
+    public static final String TRACE_SCHEMA_SUFFIX = "$$TraceSchema";
+    
+    private static final int MAX_KEYS = Long.SIZE;
+    
+    private static final String PRESENT_KEYS = "presentKeys";
+    
+    private static final String CURRENT = "CURRENT";
+    
+    private final Messager messager;
+    
+    /**
+     * Generate the schema of the class.
+     *
+     * @param element class annotated with {@code Agent}
+     * @return schema, null if the class declares no valid key
+     */
+    public TypeSpec generate(final TypeElement element) {
+        List<KeyDefinition> keys = collectKeys(element);
+        if (keys.isEmpty()) {
+            return null;
+        }
+        ClassName self = ClassName.get(ClassName.get(element).packageName(), element.getSimpleName() + TRACE_SCHEMA_SUFFIX);
+        TypeSpec.Builder result = TypeSpec.classBuilder(self)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(TraceSchema.class)
+                .addOriginatingElement(element)
+                .addJavadoc("Trace schema of {@link $T}, generated from its trace keys.\n", ClassName.get(element));
+        for (KeyDefinition each : keys) {
+            result.addField(FieldSpec.builder(int.class, each.getConstantName(), Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL).initializer("$L", each.id).build());
+        }
+        result.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(ThreadLocal.class), self), CURRENT, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$T.withInitial($T::new)", ThreadLocal.class, self).build());
+        result.addField(long.class, PRESENT_KEYS, Modifier.PRIVATE);
+        for (KeyDefinition each : keys) {
+            result.addField(each.getValueType(), each.fieldName, Modifier.PRIVATE);
+        }
+        result.addMethod(MethodSpec.methodBuilder("current")
+                .addJavadoc("Get the schema of the trace of the current thread.\n")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC).returns(self)
+                .addStatement("return $L.get()", CURRENT).build());
+        result.addMethod(MethodSpec.methodBuilder("getName")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC).returns(String.class)
+                .addStatement("return $S", element.getQualifiedName().toString()).build());
+        result.addMethod(createGetKeyIds(keys));
+        result.addMethod(createGetKeyName(keys));
+        for (int i = 0; i < keys.size(); i++) {
+            result.addMethod(createPut(self, keys.get(i), 1L << i));
+        }
+        result.addMethod(createDrainTo(element.getQualifiedName().toString(), keys));
+        result.addMethod(createReset(keys));
+        return result.build();
+    }
+    
+    private List<KeyDefinition> collectKeys(final TypeElement element) {
+        List<KeyDefinition> result = new ArrayList<>();
+        Set<Integer> ids = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (Element each : element.getEnclosedElements()) {
+            TraceKey traceKey = each.getAnnotation(TraceKey.class);
+            if (ElementKind.FIELD != each.getKind() || null == traceKey) {
+                continue;
+            }
+            String fieldName = each.getSimpleName().toString();
+            String name = Strings.isNullOrEmpty(traceKey.name()) ? fieldName : traceKey.name();
+            ValueKind kind = ValueKind.of(each.asType());
+            if (null == kind) {
+                messager.printMessage(Diagnostic.Kind.ERROR, String.format("Unsupported type %s of trace key %s.", each.asType(), name), each);
+            } else if (PRESENT_KEYS.equals(fieldName) || CURRENT.equals(CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, fieldName))) {
+                messager.printMessage(Diagnostic.Kind.ERROR, String.format("Field name %s of trace key %s is reserved by the schema.", fieldName, name), each);
+            } else if (traceKey.id() < 0) {
+                messager.printMessage(Diagnostic.Kind.ERROR, String.format("ID of trace key %s must not be negative.", name), each);
+            } else if (!ids.add(traceKey.id())) {
+                messager.printMessage(Diagnostic.Kind.ERROR, String.format("ID %s of trace key %s is already used.", traceKey.id(), name), each);
+            } else if (!names.add(name)) {
+                messager.printMessage(Diagnostic.Kind.ERROR, String.format("Trace key %s is declared twice.", name), each);
+            } else {
+                result.add(new KeyDefinition(traceKey.id(), name, fieldName, TypeName.get(each.asType()), kind));
+            }
+        }
+        if (result.size() > MAX_KEYS) {
+            messager.printMessage(Diagnostic.Kind.ERROR, String.format("A trace schema holds at most %s keys.", MAX_KEYS), element);
+            return new ArrayList<>();
+        }
+        result.sort(Comparator.comparingInt(each -> each.id));
+        return result;
+    }
+    
+    private static MethodSpec createGetKeyIds(final List<KeyDefinition> keys) {
+        return MethodSpec.methodBuilder("getKeyIds")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC).returns(int[].class)
+                .addStatement("return new int[] {$L}", keys.stream().map(KeyDefinition::getConstantName).collect(Collectors.joining(", "))).build();
+    }
+    
+    private static MethodSpec createGetKeyName(final List<KeyDefinition> keys) {
+        CodeBlock.Builder body = CodeBlock.builder().beginControlFlow("switch (id)");
+        for (KeyDefinition each : keys) {
+            body.addStatement("case $L: return $S", each.getConstantName(), each.name);
+        }
+        body.addStatement("default: return null").endControlFlow();
+        return MethodSpec.methodBuilder("getKeyName")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC).returns(String.class)
+                .addParameter(int.class, "id", Modifier.FINAL)
+                .addCode(body.build()).build();
+    }
+    
+    private static MethodSpec createPut(final ClassName self, final KeyDefinition key, final long bit) {
+        MethodSpec.Builder result = MethodSpec.methodBuilder("put" + CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_CAMEL, key.fieldName))
+                .addJavadoc("Put the value of $S.\n\n@param value value$L\n@return this schema\n", key.name, key.parameterType.isPrimitive() ? "" : ", null removes it")
+                .addModifiers(Modifier.PUBLIC).returns(self)
+                .addParameter(key.parameterType, "value", Modifier.FINAL);
+        if (!key.parameterType.isPrimitive()) {
+            result.beginControlFlow("if (null == value)")
+                    .addStatement("$L &= ~$LL", PRESENT_KEYS, bit)
+                    .addStatement("return this")
+                    .endControlFlow();
+        }
+        return result.addStatement("this.$L = value", key.fieldName)
+                .addStatement("$L |= $LL", PRESENT_KEYS, bit)
+                .addStatement("return this").build();
+    }
+    
+    private static MethodSpec createDrainTo(final String schemaName, final List<KeyDefinition> keys) {
+        StringBuilder members = new StringBuilder(",");
+        TraceJson.appendString(members, GalaxyTracingProtocolConstant.SCHEMA);
+        members.append(':');
+        TraceJson.appendString(members, schemaName);
+        members.append(',');
+        TraceJson.appendString(members, GalaxyTracingProtocolConstant.SCHEMA_KEYS);
+        members.append(":[");
+        MethodSpec.Builder result = MethodSpec.methodBuilder("drainTo")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(StringBuilder.class, "json", Modifier.FINAL)
+                .addParameter(ParameterizedTypeName.get(Collection.class, String.class), "keptKeys", Modifier.FINAL)
+                .beginControlFlow("if (0L == $L)", PRESENT_KEYS)
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("json.append($S)", members.toString())
+                .addStatement("int start = json.length()");
+        for (int i = 0; i < keys.size(); i++) {
+            KeyDefinition each = keys.get(i);
+            result.beginControlFlow("if (0L != ($L & $LL) && (null == keptKeys || keptKeys.contains($S)))", PRESENT_KEYS, 1L << i, each.name)
+                    .addStatement("json.append(json.length() > start ? $S : $S)", "," + each.id + ",", each.id + ",");
+            switch (each.kind) {
+                case STRING:
+                    result.addStatement("$T.appendString(json, this.$L)", TraceJson.class, each.fieldName);
+                    break;
+                case DOUBLE:
+                    result.addStatement("$T.appendDouble(json, this.$L)", TraceJson.class, each.fieldName);
+                    break;
+                default:
+                    result.addStatement("json.append(this.$L)", each.fieldName);
+                    break;
+            }
+            result.endControlFlow();
+        }
+        return result.addStatement("json.append(']')").addStatement("reset()").build();
+    }
+    
+    private static MethodSpec createReset(final List<KeyDefinition> keys) {
+        MethodSpec.Builder result = MethodSpec.methodBuilder("reset")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addStatement("$L = 0L", PRESENT_KEYS);
+        for (KeyDefinition each : keys) {
+            if (ValueKind.STRING == each.kind) {
+                result.addStatement("this.$L = null", each.fieldName);
+            }
+        }
+        return result.build();
+    }
+    
+    private static final class KeyDefinition {
+        
+        private final int id;
+        
+        private final String name;
+        
+        private final String fieldName;
+        
+        private final TypeName parameterType;
+        
+        private final ValueKind kind;
+        
+        KeyDefinition(final int id, final String name, final String fieldName, final TypeName parameterType, final ValueKind kind) {
+            this.id = id;
+            this.name = name;
+            this.fieldName = fieldName;
+            this.parameterType = parameterType;
+            this.kind = kind;
+        }
+        
+        String getConstantName() {
+            return CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, fieldName);
+        }
+        
+        TypeName getValueType() {
+            return parameterType.isBoxedPrimitive() ? parameterType.unbox() : parameterType;
+        }
+    }
+    
+    private enum ValueKind {
+        
+        STRING, INT, LONG, BOOLEAN, DOUBLE;
+        
+        static ValueKind of(final TypeMirror type) {
+            TypeName typeName = TypeName.get(type);
+            if (ClassName.get(String.class).equals(typeName)) {
+                return STRING;
+            }
+            TypeName unboxed = typeName.isBoxedPrimitive() ? typeName.unbox() : typeName;
+            if (TypeName.INT.equals(unboxed)) {
+                return INT;
+            }
+            if (TypeName.LONG.equals(unboxed)) {
+                return LONG;
+            }
+            if (TypeName.BOOLEAN.equals(unboxed)) {
+                return BOOLEAN;
+            }
+            return TypeName.DOUBLE.equals(unboxed) ? DOUBLE : null;
+        }
+    }
+}
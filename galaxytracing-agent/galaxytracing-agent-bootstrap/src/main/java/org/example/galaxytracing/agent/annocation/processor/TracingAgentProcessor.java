@@ -24,6 +24,7 @@ import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.TypeSpec;
 import org.example.galaxytracing.agent.TracingAgent;
 import org.example.galaxytracing.agent.annocation.Agent;
+import org.example.galaxytracing.agent.annocation.TraceKey;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Processor;
@@ -44,11 +45,14 @@ import java.util.Set;
 /**
  * TracingAgent Processor.
  *
+ * <p>Besides the {@code $$TracingAgent} class, a {@code $$TraceSchema} class is generated for each {@link Agent} class
+ * declaring {@link TraceKey} fields, see {@link TraceSchemaGenerator}.</p>
+ *
  * @author JiekerTime
  */
 @AutoService(Processor.class)
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
-@SupportedAnnotationTypes("org.example.galaxytracing.agent.annocation.Agent")
+@SupportedAnnotationTypes({"org.example.galaxytracing.agent.annocation.Agent", "org.example.galaxytracing.agent.annocation.TraceKey"})
 public final class TracingAgentProcessor extends AbstractProcessor {
     
     private static final String TRACING_AGENT_SUFFIX = "$$TracingAgent";
@@ -69,12 +73,20 @@ public final class TracingAgentProcessor extends AbstractProcessor {
                     final JavaFile javaFile = JavaFile.builder(processingEnv.getElementUtils().getPackageOf(element)
                             .getQualifiedName().toString(), typeSpec).build();
                     writeJavaFile(javaFile);
+                    writeTraceSchema((TypeElement) element, javaFile.packageName);
                 });
             }
         }
         return true;
     }
     
+    private void writeTraceSchema(final TypeElement element, final String packageName) {
+        final TypeSpec schema = new TraceSchemaGenerator(processingEnv.getMessager()).generate(element);
+        if (null != schema) {
+            writeJavaFile(JavaFile.builder(packageName, schema).build());
+        }
+    }
+    
     private void writeJavaFile(final JavaFile javaFile) {
         StringBuilder builder = new StringBuilder();
         
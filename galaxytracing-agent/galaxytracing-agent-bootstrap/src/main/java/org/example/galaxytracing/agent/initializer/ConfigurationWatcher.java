@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.initializer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.thread.ExecutorThreadFactoryBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watch the agent configuration file and trigger a reload once it changes.
+ *
+ * <p>Editors often write a file in several steps, the events arriving within {@link #QUIET_MILLIS} of each other
+ * trigger a single reload.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "agent")
+public final class ConfigurationWatcher implements AutoCloseable {
+    
+    private static final long QUIET_MILLIS = 200L;
+    
+    private final File file;
+    
+    private final Runnable onChange;
+    
+    private final WatchService watchService;
+    
+    public ConfigurationWatcher(final File file, final Runnable onChange) throws IOException {
+        this.file = file.getAbsoluteFile();
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParentFile().toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        ExecutorThreadFactoryBuilder.build("Config-Watcher-%d").newThread(this::watch).start();
+    }
+    
+    private void watch() {
+        try {
+            while (true) {
+                if (isChanged(watchService.take())) {
+                    WatchKey key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                    while (null != key) {
+                        isChanged(key);
+                        key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                    onChange.run();
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignore) {
+        }
+        log.info("Configuration watcher of {} is closed.", file);
+    }
+    
+    private boolean isChanged(final WatchKey key) {
+        boolean result = false;
+        for (WatchEvent<?> each : key.pollEvents()) {
+            if (StandardWatchEventKinds.OVERFLOW == each.kind() || file.getName().equals(((Path) each.context()).getFileName().toString())) {
+                result = true;
+            }
+        }
+        key.reset();
+        return result;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
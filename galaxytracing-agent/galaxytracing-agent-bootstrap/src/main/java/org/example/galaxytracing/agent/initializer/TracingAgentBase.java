@@ -17,44 +17,103 @@
 
 package org.example.galaxytracing.agent.initializer;
 
-import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.example.galaxytracing.agent.TracingAgent;
+import org.example.galaxytracing.agent.core.governor.OverheadGovernor;
 import org.example.galaxytracing.agent.core.storage.TraceStorage;
 import org.example.galaxytracing.agent.core.storage.TraceStorageBinder;
 import org.example.galaxytracing.agent.reporter.Reporter;
+import org.example.galaxytracing.agent.reporter.TraceMessage;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.thread.ExecutorThreadFactoryBuilder;
 import org.example.galaxytracing.infra.config.ConfigurationLoader;
-import org.example.galaxytracing.infra.config.exception.ConfigurationLoadException;
+import org.example.galaxytracing.infra.config.entity.agent.BasicConfig;
+import org.example.galaxytracing.infra.config.entity.agent.ReporterConfig;
 import org.example.galaxytracing.infra.config.entity.impl.AgentConfiguration;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiFunction;
 
 /**
  * TracingAgent initializer.
  *
+ * <p>Only the configuration is loaded and the storage created on the calling thread. The reporter starts in
+ * background, the traces finished meanwhile wait in the queue until it is ready.</p>
+ *
+ * <p>The configuration file is watched, a change or a call to {@link #reload()} parses it again in background and
+ * publishes the new configuration as a whole, so the hot paths read a consistent snapshot without locking. The
+ * reporter client and the governor follow the new configuration, the storage type and the node identity take effect
+ * on restart only.</p>
+ *
  * @author JiekerTime
  */
+@Slf4j(topic = "agent")
 public final class TracingAgentBase {
     
     private static final String DEFAULT_FILE_NAME = "/conf/galaxytracing-config.%s";
     
     private static TracingAgentBase singleton;
     
+    private final File configurationFile;
+    
     private final TraceStorage storage;
     
-    private final BlockingQueue<String> mq;
+    private final BlockingQueue<TraceMessage> mq;
+    
+    private final OverheadGovernor governor;
+    
+    private final ExecutorService configExecutor = Executors.newSingleThreadExecutor(ExecutorThreadFactoryBuilder.build("Agent-Config-%d"));
+    
+    private final ConfigurationWatcher watcher;
     
-    private final Reporter reporter;
+    private final BiFunction<BlockingQueue<TraceMessage>, AgentConfiguration, Reporter> reporterFactory;
     
-    @Getter
-    private AgentConfiguration configuration;
+    private volatile AgentConfiguration configuration;
+    
+    private volatile CompletableFuture<Reporter> reporter;
     
     private TracingAgentBase(final String fileName) {
-        this.configuration = loadConfiguration(fileName);
+        this(ConfigurationLoader.findAgentFile(null == fileName ? DEFAULT_FILE_NAME : fileName, TracingAgent.class), Reporter::new);
+    }
+    
+    TracingAgentBase(final File configurationFile, final BiFunction<BlockingQueue<TraceMessage>, AgentConfiguration, Reporter> reporterFactory) {
+        this.configurationFile = configurationFile;
+        this.reporterFactory = reporterFactory;
+        this.configuration = ConfigurationLoader.loadAgentConfiguration(configurationFile);
         this.storage = TraceStorageBinder.INSTANCE.getInstance(configuration);
         this.mq = new LinkedBlockingQueue<>();
-        this.reporter = new Reporter(mq, configuration);
-        reporter.start();
+        this.governor = new OverheadGovernor(configuration.getGovernor());
+        this.reporter = CompletableFuture.supplyAsync(() -> startReporter(configuration), configExecutor);
+        reporter.whenComplete((result, ex) -> {
+            if (null != ex) {
+                log.error("Reporter failed to start.", ex);
+            }
+        });
+        this.watcher = watch(configurationFile);
+    }
+    
+    private Reporter startReporter(final AgentConfiguration current) {
+        Reporter result = reporterFactory.apply(mq, current);
+        result.start();
+        governor.registerThread(result);
+        return result;
+    }
+    
+    private ConfigurationWatcher watch(final File file) {
+        try {
+            return new ConfigurationWatcher(file, this::reload);
+        } catch (IOException ex) {
+            log.warn("Can not watch configuration file {}, it is reloaded on demand only.", file, ex);
+            return null;
+        }
     }
     
     /**
@@ -74,21 +133,56 @@ public final class TracingAgentBase {
         return singleton;
     }
     
-    private AgentConfiguration loadConfiguration(final String fileName) {
-        if (configuration == null) {
-            synchronized (this) {
-                if (configuration == null) {
-                    try {
-                        this.configuration = ConfigurationLoader.loadAgentYaml(fileName == null
-                                ? DEFAULT_FILE_NAME : fileName, TracingAgent.class);
-                    } catch (ConfigurationLoadException ex) {
-                        this.configuration = new AgentConfiguration(ConfigurationLoader.loadProperties(fileName == null
-                                ? DEFAULT_FILE_NAME : fileName, TracingAgent.class));
-                    }
-                }
+    /**
+     * Get the configuration.
+     *
+     * <p>The configuration is a snapshot replaced as a whole on reload, it must not be modified.</p>
+     *
+     * @return AgentConfiguration
+     */
+    public AgentConfiguration getConfiguration() {
+        return configuration;
+    }
+    
+    /**
+     * Parse the configuration file again in background and apply it.
+     *
+     * @return future of the applied configuration, completed exceptionally if the file can not be loaded
+     */
+    public CompletableFuture<AgentConfiguration> reload() {
+        CompletableFuture<AgentConfiguration> result = CompletableFuture.supplyAsync(() -> apply(ConfigurationLoader.loadAgentConfiguration(configurationFile)), configExecutor);
+        result.whenComplete((applied, ex) -> {
+            if (null != ex) {
+                log.error("Can not reload configuration file {}, the current configuration is kept.", configurationFile, ex);
             }
+        });
+        return result;
+    }
+    
+    private AgentConfiguration apply(final AgentConfiguration reloaded) {
+        AgentConfiguration previous = configuration;
+        if (reporter.isCompletedExceptionally()) {
+            reporter = CompletableFuture.completedFuture(startReporter(reloaded));
+        } else if (!isSameReporter(previous.getReporter(), reloaded.getReporter())) {
+            reporter.join().reconfigure(reloaded.getReporter());
         }
-        return configuration;
+        governor.reconfigure(reloaded.getGovernor());
+        if (!isSameStorage(previous.getBasic(), reloaded.getBasic())) {
+            log.warn("The tracing type and the node identity take effect on restart.");
+        }
+        configuration = reloaded;
+        log.info("Configuration is reloaded from {}.", configurationFile);
+        return reloaded;
+    }
+    
+    private static boolean isSameReporter(final ReporterConfig previous, final ReporterConfig current) {
+        return Objects.equals(previous.getType(), current.getType()) && Objects.equals(previous.getProps(), current.getProps());
+    }
+    
+    private static boolean isSameStorage(final BasicConfig previous, final BasicConfig current) {
+        return Objects.equals(previous.getTracingType(), current.getTracingType()) && Objects.equals(previous.getWorkerId(), current.getWorkerId())
+                && Objects.equals(previous.getDataId(), current.getDataId()) && Objects.equals(previous.getIdentityFile(), current.getIdentityFile())
+                && previous.getIdStripeBits() == current.getIdStripeBits();
     }
     
     /**
@@ -105,16 +199,50 @@ public final class TracingAgentBase {
      *
      * @return message mq
      */
-    public BlockingQueue<String> getMq() {
+    public BlockingQueue<TraceMessage> getMq() {
         return mq;
     }
     
     /**
      * Get reporter instance.
      *
-     * @return Reporter
+     * @return Reporter, null while it is starting
+     * @throws GalaxyTracingException the reporter failed to start
+     */
+    public Reporter getReporter() throws GalaxyTracingException {
+        CompletableFuture<Reporter> current = reporter;
+        if (!current.isDone()) {
+            return null;
+        }
+        try {
+            return current.join();
+        } catch (CompletionException ex) {
+            throw new GalaxyTracingException("Reporter failed to start.", ex);
+        }
+    }
+    
+    /**
+     * Shutdown the agent, the reporter reports the traces left in the queue once it is started.
+     */
+    public void shutdown() {
+        if (null != watcher) {
+            try {
+                watcher.close();
+            } catch (IOException ex) {
+                log.warn("Can not close configuration watcher.", ex);
+            }
+        }
+        configExecutor.shutdown();
+        governor.close();
+        reporter.thenAccept(Reporter::shutdown);
+    }
+    
+    /**
+     * Get overhead governor.
+     *
+     * @return OverheadGovernor
      */
-    public Reporter getReporter() {
-        return reporter;
+    public OverheadGovernor getGovernor() {
+        return governor;
     }
 }
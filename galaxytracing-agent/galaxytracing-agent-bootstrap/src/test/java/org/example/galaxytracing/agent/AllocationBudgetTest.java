@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent;
+
+import lombok.Getter;
+import org.example.galaxytracing.agent.core.span.SpanRecorder;
+import org.example.galaxytracing.agent.core.storage.impl.SnowFlakeTraceStorage;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Budgets of the bytes the hot paths of the agent may allocate per operation, a test fails once an operation exceeds
+ * its budget. Raise a budget only together with the change which needs it.
+ */
+public final class AllocationBudgetTest {
+    
+    private static final long PUT_KEY_VALUE_BUDGET = 64L;
+    
+    private static final long PUT_KEY_VALUES_BUDGET = 512L;
+    
+    private static final long PUT_OBJECT_BUDGET = 16384L;
+    
+    private static final long FINISH_BUDGET = 8192L;
+    
+    private static final long GENERATE_ID_BUDGET = 8L;
+    
+    private static final long STORAGE_SERIALIZATION_BUDGET = 4096L;
+    
+    private static final long SPAN_SERIALIZATION_BUDGET = 1024L;
+    
+    private final AllocationMeter allocationMeter = new AllocationMeter();
+    
+    private TracingAgent tracingAgent;
+    
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(allocationMeter.isSupported());
+        tracingAgent = new TracingAgent();
+        tracingAgent.clear();
+    }
+    
+    @Test
+    public void assertPutKeyValueAllocation() {
+        assertWithinBudget(PUT_KEY_VALUE_BUDGET, () -> tracingAgent.put("userId", "10086"));
+    }
+    
+    @Test
+    public void assertPutKeyValuesAllocation() {
+        assertWithinBudget(PUT_KEY_VALUES_BUDGET, () -> tracingAgent.put("userId", "10086", "orderId", "20211024", "status", "paid"));
+    }
+    
+    @Test
+    public void assertPutObjectAllocation() {
+        TraceData traceData = new TraceData();
+        assertWithinBudget(PUT_OBJECT_BUDGET, () -> tracingAgent.put(traceData));
+    }
+    
+    @Test
+    public void assertFinishAllocation() {
+        assertWithinBudget(FINISH_BUDGET, () -> {
+            tracingAgent.put("userId", "10086");
+            tracingAgent.finish(NOPLogger.NOP_LOGGER);
+        });
+    }
+    
+    @Test
+    public void assertGenerateIdAllocation() {
+        SnowflakeId snowflakeId = new SnowflakeId(1L, 1L);
+        assertWithinBudget(GENERATE_ID_BUDGET, snowflakeId::generateId);
+    }
+    
+    @Test
+    public void assertStorageSerializationAllocation() {
+        SnowFlakeTraceStorage storage = new SnowFlakeTraceStorage();
+        assertWithinBudget(STORAGE_SERIALIZATION_BUDGET, () -> {
+            storage.put("userId", "10086").put("orderId", "20211024").put("status", "paid");
+            storage.clear();
+        });
+    }
+    
+    @Test
+    public void assertSpanSerializationAllocation() {
+        SpanRecorder spanRecorder = SpanRecorder.current();
+        assertWithinBudget(SPAN_SERIALIZATION_BUDGET, () -> {
+            spanRecorder.start("query").tag("table", "order").end();
+            spanRecorder.finish("{\"traceId\":\"1\",\"userId\":\"10086\"}");
+        });
+    }
+    
+    private void assertWithinBudget(final long budget, final Runnable operation) {
+        double bytesPerOperation = allocationMeter.measure(operation);
+        assertTrue(String.format("%.1f bytes allocated per operation, the budget is %d", bytesPerOperation, budget), bytesPerOperation <= budget);
+    }
+    
+    @Getter
+    public static final class TraceData {
+        
+        private final String userId = "10086";
+        
+        private final String orderId = "20211024";
+        
+        private final String status = "paid";
+    }
+}
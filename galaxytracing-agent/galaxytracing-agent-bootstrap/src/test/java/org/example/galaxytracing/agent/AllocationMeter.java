@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Meter of the bytes the current thread allocates per operation.
+ *
+ * <p>It reads the allocated bytes of the thread from {@link com.sun.management.ThreadMXBean}, so allocations of other
+ * threads such as the reporter are not counted. The operation runs enough times first for the JIT to compile it, the
+ * budgets are about the compiled code.</p>
+ */
+final class AllocationMeter {
+    
+    private static final int WARMUP_OPERATIONS = 20000;
+    
+    private static final int MEASURED_OPERATIONS = 20000;
+    
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    
+    AllocationMeter() {
+        threadMXBean = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() : null;
+        if (isSupported()) {
+            threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+    
+    /**
+     * Judge whether the JVM measures the allocated bytes per thread.
+     *
+     * @return supported or not
+     */
+    boolean isSupported() {
+        return null != threadMXBean && threadMXBean.isThreadAllocatedMemorySupported();
+    }
+    
+    /**
+     * Measure the average bytes allocated by an operation.
+     *
+     * @param operation operation
+     * @return bytes per operation
+     */
+    double measure(final Runnable operation) {
+        for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+            operation.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long start = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+            operation.run();
+        }
+        return (double) (threadMXBean.getThreadAllocatedBytes(threadId) - start) / MEASURED_OPERATIONS;
+    }
+}
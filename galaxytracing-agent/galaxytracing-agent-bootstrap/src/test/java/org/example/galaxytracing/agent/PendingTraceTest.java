@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent;
+
+import org.example.galaxytracing.infra.common.traceid.IdGenerator;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class PendingTraceTest {
+    
+    private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+    
+    private final Logger logger = (Logger) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Logger.class}, (proxy, method, args) -> {
+        if ("info".equals(method.getName()) && 1 == args.length) {
+            messages.add((String) args[0]);
+        }
+        return boolean.class == method.getReturnType() ? false : null;
+    });
+    
+    @Test
+    public void assertStamp() {
+        assertThat(PendingTrace.stamp("{}", 42L), is("{\"traceId\":\"42\"}"));
+        assertThat(PendingTrace.stamp("{\"k\":\"v\"}", 42L), is("{\"traceId\":\"42\",\"k\":\"v\"}"));
+        assertThat(PendingTrace.stamp("{,\"x\":1}", 42L), is("{\"traceId\":\"42\",\"x\":1}"));
+        assertThat(PendingTrace.stamp("{\"spans\":[]}", 42L), is("{\"traceId\":\"42\",\"spans\":[]}"));
+    }
+    
+    @Test
+    public void assertStampNothingButObject() {
+        assertThat(PendingTrace.stamp("null", 42L), is("null"));
+    }
+    
+    @Test
+    public void assertSerializeOnceIdentityResolved() throws InterruptedException, ExecutionException, TimeoutException {
+        CompletableFuture<IdGenerator> idGenerator = new CompletableFuture<>();
+        PendingTrace trace = new PendingTrace("{\"k\":\"v\"}", idGenerator, logger, null);
+        CompletableFuture<String> serialized = CompletableFuture.supplyAsync(trace::serialize);
+        Thread.sleep(100L);
+        assertFalse(serialized.isDone());
+        assertTrue(messages.isEmpty());
+        idGenerator.complete(() -> 7L);
+        assertThat(serialized.get(5L, TimeUnit.SECONDS), is("{\"traceId\":\"7\",\"k\":\"v\"}"));
+        assertThat(messages, is(Collections.singletonList("{\"traceId\":\"7\",\"k\":\"v\"}")));
+    }
+}
@@ -17,7 +17,20 @@
 
 package org.example.galaxytracing.agent;
 
+import com.huawei.shade.com.alibaba.fastjson.JSONObject;
+import org.example.galaxytracing.agent.core.schema.TraceSchema;
+import org.example.galaxytracing.agent.initializer.TracingAgentBase;
 import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
 
 public final class TracingAgentTest {
     
@@ -25,4 +38,51 @@ public final class TracingAgentTest {
     public void constructorTest() {
         new TracingAgent();
     }
+    
+    @Test
+    public void assertFinishWithSchemaOnly() {
+        TracingAgent tracingAgent = new TracingAgent();
+        TracingAgentBase.getInstance(null).getStorage().getIdGenerator().join();
+        tracingAgent.clear();
+        List<String> messages = new ArrayList<>();
+        Logger logger = (Logger) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Logger.class}, (proxy, method, args) -> {
+            if ("info".equals(method.getName()) && 1 == args.length) {
+                messages.add((String) args[0]);
+            }
+            return boolean.class == method.getReturnType() ? false : null;
+        });
+        tracingAgent.finish(logger, new OrderSchema());
+        assertThat(messages.size(), is(1));
+        JSONObject actual = JSONObject.parseObject(messages.get(0));
+        assertThat(actual.getString("traceId"), notNullValue());
+        assertThat(actual.getString("@schema"), is("example.OrderAgent"));
+        assertThat(actual.getJSONArray("@keys").getLongValue(1), is(42L));
+    }
+    
+    private static final class OrderSchema implements TraceSchema {
+        
+        @Override
+        public String getName() {
+            return "example.OrderAgent";
+        }
+        
+        @Override
+        public int[] getKeyIds() {
+            return new int[]{1};
+        }
+        
+        @Override
+        public String getKeyName(final int id) {
+            return 1 == id ? "orderId" : null;
+        }
+        
+        @Override
+        public void drainTo(final StringBuilder json, final Collection<String> keptKeys) {
+            json.append(",\"@schema\":\"example.OrderAgent\",\"@keys\":[1,42]");
+        }
+        
+        @Override
+        public void reset() {
+        }
+    }
 }
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.annocation.processor;
+
+import com.huawei.shade.com.alibaba.fastjson.JSONArray;
+import com.huawei.shade.com.alibaba.fastjson.JSONObject;
+import org.example.galaxytracing.agent.core.schema.TraceSchema;
+import org.example.galaxytracing.infra.common.constant.GalaxyTracingProtocolConstant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class TracingAgentProcessorTest {
+    
+    private static final String ORDER_AGENT = String.join("\n",
+            "package example;",
+            "import org.example.galaxytracing.agent.annocation.Agent;",
+            "import org.example.galaxytracing.agent.annocation.TraceKey;",
+            "@Agent",
+            "public class OrderAgent {",
+            "    @TraceKey(id = 1) private long orderId;",
+            "    @TraceKey(id = 2, name = \"service.name\") private String service;",
+            "    @TraceKey(id = 3) private Double amount;",
+            "    @TraceKey(id = 4) private boolean paid;",
+            "    @TraceKey(id = 5) private Integer retries;",
+            "    @TraceKey(id = 6) private int value;",
+            "}");
+    
+    private static final String DUPLICATE_ID_AGENT = String.join("\n",
+            "package example;",
+            "import org.example.galaxytracing.agent.annocation.Agent;",
+            "import org.example.galaxytracing.agent.annocation.TraceKey;",
+            "@Agent",
+            "public class DuplicateAgent {",
+            "    @TraceKey(id = 1) private long orderId;",
+            "    @TraceKey(id = 1) private long userId;",
+            "}");
+    
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void assertRoundTripThroughGeneratedSchema() throws ReflectiveOperationException, IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertTrue(diagnostics.getDiagnostics().toString(), compile("example.OrderAgent", ORDER_AGENT, diagnostics));
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, getClass().getClassLoader())) {
+            Class<?> schemaClass = classLoader.loadClass("example.OrderAgent$$TraceSchema");
+            TraceSchema schema = (TraceSchema) schemaClass.getMethod("current").invoke(null);
+            schemaClass.getMethod("putOrderId", long.class).invoke(schema, 42L);
+            schemaClass.getMethod("putService", String.class).invoke(schema, "order \"svc\"\n");
+            schemaClass.getMethod("putAmount", Double.class).invoke(schema, 12.5D);
+            schemaClass.getMethod("putPaid", boolean.class).invoke(schema, true);
+            schemaClass.getMethod("putRetries", Integer.class).invoke(schema, 3);
+            schemaClass.getMethod("putRetries", Integer.class).invoke(schema, (Object) null);
+            schemaClass.getMethod("putValue", int.class).invoke(schema, 7);
+            JSONObject trace = drain(schema, null);
+            assertThat(trace.getString("traceId"), is("1001"));
+            assertThat(trace.getString(GalaxyTracingProtocolConstant.SCHEMA), is("example.OrderAgent"));
+            assertThat(trace.getJSONArray(GalaxyTracingProtocolConstant.SCHEMA_KEYS).get(0), is((Object) 1));
+            JSONObject actual = expand(schema, trace);
+            assertThat(actual.size(), is(5));
+            assertThat(actual.getLong("orderId"), is(42L));
+            assertThat(actual.getString("service.name"), is("order \"svc\"\n"));
+            assertThat(actual.getDouble("amount"), is(12.5D));
+            assertThat(actual.getBoolean("paid"), is(true));
+            assertThat(actual.getInteger("value"), is(7));
+            assertFalse(actual.containsKey("retries"));
+            assertThat(drain(schema, null).size(), is(1));
+            assertThat(schemaClass.getField("SERVICE").get(null), is(2));
+            assertThat(schema.getName(), is("example.OrderAgent"));
+            assertThat(schema.getKeyIds(), is(new int[]{1, 2, 3, 4, 5, 6}));
+            assertThat(schema.getKeyName(2), is("service.name"));
+            assertThat(schema.getKeyName(9), nullValue());
+        }
+    }
+    
+    @Test
+    public void assertDrainKeptKeysOnly() throws ReflectiveOperationException, IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertTrue(diagnostics.getDiagnostics().toString(), compile("example.OrderAgent", ORDER_AGENT, diagnostics));
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, getClass().getClassLoader())) {
+            Class<?> schemaClass = classLoader.loadClass("example.OrderAgent$$TraceSchema");
+            TraceSchema schema = (TraceSchema) schemaClass.getMethod("current").invoke(null);
+            schemaClass.getMethod("putOrderId", long.class).invoke(schema, 42L);
+            schemaClass.getMethod("putAmount", Double.class).invoke(schema, Double.NaN);
+            JSONObject actual = expand(schema, drain(schema, Arrays.asList("amount", "paid")));
+            assertThat(actual.size(), is(1));
+            assertThat(actual.getString("amount"), is("NaN"));
+        }
+    }
+    
+    @Test
+    public void assertRejectDuplicateKeyId() throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertFalse(compile("example.DuplicateAgent", DUPLICATE_ID_AGENT, diagnostics));
+        Diagnostic<? extends JavaFileObject> error = diagnostics.getDiagnostics().stream().filter(each -> Diagnostic.Kind.ERROR == each.getKind()).findFirst().get();
+        assertThat(error.getMessage(null), containsString("ID 1 of trace key userId is already used."));
+    }
+    
+    private static JSONObject drain(final TraceSchema schema, final List<String> keptKeys) {
+        StringBuilder json = new StringBuilder("{\"traceId\":\"1001\"");
+        schema.drainTo(json, keptKeys);
+        return JSONObject.parseObject(json.append('}').toString());
+    }
+    
+    private static JSONObject expand(final TraceSchema schema, final JSONObject trace) {
+        JSONArray keys = trace.getJSONArray(GalaxyTracingProtocolConstant.SCHEMA_KEYS);
+        JSONObject result = new JSONObject();
+        for (int i = 0; i < keys.size(); i += 2) {
+            result.put(schema.getKeyName(keys.getIntValue(i)), keys.get(i + 1));
+        }
+        return result;
+    }
+    
+    private boolean compile(final String className, final String source, final DiagnosticCollector<JavaFileObject> diagnostics) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            File output = folder.getRoot();
+            List<String> options = Arrays.asList("-classpath", System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")),
+                    "-d", output.getPath(), "-s", output.getPath());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, Collections.singletonList(new SourceFile(className, source)));
+            task.setProcessors(Collections.singletonList(new TracingAgentProcessor()));
+            return task.call();
+        }
+    }
+    
+    private static final class SourceFile extends SimpleJavaFileObject {
+        
+        private final String source;
+        
+        SourceFile(final String className, final String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+        
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+}
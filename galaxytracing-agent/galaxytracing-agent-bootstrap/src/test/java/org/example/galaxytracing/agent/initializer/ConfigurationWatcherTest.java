@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.initializer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public final class ConfigurationWatcherTest {
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void assertReloadOnceForWritesInQuickSuccession() throws IOException, InterruptedException {
+        File file = temporaryFolder.newFile("galaxytracing-config.yaml");
+        AtomicInteger changes = new AtomicInteger();
+        try (ConfigurationWatcher ignored = new ConfigurationWatcher(file, changes::incrementAndGet)) {
+            write(file, "basic:\n", StandardOpenOption.TRUNCATE_EXISTING);
+            Thread.sleep(50L);
+            write(file, "  tracingType: default\n", StandardOpenOption.APPEND);
+            Thread.sleep(50L);
+            write(file, "  logging: true\n", StandardOpenOption.APPEND);
+            awaitChanges(changes, 1);
+            Thread.sleep(500L);
+            assertThat(changes.get(), is(1));
+            write(file, "  logging: false\n", StandardOpenOption.APPEND);
+            awaitChanges(changes, 2);
+            assertThat(changes.get(), is(2));
+        }
+    }
+    
+    @Test
+    public void assertIgnoreOtherFiles() throws IOException, InterruptedException {
+        File file = temporaryFolder.newFile("galaxytracing-config.yaml");
+        AtomicInteger changes = new AtomicInteger();
+        try (ConfigurationWatcher ignored = new ConfigurationWatcher(file, changes::incrementAndGet)) {
+            write(temporaryFolder.newFile("other.yaml"), "basic:\n", StandardOpenOption.APPEND);
+            Thread.sleep(500L);
+            assertThat(changes.get(), is(0));
+        }
+    }
+    
+    private static void write(final File file, final String content, final StandardOpenOption option) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.WRITE, option);
+    }
+    
+    private static void awaitChanges(final AtomicInteger changes, final int count) throws InterruptedException {
+        for (int i = 0; i < 100 && changes.get() < count; i++) {
+            Thread.sleep(50L);
+        }
+    }
+}
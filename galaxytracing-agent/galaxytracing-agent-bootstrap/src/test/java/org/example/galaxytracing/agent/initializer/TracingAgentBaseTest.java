@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.initializer;
+
+import org.example.galaxytracing.agent.reporter.Reporter;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.config.entity.impl.AgentConfiguration;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class TracingAgentBaseTest {
+    
+    private static final String CONFIG = "basic:\n  tracingType: default\nreporter:\n  type: direct\n  props:\n    url: %s\n";
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final AtomicInteger reporterStarts = new AtomicInteger();
+    
+    private TracingAgentBase agentBase;
+    
+    @After
+    public void tearDown() {
+        agentBase.shutdown();
+    }
+    
+    @Test
+    public void assertReloadOnceOnFileChange() throws IOException, InterruptedException {
+        File file = writeConfig(temporaryFolder.newFile("galaxytracing-config.yaml"), "http://localhost:9000/collector");
+        agentBase = new TracingAgentBase(file, (queue, config) -> startReporter(new Reporter(queue, config)));
+        AgentConfiguration initial = agentBase.getConfiguration();
+        writeConfig(file, "http://localhost:9001/collector");
+        for (int i = 0; i < 100 && initial == agentBase.getConfiguration(); i++) {
+            Thread.sleep(50L);
+        }
+        AgentConfiguration reloaded = agentBase.getConfiguration();
+        assertThat(reloaded, not(sameInstance(initial)));
+        assertThat(reloaded.getReporter().getProps().get("url"), is("http://localhost:9001/collector"));
+        Thread.sleep(500L);
+        assertThat(agentBase.getConfiguration(), sameInstance(reloaded));
+        assertThat(reporterStarts.get(), is(1));
+    }
+    
+    @Test
+    public void assertKeepConfigurationIfFileIsBroken() throws IOException {
+        File file = writeConfig(temporaryFolder.newFile("galaxytracing-config.yaml"), "http://localhost:9000/collector");
+        agentBase = new TracingAgentBase(file, (queue, config) -> startReporter(new Reporter(queue, config)));
+        AgentConfiguration initial = agentBase.getConfiguration();
+        Files.write(file.toPath(), "basic: [".getBytes(StandardCharsets.UTF_8));
+        assertTrue(agentBase.reload().handle((applied, ex) -> null != ex).join());
+        assertThat(agentBase.getConfiguration(), sameInstance(initial));
+    }
+    
+    @Test
+    public void assertRestartReporterFailedToStartOnReload() throws IOException, InterruptedException {
+        File file = writeConfig(temporaryFolder.newFile("galaxytracing-config.yaml"), "http://localhost:9000/collector");
+        agentBase = new TracingAgentBase(file, (queue, config) -> {
+            if (0 == reporterStarts.get()) {
+                reporterStarts.incrementAndGet();
+                throw new GalaxyTracingException("Reporter is not reachable");
+            }
+            return startReporter(new Reporter(queue, config));
+        });
+        assertTrue(isStartFailed(agentBase));
+        agentBase.reload().join();
+        assertThat(agentBase.getReporter(), notNullValue());
+        assertThat(reporterStarts.get(), is(2));
+    }
+    
+    private Reporter startReporter(final Reporter reporter) {
+        reporterStarts.incrementAndGet();
+        return reporter;
+    }
+    
+    private static File writeConfig(final File file, final String url) throws IOException {
+        Files.write(file.toPath(), String.format(CONFIG, url).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+    
+    private static boolean isStartFailed(final TracingAgentBase agentBase) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try {
+                if (null != agentBase.getReporter()) {
+                    return false;
+                }
+            } catch (final GalaxyTracingException ex) {
+                return true;
+            }
+            Thread.sleep(50L);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.governor;
+
+/**
+ * Levels the governor degrades tracing through, from the most complete to the cheapest.
+ *
+ * @author JiekerTime
+ */
+public enum DegradationLevel {
+    
+    /**
+     * Every trace is reported with all of its attributes and spans.
+     */
+    NORMAL,
+    
+    /**
+     * Only a sample of the traces is reported.
+     */
+    SAMPLED,
+    
+    /**
+     * A sample of the traces is reported, without spans and with the traceId and the kept keys only.
+     */
+    ATTRIBUTES_DROPPED,
+    
+    /**
+     * No trace is reported.
+     */
+    REPORTING_DISABLED;
+    
+    /**
+     * Get the next more degraded level.
+     *
+     * @return degraded level, this level if it is the last one
+     */
+    public DegradationLevel degrade() {
+        return REPORTING_DISABLED == this ? this : values()[ordinal() + 1];
+    }
+    
+    /**
+     * Get the next less degraded level.
+     *
+     * @return recovered level, this level if it is the first one
+     */
+    public DegradationLevel recover() {
+        return NORMAL == this ? this : values()[ordinal() - 1];
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.governor;
+
+import com.google.common.base.Preconditions;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.thread.ExecutorThreadFactoryBuilder;
+import org.example.galaxytracing.infra.config.entity.agent.GovernorConfig;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Governor which degrades tracing when the agent costs the application too much.
+ *
+ * <p>Every interval the governor adds up the CPU time of the registered agent threads and the time spent in
+ * {@code finish()}, where the trace is serialized on the application thread, and compares it with the CPU budget. The
+ * mean latency of {@code finish()} is compared with the latency budget. Each interval over budget degrades tracing
+ * one {@link DegradationLevel}, tracing recovers one level after a number of consecutive intervals within budget.</p>
+ *
+ * <p>The config can be replaced at runtime by {@link #reconfigure(GovernorConfig)}.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "agent")
+public final class OverheadGovernor implements AutoCloseable {
+    
+    private volatile GovernorConfig config;
+    
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    
+    private final boolean threadCpuTimeSupported;
+    
+    private final Set<Thread> agentThreads = new CopyOnWriteArraySet<>();
+    
+    private final Map<Long, Long> lastCpuNanos = new ConcurrentHashMap<>();
+    
+    private final LongAdder finishCount = new LongAdder();
+    
+    private final LongAdder finishNanos = new LongAdder();
+    
+    private final int processors = Runtime.getRuntime().availableProcessors();
+    
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(ExecutorThreadFactoryBuilder.build("Governor-%d"));
+    
+    private ScheduledFuture<?> checkFuture;
+    
+    private volatile DegradationLevel level = DegradationLevel.NORMAL;
+    
+    private long lastCheckNanos;
+    
+    private int healthyIntervals;
+    
+    public OverheadGovernor(final GovernorConfig config) {
+        checkConfig(config);
+        this.config = config;
+        threadCpuTimeSupported = threadBean.isThreadCpuTimeSupported();
+        if (threadCpuTimeSupported && !threadBean.isThreadCpuTimeEnabled()) {
+            threadBean.setThreadCpuTimeEnabled(true);
+        }
+        lastCheckNanos = System.nanoTime();
+        schedule(config);
+    }
+    
+    private static void checkConfig(final GovernorConfig config) {
+        Preconditions.checkArgument(config.getSampleRate() >= 0D && config.getSampleRate() <= 1D, "Sample rate %s is not in [0, 1].", config.getSampleRate());
+        Preconditions.checkArgument(config.getIntervalMillis() > 0L, "Governor interval must be positive.");
+    }
+    
+    private synchronized void schedule(final GovernorConfig config) {
+        if (null != checkFuture) {
+            checkFuture.cancel(false);
+        }
+        checkFuture = config.isEnabled() ? executor.scheduleAtFixedRate(this::check, config.getIntervalMillis(), config.getIntervalMillis(), TimeUnit.MILLISECONDS) : null;
+    }
+    
+    /**
+     * Replace the config, tracing goes back to {@link DegradationLevel#NORMAL} if the governor is disabled.
+     *
+     * @param config new config
+     */
+    public void reconfigure(final GovernorConfig config) {
+        checkConfig(config);
+        GovernorConfig previous = this.config;
+        this.config = config;
+        if (previous.isEnabled() != config.isEnabled() || previous.getIntervalMillis() != config.getIntervalMillis()) {
+            schedule(config);
+        }
+        if (!config.isEnabled()) {
+            level = DegradationLevel.NORMAL;
+        }
+    }
+    
+    /**
+     * Register a thread whose CPU time is spent by the agent.
+     *
+     * @param thread agent thread
+     */
+    public void registerThread(final Thread thread) {
+        lastCpuNanos.put(thread.getId(), threadCpuTimeSupported ? Math.max(0L, threadBean.getThreadCpuTime(thread.getId())) : 0L);
+        agentThreads.add(thread);
+    }
+    
+    /**
+     * Get the current degradation level.
+     *
+     * @return degradation level
+     */
+    public DegradationLevel getLevel() {
+        return level;
+    }
+    
+    /**
+     * Decide whether the trace being finished is reported at the given level.
+     *
+     * @param current degradation level read for this trace
+     * @return report the trace or not
+     */
+    public boolean sample(final DegradationLevel current) {
+        switch (current) {
+            case NORMAL:
+                return true;
+            case REPORTING_DISABLED:
+                return false;
+            default:
+                return ThreadLocalRandom.current().nextDouble() < config.getSampleRate();
+        }
+    }
+    
+    /**
+     * Get the keys reported besides the traceId once attributes are dropped.
+     *
+     * @return kept keys
+     */
+    public List<String> getKeptKeys() {
+        return config.getKeptKeys();
+    }
+    
+    /**
+     * Record the time spent to finish a trace.
+     *
+     * @param elapsedNanos elapsed nanoseconds
+     */
+    public void recordFinish(final long elapsedNanos) {
+        finishCount.increment();
+        finishNanos.add(elapsedNanos);
+    }
+    
+    void check() {
+        GovernorConfig current = config;
+        long now = System.nanoTime();
+        long elapsedNanos = Math.max(1L, now - lastCheckNanos);
+        lastCheckNanos = now;
+        long count = finishCount.sumThenReset();
+        long spentInFinish = finishNanos.sumThenReset();
+        double cpuPercent = 100D * (collectThreadCpuNanos() + spentInFinish) / ((double) elapsedNanos * processors);
+        long meanFinishMicros = 0L == count ? 0L : TimeUnit.NANOSECONDS.toMicros(spentInFinish / count);
+        if (cpuPercent > current.getCpuBudgetPercent() || meanFinishMicros > current.getFinishLatencyBudgetMicros()) {
+            healthyIntervals = 0;
+            DegradationLevel degraded = level.degrade();
+            if (degraded != level) {
+                log.warn("Agent costs {}% CPU and {}us per finish, tracing degrades from {} to {}.", String.format("%.2f", cpuPercent), meanFinishMicros, level, degraded);
+                level = degraded;
+            }
+            return;
+        }
+        if (DegradationLevel.NORMAL != level && ++healthyIntervals >= current.getRecoveryIntervals()) {
+            healthyIntervals = 0;
+            DegradationLevel recovered = level.recover();
+            log.info("Agent overhead is back within budget, tracing recovers from {} to {}.", level, recovered);
+            level = recovered;
+        }
+    }
+    
+    private long collectThreadCpuNanos() {
+        if (!threadCpuTimeSupported) {
+            return 0L;
+        }
+        long result = 0L;
+        for (Thread each : agentThreads) {
+            if (Thread.State.TERMINATED == each.getState()) {
+                agentThreads.remove(each);
+                lastCpuNanos.remove(each.getId());
+                continue;
+            }
+            long cpuNanos = threadBean.getThreadCpuTime(each.getId());
+            if (cpuNanos < 0L) {
+                continue;
+            }
+            Long last = lastCpuNanos.put(each.getId(), cpuNanos);
+            result += null == last ? 0L : cpuNanos - last;
+        }
+        return result;
+    }
+    
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
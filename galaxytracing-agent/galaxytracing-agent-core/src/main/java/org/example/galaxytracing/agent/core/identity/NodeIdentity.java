@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.identity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.example.galaxytracing.infra.common.traceid.IdGenerator;
+import org.example.galaxytracing.infra.common.traceid.ShardedSnowflakeId;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeLayout;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Worker ID and data ID the agent generates its traceIds with.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@RequiredArgsConstructor
+public final class NodeIdentity {
+    
+    private final long workerId;
+    
+    private final long dataId;
+    
+    /**
+     * Create a random identity, used only when the identity can not be derived from the network.
+     *
+     * @return random identity
+     */
+    public static NodeIdentity random() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new NodeIdentity(random.nextLong(SnowflakeId.MAX_WORKER_ID + 1), random.nextLong(SnowflakeId.MAX_DATA_ID + 1));
+    }
+    
+    /**
+     * Create a generator of the traceIds of this identity.
+     *
+     * @param stripeBits sequence bits carved into per-thread stripes, 0 to share one generator between all threads
+     * @return generator of the traceIds
+     */
+    public IdGenerator createSnowflakeId(final int stripeBits) {
+        return 0 == stripeBits ? new SnowflakeId(workerId, dataId) : new ShardedSnowflakeId(workerId, dataId, SnowflakeLayout.withStripeBits(stripeBits));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.identity;
+
+import com.google.common.base.Strings;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.example.galaxytracing.infra.config.constant.AgentConfigParamsConstant;
+import org.example.galaxytracing.infra.config.entity.agent.BasicConfig;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Resolve the {@link NodeIdentity} of the agent.
+ *
+ * <p>An identity configured explicitly or cached in the identity file is resolved without touching the network.
+ * Otherwise the identity is derived from the network interface and the process ID, which looks up the local host and
+ * can block for seconds when DNS is broken, and is then cached in the identity file if one is configured.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "agent")
+@RequiredArgsConstructor
+public final class NodeIdentityResolver {
+    
+    private final BasicConfig config;
+    
+    /**
+     * Resolve the identity without touching the network.
+     *
+     * @return identity, null if neither configured nor cached
+     * @throws GalaxyTracingException only one of workerId and dataId is configured
+     */
+    public NodeIdentity resolveLocally() throws GalaxyTracingException {
+        if (null != config.getWorkerId() || null != config.getDataId()) {
+            if (null == config.getWorkerId() || null == config.getDataId()) {
+                throw new GalaxyTracingException("Both %s and %s must be configured.", AgentConfigParamsConstant.WORKER_ID, AgentConfigParamsConstant.DATA_ID);
+            }
+            return new NodeIdentity(config.getWorkerId(), config.getDataId());
+        }
+        return Strings.isNullOrEmpty(config.getIdentityFile()) ? null : load(new File(config.getIdentityFile()));
+    }
+    
+    /**
+     * Derive the identity from the network interface and the process ID, then cache it in the identity file.
+     *
+     * @return identity
+     */
+    public NodeIdentity resolveFromNetwork() {
+        long dataId = SnowflakeId.generateDataId();
+        NodeIdentity result = new NodeIdentity(SnowflakeId.generateWorkId(dataId), dataId);
+        if (!Strings.isNullOrEmpty(config.getIdentityFile())) {
+            save(new File(config.getIdentityFile()), result);
+        }
+        return result;
+    }
+    
+    private static NodeIdentity load(final File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+            long workerId = Long.parseLong(properties.getProperty(AgentConfigParamsConstant.WORKER_ID, "-1").trim());
+            long dataId = Long.parseLong(properties.getProperty(AgentConfigParamsConstant.DATA_ID, "-1").trim());
+            if (workerId < 0L || workerId > SnowflakeId.MAX_WORKER_ID || dataId < 0L || dataId > SnowflakeId.MAX_DATA_ID) {
+                log.warn("Identity file {} holds illegal IDs, the identity is derived again.", file);
+                return null;
+            }
+            return new NodeIdentity(workerId, dataId);
+        } catch (IOException | NumberFormatException ex) {
+            log.warn("Can not read identity file {}, the identity is derived again.", file, ex);
+            return null;
+        }
+    }
+    
+    private static void save(final File file, final NodeIdentity identity) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            log.warn("Can not create identity directory {}", parent);
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(AgentConfigParamsConstant.WORKER_ID, String.valueOf(identity.getWorkerId()));
+        properties.setProperty(AgentConfigParamsConstant.DATA_ID, String.valueOf(identity.getDataId()));
+        File temporaryFile = new File(parent, file.getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temporaryFile)) {
+            properties.store(output, "GalaxyTracing agent identity");
+            output.getFD().sync();
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            log.warn("Can not write identity file {}", file, ex);
+        }
+    }
+}
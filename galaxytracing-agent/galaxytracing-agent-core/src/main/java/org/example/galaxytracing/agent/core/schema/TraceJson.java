@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.schema;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Appends the values of a trace to its JSON message without building a map first.
+ *
+ * @author JiekerTime
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TraceJson {
+    
+    /**
+     * Append a string as a JSON string.
+     *
+     * @param json JSON being built
+     * @param value value, appended as {@code null} if null
+     */
+    public static void appendString(final StringBuilder json, final String value) {
+        if (null == value) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char each = value.charAt(i);
+            if ('"' == each || '\\' == each) {
+                json.append('\\').append(each);
+            } else if (each < 0x20) {
+                json.append(String.format("\\u%04x", (int) each));
+            } else {
+                json.append(each);
+            }
+        }
+        json.append('"');
+    }
+    
+    /**
+     * Append a double as a JSON number, or as a JSON string if it is not finite.
+     *
+     * @param json JSON being built
+     * @param value value
+     */
+    public static void appendDouble(final StringBuilder json, final double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            json.append('"').append(value).append('"');
+        } else {
+            json.append(value);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.schema;
+
+import java.util.Collection;
+
+/**
+ * Typed trace keys of the current thread, generated for an {@code Agent} class from its {@code TraceKey} fields.
+ *
+ * <p>The values are held in typed fields and written straight into the JSON message of the trace when it is finished,
+ * so putting them neither boxes them nor hashes their names. The keys are written as their IDs, the collector maps them
+ * back to their names registered through {@link #getKeyName(int)}.</p>
+ *
+ * @author JiekerTime
+ */
+public interface TraceSchema {
+    
+    /**
+     * Get the name of the schema.
+     *
+     * @return name
+     */
+    String getName();
+    
+    /**
+     * Get the IDs of the keys.
+     *
+     * @return IDs of the keys
+     */
+    int[] getKeyIds();
+    
+    /**
+     * Get the name of a key.
+     *
+     * @param id ID of the key
+     * @return name, null if the schema has no such key
+     */
+    String getKeyName(int id);
+    
+    /**
+     * Append the keys put to the JSON message of the trace, then remove them.
+     *
+     * <p>The name of the schema and the keys are appended as two members preceded by a comma, the keys as an array of
+     * their IDs each followed by its value. Nothing is appended if no key was put.</p>
+     *
+     * @param json JSON object of the trace, without its closing brace
+     * @param keptKeys names of the keys to append, null to append all keys
+     */
+    void drainTo(StringBuilder json, Collection<String> keptKeys);
+    
+    /**
+     * Remove all keys.
+     */
+    void reset();
+}
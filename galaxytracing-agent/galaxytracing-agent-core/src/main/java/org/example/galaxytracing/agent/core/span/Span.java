@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.span;
+
+import java.util.Arrays;
+
+/**
+ * Timed operation inside a trace.
+ *
+ * <p>Spans are pooled by the {@link SpanRecorder} of their thread and reused once the trace is finished, so a span must
+ * neither be kept nor touched by another thread after its trace is finished.</p>
+ *
+ * @author JiekerTime
+ */
+public final class Span {
+    
+    private final SpanRecorder recorder;
+    
+    private int id;
+    
+    private int parentId;
+    
+    private String name;
+    
+    private long startNanos;
+    
+    private long endNanos;
+    
+    private boolean ended;
+    
+    private String[] attributes = new String[8];
+    
+    private int attributeCount;
+    
+    Span(final SpanRecorder recorder) {
+        this.recorder = recorder;
+    }
+    
+    void init(final int id, final int parentId, final String name, final long startNanos) {
+        this.id = id;
+        this.parentId = parentId;
+        this.name = name;
+        this.startNanos = startNanos;
+        endNanos = 0L;
+        ended = false;
+        Arrays.fill(attributes, 0, attributeCount << 1, null);
+        attributeCount = 0;
+    }
+    
+    /**
+     * Set an attribute of the span.
+     *
+     * @param key key
+     * @param value value
+     * @return this span
+     */
+    public Span tag(final String key, final String value) {
+        if (null == recorder) {
+            return this;
+        }
+        int index = attributeCount << 1;
+        if (index == attributes.length) {
+            attributes = Arrays.copyOf(attributes, index << 1);
+        }
+        attributes[index] = key;
+        attributes[index + 1] = value;
+        attributeCount++;
+        return this;
+    }
+    
+    /**
+     * End the span.
+     */
+    public void end() {
+        if (null != recorder && !ended) {
+            recorder.end(this, System.nanoTime());
+        }
+    }
+    
+    /**
+     * Get the id of the span, unique inside its trace.
+     *
+     * @return span id, 0 if the span is not recorded
+     */
+    public int getId() {
+        return id;
+    }
+    
+    /**
+     * Get the id of the parent span.
+     *
+     * @return parent span id, 0 for a root span
+     */
+    public int getParentId() {
+        return parentId;
+    }
+    
+    /**
+     * Get the name of the span.
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+    
+    long getStartNanos() {
+        return startNanos;
+    }
+    
+    void setEndNanos(final long endNanos) {
+        this.endNanos = endNanos;
+        ended = true;
+    }
+    
+    /**
+     * Get the duration of the span.
+     *
+     * @return duration in nanoseconds, -1 if the span is not ended
+     */
+    public long getDurationNanos() {
+        return ended ? endNanos - startNanos : -1L;
+    }
+    
+    int getAttributeCount() {
+        return attributeCount;
+    }
+    
+    String getAttributeKey(final int index) {
+        return attributes[index << 1];
+    }
+    
+    String getAttributeValue(final int index) {
+        return attributes[(index << 1) + 1];
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.span;
+
+import org.example.galaxytracing.agent.core.schema.TraceJson;
+
+import java.util.Arrays;
+
+/**
+ * Records the spans of the trace of the current thread.
+ *
+ * <p>Span objects, their attribute arrays, the stack of open spans and the encoding buffer are all kept per thread and
+ * reused by the next trace, so starting, tagging and ending a span allocates nothing once the thread is warm. Span ids
+ * count from 1 inside each trace, the parent of a span is the innermost span still open when it starts. Beyond
+ * {@link #MAX_SPANS} spans per trace, further spans are not recorded.</p>
+ *
+ * @author JiekerTime
+ */
+public final class SpanRecorder {
+    
+    /**
+     * Maximum number of spans recorded in one trace.
+     */
+    public static final int MAX_SPANS = 1024;
+    
+    private static final Span NOOP_SPAN = new Span(null);
+    
+    private static final ThreadLocal<SpanRecorder> RECORDERS = ThreadLocal.withInitial(SpanRecorder::new);
+    
+    private Span[] spans = new Span[16];
+    
+    private int spanCount;
+    
+    private int[] openSpans = new int[16];
+    
+    private int openCount;
+    
+    private final StringBuilder buffer = new StringBuilder(256);
+    
+    private SpanRecorder() {
+    }
+    
+    /**
+     * Get the recorder of the current thread.
+     *
+     * @return span recorder
+     */
+    public static SpanRecorder current() {
+        return RECORDERS.get();
+    }
+    
+    /**
+     * Start a span as a child of the innermost open span.
+     *
+     * @param name name of the span
+     * @return span
+     */
+    public Span start(final String name) {
+        if (MAX_SPANS == spanCount) {
+            return NOOP_SPAN;
+        }
+        if (spanCount == spans.length) {
+            spans = Arrays.copyOf(spans, spanCount << 1);
+        }
+        Span result = spans[spanCount];
+        if (null == result) {
+            result = new Span(this);
+            spans[spanCount] = result;
+        }
+        spanCount++;
+        result.init(spanCount, 0 == openCount ? 0 : openSpans[openCount - 1], name, System.nanoTime());
+        if (openCount == openSpans.length) {
+            openSpans = Arrays.copyOf(openSpans, openCount << 1);
+        }
+        openSpans[openCount++] = spanCount;
+        return result;
+    }
+    
+    void end(final Span span, final long endNanos) {
+        span.setEndNanos(endNanos);
+        for (int i = openCount - 1; i >= 0; i--) {
+            if (openSpans[i] == span.getId()) {
+                System.arraycopy(openSpans, i + 1, openSpans, i, openCount - i - 1);
+                openCount--;
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Get the innermost open span.
+     *
+     * @return span, null if no span is open
+     */
+    public Span getActiveSpan() {
+        return 0 == openCount ? null : spans[openSpans[openCount - 1] - 1];
+    }
+    
+    /**
+     * Get the number of spans recorded in the current trace.
+     *
+     * @return span count
+     */
+    public int getSpanCount() {
+        return spanCount;
+    }
+    
+    /**
+     * Append the spans as a {@code spans} member to the JSON object of the trace, then start over for the next trace.
+     *
+     * <p>Each span is encoded as {@code {"id","parentId","name","startNanos","durationNanos","attributes"}}, where
+     * {@code startNanos} counts from the start of the first span and {@code durationNanos} is -1 for a span which is not
+     * ended.</p>
+     *
+     * @param traceJson JSON object of the trace
+     * @return JSON object with the spans, the trace itself if it has no span or is not an object
+     */
+    public String finish(final String traceJson) {
+        int end = null == traceJson ? -1 : traceJson.lastIndexOf('}');
+        if (0 == spanCount || end < 0) {
+            reset();
+            return traceJson;
+        }
+        buffer.setLength(0);
+        buffer.append(traceJson, 0, end);
+        if ('{' != traceJson.charAt(lastNonWhitespace(traceJson, end))) {
+            buffer.append(',');
+        }
+        buffer.append("\"spans\":[");
+        long baseNanos = spans[0].getStartNanos();
+        for (int i = 0; i < spanCount; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            appendSpan(spans[i], baseNanos);
+        }
+        buffer.append("]}");
+        reset();
+        return buffer.toString();
+    }
+    
+    private static int lastNonWhitespace(final String json, final int end) {
+        int result = end - 1;
+        while (result > 0 && Character.isWhitespace(json.charAt(result))) {
+            result--;
+        }
+        return result;
+    }
+    
+    private void appendSpan(final Span span, final long baseNanos) {
+        buffer.append("{\"id\":").append(span.getId())
+                .append(",\"parentId\":").append(span.getParentId())
+                .append(",\"name\":");
+        TraceJson.appendString(buffer, span.getName());
+        buffer.append(",\"startNanos\":").append(span.getStartNanos() - baseNanos)
+                .append(",\"durationNanos\":").append(span.getDurationNanos())
+                .append(",\"attributes\":{");
+        for (int i = 0; i < span.getAttributeCount(); i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            TraceJson.appendString(buffer, span.getAttributeKey(i));
+            buffer.append(':');
+            TraceJson.appendString(buffer, span.getAttributeValue(i));
+        }
+        buffer.append("}}");
+    }
+    
+    /**
+     * Drop the spans of the current trace.
+     */
+    public void reset() {
+        spanCount = 0;
+        openCount = 0;
+    }
+}
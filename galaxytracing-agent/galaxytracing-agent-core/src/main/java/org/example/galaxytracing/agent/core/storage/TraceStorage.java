@@ -18,9 +18,11 @@
 package org.example.galaxytracing.agent.core.storage;
 
 import org.example.galaxytracing.agent.core.storage.impl.SnowFlakeTraceStorage;
+import org.example.galaxytracing.infra.common.traceid.IdGenerator;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Trace Data Storage.
@@ -52,6 +54,11 @@ public interface TraceStorage {
      */
     void remove(String key);
     
+    /**
+     * Start the trace of the current thread if nothing is put yet, so that it has a traceId.
+     */
+    void start();
+    
     /**
      * Clear all entries in the storage.
      *
@@ -59,6 +66,11 @@ public interface TraceStorage {
      */
     String clear();
     
+    /**
+     * Clear all entries in the storage without serializing them.
+     */
+    void discard();
+    
     /**
      * Get the Map storing the data.
      *
@@ -83,10 +95,24 @@ public interface TraceStorage {
     /**
      * Get the traceId of the storage.
      *
-     * @return traceId
+     * @return traceId, null if the trace started before the node identity was known
      */
     String getTraceId();
     
+    /**
+     * Tell whether the trace of the current thread has its traceId.
+     *
+     * @return false if nothing is put yet or the trace started before the node identity was known
+     */
+    boolean hasTraceId();
+    
+    /**
+     * Get the generator of the traceIds, pending while the node identity is being resolved.
+     *
+     * @return future of the generator
+     */
+    CompletableFuture<IdGenerator> getIdGenerator();
+    
     /**
      * Reset the traceId in the storage.
      *
@@ -19,16 +19,31 @@ package org.example.galaxytracing.agent.core.storage;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.agent.core.identity.NodeIdentity;
+import org.example.galaxytracing.agent.core.identity.NodeIdentityResolver;
 import org.example.galaxytracing.agent.core.storage.impl.SnowFlakeTraceStorage;
 import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.thread.ExecutorThreadFactoryBuilder;
+import org.example.galaxytracing.infra.common.traceid.IdGenerator;
 import org.example.galaxytracing.infra.config.constant.AgentBasicParamsValuesConstant;
+import org.example.galaxytracing.infra.config.entity.agent.BasicConfig;
 import org.example.galaxytracing.infra.config.entity.impl.AgentConfiguration;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
 /**
  * This implementation is bound to {@link SnowFlakeTraceStorage}.
  *
+ * <p>Creating the storage never touches the network. When the node identity is neither configured nor cached, it is
+ * derived from the network in background. Traces started before it is known start without a traceId and never wait
+ * for it, they are stamped on the reporter thread once it is known, rather than use a provisional identity which may
+ * collide with another agent. Only if it can not be derived is a random identity used.</p>
+ *
  * @author JiekerTime
  */
+@Slf4j(topic = "agent")
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class TraceStorageBinder {
     /**
@@ -51,7 +66,7 @@ public final class TraceStorageBinder {
                     switch (configuration.getBasic().getTracingType()) {
                         case AgentBasicParamsValuesConstant.TYPE_DEFAULT:
                         case AgentBasicParamsValuesConstant.TYPE_SNOWFLAKE:
-                            singleton = new SnowFlakeTraceStorage();
+                            singleton = createSnowFlakeTraceStorage(configuration.getBasic());
                             break;
                         default:
                             throw new GalaxyTracingException("Unsupported agent types %s.",
@@ -62,4 +77,28 @@ public final class TraceStorageBinder {
         }
         return singleton;
     }
+    
+    private static SnowFlakeTraceStorage createSnowFlakeTraceStorage(final BasicConfig config) {
+        NodeIdentityResolver resolver = new NodeIdentityResolver(config);
+        return createSnowFlakeTraceStorage(resolver.resolveLocally(), resolver::resolveFromNetwork, config.getIdStripeBits());
+    }
+    
+    static SnowFlakeTraceStorage createSnowFlakeTraceStorage(final NodeIdentity localIdentity, final Supplier<NodeIdentity> networkResolver, final int stripeBits) {
+        if (null != localIdentity) {
+            return new SnowFlakeTraceStorage(localIdentity.createSnowflakeId(stripeBits));
+        }
+        CompletableFuture<IdGenerator> resolved = new CompletableFuture<>();
+        SnowFlakeTraceStorage result = new SnowFlakeTraceStorage(resolved);
+        ExecutorThreadFactoryBuilder.build("Agent-Identity-%d").newThread(() -> {
+            NodeIdentity identity = null;
+            try {
+                identity = networkResolver.get();
+            } catch (GalaxyTracingException ex) {
+                log.warn("Can not derive the node identity, a random identity is used.", ex);
+            } finally {
+                resolved.complete((null == identity ? NodeIdentity.random() : identity).createSnowflakeId(stripeBits));
+            }
+        }).start();
+        return result;
+    }
 }
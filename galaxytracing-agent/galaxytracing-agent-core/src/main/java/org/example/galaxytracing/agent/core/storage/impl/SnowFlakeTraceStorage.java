@@ -18,22 +18,25 @@
 package org.example.galaxytracing.agent.core.storage.impl;
 
 import com.huawei.shade.com.alibaba.fastjson.JSONObject;
-import lombok.NoArgsConstructor;
 import org.example.galaxytracing.agent.core.storage.TraceStorage;
 import org.example.galaxytracing.infra.common.constant.GalaxyTracingAgentMessage;
 import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.traceid.IdGenerator;
 import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Default Trace Data Storage..
  *
+ * <p>The traceId is generated when a trace starts. A trace started while the generator is still pending, because the
+ * node identity is being resolved, starts without a traceId so that no put ever waits, it is stamped once reported.</p>
+ *
  * @author JiekerTime
  */
-@NoArgsConstructor
 public final class SnowFlakeTraceStorage implements TraceStorage {
     
     private static final String TRACE_ID = "traceId";
@@ -46,7 +49,24 @@ public final class SnowFlakeTraceStorage implements TraceStorage {
     
     private final ThreadLocal<Integer> lastOperation = new ThreadLocal<>();
     
-    private final SnowflakeId snowflakeId = new SnowflakeId();
+    private final CompletableFuture<IdGenerator> idGenerator;
+    
+    public SnowFlakeTraceStorage() {
+        this(new SnowflakeId());
+    }
+    
+    public SnowFlakeTraceStorage(final IdGenerator snowflakeId) {
+        this(CompletableFuture.completedFuture(snowflakeId));
+    }
+    
+    public SnowFlakeTraceStorage(final CompletableFuture<IdGenerator> idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+    
+    @Override
+    public CompletableFuture<IdGenerator> getIdGenerator() {
+        return idGenerator;
+    }
     
     @Override
     public SnowFlakeTraceStorage put(final String key, final String data) {
@@ -85,6 +105,15 @@ public final class SnowFlakeTraceStorage implements TraceStorage {
         }
     }
     
+    @Override
+    public void start() {
+        Map<String, String> map = dataMap.get();
+        if (map == null || map.isEmpty()) {
+            duplicateAndInsertNewMap(map);
+            lastOperation.set(WRITE_OPERATION);
+        }
+    }
+    
     @Override
     public String clear() {
         final String result = JSONObject.toJSONString(getDataMap());
@@ -94,6 +123,12 @@ public final class SnowFlakeTraceStorage implements TraceStorage {
         return result;
     }
     
+    @Override
+    public void discard() {
+        lastOperation.remove();
+        dataMap.remove();
+    }
+    
     @Override
     public Map<String, String> getDataMap() {
         lastOperation.set(MAP_COPY_OPERATION);
@@ -127,6 +162,12 @@ public final class SnowFlakeTraceStorage implements TraceStorage {
         return map.get(TRACE_ID);
     }
     
+    @Override
+    public boolean hasTraceId() {
+        Map<String, String> map = dataMap.get();
+        return null != map && map.containsKey(TRACE_ID);
+    }
+    
     @Override
     public void resetTraceId(final String traceId) {
         Map<String, String> dataMap = getDataMap();
@@ -153,7 +194,10 @@ public final class SnowFlakeTraceStorage implements TraceStorage {
         if (oldMap != null && !oldMap.isEmpty()) {
             newMap.putAll(oldMap);
         } else {
-            newMap.put(TRACE_ID, String.valueOf(snowflakeId.generateId()));
+            IdGenerator generator = idGenerator.getNow(null);
+            if (null != generator) {
+                newMap.put(TRACE_ID, String.valueOf(generator.generateId()));
+            }
         }
         dataMap.set(newMap);
         return newMap;
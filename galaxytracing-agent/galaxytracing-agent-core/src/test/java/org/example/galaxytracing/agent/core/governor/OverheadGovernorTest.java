@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.governor;
+
+import org.example.galaxytracing.infra.config.entity.agent.GovernorConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class OverheadGovernorTest {
+    
+    private static final long SLOW_FINISH_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+    
+    private OverheadGovernor governor;
+    
+    @After
+    public void tearDown() {
+        if (null != governor) {
+            governor.close();
+        }
+    }
+    
+    @Test
+    public void assertDisabledByDefault() {
+        assertFalse(new GovernorConfig().isEnabled());
+    }
+    
+    @Test
+    public void assertDegradeOneLevelPerIntervalOverBudget() {
+        governor = new OverheadGovernor(createConfig(2));
+        assertThat(governor.getLevel(), is(DegradationLevel.NORMAL));
+        for (DegradationLevel each : new DegradationLevel[]{DegradationLevel.SAMPLED, DegradationLevel.ATTRIBUTES_DROPPED, DegradationLevel.REPORTING_DISABLED, DegradationLevel.REPORTING_DISABLED}) {
+            governor.recordFinish(SLOW_FINISH_NANOS);
+            governor.check();
+            assertThat(governor.getLevel(), is(each));
+        }
+    }
+    
+    @Test
+    public void assertRecoverAfterConsecutiveIntervalsWithinBudget() {
+        governor = new OverheadGovernor(createConfig(2));
+        degrade(2);
+        governor.check();
+        assertThat(governor.getLevel(), is(DegradationLevel.ATTRIBUTES_DROPPED));
+        governor.check();
+        assertThat(governor.getLevel(), is(DegradationLevel.SAMPLED));
+        governor.check();
+        governor.recordFinish(SLOW_FINISH_NANOS);
+        governor.check();
+        assertThat(governor.getLevel(), is(DegradationLevel.ATTRIBUTES_DROPPED));
+        governor.check();
+        governor.check();
+        governor.check();
+        governor.check();
+        assertThat(governor.getLevel(), is(DegradationLevel.NORMAL));
+    }
+    
+    @Test
+    public void assertSampleByLevel() {
+        GovernorConfig config = createConfig(1);
+        config.setSampleRate(0D);
+        governor = new OverheadGovernor(config);
+        assertTrue(governor.sample(DegradationLevel.NORMAL));
+        assertFalse(governor.sample(DegradationLevel.SAMPLED));
+        assertFalse(governor.sample(DegradationLevel.ATTRIBUTES_DROPPED));
+        assertFalse(governor.sample(DegradationLevel.REPORTING_DISABLED));
+        GovernorConfig sampleAll = createConfig(1);
+        sampleAll.setSampleRate(1D);
+        governor.reconfigure(sampleAll);
+        assertTrue(governor.sample(DegradationLevel.SAMPLED));
+        assertFalse(governor.sample(DegradationLevel.REPORTING_DISABLED));
+    }
+    
+    @Test
+    public void assertReconfigureDisabledGoesBackToNormal() {
+        governor = new OverheadGovernor(createConfig(1));
+        degrade(3);
+        assertThat(governor.getLevel(), is(DegradationLevel.REPORTING_DISABLED));
+        GovernorConfig disabled = createConfig(1);
+        disabled.setEnabled(false);
+        governor.reconfigure(disabled);
+        assertThat(governor.getLevel(), is(DegradationLevel.NORMAL));
+    }
+    
+    @Test
+    public void assertReconfigureRejectsIllegalConfig() {
+        governor = new OverheadGovernor(createConfig(1));
+        GovernorConfig illegal = createConfig(1);
+        illegal.setSampleRate(2D);
+        try {
+            governor.reconfigure(illegal);
+            fail("Sample rate out of [0, 1] must be rejected");
+        } catch (IllegalArgumentException ignored) {
+        }
+        degrade(1);
+        governor.check();
+        assertThat(governor.getLevel(), is(DegradationLevel.NORMAL));
+    }
+    
+    @Test
+    public void assertRaiseBudgetAtRuntime() {
+        governor = new OverheadGovernor(createConfig(1));
+        GovernorConfig generous = createConfig(1);
+        generous.setCpuBudgetPercent(Double.MAX_VALUE);
+        generous.setFinishLatencyBudgetMicros(Long.MAX_VALUE);
+        governor.reconfigure(generous);
+        governor.recordFinish(SLOW_FINISH_NANOS);
+        governor.check();
+        assertThat(governor.getLevel(), is(DegradationLevel.NORMAL));
+    }
+    
+    private void degrade(final int levels) {
+        for (int i = 0; i < levels; i++) {
+            governor.recordFinish(SLOW_FINISH_NANOS);
+            governor.check();
+        }
+    }
+    
+    private static GovernorConfig createConfig(final int recoveryIntervals) {
+        GovernorConfig result = new GovernorConfig();
+        result.setEnabled(true);
+        result.setIntervalMillis(TimeUnit.HOURS.toMillis(1L));
+        result.setRecoveryIntervals(recoveryIntervals);
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.span;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class SpanRecorderTest {
+    
+    private final SpanRecorder recorder = SpanRecorder.current();
+    
+    @Before
+    @After
+    public void reset() {
+        recorder.reset();
+    }
+    
+    @Test
+    public void assertParentIsInnermostOpenSpan() {
+        final Span root = recorder.start("root");
+        Span child = recorder.start("child");
+        assertThat(recorder.getActiveSpan(), sameInstance(child));
+        child.end();
+        Span sibling = recorder.start("sibling");
+        sibling.end();
+        root.end();
+        assertThat(root.getId(), is(1));
+        assertThat(root.getParentId(), is(0));
+        assertThat(child.getParentId(), is(1));
+        assertThat(sibling.getId(), is(3));
+        assertThat(sibling.getParentId(), is(1));
+        assertThat(recorder.getActiveSpan(), nullValue());
+    }
+    
+    @Test
+    public void assertEndOutOfOrder() {
+        Span root = recorder.start("root");
+        Span child = recorder.start("child");
+        root.end();
+        assertThat(recorder.getActiveSpan(), sameInstance(child));
+        assertThat(recorder.start("grandchild").getParentId(), is(2));
+    }
+    
+    @Test
+    public void assertDuration() throws InterruptedException {
+        Span span = recorder.start("sleep");
+        assertThat(span.getDurationNanos(), is(-1L));
+        Thread.sleep(5L);
+        span.end();
+        long duration = span.getDurationNanos();
+        assertTrue(duration >= TimeUnit.MILLISECONDS.toNanos(5L));
+        span.end();
+        assertThat(span.getDurationNanos(), is(duration));
+    }
+    
+    @Test
+    public void assertFinishAppendsSpans() {
+        Span root = recorder.start("root").tag("method", "GET");
+        recorder.start("query").tag("sql", "select \"x\"").end();
+        root.end();
+        String actual = recorder.finish("{\"traceId\":\"1\"}");
+        assertTrue(actual.startsWith("{\"traceId\":\"1\",\"spans\":[{\"id\":1,\"parentId\":0,\"name\":\"root\",\"startNanos\":0,\"durationNanos\":"));
+        assertTrue(actual.contains("\"attributes\":{\"method\":\"GET\"}}"));
+        assertTrue(actual.contains("{\"id\":2,\"parentId\":1,\"name\":\"query\""));
+        assertTrue(actual.endsWith("\"attributes\":{\"sql\":\"select \\\"x\\\"\"}}]}"));
+        assertThat(recorder.getSpanCount(), is(0));
+    }
+    
+    @Test
+    public void assertFinishWithoutSpans() {
+        assertThat(recorder.finish("{}"), is("{}"));
+        recorder.start("root");
+        assertThat(recorder.finish("{ }"), is("{ \"spans\":[{\"id\":1,\"parentId\":0,\"name\":\"root\",\"startNanos\":0,\"durationNanos\":-1,\"attributes\":{}}]}"));
+    }
+    
+    @Test
+    public void assertSpansPooledAcrossTraces() {
+        Span first = recorder.start("first").tag("key", "value");
+        first.end();
+        recorder.finish("{}");
+        Span second = recorder.start("second");
+        assertThat(second, sameInstance(first));
+        assertThat(second.getId(), is(1));
+        assertThat(second.getName(), is("second"));
+        assertThat(second.getDurationNanos(), is(-1L));
+        assertThat(recorder.finish("{}"), is("{\"spans\":[{\"id\":1,\"parentId\":0,\"name\":\"second\",\"startNanos\":0,\"durationNanos\":-1,\"attributes\":{}}]}"));
+    }
+    
+    @Test
+    public void assertSpansBeyondLimitNotRecorded() {
+        for (int i = 0; i < SpanRecorder.MAX_SPANS; i++) {
+            recorder.start("span").end();
+        }
+        Span actual = recorder.start("dropped");
+        assertThat(actual.getId(), is(0));
+        assertThat(actual.tag("key", "value"), sameInstance(actual));
+        actual.end();
+        assertThat(actual.getDurationNanos(), is(-1L));
+        assertThat(recorder.getSpanCount(), is(SpanRecorder.MAX_SPANS));
+    }
+    
+    @Test
+    public void assertRecorderPerThread() throws InterruptedException {
+        SpanRecorder[] other = new SpanRecorder[1];
+        Thread thread = new Thread(() -> other[0] = SpanRecorder.current());
+        thread.start();
+        thread.join();
+        assertThat(other[0], not(sameInstance(recorder)));
+    }
+}
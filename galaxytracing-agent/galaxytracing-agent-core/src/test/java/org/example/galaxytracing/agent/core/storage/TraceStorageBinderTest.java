@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.core.storage;
+
+import org.example.galaxytracing.agent.core.identity.NodeIdentity;
+import org.example.galaxytracing.agent.core.storage.impl.SnowFlakeTraceStorage;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class TraceStorageBinderTest {
+    
+    @Test
+    public void assertCreateWithLocalIdentity() {
+        SnowFlakeTraceStorage storage = TraceStorageBinder.createSnowFlakeTraceStorage(new NodeIdentity(3L, 4L), () -> {
+            throw new AssertionError("The network must not be touched");
+        }, 0);
+        assertIdentity(startTrace(storage), 3L, 4L);
+    }
+    
+    @Test(timeout = 5000L)
+    public void assertPutWhileResolverHangs() throws InterruptedException, ExecutionException, TimeoutException {
+        CountDownLatch resolving = new CountDownLatch(1);
+        SnowFlakeTraceStorage storage = TraceStorageBinder.createSnowFlakeTraceStorage(null, () -> {
+            awaitQuietly(resolving);
+            return new NodeIdentity(7L, 9L);
+        }, 0);
+        try {
+            storage.clear();
+            storage.put("key", "value");
+            assertThat(storage.get("key"), is("value"));
+            assertFalse(storage.hasTraceId());
+            assertThat(storage.getTraceId(), is(nullValue()));
+            assertFalse(storage.getIdGenerator().isDone());
+            storage.clear();
+        } finally {
+            resolving.countDown();
+        }
+        storage.getIdGenerator().get(5L, TimeUnit.SECONDS);
+        assertIdentity(startTrace(storage), 7L, 9L);
+    }
+    
+    @Test
+    public void assertResolveIdentityInBackground() throws InterruptedException, ExecutionException, TimeoutException {
+        SnowFlakeTraceStorage storage = TraceStorageBinder.createSnowFlakeTraceStorage(null, () -> new NodeIdentity(1L, 2L), 0);
+        assertThat(storage.getIdGenerator().get(5L, TimeUnit.SECONDS), instanceOf(SnowflakeId.class));
+        assertIdentity(startTrace(storage), 1L, 2L);
+        assertTrue(storage.hasTraceId());
+    }
+    
+    @Test
+    public void assertFallBackToRandomIdentity() throws InterruptedException, ExecutionException, TimeoutException {
+        SnowFlakeTraceStorage storage = TraceStorageBinder.createSnowFlakeTraceStorage(null, () -> {
+            throw new GalaxyTracingException("No network");
+        }, 0);
+        storage.getIdGenerator().get(5L, TimeUnit.SECONDS);
+        long traceId = startTrace(storage);
+        assertTrue(SnowflakeIdParser.getWorkerId(traceId) <= SnowflakeId.MAX_WORKER_ID);
+        assertTrue(SnowflakeIdParser.getDataId(traceId) <= SnowflakeId.MAX_DATA_ID);
+    }
+    
+    private static long startTrace(final SnowFlakeTraceStorage storage) {
+        storage.clear();
+        storage.put("key", "value");
+        return Long.parseLong(storage.getTraceId());
+    }
+    
+    private static void assertIdentity(final long traceId, final long workerId, final long dataId) {
+        assertThat(SnowflakeIdParser.getWorkerId(traceId), is(workerId));
+        assertThat(SnowflakeIdParser.getDataId(traceId), is(dataId));
+    }
+    
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
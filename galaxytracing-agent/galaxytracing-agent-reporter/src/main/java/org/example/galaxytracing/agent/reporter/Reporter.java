@@ -26,25 +26,45 @@ import org.example.galaxytracing.infra.config.entity.agent.ReporterConfig;
 import org.example.galaxytracing.infra.config.entity.impl.AgentConfiguration;
 
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 /**
  * Timed send of data in the queue.
  *
+ * <p>The client can be replaced at runtime by {@link #reconfigure(ReporterConfig)}. The new client is built by the
+ * caller, the reporter thread switches to it between two posts and shuts the old one down, so the post in flight
+ * completes on the old client.</p>
+ *
+ * <p>Each {@link TraceMessage} is serialized on the reporter thread right before it is posted.</p>
+ *
  * @author JiekerTime
  */
 @Slf4j(topic = "agent")
 public final class Reporter extends Thread {
     
-    private final BlockingQueue<String> queue;
+    private static final long POLL_TIMEOUT_MILLIS = 100L;
+    
+    private final BlockingQueue<TraceMessage> queue;
+    
+    private final Function<ReporterConfig, IReporterClient> clientFactory;
+    
+    private IReporterClient client;
     
-    private final IReporterClient client;
+    private final AtomicReference<IReporterClient> pendingClient = new AtomicReference<>();
     
     private volatile boolean shutdown;
     
-    public Reporter(final BlockingQueue<String> queue, final AgentConfiguration configuration) {
+    public Reporter(final BlockingQueue<TraceMessage> queue, final AgentConfiguration configuration) {
+        this(queue, configuration.getReporter(), Reporter::initReporterClient);
+    }
+    
+    Reporter(final BlockingQueue<TraceMessage> queue, final ReporterConfig configuration, final Function<ReporterConfig, IReporterClient> clientFactory) {
         super();
         this.queue = queue;
-        client = initReporterClient(configuration.getReporter());
+        this.clientFactory = clientFactory;
+        client = clientFactory.apply(configuration);
     }
     
     private static IReporterClient initReporterClient(final ReporterConfig configuration) {
@@ -61,18 +81,53 @@ public final class Reporter extends Thread {
     @Override
     public void run() {
         while (!shutdown || !queue.isEmpty()) {
-            if (!queue.isEmpty()) {
-                try {
-                    client.doPost(queue.poll());
-                } catch (GalaxyTracingException ex) {
-                    log.error(ex.getMessage());
-                }
+            switchClientIfPending();
+            TraceMessage message;
+            try {
+                message = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (null == message) {
+                continue;
+            }
+            try {
+                client.doPost(message.serialize(), message.getSchemaKeyNames());
+            } catch (GalaxyTracingException ex) {
+                log.error(ex.getMessage());
             }
         }
+        switchClientIfPending();
         client.shutdown();
         log.info("Reporter is closed.");
     }
     
+    private void switchClientIfPending() {
+        IReporterClient replacement = pendingClient.getAndSet(null);
+        if (null == replacement) {
+            return;
+        }
+        IReporterClient previous = client;
+        client = replacement;
+        previous.shutdown();
+        log.info("Reporter client is replaced.");
+    }
+    
+    /**
+     * Build a client from the new config, the reporter thread switches to it before its next post.
+     *
+     * @param configuration new reporter config
+     * @throws GalaxyTracingException no such reporter
+     */
+    public void reconfigure(final ReporterConfig configuration) throws GalaxyTracingException {
+        IReporterClient replacement = clientFactory.apply(configuration);
+        IReporterClient unused = pendingClient.getAndSet(replacement);
+        if (null != unused) {
+            unused.shutdown();
+        }
+    }
+    
     /**
      * Shutdown the reporter server.
      */
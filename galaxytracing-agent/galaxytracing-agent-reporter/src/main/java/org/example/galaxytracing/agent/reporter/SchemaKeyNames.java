@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.reporter;
+
+import com.huawei.shade.com.alibaba.fastjson.JSONObject;
+import lombok.Getter;
+import org.example.galaxytracing.infra.common.constant.GalaxyTracingProtocolConstant;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Names of the typed keys of a trace schema.
+ *
+ * <p>Traces carry the IDs of their typed keys only. The names are attached to the first trace of the schema posted to
+ * a collector, which maps the IDs back to them from then on.</p>
+ *
+ * @author JiekerTime
+ */
+public final class SchemaKeyNames {
+    
+    @Getter
+    private final String schema;
+    
+    private final String member;
+    
+    public SchemaKeyNames(final String schema, final Map<Integer, String> keyNames) {
+        this.schema = schema;
+        Map<String, String> names = new LinkedHashMap<>(keyNames.size() << 1);
+        for (Map.Entry<Integer, String> entry : keyNames.entrySet()) {
+            names.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        member = JSONObject.toJSONString(GalaxyTracingProtocolConstant.SCHEMA_KEY_NAMES) + ':' + JSONObject.toJSONString(Collections.singletonMap(schema, names));
+    }
+    
+    /**
+     * Attach the names to a trace.
+     *
+     * @param traceJson JSON of the trace
+     * @return JSON of the trace with the names, the trace itself if it is not a JSON object
+     */
+    public String attachTo(final String traceJson) {
+        if (traceJson.length() < 2 || '{' != traceJson.charAt(0)) {
+            return traceJson;
+        }
+        StringBuilder result = new StringBuilder(traceJson.length() + member.length() + 2).append('{').append(member);
+        if ('}' != traceJson.charAt(1)) {
+            result.append(',');
+        }
+        return result.append(traceJson, 1, traceJson.length()).toString();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.reporter;
+
+/**
+ * Trace waiting in the queue of the {@link Reporter}.
+ *
+ * <p>The reporter thread serializes a trace right before posting it, so a thread finishing a trace never waits for what
+ * the serialized trace still needs, such as the traceId of a node identity being resolved.</p>
+ *
+ * @author JiekerTime
+ */
+public interface TraceMessage {
+    
+    /**
+     * Serialize the trace, only the reporter thread calls it.
+     *
+     * @return JSON of the trace
+     */
+    String serialize();
+    
+    /**
+     * Get the names of the typed keys of the trace.
+     *
+     * @return names of the typed keys, null if the trace has no schema
+     */
+    default SchemaKeyNames getSchemaKeyNames() {
+        return null;
+    }
+    
+    /**
+     * Create the message of a trace serialized already.
+     *
+     * @param json JSON of the trace
+     * @return message
+     */
+    static TraceMessage of(final String json) {
+        return () -> json;
+    }
+    
+    /**
+     * Create the message of a trace serialized already, with the names of its typed keys.
+     *
+     * @param json JSON of the trace
+     * @param keyNames names of the typed keys of the trace, null if the trace has no schema
+     * @return message
+     */
+    static TraceMessage of(final String json, final SchemaKeyNames keyNames) {
+        return new TraceMessage() {
+            
+            @Override
+            public String serialize() {
+                return json;
+            }
+            
+            @Override
+            public SchemaKeyNames getSchemaKeyNames() {
+                return keyNames;
+            }
+        };
+    }
+}
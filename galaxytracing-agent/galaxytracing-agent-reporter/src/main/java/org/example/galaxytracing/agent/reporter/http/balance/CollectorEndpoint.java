@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.reporter.http.balance;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collector endpoint with its load and health.
+ *
+ * @author JiekerTime
+ */
+@RequiredArgsConstructor
+public final class CollectorEndpoint {
+    
+    @Getter
+    private final String url;
+    
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+    
+    private final AtomicBoolean probing = new AtomicBoolean();
+    
+    private final Set<String> registeredSchemas = ConcurrentHashMap.newKeySet();
+    
+    private volatile boolean ejected;
+    
+    private volatile long ejectedUntilNanos;
+    
+    private int consecutiveFailures;
+    
+    /**
+     * Get the number of requests in flight.
+     *
+     * @return outstanding requests
+     */
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+    
+    /**
+     * Judge whether the endpoint is ejected.
+     *
+     * @return ejected or not
+     */
+    public boolean isEjected() {
+        return ejected;
+    }
+    
+    /**
+     * Judge whether the collector was sent the key names of a schema.
+     *
+     * @param schema name of the schema
+     * @return registered or not
+     */
+    public boolean isRegistered(final String schema) {
+        return registeredSchemas.contains(schema);
+    }
+    
+    /**
+     * Mark the key names of a schema as sent to the collector.
+     *
+     * @param schema name of the schema
+     */
+    public void onRegistered(final String schema) {
+        registeredSchemas.add(schema);
+    }
+    
+    /**
+     * Forget the schemas sent to the collector, it lost them.
+     */
+    public void clearRegistered() {
+        registeredSchemas.clear();
+    }
+    
+    boolean isAvailable() {
+        return !ejected;
+    }
+    
+    boolean tryProbe(final long nowNanos) {
+        return ejected && nowNanos - ejectedUntilNanos >= 0 && probing.compareAndSet(false, true);
+    }
+    
+    boolean tryProbeEarly() {
+        return ejected && probing.compareAndSet(false, true);
+    }
+    
+    long getEjectedUntilNanos() {
+        return ejectedUntilNanos;
+    }
+    
+    void onStart() {
+        outstandingRequests.incrementAndGet();
+    }
+    
+    synchronized void onSuccess() {
+        outstandingRequests.decrementAndGet();
+        consecutiveFailures = 0;
+        ejected = false;
+        probing.set(false);
+    }
+    
+    synchronized void onFailure(final long baseEjectionNanos, final long maxEjectionNanos) {
+        outstandingRequests.decrementAndGet();
+        consecutiveFailures++;
+        long ejectionNanos = baseEjectionNanos << Math.min(consecutiveFailures - 1, 20);
+        ejectedUntilNanos = System.nanoTime() + Math.min(ejectionNanos <= 0L ? maxEjectionNanos : ejectionNanos, maxEjectionNanos);
+        ejected = true;
+        probing.set(false);
+    }
+    
+    @Override
+    public String toString() {
+        return url;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.reporter.http.balance;
+
+import com.google.common.base.Preconditions;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load balancer over the collector endpoints.
+ *
+ * <p>Requests go to the less loaded of two randomly picked available endpoints (power of two choices), load being the
+ * number of outstanding requests. A failed endpoint is ejected for a backoff which doubles with every consecutive
+ * failure up to a maximum. Once its backoff elapsed, one request probes it: success brings it back, failure ejects it
+ * again for longer. Callers retry a failed request on another endpoint, so a lost collector costs capacity and the
+ * occasional probe, but no traces.</p>
+ *
+ * <p>If every endpoint is ejected, the first attempt of a request probes the one whose ejection ends first instead of
+ * failing, so a cluster which was entirely down is found again as soon as one collector is back.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "agent")
+public final class EndpointBalancer {
+    
+    private final List<CollectorEndpoint> endpoints;
+    
+    private final long baseEjectionNanos;
+    
+    private final long maxEjectionNanos;
+    
+    public EndpointBalancer(final Collection<String> urls, final long baseEjectionMillis, final long maxEjectionMillis) {
+        Preconditions.checkArgument(!urls.isEmpty(), "At least one collector url is required.");
+        List<CollectorEndpoint> endpoints = new ArrayList<>(urls.size());
+        for (String each : urls) {
+            endpoints.add(new CollectorEndpoint(each));
+        }
+        this.endpoints = Collections.unmodifiableList(endpoints);
+        baseEjectionNanos = TimeUnit.MILLISECONDS.toNanos(baseEjectionMillis);
+        maxEjectionNanos = TimeUnit.MILLISECONDS.toNanos(maxEjectionMillis);
+    }
+    
+    /**
+     * Get all endpoints.
+     *
+     * @return endpoints
+     */
+    public List<CollectorEndpoint> getEndpoints() {
+        return endpoints;
+    }
+    
+    /**
+     * Choose an endpoint and count the request on it, the request must be finished by {@link #release}.
+     *
+     * @param excluded endpoints already tried by the request
+     * @return endpoint, null if no endpoint is available or being probed
+     */
+    public CollectorEndpoint acquire(final Collection<CollectorEndpoint> excluded) {
+        long now = System.nanoTime();
+        List<CollectorEndpoint> candidates = new ArrayList<>(endpoints.size());
+        for (CollectorEndpoint each : endpoints) {
+            if (excluded.contains(each)) {
+                continue;
+            }
+            if (each.tryProbe(now)) {
+                each.onStart();
+                return each;
+            }
+            if (each.isAvailable()) {
+                candidates.add(each);
+            }
+        }
+        CollectorEndpoint result = choose(candidates);
+        if (null == result && excluded.isEmpty()) {
+            result = probeEarliest();
+        }
+        if (null != result) {
+            result.onStart();
+        }
+        return result;
+    }
+    
+    private CollectorEndpoint probeEarliest() {
+        List<CollectorEndpoint> ejected = new ArrayList<>(endpoints);
+        ejected.sort((o1, o2) -> Long.compare(o1.getEjectedUntilNanos() - o2.getEjectedUntilNanos(), 0L));
+        for (CollectorEndpoint each : ejected) {
+            if (each.tryProbeEarly()) {
+                return each;
+            }
+        }
+        return null;
+    }
+    
+    private static CollectorEndpoint choose(final List<CollectorEndpoint> candidates) {
+        switch (candidates.size()) {
+            case 0:
+                return null;
+            case 1:
+                return candidates.get(0);
+            default:
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int first = random.nextInt(candidates.size());
+                int second = random.nextInt(candidates.size() - 1);
+                if (second >= first) {
+                    second++;
+                }
+                CollectorEndpoint one = candidates.get(first);
+                CollectorEndpoint other = candidates.get(second);
+                return one.getOutstandingRequests() <= other.getOutstandingRequests() ? one : other;
+        }
+    }
+    
+    /**
+     * Finish a request.
+     *
+     * @param endpoint endpoint of the request
+     * @param success whether the endpoint handled the request
+     */
+    public void release(final CollectorEndpoint endpoint, final boolean success) {
+        if (success) {
+            if (endpoint.isEjected()) {
+                log.info("Collector {} is back", endpoint);
+            }
+            endpoint.onSuccess();
+        } else {
+            if (!endpoint.isEjected()) {
+                log.warn("Collector {} is ejected", endpoint);
+            }
+            endpoint.onFailure(baseEjectionNanos, maxEjectionNanos);
+        }
+    }
+}
@@ -22,7 +22,9 @@ import com.huawei.shade.com.cloud.sdk.util.StringUtils;
 import com.huawei.shade.org.apache.http.HeaderElement;
 import com.huawei.shade.org.apache.http.HeaderElementIterator;
 import com.huawei.shade.org.apache.http.HttpResponse;
+import com.huawei.shade.org.apache.http.HttpStatus;
 import com.huawei.shade.org.apache.http.client.HttpClient;
+import com.huawei.shade.org.apache.http.client.config.RequestConfig;
 import com.huawei.shade.org.apache.http.client.methods.RequestBuilder;
 import com.huawei.shade.org.apache.http.conn.HttpClientConnectionManager;
 import com.huawei.shade.org.apache.http.entity.ContentType;
@@ -35,17 +37,40 @@ import com.huawei.shade.org.apache.http.protocol.HttpContext;
 import com.huawei.shade.org.apache.http.util.EntityUtils;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.agent.reporter.SchemaKeyNames;
+import org.example.galaxytracing.agent.reporter.http.balance.CollectorEndpoint;
+import org.example.galaxytracing.agent.reporter.http.balance.EndpointBalancer;
+import org.example.galaxytracing.infra.common.constant.GalaxyTracingProtocolConstant;
 import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
 import org.example.galaxytracing.infra.config.constant.AgentConfigParamsConstant;
 import org.example.galaxytracing.infra.config.entity.agent.ReporterConfig;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * A client that sends data using the Http protocol.
  *
+ * <p>Several collectors can be listed in {@code urls}, separated by commas. Each post goes to one of them through the
+ * {@link EndpointBalancer} and fails over to the others when the collector is down or answers with a server error.
+ * Every attempt of a post carries the same random batch id, so a collector which already stored it does not store it
+ * again.</p>
+ *
+ * <p>If every collector failed, the post is retried after a backoff starting at {@code retry_backoff_millis} and
+ * doubling up to {@code ejection_max_millis}, {@code retry_attempts} times, before the batch is given up.</p>
+ *
+ * <p>The names of the typed keys of a schema are attached to the first trace of the schema posted to each collector.
+ * A collector answering {@code 409 Conflict} lost them, it is sent them again with the same post.</p>
+ *
  * @author JiekerTime
  */
 @Slf4j(topic = "agent")
@@ -64,17 +89,40 @@ public final class HttpReporterClient implements IReporterClient {
      */
     private static final int DEFAULT_MAX_ROUTE_CONN_COUNT = 10;
     
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 1000;
+    
+    private static final int DEFAULT_SOCKET_TIMEOUT_MILLIS = 5000;
+    
+    private static final long DEFAULT_EJECTION_BASE_MILLIS = 1000L;
+    
+    private static final long DEFAULT_EJECTION_MAX_MILLIS = 60000L;
+    
+    private static final long DEFAULT_RETRY_ATTEMPTS = 5L;
+    
+    private static final long DEFAULT_RETRY_BACKOFF_MILLIS = 200L;
+    
     private HttpClient httpClient;
     
     private IdleConnectionMonitor idleConnectionMonitor;
     
-    private String url;
+    private EndpointBalancer balancer;
+    
+    private int retryAttempts;
+    
+    private long retryBackoffMillis;
+    
+    private long maxRetryBackoffMillis;
     
     public HttpReporterClient(final ReporterConfig reporterConfig) {
-        this.url = reporterConfig.getProps().get(AgentConfigParamsConstant.URL);
-        if (url == null || "".equals(url)) {
-            url = DEFAULT_URL;
-        }
+        Map<String, String> props = reporterConfig.getProps();
+        maxRetryBackoffMillis = getLong(props, AgentConfigParamsConstant.EJECTION_MAX_MILLIS, DEFAULT_EJECTION_MAX_MILLIS);
+        this.balancer = new EndpointBalancer(getUrls(props), getLong(props, AgentConfigParamsConstant.EJECTION_BASE_MILLIS, DEFAULT_EJECTION_BASE_MILLIS), maxRetryBackoffMillis);
+        retryAttempts = (int) getLong(props, AgentConfigParamsConstant.RETRY_ATTEMPTS, DEFAULT_RETRY_ATTEMPTS);
+        retryBackoffMillis = getLong(props, AgentConfigParamsConstant.RETRY_BACKOFF_MILLIS, DEFAULT_RETRY_BACKOFF_MILLIS);
+        int connectTimeout = (int) getLong(props, AgentConfigParamsConstant.CONNECT_TIMEOUT_MILLIS, DEFAULT_CONNECT_TIMEOUT_MILLIS);
+        int socketTimeout = (int) getLong(props, AgentConfigParamsConstant.SOCKET_TIMEOUT_MILLIS, DEFAULT_SOCKET_TIMEOUT_MILLIS);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout).setConnectionRequestTimeout(connectTimeout).setSocketTimeout(socketTimeout).build();
         final String configMaxConnCount = reporterConfig.getProps().get(AgentConfigParamsConstant.MAX_CONN_COUNT);
         final String configMaxRouteConnCount = reporterConfig.getProps().get(AgentConfigParamsConstant.MAX_ROUTE_CONN_COUNT);
         final int maxConnCount = configMaxConnCount == null ? DEFAULT_MAX_CONN_COUNT : Integer.parseInt(configMaxConnCount);
@@ -83,12 +131,29 @@ public final class HttpReporterClient implements IReporterClient {
         connectionManager.setMaxTotal(maxConnCount);
         connectionManager.setDefaultMaxPerRoute(maxRouteConnCount);
         this.httpClient = HttpClients.custom().setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
                 .setKeepAliveStrategy(HttpReporterClient::getKeepAliveDuration).build();
         this.idleConnectionMonitor = new IdleConnectionMonitor(connectionManager);
         this.idleConnectionMonitor.start();
         log.info("Agent's connection monitoring service start success!");
     }
     
+    private static List<String> getUrls(final Map<String, String> props) {
+        String urls = props.get(AgentConfigParamsConstant.URLS);
+        if (StringUtils.isNullOrEmpty(urls)) {
+            urls = props.get(AgentConfigParamsConstant.URL);
+        }
+        if (StringUtils.isNullOrEmpty(urls)) {
+            return Collections.singletonList(DEFAULT_URL);
+        }
+        return Arrays.stream(urls.split(",")).map(String::trim).filter(each -> !each.isEmpty()).distinct().collect(Collectors.toList());
+    }
+    
+    private static long getLong(final Map<String, String> props, final String key, final long defaultValue) {
+        String value = props.get(key);
+        return StringUtils.isNullOrEmpty(value) ? defaultValue : Long.parseLong(value.trim());
+    }
+    
     /**
      * Sending data to the server.
      *
@@ -97,24 +162,106 @@ public final class HttpReporterClient implements IReporterClient {
      */
     @Override
     public void doPost(final String value) throws GalaxyTracingException {
+        doPost(value, null);
+    }
+    
+    /**
+     * Sending data to the server, with the names of its typed keys.
+     *
+     * @param value value
+     * @param keyNames names of the typed keys, null if the data has no schema
+     * @throws GalaxyTracingException System Exception
+     */
+    @Override
+    public void doPost(final String value, final SchemaKeyNames keyNames) throws GalaxyTracingException {
+        log.info("Posting data {}", value);
+        String batchId = newBatchId();
+        long backoffMillis = retryBackoffMillis;
+        for (int attempt = 0; attempt <= retryAttempts; attempt++) {
+            if (attempt > 0) {
+                log.warn("No collector took batch {}, retry in {} ms", batchId, backoffMillis);
+                backOff(backoffMillis);
+                backoffMillis = Math.min(backoffMillis << 1, maxRetryBackoffMillis);
+            }
+            if (tryPost(batchId, value, keyNames)) {
+                return;
+            }
+        }
+        throw new GalaxyTracingException("No collector took batch %s after %d retries, it is given up", batchId, retryAttempts);
+    }
+    
+    private boolean tryPost(final String batchId, final String value, final SchemaKeyNames keyNames) {
+        Collection<CollectorEndpoint> tried = new ArrayList<>(1);
+        CollectorEndpoint endpoint = balancer.acquire(tried);
+        while (null != endpoint) {
+            tried.add(endpoint);
+            boolean success = false;
+            try {
+                success = post(endpoint, batchId, value, keyNames);
+            } catch (IOException ex) {
+                log.warn("Posting data to {} failed, cause:{}", endpoint, ex.getLocalizedMessage());
+            } finally {
+                balancer.release(endpoint, success);
+            }
+            if (success) {
+                return true;
+            }
+            endpoint = balancer.acquire(tried);
+        }
+        return false;
+    }
+    
+    private static void backOff(final long millis) throws GalaxyTracingException {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GalaxyTracingException("Interrupted while retrying a post", ex);
+        }
+    }
+    
+    private static String newBatchId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return String.format("%016x%016x", random.nextLong(), random.nextLong());
+    }
+    
+    private boolean post(final CollectorEndpoint endpoint, final String batchId, final String value, final SchemaKeyNames keyNames) throws IOException {
+        if (null == keyNames) {
+            return post(endpoint.getUrl(), batchId, value) < HttpStatus.SC_INTERNAL_SERVER_ERROR;
+        }
+        boolean registered = endpoint.isRegistered(keyNames.getSchema());
+        int status = post(endpoint.getUrl(), batchId, registered ? value : keyNames.attachTo(value));
+        if (registered && HttpStatus.SC_CONFLICT == status) {
+            log.info("Collector {} lost the key names of the schemas, send them again", endpoint);
+            endpoint.clearRegistered();
+            status = post(endpoint.getUrl(), batchId, keyNames.attachTo(value));
+        }
+        if (status < HttpStatus.SC_MULTIPLE_CHOICES) {
+            endpoint.onRegistered(keyNames.getSchema());
+        }
+        return status < HttpStatus.SC_INTERNAL_SERVER_ERROR;
+    }
+    
+    private int post(final String url, final String batchId, final String value) throws IOException {
         RequestBuilder reqBuilder = RequestBuilder.create(HttpMethodName.POST.toString())
                 .setUri(url)
+                .addHeader(GalaxyTracingProtocolConstant.BATCH_ID_HEADER, batchId)
                 .addHeader("Accept", ContentType.APPLICATION_JSON.toString())
                 .addHeader("Content-type", ContentType.APPLICATION_JSON.toString());
         if (!StringUtils.isNullOrEmpty(value)) {
             reqBuilder.setEntity(new StringEntity(value, ContentType.APPLICATION_JSON));
         }
-        log.info("Posting data {}", value);
-        try {
-            HttpResponse response = httpClient.execute(reqBuilder.build());
-            String msg = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-            if (log.isDebugEnabled()) {
-                log.info("Response from GalaxyTracing server: {}", msg);
-            }
-            EntityUtils.consume(response.getEntity());
-        } catch (IOException e) {
-            throw new GalaxyTracingException("An exception occurred in posting data, cause:%s", e.getLocalizedMessage(), e);
+        HttpResponse response = httpClient.execute(reqBuilder.build());
+        int status = response.getStatusLine().getStatusCode();
+        String msg = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        if (log.isDebugEnabled()) {
+            log.info("Response from GalaxyTracing server {}: {} {}", url, status, msg);
+        }
+        EntityUtils.consume(response.getEntity());
+        if (status >= HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+            log.warn("Collector {} answered {}", url, status);
         }
+        return status;
     }
     
     /**
@@ -17,6 +17,8 @@
 
 package org.example.galaxytracing.agent.reporter.http.client;
 
+import org.example.galaxytracing.agent.reporter.SchemaKeyNames;
+
 /**
  * Client interface for sending data.
  *
@@ -31,6 +33,16 @@ public interface IReporterClient {
      */
     void doPost(String value);
     
+    /**
+     * Sending data to the server, with the names of its typed keys.
+     *
+     * @param value value
+     * @param keyNames names of the typed keys, null if the data has no schema
+     */
+    default void doPost(final String value, final SchemaKeyNames keyNames) {
+        doPost(value);
+    }
+    
     /**
      * Shutdown the reporter server.
      */
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.reporter;
+
+import org.example.galaxytracing.agent.reporter.http.client.IReporterClient;
+import org.example.galaxytracing.infra.config.entity.agent.ReporterConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class ReporterTest {
+    
+    private final BlockingQueue<TraceMessage> queue = new LinkedBlockingQueue<>();
+    
+    private final Map<String, FakeClient> clients = new ConcurrentHashMap<>();
+    
+    private Reporter reporter;
+    
+    @After
+    public void tearDown() throws InterruptedException {
+        reporter.shutdown();
+        reporter.join(5000L);
+    }
+    
+    @Test
+    public void assertSwitchClientBetweenPosts() throws InterruptedException {
+        reporter = new Reporter(queue, createConfig("first"), this::createClient);
+        reporter.start();
+        FakeClient first = clients.get("first");
+        first.blocked = new CountDownLatch(1);
+        queue.add(TraceMessage.of("a"));
+        assertTrue(first.posting.await(5L, TimeUnit.SECONDS));
+        reporter.reconfigure(createConfig("second"));
+        queue.add(TraceMessage.of("b"));
+        Thread.sleep(300L);
+        assertThat(first.shutdowns.get(), is(0));
+        assertThat(clients.get("second").posts, is(Collections.<String>emptyList()));
+        first.blocked.countDown();
+        FakeClient second = clients.get("second");
+        awaitPosts(second, 1);
+        assertThat(first.posts, is(Collections.singletonList("a")));
+        assertThat(second.posts, is(Collections.singletonList("b")));
+        assertThat(first.shutdowns.get(), is(1));
+        assertThat(second.shutdowns.get(), is(0));
+    }
+    
+    @Test
+    public void assertShutdownClientReplacedBeforeUse() throws InterruptedException {
+        reporter = new Reporter(queue, createConfig("first"), this::createClient);
+        FakeClient first = clients.get("first");
+        first.blocked = new CountDownLatch(1);
+        reporter.start();
+        queue.add(TraceMessage.of("a"));
+        assertTrue(first.posting.await(5L, TimeUnit.SECONDS));
+        reporter.reconfigure(createConfig("second"));
+        reporter.reconfigure(createConfig("third"));
+        assertThat(clients.get("second").shutdowns.get(), is(1));
+        first.blocked.countDown();
+        queue.add(TraceMessage.of("b"));
+        awaitPosts(clients.get("third"), 1);
+        assertThat(clients.get("second").posts, is(Collections.<String>emptyList()));
+        assertThat(first.shutdowns.get(), is(1));
+    }
+    
+    @Test
+    public void assertReportQueuedMessagesOnShutdown() throws InterruptedException {
+        reporter = new Reporter(queue, createConfig("first"), this::createClient);
+        queue.addAll(Arrays.asList(TraceMessage.of("a"), TraceMessage.of("b"), TraceMessage.of("c")));
+        reporter.start();
+        reporter.shutdown();
+        reporter.join(5000L);
+        FakeClient first = clients.get("first");
+        assertThat(first.posts, is(Arrays.asList("a", "b", "c")));
+        assertThat(first.shutdowns.get(), is(1));
+    }
+    
+    @Test
+    public void assertSerializeOnReporterThread() throws InterruptedException {
+        reporter = new Reporter(queue, createConfig("first"), this::createClient);
+        List<Thread> serializers = new CopyOnWriteArrayList<>();
+        queue.add(() -> {
+            serializers.add(Thread.currentThread());
+            return "a";
+        });
+        reporter.start();
+        FakeClient first = clients.get("first");
+        awaitPosts(first, 1);
+        assertThat(first.posts, is(Collections.singletonList("a")));
+        assertThat(serializers, is(Collections.<Thread>singletonList(reporter)));
+    }
+    
+    private IReporterClient createClient(final ReporterConfig config) {
+        FakeClient result = new FakeClient();
+        clients.put(config.getType(), result);
+        return result;
+    }
+    
+    private static ReporterConfig createConfig(final String type) {
+        ReporterConfig result = new ReporterConfig();
+        result.setType(type);
+        result.setProps(Collections.emptyMap());
+        return result;
+    }
+    
+    private static void awaitPosts(final FakeClient client, final int count) throws InterruptedException {
+        for (int i = 0; i < 100 && client.posts.size() < count; i++) {
+            Thread.sleep(50L);
+        }
+    }
+    
+    private static final class FakeClient implements IReporterClient {
+        
+        private final List<String> posts = new CopyOnWriteArrayList<>();
+        
+        private final AtomicInteger shutdowns = new AtomicInteger();
+        
+        private final CountDownLatch posting = new CountDownLatch(1);
+        
+        private volatile CountDownLatch blocked;
+        
+        @Override
+        public void doPost(final String value) {
+            posting.countDown();
+            if (null != blocked) {
+                try {
+                    blocked.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            posts.add(value);
+        }
+        
+        @Override
+        public void shutdown() {
+            shutdowns.incrementAndGet();
+        }
+    }
+}
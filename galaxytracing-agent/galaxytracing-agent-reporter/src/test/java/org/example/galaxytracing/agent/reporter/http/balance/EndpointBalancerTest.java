@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.reporter.http.balance;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class EndpointBalancerTest {
+    
+    @Test
+    public void assertChooseLessLoaded() {
+        EndpointBalancer balancer = new EndpointBalancer(Arrays.asList("http://a", "http://b"), 1000L, 60000L);
+        CollectorEndpoint busy = balancer.getEndpoints().get(0);
+        for (int i = 0; i < 5; i++) {
+            busy.onStart();
+        }
+        for (int i = 0; i < 100; i++) {
+            CollectorEndpoint actual = balancer.acquire(Collections.emptyList());
+            assertThat(actual, is(balancer.getEndpoints().get(1)));
+            balancer.release(actual, true);
+        }
+    }
+    
+    @Test
+    public void assertSpreadEqualLoad() {
+        EndpointBalancer balancer = new EndpointBalancer(Arrays.asList("http://a", "http://b", "http://c"), 1000L, 60000L);
+        Map<CollectorEndpoint, Integer> counts = new HashMap<>(4, 1);
+        for (int i = 0; i < 3000; i++) {
+            CollectorEndpoint actual = balancer.acquire(Collections.emptyList());
+            counts.merge(actual, 1, Integer::sum);
+            balancer.release(actual, true);
+        }
+        for (CollectorEndpoint each : balancer.getEndpoints()) {
+            assertTrue(counts.get(each) > 700);
+        }
+    }
+    
+    @Test
+    public void assertEjectFailedEndpoint() {
+        EndpointBalancer balancer = new EndpointBalancer(Arrays.asList("http://a", "http://b"), 60000L, 60000L);
+        CollectorEndpoint failed = balancer.acquire(Collections.emptyList());
+        balancer.release(failed, false);
+        assertTrue(failed.isEjected());
+        assertThat(failed.getOutstandingRequests(), is(0));
+        for (int i = 0; i < 100; i++) {
+            CollectorEndpoint actual = balancer.acquire(Collections.emptyList());
+            assertThat(actual, is(not(failed)));
+            balancer.release(actual, true);
+        }
+    }
+    
+    @Test
+    public void assertSkipExcludedEndpoint() {
+        EndpointBalancer balancer = new EndpointBalancer(Arrays.asList("http://a", "http://b"), 1000L, 60000L);
+        CollectorEndpoint first = balancer.acquire(Collections.emptyList());
+        CollectorEndpoint second = balancer.acquire(Collections.singletonList(first));
+        assertThat(second, is(not(first)));
+        assertThat(balancer.acquire(Arrays.asList(first, second)), is(nullValue()));
+    }
+    
+    @Test
+    public void assertProbeAfterEjection() throws InterruptedException {
+        EndpointBalancer balancer = new EndpointBalancer(Arrays.asList("http://a", "http://b"), 50L, 60000L);
+        CollectorEndpoint failed = balancer.getEndpoints().get(0);
+        failed.onStart();
+        balancer.release(failed, false);
+        Thread.sleep(100L);
+        CollectorEndpoint probe = balancer.acquire(Collections.emptyList());
+        assertThat(probe, is(failed));
+        CollectorEndpoint other = balancer.acquire(Collections.emptyList());
+        assertThat(other, is(balancer.getEndpoints().get(1)));
+        balancer.release(other, true);
+        balancer.release(probe, true);
+        assertFalse(failed.isEjected());
+    }
+    
+    @Test
+    public void assertEjectLongerAfterFailedProbe() throws InterruptedException {
+        EndpointBalancer balancer = new EndpointBalancer(Arrays.asList("http://a", "http://b"), 50L, 60000L);
+        CollectorEndpoint failed = balancer.getEndpoints().get(0);
+        failed.onStart();
+        balancer.release(failed, false);
+        Thread.sleep(100L);
+        CollectorEndpoint probe = balancer.acquire(Collections.emptyList());
+        assertThat(probe, is(failed));
+        balancer.release(probe, false);
+        Thread.sleep(60L);
+        for (int i = 0; i < 10; i++) {
+            CollectorEndpoint actual = balancer.acquire(Collections.emptyList());
+            assertThat(actual, is(not(failed)));
+            balancer.release(actual, true);
+        }
+    }
+    
+    @Test
+    public void assertProbeEarliestWhenAllEjected() {
+        EndpointBalancer balancer = new EndpointBalancer(Arrays.asList("http://a", "http://b"), 60000L, 600000L);
+        CollectorEndpoint first = balancer.getEndpoints().get(0);
+        CollectorEndpoint second = balancer.getEndpoints().get(1);
+        second.onStart();
+        balancer.release(second, false);
+        first.onStart();
+        balancer.release(first, false);
+        first.onStart();
+        balancer.release(first, false);
+        CollectorEndpoint probe = balancer.acquire(Collections.emptyList());
+        assertThat(probe, is(second));
+        assertThat(balancer.acquire(Collections.emptyList()), is(first));
+        assertThat(balancer.acquire(Collections.emptyList()), is(nullValue()));
+        assertThat(balancer.acquire(Collections.singletonList(second)), is(nullValue()));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.agent.reporter.http.client;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpServer;
+import org.example.galaxytracing.agent.reporter.SchemaKeyNames;
+import org.example.galaxytracing.infra.common.constant.GalaxyTracingProtocolConstant;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.config.constant.AgentConfigParamsConstant;
+import org.example.galaxytracing.infra.config.entity.agent.ReporterConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public final class HttpReporterClientTest {
+    
+    private final List<String> batchIds = new CopyOnWriteArrayList<>();
+    
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    
+    private final AtomicInteger failures = new AtomicInteger();
+    
+    private final AtomicInteger conflicts = new AtomicInteger();
+    
+    private HttpServer collector;
+    
+    private HttpReporterClient client;
+    
+    @After
+    public void tearDown() {
+        if (null != client) {
+            client.shutdown();
+        }
+        if (null != collector) {
+            collector.stop(0);
+        }
+    }
+    
+    @Test
+    public void assertRetryWithSameBatchId() throws IOException {
+        collector = startCollector();
+        failures.set(2);
+        client = new HttpReporterClient(createConfig("http://127.0.0.1:" + collector.getAddress().getPort() + "/collector", 3));
+        client.doPost("{\"traceId\":\"1\"}");
+        assertThat(batchIds.size(), is(3));
+        assertThat(batchIds.get(1), is(batchIds.get(0)));
+        assertThat(batchIds.get(2), is(batchIds.get(0)));
+    }
+    
+    @Test
+    public void assertFailOverToOtherCollector() throws IOException {
+        collector = startCollector();
+        String url = "http://127.0.0.1:" + collector.getAddress().getPort() + "/collector";
+        client = new HttpReporterClient(createConfig("http://127.0.0.1:" + getFreePort() + "/collector," + url, 0));
+        for (int i = 0; i < 5; i++) {
+            client.doPost("{\"traceId\":\"" + i + "\"}");
+        }
+        assertThat(batchIds.size(), is(5));
+    }
+    
+    @Test(expected = GalaxyTracingException.class)
+    public void assertGiveUpAfterRetries() throws IOException {
+        collector = startCollector();
+        failures.set(Integer.MAX_VALUE);
+        client = new HttpReporterClient(createConfig("http://127.0.0.1:" + collector.getAddress().getPort() + "/collector", 2));
+        try {
+            client.doPost("{\"traceId\":\"1\"}");
+        } finally {
+            assertThat(batchIds.size(), is(3));
+        }
+    }
+    
+    @Test
+    public void assertAttachKeyNamesOncePerCollector() throws IOException {
+        collector = startCollector();
+        client = new HttpReporterClient(createConfig("http://127.0.0.1:" + collector.getAddress().getPort() + "/collector", 0));
+        SchemaKeyNames keyNames = new SchemaKeyNames("example.OrderAgent", Collections.singletonMap(1, "orderId"));
+        client.doPost("{\"traceId\":\"1\",\"@keys\":[1,42]}", keyNames);
+        client.doPost("{\"traceId\":\"2\",\"@keys\":[1,43]}", keyNames);
+        assertThat(bodies.size(), is(2));
+        assertThat(bodies.get(0), is("{\"@keyNames\":{\"example.OrderAgent\":{\"1\":\"orderId\"}},\"traceId\":\"1\",\"@keys\":[1,42]}"));
+        assertThat(bodies.get(1), is("{\"traceId\":\"2\",\"@keys\":[1,43]}"));
+    }
+    
+    @Test
+    public void assertAttachKeyNamesAgainOnConflict() throws IOException {
+        collector = startCollector();
+        client = new HttpReporterClient(createConfig("http://127.0.0.1:" + collector.getAddress().getPort() + "/collector", 0));
+        SchemaKeyNames keyNames = new SchemaKeyNames("example.OrderAgent", Collections.singletonMap(1, "orderId"));
+        client.doPost("{\"traceId\":\"1\"}", keyNames);
+        conflicts.set(1);
+        client.doPost("{\"traceId\":\"2\"}", keyNames);
+        assertThat(bodies.size(), is(3));
+        assertThat(bodies.get(1), is("{\"traceId\":\"2\"}"));
+        assertThat(bodies.get(2), is("{\"@keyNames\":{\"example.OrderAgent\":{\"1\":\"orderId\"}},\"traceId\":\"2\"}"));
+        assertThat(batchIds.get(2), is(batchIds.get(1)));
+    }
+    
+    private HttpServer startCollector() throws IOException {
+        HttpServer result = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        result.createContext("/collector", exchange -> {
+            bodies.add(new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8));
+            batchIds.add(exchange.getRequestHeaders().getFirst(GalaxyTracingProtocolConstant.BATCH_ID_HEADER));
+            int status = conflicts.getAndDecrement() > 0 ? 409 : 200;
+            exchange.sendResponseHeaders(failures.getAndDecrement() > 0 ? 503 : status, -1);
+            exchange.close();
+        });
+        result.start();
+        return result;
+    }
+    
+    private static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+    
+    private static ReporterConfig createConfig(final String urls, final int retryAttempts) {
+        Map<String, String> props = new HashMap<>(8, 1);
+        props.put(AgentConfigParamsConstant.URLS, urls);
+        props.put(AgentConfigParamsConstant.EJECTION_BASE_MILLIS, "10");
+        props.put(AgentConfigParamsConstant.RETRY_ATTEMPTS, String.valueOf(retryAttempts));
+        props.put(AgentConfigParamsConstant.RETRY_BACKOFF_MILLIS, "10");
+        ReporterConfig result = new ReporterConfig();
+        result.setType("direct");
+        result.setProps(props);
+        return result;
+    }
+}
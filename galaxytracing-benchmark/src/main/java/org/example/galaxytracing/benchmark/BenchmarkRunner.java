@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the agent and server benchmarks with the GC profiler, which reports the bytes allocated per operation.
+ *
+ * <p>The agent benchmarks and {@link ColumnarScanBenchmark} run on one thread, {@link SnowflakeIdBenchmark} runs on 1, 2, 4 ... threads up to the
+ * maximum given as the first argument, the number of processors by default. To pass other JMH options, run
+ * {@code org.openjdk.jmh.Main} from the same jar with {@code -prof gc}.</p>
+ *
+ * @author JiekerTime
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BenchmarkRunner {
+    
+    /**
+     * Main entry.
+     *
+     * @param args max threads of the ID generator benchmark, optional
+     * @throws RunnerException benchmark failure
+     */
+    public static void main(final String[] args) throws RunnerException {
+        int maxThreads = 0 == args.length ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(args[0]);
+        run(new OptionsBuilder().include(TracingAgentBenchmark.class.getName()).include(SnowFlakeTraceStorageBenchmark.class.getName()).include(ColumnarScanBenchmark.class.getName()).threads(1));
+        int threads = 0;
+        do {
+            threads = Math.min(Math.max(threads << 1, 1), maxThreads);
+            run(new OptionsBuilder().include(SnowflakeIdBenchmark.class.getName()).threads(threads));
+        } while (threads < maxThreads);
+    }
+    
+    private static void run(final ChainedOptionsBuilder options) throws RunnerException {
+        new Runner(options.addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark;
+
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.backend.storage.column.ColumnarStore;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a group-by count over the columnar copy of a sealed segment against decoding its rows.
+ *
+ * <p>Both count the errors of each service, {@link #countColumns()} through {@link ColumnarStore#countBy}, {@link #countRows()}
+ * by decoding every record of the same segment as the store does for the active segment.</p>
+ *
+ * @author JiekerTime
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarScanBenchmark {
+    
+    @Param("200000")
+    private int recordCount;
+    
+    private File directory;
+    
+    private Segment segment;
+    
+    private Collection<Segment> segments;
+    
+    private ColumnarStore columnarStore;
+    
+    /**
+     * Write and seal a segment with its columnar copy.
+     *
+     * @throws IOException IO exception
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("galaxytracing-columnar").toFile();
+        segment = Segment.create(directory, 0);
+        segments = Collections.singletonList(segment);
+        columnarStore = new ColumnarStore();
+        for (int i = 0; i < recordCount; i++) {
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put(TraceRecordCodec.TRACE_ID, String.valueOf(i));
+            attributes.put("service", "service-" + i % 10);
+            attributes.put("status", 0 == i % 50 ? "error" : "ok");
+            attributes.put("endpoint", "/api/v1/endpoint-" + i % 100);
+            attributes.put("user", "user-" + i);
+            long offset = segment.append(i, TraceRecordCodec.encode(attributes));
+            columnarStore.onAppend(segment, offset, new TraceRecord(i, attributes));
+        }
+        segment.seal();
+        columnarStore.onSeal(segment);
+    }
+    
+    /**
+     * Close the segment and delete its files.
+     *
+     * @throws IOException IO exception
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        segment.close();
+        for (File each : directory.listFiles()) {
+            Files.delete(each.toPath());
+        }
+        Files.delete(directory.toPath());
+    }
+    
+    /**
+     * Count through the columnar copy.
+     *
+     * @return count of each service
+     */
+    @Benchmark
+    public Map<String, Long> countColumns() {
+        return columnarStore.countBy(segments, "service", "status", "error");
+    }
+    
+    /**
+     * Count by decoding the rows.
+     *
+     * @return count of each service
+     */
+    @Benchmark
+    public Map<String, Long> countRows() {
+        Map<String, Long> result = new HashMap<>();
+        segment.scan((offset, traceId, payloadLength) -> {
+            Map<String, String> attributes = segment.read(offset).getAttributes();
+            if ("error".equals(attributes.get("status"))) {
+                result.merge(attributes.get("service"), 1L, Long::sum);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark;
+
+import org.example.galaxytracing.agent.core.storage.impl.SnowFlakeTraceStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link SnowFlakeTraceStorage}.
+ *
+ * <p>The storage keeps its data per thread, so the state is per thread as well and its setup runs on the benchmark
+ * thread. {@link #remove()} and {@link #clear()} put a key first, the figures include that put.</p>
+ *
+ * @author JiekerTime
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnowFlakeTraceStorageBenchmark {
+    
+    private SnowFlakeTraceStorage storage;
+    
+    /**
+     * Create the storage and start a trace.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        storage = new SnowFlakeTraceStorage();
+        storage.put("userId", "10086");
+    }
+    
+    /**
+     * Put one key/value.
+     *
+     * @return trace storage
+     */
+    @Benchmark
+    public SnowFlakeTraceStorage put() {
+        return storage.put("userId", "10086");
+    }
+    
+    /**
+     * Get one value.
+     *
+     * @return value
+     */
+    @Benchmark
+    public String get() {
+        return storage.get("userId");
+    }
+    
+    /**
+     * Put then remove one key.
+     */
+    @Benchmark
+    public void remove() {
+        storage.put("orderId", "20211024");
+        storage.remove("orderId");
+    }
+    
+    /**
+     * Put one key then clear the trace, the next put starts a new trace with a new traceId.
+     *
+     * @return serialized trace
+     */
+    @Benchmark
+    public String clear() {
+        storage.put("userId", "10086");
+        return storage.clear();
+    }
+}
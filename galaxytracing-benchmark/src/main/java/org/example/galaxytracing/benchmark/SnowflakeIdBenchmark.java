@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark;
+
+import org.example.galaxytracing.infra.common.traceid.ShardedSnowflakeId;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link SnowflakeId#generateId()}, {@link SnowflakeId#generateIds(long[])} and {@link ShardedSnowflakeId#generateId()}.
+ *
+ * <p>All threads share one generator as the agent does, {@link BenchmarkRunner} runs it from one thread up to the
+ * number of processors to show the contention. The bulk benchmark reports the cost of one ID.</p>
+ *
+ * @author JiekerTime
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnowflakeIdBenchmark {
+    
+    private static final int BATCH_SIZE = 64;
+    
+    private final SnowflakeId snowflakeId = new SnowflakeId();
+    
+    private final ShardedSnowflakeId shardedSnowflakeId = new ShardedSnowflakeId(1L, 1L, SnowflakeLayout.DEFAULT);
+    
+    private final ThreadLocal<long[]> batch = ThreadLocal.withInitial(() -> new long[BATCH_SIZE]);
+    
+    /**
+     * Generate one ID.
+     *
+     * @return ID
+     */
+    @Benchmark
+    public long generateId() {
+        return snowflakeId.generateId();
+    }
+    
+    /**
+     * Generate a batch of IDs.
+     *
+     * @return IDs
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] generateIds() {
+        long[] result = batch.get();
+        snowflakeId.generateIds(result);
+        return result;
+    }
+    
+    /**
+     * Generate one ID from the stripe of the thread.
+     *
+     * @return ID
+     */
+    @Benchmark
+    public long generateShardedId() {
+        return shardedSnowflakeId.generateId();
+    }
+}
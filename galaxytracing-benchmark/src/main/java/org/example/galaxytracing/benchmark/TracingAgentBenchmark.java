@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark;
+
+import lombok.Getter;
+import org.example.galaxytracing.agent.TracingAgent;
+import org.example.galaxytracing.agent.core.storage.impl.SnowFlakeTraceStorage;
+import org.example.galaxytracing.agent.initializer.TracingAgentBase;
+import org.example.galaxytracing.agent.reporter.TraceMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Benchmark of the {@link TracingAgent} entry methods.
+ *
+ * <p>No collector runs during the benchmark, a daemon thread drains the report queue so that {@link #finish()} does not
+ * grow it without bound. Traces are finished with a NOP logger, the figures leave out the logging backend.</p>
+ *
+ * @author JiekerTime
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TracingAgentBenchmark {
+    
+    private static final int DRAIN_BATCH = 4096;
+    
+    private final TraceData traceData = new TraceData();
+    
+    private TracingAgent agent;
+    
+    private Thread drainer;
+    
+    private volatile boolean draining;
+    
+    /**
+     * Start the agent and the queue drainer.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        agent = new TracingAgent();
+        BlockingQueue<TraceMessage> mq = TracingAgentBase.getInstance(null).getMq();
+        draining = true;
+        drainer = new Thread(() -> drain(mq), "benchmark-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+    
+    /**
+     * Stop the queue drainer.
+     *
+     * @throws InterruptedException interrupted while waiting for the drainer
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        draining = false;
+        drainer.join();
+    }
+    
+    private void drain(final BlockingQueue<TraceMessage> mq) {
+        List<TraceMessage> messages = new ArrayList<>(DRAIN_BATCH);
+        while (draining) {
+            if (0 == mq.drainTo(messages, DRAIN_BATCH)) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100L));
+            }
+            messages.clear();
+        }
+    }
+    
+    /**
+     * Put one key/value.
+     *
+     * @return trace storage
+     */
+    @Benchmark
+    public SnowFlakeTraceStorage putKeyValue() {
+        return agent.put("userId", "10086");
+    }
+    
+    /**
+     * Put several key/values at once.
+     */
+    @Benchmark
+    public void putKeyValues() {
+        agent.put("userId", "10086", "orderId", "20211024", "status", "paid");
+    }
+    
+    /**
+     * Put the properties of a pojo.
+     */
+    @Benchmark
+    public void putObject() {
+        agent.put(traceData);
+    }
+    
+    /**
+     * Finish a trace holding one key/value, an empty trace is not representative of a real finish.
+     */
+    @Benchmark
+    public void finish() {
+        agent.put("userId", "10086");
+        agent.finish(NOPLogger.NOP_LOGGER);
+    }
+    
+    /**
+     * Pojo put by {@link #putObject()}.
+     */
+    @Getter
+    public static final class TraceData {
+        
+        private final String userId = "10086";
+        
+        private final String orderId = "20211024";
+        
+        private final String status = "paid";
+    }
+}
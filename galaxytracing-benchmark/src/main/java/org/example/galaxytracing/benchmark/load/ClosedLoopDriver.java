@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Driver simulating agents which wait for their response before they send again.
+ *
+ * <p>Each agent means to send every {@code agents / rate} seconds, or back to back if the rate is 0. Its first request
+ * is due at a random point of the first interval so the agents do not send in lockstep. A response later than the
+ * interval delays the next request of the agent, the requests it missed are accounted by {@link LoadStatistics}.</p>
+ *
+ * @author JiekerTime
+ */
+final class ClosedLoopDriver implements LoadDriver {
+    
+    private final LoadOptions options;
+    
+    private final HttpLoadClient client;
+    
+    private final TracePayloadGenerator payloadGenerator;
+    
+    private final LoadStatistics statistics;
+    
+    private final long intervalNanos;
+    
+    private volatile boolean running;
+    
+    ClosedLoopDriver(final LoadOptions options, final HttpLoadClient client, final TracePayloadGenerator payloadGenerator, final LoadStatistics statistics) {
+        this.options = options;
+        this.client = client;
+        this.payloadGenerator = payloadGenerator;
+        this.statistics = statistics;
+        intervalNanos = 0 == options.getRate() ? 0L : TimeUnit.SECONDS.toNanos(options.getAgents()) / options.getRate();
+    }
+    
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < options.getAgents(); i++) {
+            client.schedule(this::send, 0L == intervalNanos ? 0L : ThreadLocalRandom.current().nextLong(intervalNanos));
+        }
+    }
+    
+    private void send() {
+        if (!running) {
+            return;
+        }
+        long sentNanos = System.nanoTime();
+        statistics.recordSent();
+        client.post(payloadGenerator.next()).whenComplete((status, cause) -> {
+            long now = System.nanoTime();
+            statistics.recordCompleted(status, cause, now - sentNanos, intervalNanos);
+            client.schedule(this::send, Math.max(0L, sentNanos + intervalNanos - now));
+        });
+    }
+    
+    @Override
+    public void stop() {
+        running = false;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark.load;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.example.galaxytracing.infra.common.constant.GalaxyTracingProtocolConstant;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking HTTP client posting traces to the collector.
+ *
+ * <p>The collector closes the connection after each response, so every request uses a connection of its own like the
+ * agent reporter does. The event loops of the client also run the timers of the simulated agents.</p>
+ *
+ * @author JiekerTime
+ */
+final class HttpLoadClient implements Closeable {
+    
+    private static final int MAX_RESPONSE_BYTES = 64 * 1024;
+    
+    private final LoadOptions options;
+    
+    private final String path;
+    
+    private final EventLoopGroup group;
+    
+    private final Bootstrap bootstrap;
+    
+    HttpLoadClient(final LoadOptions options) {
+        this.options = options;
+        path = null == options.getUrl().getRawPath() || options.getUrl().getRawPath().isEmpty() ? "/" : options.getUrl().getRawPath();
+        group = Epoll.isAvailable() ? new EpollEventLoopGroup(options.getThreads()) : new NioEventLoopGroup(options.getThreads());
+        bootstrap = new Bootstrap().group(group)
+                .channel(Epoll.isAvailable() ? EpollSocketChannel.class : NioSocketChannel.class)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, options.getTimeoutMillis())
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    
+                    @Override
+                    protected void initChannel(final SocketChannel channel) {
+                        channel.pipeline().addLast(new ReadTimeoutHandler(options.getTimeoutMillis(), TimeUnit.MILLISECONDS))
+                                .addLast(new HttpClientCodec())
+                                .addLast(new HttpObjectAggregator(MAX_RESPONSE_BYTES));
+                    }
+                });
+    }
+    
+    /**
+     * Post a trace with a batch id of its own.
+     *
+     * @param payload json payload
+     * @return future of the HTTP status, failed if there is no response
+     */
+    CompletableFuture<Integer> post(final byte[] payload) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        bootstrap.connect(options.getUrl().getHost(), options.getPort()).addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()) {
+                result.completeExceptionally(future.cause());
+                return;
+            }
+            Channel channel = future.channel();
+            channel.pipeline().addLast(new ResponseHandler(result));
+            channel.writeAndFlush(createRequest(payload)).addListener((ChannelFutureListener) written -> {
+                if (!written.isSuccess()) {
+                    result.completeExceptionally(written.cause());
+                    written.channel().close();
+                }
+            });
+        });
+        return result;
+    }
+    
+    private FullHttpRequest createRequest(final byte[] payload) {
+        FullHttpRequest result = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, path, Unpooled.wrappedBuffer(payload));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        result.headers().set(HttpHeaderNames.HOST, options.getUrl().getAuthority())
+                .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                .set(HttpHeaderNames.CONTENT_LENGTH, payload.length)
+                .set(GalaxyTracingProtocolConstant.BATCH_ID_HEADER, String.format("%016x%016x", random.nextLong(), random.nextLong()));
+        return result;
+    }
+    
+    /**
+     * Run a task on an event loop of the client.
+     *
+     * @param task task
+     * @param delayNanos delay in nanoseconds
+     */
+    void schedule(final Runnable task, final long delayNanos) {
+        group.next().schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    @Override
+    public void close() {
+        group.shutdownGracefully().syncUninterruptibly();
+    }
+    
+    private static final class ResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+        
+        private final CompletableFuture<Integer> result;
+        
+        ResponseHandler(final CompletableFuture<Integer> result) {
+            this.result = result;
+        }
+        
+        @Override
+        protected void channelRead0(final ChannelHandlerContext ctx, final FullHttpResponse response) {
+            result.complete(response.status().code());
+            ctx.close();
+        }
+        
+        @Override
+        public void channelInactive(final ChannelHandlerContext ctx) {
+            result.completeExceptionally(new GalaxyTracingException("Connection is closed before the response"));
+            ctx.fireChannelInactive();
+        }
+        
+        @Override
+        public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+            result.completeExceptionally(cause);
+            ctx.close();
+        }
+    }
+}
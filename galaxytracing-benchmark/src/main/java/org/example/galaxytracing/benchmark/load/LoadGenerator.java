@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark.load;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.HdrHistogram.Histogram;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator simulating agents which report traces to a collector on localhost.
+ *
+ * <p>It prints the throughput, errors and latency of every second, then a summary of the measured seconds once the
+ * warmup is over. See {@link LoadOptions} for the arguments, for example
+ * {@code java -cp benchmarks.jar org.example.galaxytracing.benchmark.load.LoadGenerator --mode=open --agents=2000 --rate=20000}.</p>
+ *
+ * @author JiekerTime
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class LoadGenerator {
+    
+    private static final double MICROS_PER_MILLI = 1000D;
+    
+    /**
+     * Main entry.
+     *
+     * @param args {@code --name=value} options
+     * @throws InterruptedException interrupted while running
+     */
+    public static void main(final String[] args) throws InterruptedException {
+        LoadOptions options = LoadOptions.parse(args);
+        LoadStatistics statistics = new LoadStatistics();
+        Histogram latencies = new Histogram(3);
+        long sent = 0L;
+        long succeeded = 0L;
+        long rejected = 0L;
+        long failed = 0L;
+        System.out.printf("%s loop, %d agents, rate %d/s, warmup %ds, duration %ds, target %s%n",
+                options.getMode().name().toLowerCase(Locale.ROOT), options.getAgents(), options.getRate(), options.getWarmupSeconds(), options.getDurationSeconds(), options.getUrl());
+        try (HttpLoadClient client = new HttpLoadClient(options)) {
+            TracePayloadGenerator payloadGenerator = new TracePayloadGenerator(options.getErrorRatio());
+            LoadDriver driver = LoadMode.OPEN == options.getMode()
+                    ? new OpenLoopDriver(options, client, payloadGenerator, statistics) : new ClosedLoopDriver(options, client, payloadGenerator, statistics);
+            long start = System.nanoTime();
+            driver.start();
+            int totalSeconds = options.getWarmupSeconds() + options.getDurationSeconds();
+            for (int second = 1; second <= totalSeconds; second++) {
+                long due = start + TimeUnit.SECONDS.toNanos(second);
+                for (long delay = due - System.nanoTime(); delay > 0L; delay = due - System.nanoTime()) {
+                    LockSupport.parkNanos(delay);
+                }
+                if (second == totalSeconds) {
+                    driver.stop();
+                }
+                LoadInterval interval = statistics.takeInterval();
+                boolean measured = second > options.getWarmupSeconds();
+                printInterval(second, measured, interval);
+                if (measured) {
+                    latencies.add(interval.getLatencies());
+                    sent += interval.getSent();
+                    succeeded += interval.getSucceeded();
+                    rejected += interval.getRejected();
+                    failed += interval.getFailed();
+                }
+            }
+        }
+        long completed = succeeded + rejected + failed;
+        System.out.printf("%nsent %d, succeeded %d, rejected %d, failed %d, error rate %.3f%%%n",
+                sent, succeeded, rejected, failed, 0L == completed ? 0D : 100D * (rejected + failed) / completed);
+        System.out.printf("throughput %.1f/s%n", (double) succeeded / options.getDurationSeconds());
+        System.out.printf("latency ms p50 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n", getPercentile(latencies, 50D), getPercentile(latencies, 99D),
+                getPercentile(latencies, 99.9D), latencies.getMaxValue() / MICROS_PER_MILLI);
+    }
+    
+    private static void printInterval(final int second, final boolean measured, final LoadInterval interval) {
+        System.out.printf("[%4ds%s] sent %d/s, succeeded %d/s, rejected %d, failed %d, latency ms p50 %.3f, p99 %.3f, p99.9 %.3f%n",
+                second, measured ? "" : " warmup", interval.getSent(), interval.getSucceeded(), interval.getRejected(), interval.getFailed(),
+                getPercentile(interval.getLatencies(), 50D), getPercentile(interval.getLatencies(), 99D), getPercentile(interval.getLatencies(), 99.9D));
+    }
+    
+    private static double getPercentile(final Histogram histogram, final double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark.load;
+
+import com.google.common.base.Preconditions;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Options of the load generator, given as {@code --name=value} arguments.
+ *
+ * <ul>
+ *     <li>{@code url}: collector endpoint, it must be on a loopback address, default {@value #DEFAULT_URL}</li>
+ *     <li>{@code mode}: {@code closed} or {@code open}, default {@code closed}</li>
+ *     <li>{@code agents}: simulated agents, each has at most one request in flight, default 1000</li>
+ *     <li>{@code rate}: target requests per second of all agents, 0 lets closed-loop agents send back to back,
+ *     default 10000</li>
+ *     <li>{@code duration}: measured seconds, default 60</li>
+ *     <li>{@code warmup}: seconds before the measurement, default 10</li>
+ *     <li>{@code timeout}: connect and read timeout in milliseconds, default 5000</li>
+ *     <li>{@code threads}: I/O threads, default the number of processors</li>
+ *     <li>{@code errorRatio}: ratio of the generated traces marked as failed, default 0.01</li>
+ * </ul>
+ *
+ * @author JiekerTime
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class LoadOptions {
+    
+    private static final String DEFAULT_URL = "http://127.0.0.1:9000/collector";
+    
+    private static final String OPTION_PREFIX = "--";
+    
+    private final URI url;
+    
+    private final LoadMode mode;
+    
+    private final int agents;
+    
+    private final int rate;
+    
+    private final int durationSeconds;
+    
+    private final int warmupSeconds;
+    
+    private final int timeoutMillis;
+    
+    private final int threads;
+    
+    private final double errorRatio;
+    
+    /**
+     * Parse the options.
+     *
+     * @param args {@code --name=value} arguments
+     * @return load options
+     * @throws GalaxyTracingException unknown, malformed or out of range option, or the url is not on a loopback address
+     */
+    public static LoadOptions parse(final String... args) throws GalaxyTracingException {
+        Map<String, String> values = new HashMap<>();
+        for (String each : args) {
+            int separator = each.indexOf('=');
+            if (!each.startsWith(OPTION_PREFIX) || separator < 0) {
+                throw new GalaxyTracingException("Illegal option %s, expected --name=value", each);
+            }
+            values.put(each.substring(OPTION_PREFIX.length(), separator), each.substring(separator + 1));
+        }
+        LoadOptions result;
+        try {
+            result = new LoadOptions(URI.create(getOrDefault(values, "url", DEFAULT_URL)),
+                    LoadMode.valueOf(getOrDefault(values, "mode", LoadMode.CLOSED.name()).toUpperCase(Locale.ROOT)),
+                    Integer.parseInt(getOrDefault(values, "agents", "1000")),
+                    Integer.parseInt(getOrDefault(values, "rate", "10000")),
+                    Integer.parseInt(getOrDefault(values, "duration", "60")),
+                    Integer.parseInt(getOrDefault(values, "warmup", "10")),
+                    Integer.parseInt(getOrDefault(values, "timeout", "5000")),
+                    Integer.parseInt(getOrDefault(values, "threads", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    Double.parseDouble(getOrDefault(values, "errorRatio", "0.01")));
+            result.check();
+        } catch (IllegalArgumentException ex) {
+            throw new GalaxyTracingException(String.format("Illegal options %s", String.join(" ", args)), ex);
+        }
+        if (!values.isEmpty()) {
+            throw new GalaxyTracingException("Unknown options %s", values.keySet());
+        }
+        return result;
+    }
+    
+    private static String getOrDefault(final Map<String, String> values, final String name, final String defaultValue) {
+        String result = values.remove(name);
+        return null == result ? defaultValue : result;
+    }
+    
+    private void check() {
+        Preconditions.checkArgument(agents > 0, "agents must be positive");
+        Preconditions.checkArgument(rate > 0 || LoadMode.CLOSED == mode && 0 == rate, "rate must be positive, or 0 in closed mode");
+        Preconditions.checkArgument(durationSeconds > 0 && warmupSeconds >= 0, "duration must be positive and warmup not negative");
+        Preconditions.checkArgument(timeoutMillis > 0 && threads > 0, "timeout and threads must be positive");
+        Preconditions.checkArgument(errorRatio >= 0D && errorRatio <= 1D, "errorRatio must be in [0, 1]");
+        Preconditions.checkArgument("http".equals(url.getScheme()) && null != url.getHost(), "url must be http");
+        try {
+            if (!InetAddress.getByName(url.getHost()).isLoopbackAddress()) {
+                throw new GalaxyTracingException("The load generator only drives a collector on localhost, %s is not a loopback address", url.getHost());
+            }
+        } catch (UnknownHostException ex) {
+            throw new GalaxyTracingException(String.format("Unknown host %s", url.getHost()), ex);
+        }
+    }
+    
+    /**
+     * Get the port of the collector.
+     *
+     * @return port
+     */
+    public int getPort() {
+        return -1 == url.getPort() ? 80 : url.getPort();
+    }
+}
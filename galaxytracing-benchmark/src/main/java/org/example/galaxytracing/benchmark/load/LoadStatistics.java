@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark.load;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the requests sent by the load generator, recorded from any thread and read interval by interval.
+ *
+ * <p>Latencies are recorded in microseconds. A response to a closed-loop agent which took longer than the interval
+ * the agent meant to keep also records the requests the agent could not send meanwhile, see
+ * {@link Recorder#recordValueWithExpectedInterval(long, long)}. Open-loop latencies need no correction since they are
+ * taken from the time the request was due rather than the time it was sent.</p>
+ *
+ * <p>Failed requests record the time until they failed, so timeouts and refused connections show up in the latency
+ * instead of leaving only the fast answers in it.</p>
+ *
+ * @author JiekerTime
+ */
+final class LoadStatistics {
+    
+    private final Recorder recorder = new Recorder(3);
+    
+    private final LongAdder sent = new LongAdder();
+    
+    private final LongAdder succeeded = new LongAdder();
+    
+    private final LongAdder rejected = new LongAdder();
+    
+    private final LongAdder failed = new LongAdder();
+    
+    /**
+     * Record a sent request.
+     */
+    void recordSent() {
+        sent.increment();
+    }
+    
+    /**
+     * Record a completed request.
+     *
+     * @param status HTTP status, ignored if the request failed
+     * @param cause failure without a response, null if there is a response
+     * @param latencyNanos latency in nanoseconds
+     * @param expectedIntervalNanos interval between the requests of a closed-loop agent, 0 if there is no correction
+     */
+    void recordCompleted(final Integer status, final Throwable cause, final long latencyNanos, final long expectedIntervalNanos) {
+        if (null != cause) {
+            failed.increment();
+        } else if (HttpResponseStatus.OK.code() == status) {
+            succeeded.increment();
+        } else {
+            rejected.increment();
+        }
+        recorder.recordValueWithExpectedInterval(TimeUnit.NANOSECONDS.toMicros(latencyNanos), TimeUnit.NANOSECONDS.toMicros(expectedIntervalNanos));
+    }
+    
+    /**
+     * Take the statistics recorded since the last call, only one thread calls it.
+     *
+     * @return statistics of the interval
+     */
+    LoadInterval takeInterval() {
+        return new LoadInterval(recorder.getIntervalHistogram(), sent.sumThenReset(), succeeded.sumThenReset(), rejected.sumThenReset(), failed.sumThenReset());
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark.load;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Driver sending requests at a constant rate.
+ *
+ * <p>The i-th request is due at {@code start + i / rate}. At most one request per agent is in flight, once all of
+ * them are the scheduler waits and sends the late requests as soon as it can. Latency is taken from the time a request
+ * was due, so the time spent behind schedule counts against the collector instead of being omitted.</p>
+ *
+ * @author JiekerTime
+ */
+final class OpenLoopDriver implements LoadDriver {
+    
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+    
+    private final LoadOptions options;
+    
+    private final HttpLoadClient client;
+    
+    private final TracePayloadGenerator payloadGenerator;
+    
+    private final LoadStatistics statistics;
+    
+    private final Semaphore permits;
+    
+    private final Thread scheduler;
+    
+    private volatile boolean running;
+    
+    OpenLoopDriver(final LoadOptions options, final HttpLoadClient client, final TracePayloadGenerator payloadGenerator, final LoadStatistics statistics) {
+        this.options = options;
+        this.client = client;
+        this.payloadGenerator = payloadGenerator;
+        this.statistics = statistics;
+        permits = new Semaphore(options.getAgents());
+        scheduler = new Thread(this::schedule, "LoadScheduler");
+    }
+    
+    @Override
+    public void start() {
+        running = true;
+        scheduler.start();
+    }
+    
+    private void schedule() {
+        long start = System.nanoTime();
+        try {
+            for (long i = 0L; running; i++) {
+                long dueNanos = start + (long) (i * NANOS_PER_SECOND / options.getRate());
+                for (long delay = dueNanos - System.nanoTime(); delay > 0L; delay = dueNanos - System.nanoTime()) {
+                    LockSupport.parkNanos(delay);
+                }
+                permits.acquire();
+                send(dueNanos);
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void send(final long dueNanos) {
+        statistics.recordSent();
+        client.post(payloadGenerator.next()).whenComplete((status, cause) -> {
+            permits.release();
+            statistics.recordCompleted(status, cause, System.nanoTime() - dueNanos, 0L);
+        });
+    }
+    
+    @Override
+    public void stop() throws InterruptedException {
+        running = false;
+        scheduler.interrupt();
+        scheduler.join();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.benchmark.load;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generator of trace payloads shaped like the ones the agent reports.
+ *
+ * <p>Each trace is a call between two services of a small fleet with a log-normal duration in milliseconds, the keys
+ * match the defaults of the aggregation and dependency configuration so the collector does its full work.</p>
+ *
+ * @author JiekerTime
+ */
+final class TracePayloadGenerator {
+    
+    private static final String[] SERVICES = {"gateway", "order-service", "payment-service", "inventory-service", "user-service", "coupon-service",
+        "shipping-service", "search-service"};
+    
+    private static final String[] ENDPOINTS = {"/api/orders", "/api/orders/{id}", "/api/payments", "/api/stock", "/api/users/{id}", "/api/coupons",
+        "/api/shipments", "/api/search"};
+    
+    private final SnowflakeId snowflakeId = new SnowflakeId(SnowflakeId.MAX_WORKER_ID - 1L, SnowflakeId.MAX_DATA_ID - 1L);
+    
+    private final double errorRatio;
+    
+    TracePayloadGenerator(final double errorRatio) {
+        this.errorRatio = errorRatio;
+    }
+    
+    /**
+     * Generate the payload of a new trace.
+     *
+     * @return json payload
+     */
+    byte[] next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int caller = random.nextInt(SERVICES.length);
+        int callee = (caller + 1 + random.nextInt(SERVICES.length - 1)) % SERVICES.length;
+        boolean error = random.nextDouble() < errorRatio;
+        long duration = Math.max(1L, Math.round(Math.exp(3D + 0.8D * random.nextGaussian())));
+        StringBuilder result = new StringBuilder(256);
+        result.append("{\"traceId\":\"").append(snowflakeId.generateId())
+                .append("\",\"caller\":\"").append(SERVICES[caller])
+                .append("\",\"callee\":\"").append(SERVICES[callee])
+                .append("\",\"endpoint\":\"").append(ENDPOINTS[callee])
+                .append("\",\"status\":\"").append(error ? 500 : 200)
+                .append("\",\"error\":\"").append(error)
+                .append("\",\"duration\":\"").append(duration)
+                .append("\",\"userId\":\"").append(random.nextInt(1000000))
+                .append("\"}");
+        return result.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
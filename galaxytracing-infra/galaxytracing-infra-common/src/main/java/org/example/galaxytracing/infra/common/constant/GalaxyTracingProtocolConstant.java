@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.common.constant;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Constants of the protocol between agent and server.
+ *
+ * @author JiekerTime
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class GalaxyTracingProtocolConstant {
+    
+    /**
+     * HTTP header carrying the id of a reported batch, retries of a batch carry the same id.
+     */
+    public static final String BATCH_ID_HEADER = "X-GalaxyTracing-Batch-Id";
+    
+    /**
+     * Member of a trace naming the schema of its typed keys.
+     */
+    public static final String SCHEMA = "@schema";
+    
+    /**
+     * Member of a trace holding the typed keys of its schema, an array of the IDs of the keys each followed by its value.
+     */
+    public static final String SCHEMA_KEYS = "@keys";
+    
+    /**
+     * Member of a trace registering the names of the typed keys, an object of the schemas each mapping the IDs of its
+     * keys to their names. It is sent with the first trace of a schema posted to a collector.
+     */
+    public static final String SCHEMA_KEY_NAMES = "@keyNames";
+}
@@ -27,4 +27,10 @@ public final class GalaxyTracingServerMessage {
     public static final String RESPONSE_OK = "GalaxyTracing Server received message successful.";
     
     public static final String WRONG_REQUEST_ERROR = "GalaxyTracing Server received an incorrect request packet.";
+    
+    public static final String TRACE_NOT_FOUND_ERROR = "GalaxyTracing Server can not find the trace.";
+    
+    public static final String INTERNAL_ERROR = "GalaxyTracing Server failed to handle the request.";
+    
+    public static final String UNKNOWN_SCHEMA_ERROR = "GalaxyTracing Server does not know the names of the keys of the trace schema.";
 }
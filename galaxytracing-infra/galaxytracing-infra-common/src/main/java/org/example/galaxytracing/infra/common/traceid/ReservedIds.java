@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.common.traceid;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * IDs reserved in one step by {@link SnowflakeId#reserveIds(int)}.
+ *
+ * <p>The IDs of one millisecond only differ in the sequence, so they are consecutive numbers. The reservation keeps one
+ * range per millisecond instead of every ID, and is iterated by a single thread.</p>
+ *
+ * @author JiekerTime
+ */
+public final class ReservedIds implements PrimitiveIterator.OfLong {
+    
+    private long[] firstIds;
+    
+    private int[] counts;
+    
+    private int rangeCount;
+    
+    private int size;
+    
+    private int range;
+    
+    private int index;
+    
+    ReservedIds(final int capacity) {
+        firstIds = new long[capacity];
+        counts = new int[capacity];
+    }
+    
+    void addRange(final long firstId, final int count) {
+        if (rangeCount == firstIds.length) {
+            firstIds = Arrays.copyOf(firstIds, rangeCount << 1);
+            counts = Arrays.copyOf(counts, rangeCount << 1);
+        }
+        firstIds[rangeCount] = firstId;
+        counts[rangeCount] = count;
+        rangeCount++;
+        size += count;
+    }
+    
+    /**
+     * Get the number of reserved IDs.
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        return range < rangeCount;
+    }
+    
+    @Override
+    public long nextLong() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        long result = firstIds[range] + index;
+        if (++index == counts[range]) {
+            range++;
+            index = 0;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.common.traceid;
+
+import com.google.common.base.Preconditions;
+import lombok.SneakyThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SnowflakeId generated by per-thread stripes.
+ *
+ * <p>The {@link SnowflakeLayout} carves stripe bits out of the worker ID and sequence space. Every stripe owns its
+ * sequence and is padded to a cache line of its own, a thread is bound to a stripe the first time it generates an ID.
+ * The IDs of different stripes differ in the stripe bits, so the threads never coordinate. A stripe is only shared
+ * when there are more threads than stripes, it then behaves like a {@link SnowflakeId} shared by those threads.</p>
+ *
+ * <p>Sequence overflow and clock drift are handled per stripe like {@link SnowflakeId#generateId()}.</p>
+ *
+ * @author JiekerTime
+ */
+public final class ShardedSnowflakeId implements IdGenerator {
+    
+    private final SnowflakeLayout layout;
+    
+    private final Stripe[] stripes;
+    
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    
+    private final ThreadLocal<Stripe> currentStripe = ThreadLocal.withInitial(this::bindStripe);
+    
+    public ShardedSnowflakeId(final long workerId, final long dataId, final SnowflakeLayout layout) {
+        this(workerId, dataId, layout, 1, 10);
+    }
+    
+    public ShardedSnowflakeId(final long workerId, final long dataId, final SnowflakeLayout layout, final int maxVibrationOffset, final int maxTolerateTimeDifferenceMilliseconds) {
+        Preconditions.checkArgument(workerId >= 0L && workerId <= layout.getMaxWorkerId(), "Illegal worker id.");
+        Preconditions.checkArgument(dataId >= 0L && dataId <= SnowflakeId.MAX_DATA_ID, "Illegal data id.");
+        Preconditions.checkArgument(maxVibrationOffset >= 0 && maxVibrationOffset <= layout.getSequenceMask(), "Illegal max vibration offset.");
+        this.layout = layout;
+        stripes = new Stripe[layout.getStripeCount()];
+        long workerPrefix = (dataId << SnowflakeId.DATA_ID_LEFT_SHIFT) | (workerId << (layout.getStripeBits() + layout.getSequenceBits()));
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(workerPrefix | ((long) i << layout.getSequenceBits()), layout.getSequenceMask(), maxVibrationOffset, maxTolerateTimeDifferenceMilliseconds);
+        }
+    }
+    
+    @Override
+    public long generateId() {
+        return currentStripe.get().generateId();
+    }
+    
+    /**
+     * Get the layout of the IDs.
+     *
+     * @return layout
+     */
+    public SnowflakeLayout getLayout() {
+        return layout;
+    }
+    
+    /**
+     * Get the stripe of the ID.
+     *
+     * @param id ID generated by this generator
+     * @return stripe
+     */
+    public int getStripe(final long id) {
+        return (int) ((id >>> layout.getSequenceBits()) & (layout.getStripeCount() - 1));
+    }
+    
+    private Stripe bindStripe() {
+        return stripes[nextStripe.getAndIncrement() & (stripes.length - 1)];
+    }
+    
+    @SuppressWarnings("unused")
+    private static final class Stripe {
+        
+        private final long prefix;
+        
+        private final long sequenceMask;
+        
+        private final long maxVibrationOffset;
+        
+        private final long maxTolerateTimeDifferenceMilliseconds;
+        
+        private long lastTimestamp = -1L;
+        
+        private long sequence;
+        
+        private long sequenceOffset = -1L;
+        
+        private long padding1;
+        
+        private long padding2;
+        
+        private long padding3;
+        
+        private long padding4;
+        
+        private long padding5;
+        
+        private long padding6;
+        
+        private long padding7;
+        
+        Stripe(final long prefix, final long sequenceMask, final long maxVibrationOffset, final long maxTolerateTimeDifferenceMilliseconds) {
+            this.prefix = prefix;
+            this.sequenceMask = sequenceMask;
+            this.maxVibrationOffset = maxVibrationOffset;
+            this.maxTolerateTimeDifferenceMilliseconds = maxTolerateTimeDifferenceMilliseconds;
+        }
+        
+        synchronized long generateId() {
+            long currentTimestamp = System.currentTimeMillis();
+            if (waitTolerateTimeDifferenceIfNeed(currentTimestamp)) {
+                currentTimestamp = System.currentTimeMillis();
+            }
+            if (lastTimestamp == currentTimestamp) {
+                if (0L == (sequence = (sequence + 1) & sequenceMask)) {
+                    currentTimestamp = waitUntilNextTime(currentTimestamp);
+                }
+            } else {
+                sequenceOffset = sequenceOffset >= maxVibrationOffset ? 0L : sequenceOffset + 1;
+                sequence = sequenceOffset;
+            }
+            lastTimestamp = currentTimestamp;
+            return ((currentTimestamp - SnowflakeId.EPOCH) << SnowflakeId.TIMESTAMP_LEFT_SHIFT) | prefix | sequence;
+        }
+        
+        private long waitUntilNextTime(final long lastTime) {
+            long result = System.currentTimeMillis();
+            while (result <= lastTime) {
+                result = System.currentTimeMillis();
+            }
+            return result;
+        }
+        
+        @SneakyThrows(InterruptedException.class)
+        private boolean waitTolerateTimeDifferenceIfNeed(final long currentMilliseconds) {
+            if (lastTimestamp <= currentMilliseconds) {
+                return false;
+            }
+            long timeDifferenceMilliseconds = lastTimestamp - currentMilliseconds;
+            Preconditions.checkState(timeDifferenceMilliseconds < maxTolerateTimeDifferenceMilliseconds,
+                    "Clock is moving backwards, last time is %s milliseconds, current time is %s milliseconds", lastTimestamp, currentMilliseconds);
+            Thread.sleep(timeDifferenceMilliseconds);
+            return true;
+        }
+    }
+}
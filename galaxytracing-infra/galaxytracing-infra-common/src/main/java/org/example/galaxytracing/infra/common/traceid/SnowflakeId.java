@@ -33,7 +33,7 @@ import java.util.Calendar;
  *
  * @author JiekerTime
  */
-public final class SnowflakeId {
+public final class SnowflakeId implements IdGenerator {
     
     /**
      * 开始时间戳.
@@ -136,8 +136,8 @@ public final class SnowflakeId {
     }
     
     public SnowflakeId(final long workerId, final long dataId, final int maxVibrationOffset, final int maxTolerateTimeDifferenceMilliseconds) {
-        Preconditions.checkArgument(workerId >= 0L && workerId < MAX_WORKER_ID, "Illegal worker id.");
-        Preconditions.checkArgument(dataId >= 0L && dataId < MAX_DATA_ID, "Illegal data id.");
+        Preconditions.checkArgument(workerId >= 0L && workerId <= MAX_WORKER_ID, "Illegal worker id.");
+        Preconditions.checkArgument(dataId >= 0L && dataId <= MAX_DATA_ID, "Illegal data id.");
         Preconditions.checkArgument(maxVibrationOffset >= 0 && maxVibrationOffset <= SEQUENCE_MASK, "Illegal max vibration offset.");
         this.workerId = workerId;
         this.dataId = dataId;
@@ -150,6 +150,7 @@ public final class SnowflakeId {
      *
      * @return SnowflakeId
      */
+    @Override
     public synchronized long generateId() {
         long currentTimestamp = System.currentTimeMillis();
         
@@ -170,6 +171,64 @@ public final class SnowflakeId {
         return ((currentTimestamp - EPOCH) << TIMESTAMP_LEFT_SHIFT) | (dataId << DATA_ID_LEFT_SHIFT) | (workerId << WORKER_ID_LEFT_SHIFT) | sequence;
     }
     
+    /**
+     * 批量生成ID, 填满整个数组.
+     *
+     * @param ids 存放ID的数组
+     */
+    public void generateIds(final long[] ids) {
+        generateIds(ids, 0, ids.length);
+    }
+    
+    /**
+     * 批量生成ID, 填入数组的指定区间.
+     *
+     * @param ids 存放ID的数组
+     * @param offset 起始下标
+     * @param length 生成的ID个数
+     */
+    public void generateIds(final long[] ids, final int offset, final int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, ids.length);
+        ReservedIds reserved = reserveIds(length);
+        for (int i = offset; i < offset + length; i++) {
+            ids[i] = reserved.nextLong();
+        }
+    }
+    
+    /**
+     * 一次预留多个ID, 每毫秒只加锁取时钟一次, 序列溢出和时钟回拨的处理与{@link #generateId()}相同.
+     *
+     * @param count ID个数
+     * @return 预留的ID
+     */
+    public synchronized ReservedIds reserveIds(final int count) {
+        Preconditions.checkArgument(count >= 0, "Illegal count of IDs.");
+        ReservedIds result = new ReservedIds(count / (int) (SEQUENCE_MASK + 1 - maxVibrationOffset) + 2);
+        int remaining = count;
+        while (remaining > 0) {
+            long currentTimestamp = System.currentTimeMillis();
+            if (waitTolerateTimeDifferenceIfNeed(currentTimestamp)) {
+                currentTimestamp = System.currentTimeMillis();
+            }
+            long firstSequence;
+            if (lastTimestamp != currentTimestamp) {
+                vibrateSequenceOffset();
+                firstSequence = sequenceOffset;
+            } else if (SEQUENCE_MASK == sequence) {
+                currentTimestamp = waitUntilNextTime(currentTimestamp);
+                firstSequence = 0L;
+            } else {
+                firstSequence = sequence + 1;
+            }
+            int reserved = (int) Math.min(remaining, SEQUENCE_MASK + 1 - firstSequence);
+            sequence = firstSequence + reserved - 1;
+            lastTimestamp = currentTimestamp;
+            result.addRange(((currentTimestamp - EPOCH) << TIMESTAMP_LEFT_SHIFT) | (dataId << DATA_ID_LEFT_SHIFT) | (workerId << WORKER_ID_LEFT_SHIFT) | firstSequence, reserved);
+            remaining -= reserved;
+        }
+        return result;
+    }
+    
     private void vibrateSequenceOffset() {
         sequenceOffset = sequenceOffset >= maxVibrationOffset ? 0 : sequenceOffset + 1;
     }
@@ -204,10 +263,10 @@ public final class SnowflakeId {
         try {
             InetAddress ip = InetAddress.getLocalHost();
             NetworkInterface network = NetworkInterface.getByInetAddress(ip);
-            if (network == null) {
+            byte[] mac = null == network ? null : network.getHardwareAddress();
+            if (mac == null || mac.length < 2) {
                 result = 1L;
             } else {
-                byte[] mac = network.getHardwareAddress();
                 result = ((0x000000FF & (long) mac[mac.length - 1]) | (0x0000FF00 & (((long) mac[mac.length - 2]) << 8))) >> 6;
                 result = result % (MAX_DATA_ID + 1);
             }
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.common.traceid;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Extract the parts of an ID generated by {@link SnowflakeId}.
+ *
+ * @author JiekerTime
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class SnowflakeIdParser {
+    
+    /**
+     * Get the generation time of the ID.
+     *
+     * @param id SnowflakeId
+     * @return milliseconds since 1970-01-01
+     */
+    public static long getTimestamp(final long id) {
+        return (id >>> SnowflakeId.TIMESTAMP_LEFT_SHIFT) + SnowflakeId.EPOCH;
+    }
+    
+    /**
+     * Get the data identifier of the ID.
+     *
+     * @param id SnowflakeId
+     * @return dataId
+     */
+    public static long getDataId(final long id) {
+        return (id >>> SnowflakeId.DATA_ID_LEFT_SHIFT) & SnowflakeId.MAX_DATA_ID;
+    }
+    
+    /**
+     * Get the worker ID of the ID.
+     *
+     * @param id SnowflakeId
+     * @return workerId
+     */
+    public static long getWorkerId(final long id) {
+        return (id >>> SnowflakeId.WORKER_ID_LEFT_SHIFT) & SnowflakeId.MAX_WORKER_ID;
+    }
+    
+    /**
+     * Get the sequence of the ID.
+     *
+     * @param id SnowflakeId
+     * @return sequence
+     */
+    public static long getSequence(final long id) {
+        return id & SnowflakeId.SEQUENCE_MASK;
+    }
+    
+    /**
+     * Get the smallest ID which can be generated at the timestamp.
+     *
+     * @param timestamp milliseconds since 1970-01-01
+     * @return smallest ID
+     */
+    public static long getMinId(final long timestamp) {
+        return Math.max(0L, timestamp - SnowflakeId.EPOCH) << SnowflakeId.TIMESTAMP_LEFT_SHIFT;
+    }
+    
+    /**
+     * Get the largest ID which can be generated at the timestamp.
+     *
+     * @param timestamp milliseconds since 1970-01-01
+     * @return largest ID
+     */
+    public static long getMaxId(final long timestamp) {
+        return getMinId(timestamp) | ~(-1L << SnowflakeId.TIMESTAMP_LEFT_SHIFT);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.common.traceid;
+
+import com.google.common.base.Preconditions;
+import lombok.Getter;
+
+/**
+ * Allocation of the worker ID and sequence bits of a {@link ShardedSnowflakeId}.
+ *
+ * <p>The timestamp and the data ID keep their place, so {@link SnowflakeIdParser#getTimestamp(long)} and
+ * {@link SnowflakeIdParser#getDataId(long)} work for every layout. The remaining {@value #SHARDED_BITS} bits are split
+ * into the worker ID, the stripe and the sequence from high to low. With {@link SnowflakeId#WORKER_ID_BITS} worker ID
+ * bits, {@link SnowflakeIdParser#getWorkerId(long)} works too.</p>
+ *
+ * @author JiekerTime
+ */
+@Getter
+public final class SnowflakeLayout {
+    
+    /**
+     * Number of the bits shared by the worker ID, the stripe and the sequence.
+     */
+    public static final int SHARDED_BITS = (int) SnowflakeId.DATA_ID_LEFT_SHIFT;
+    
+    /**
+     * Default layout, 16 stripes of 256 IDs per millisecond.
+     */
+    public static final SnowflakeLayout DEFAULT = withStripeBits(4);
+    
+    private final int workerIdBits;
+    
+    private final int stripeBits;
+    
+    private final int sequenceBits;
+    
+    public SnowflakeLayout(final int workerIdBits, final int stripeBits, final int sequenceBits) {
+        Preconditions.checkArgument(workerIdBits >= 0 && stripeBits >= 0 && sequenceBits > 0, "Illegal bits of the layout.");
+        Preconditions.checkArgument(workerIdBits + stripeBits + sequenceBits == SHARDED_BITS,
+                "The worker ID, stripe and sequence bits must add up to %s.", SHARDED_BITS);
+        this.workerIdBits = workerIdBits;
+        this.stripeBits = stripeBits;
+        this.sequenceBits = sequenceBits;
+    }
+    
+    /**
+     * Create a layout which carves the stripes out of the sequence bits of {@link SnowflakeId}.
+     *
+     * @param stripeBits bits of the stripe
+     * @return layout
+     */
+    public static SnowflakeLayout withStripeBits(final int stripeBits) {
+        return new SnowflakeLayout((int) SnowflakeId.WORKER_ID_BITS, stripeBits, (int) SnowflakeId.SEQUENCE_BITS - stripeBits);
+    }
+    
+    /**
+     * Get the largest worker ID.
+     *
+     * @return max worker ID
+     */
+    public long getMaxWorkerId() {
+        return ~(-1L << workerIdBits);
+    }
+    
+    /**
+     * Get the number of the stripes.
+     *
+     * @return stripe count
+     */
+    public int getStripeCount() {
+        return 1 << stripeBits;
+    }
+    
+    /**
+     * Get the mask of the sequence.
+     *
+     * @return sequence mask
+     */
+    public long getSequenceMask() {
+        return ~(-1L << sequenceBits);
+    }
+}
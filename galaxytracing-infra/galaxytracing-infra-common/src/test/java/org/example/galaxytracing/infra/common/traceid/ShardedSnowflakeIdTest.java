@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.common.traceid;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class ShardedSnowflakeIdTest {
+    
+    @Test
+    public void assertUniqueAcrossStripes() throws InterruptedException, ExecutionException {
+        ShardedSnowflakeId generator = new ShardedSnowflakeId(3L, 5L, SnowflakeLayout.withStripeBits(3));
+        long[] ids = generateConcurrently(generator, 8, 20000);
+        assertUnique(ids);
+        Set<Integer> stripes = new HashSet<>();
+        for (long each : ids) {
+            assertThat(SnowflakeIdParser.getWorkerId(each), is(3L));
+            assertThat(SnowflakeIdParser.getDataId(each), is(5L));
+            stripes.add(generator.getStripe(each));
+        }
+        assertThat(stripes.size(), is(8));
+    }
+    
+    @Test
+    public void assertUniqueWhenThreadsShareStripes() throws InterruptedException, ExecutionException {
+        assertUnique(generateConcurrently(new ShardedSnowflakeId(1L, 1L, SnowflakeLayout.withStripeBits(1)), 6, 20000));
+    }
+    
+    @Test
+    public void assertUniqueWhenSequenceRollsOver() throws InterruptedException, ExecutionException {
+        assertUnique(generateConcurrently(new ShardedSnowflakeId(1L, 1L, new SnowflakeLayout(5, 10, 2), 0, 10), 4, 2000));
+    }
+    
+    @Test
+    public void assertUniqueWithCustomLayout() throws InterruptedException, ExecutionException {
+        SnowflakeLayout layout = new SnowflakeLayout(9, 2, 6);
+        ShardedSnowflakeId generator = new ShardedSnowflakeId(layout.getMaxWorkerId(), SnowflakeId.MAX_DATA_ID, layout);
+        long[] ids = generateConcurrently(generator, 4, 20000);
+        assertUnique(ids);
+        for (long each : ids) {
+            assertThat((each >>> 8) & layout.getMaxWorkerId(), is(511L));
+            assertThat(SnowflakeIdParser.getDataId(each), is(SnowflakeId.MAX_DATA_ID));
+        }
+    }
+    
+    @Test
+    public void assertUniqueAcrossGenerators() throws InterruptedException, ExecutionException {
+        long[] sharded = generateConcurrently(new ShardedSnowflakeId(1L, 1L, SnowflakeLayout.DEFAULT), 4, 20000);
+        long[] other = generateConcurrently(new ShardedSnowflakeId(2L, 1L, SnowflakeLayout.DEFAULT), 4, 20000);
+        long[] ids = Arrays.copyOf(sharded, sharded.length + other.length);
+        System.arraycopy(other, 0, ids, sharded.length, other.length);
+        assertUnique(ids);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void assertIllegalLayout() {
+        new SnowflakeLayout(5, 4, 9);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void assertIllegalWorkerId() {
+        new ShardedSnowflakeId(8L, 1L, new SnowflakeLayout(3, 6, 8));
+    }
+    
+    private static long[] generateConcurrently(final ShardedSnowflakeId generator, final int threads, final int idsPerThread) throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            long[] result = new long[threads * idsPerThread];
+            for (int i = 0; i < threads; i++) {
+                int offset = i * idsPerThread;
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    for (int j = offset; j < offset + idsPerThread; j++) {
+                        result[j] = generator.generateId();
+                        assertTrue(j == offset || result[j] > result[j - 1]);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> each : futures) {
+                each.get();
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static void assertUnique(final long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(sorted[i] != sorted[i - 1]);
+        }
+    }
+}
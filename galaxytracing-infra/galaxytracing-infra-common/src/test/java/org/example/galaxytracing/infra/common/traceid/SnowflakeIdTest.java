@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.common.traceid;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class SnowflakeIdTest {
+    
+    private static final int SEQUENCE_SIZE = (int) SnowflakeId.SEQUENCE_MASK + 1;
+    
+    @Test
+    public void assertReserveIdsWithinOneMillisecond() {
+        SnowflakeId generator = new SnowflakeId(1L, 2L, 0, 10);
+        ReservedIds reserved = generator.reserveIds(SEQUENCE_SIZE);
+        assertThat(reserved.size(), is(SEQUENCE_SIZE));
+        long first = reserved.nextLong();
+        assertThat(SnowflakeIdParser.getSequence(first), is(0L));
+        assertThat(SnowflakeIdParser.getWorkerId(first), is(1L));
+        assertThat(SnowflakeIdParser.getDataId(first), is(2L));
+        long last = first;
+        while (reserved.hasNext()) {
+            long each = reserved.nextLong();
+            assertThat(each, is(last + 1));
+            last = each;
+        }
+        assertThat(SnowflakeIdParser.getTimestamp(last), is(SnowflakeIdParser.getTimestamp(first)));
+        assertThat(SnowflakeIdParser.getSequence(last), is(SnowflakeId.SEQUENCE_MASK));
+    }
+    
+    @Test
+    public void assertReserveIdsWaitsOnceSequenceExhausted() {
+        SnowflakeId generator = new SnowflakeId(1L, 2L, 0, 10);
+        long[] exhausted = new long[SEQUENCE_SIZE];
+        generator.generateIds(exhausted);
+        long next = generator.reserveIds(1).nextLong();
+        assertThat(SnowflakeIdParser.getSequence(next), is(0L));
+        assertTrue(SnowflakeIdParser.getTimestamp(next) > SnowflakeIdParser.getTimestamp(exhausted[SEQUENCE_SIZE - 1]));
+    }
+    
+    @Test
+    public void assertGenerateIdWaitsOnceReservedSequenceExhausted() {
+        SnowflakeId generator = new SnowflakeId(1L, 2L, 0, 10);
+        long last = generator.reserveIds(SEQUENCE_SIZE).nextLong() + SEQUENCE_SIZE - 1;
+        long next = generator.generateId();
+        assertThat(SnowflakeIdParser.getSequence(next), is(0L));
+        assertTrue(SnowflakeIdParser.getTimestamp(next) > SnowflakeIdParser.getTimestamp(last));
+    }
+    
+    @Test
+    public void assertReserveIdsAcrossMilliseconds() {
+        int count = SEQUENCE_SIZE * 3 + 7;
+        long[] ids = new long[count];
+        new SnowflakeId(1L, 2L).generateIds(ids);
+        int milliseconds = 1;
+        for (int i = 1; i < count; i++) {
+            assertTrue(ids[i] > ids[i - 1]);
+            if (SnowflakeIdParser.getTimestamp(ids[i]) != SnowflakeIdParser.getTimestamp(ids[i - 1])) {
+                milliseconds++;
+            } else {
+                assertThat(ids[i], is(ids[i - 1] + 1));
+            }
+        }
+        assertTrue(milliseconds >= 4);
+    }
+    
+    @Test
+    public void assertGenerateIdsIntoRange() {
+        long[] ids = new long[8];
+        new SnowflakeId(1L, 2L).generateIds(ids, 2, 4);
+        assertThat(ids[0], is(0L));
+        assertThat(ids[1], is(0L));
+        for (int i = 3; i < 6; i++) {
+            assertTrue(ids[i] > ids[i - 1]);
+        }
+        assertThat(ids[6], is(0L));
+        assertThat(ids[7], is(0L));
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void assertGenerateIdsOutOfRange() {
+        new SnowflakeId(1L, 2L).generateIds(new long[4], 2, 3);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void assertReserveNegativeCount() {
+        new SnowflakeId(1L, 2L).reserveIds(-1);
+    }
+    
+    @Test(expected = NoSuchElementException.class)
+    public void assertReservedIdsExhausted() {
+        ReservedIds reserved = new SnowflakeId(1L, 2L).reserveIds(0);
+        assertThat(reserved.size(), is(0));
+        assertFalse(reserved.hasNext());
+        reserved.nextLong();
+    }
+    
+    @Test
+    public void assertUniqueWhenInterleavedWithGenerateId() {
+        SnowflakeId generator = new SnowflakeId(1L, 2L);
+        long[] ids = new long[SEQUENCE_SIZE * 4];
+        int index = 0;
+        while (index < ids.length) {
+            ids[index++] = generator.generateId();
+            int length = Math.min(index % 1000 + 1, ids.length - index);
+            generator.generateIds(ids, index, length);
+            index += length;
+        }
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i] > ids[i - 1]);
+        }
+    }
+    
+    @Test
+    public void assertUniqueWhenConcurrentWithGenerateId() throws InterruptedException, ExecutionException {
+        SnowflakeId generator = new SnowflakeId(1L, 2L);
+        int idsPerThread = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] ids = new long[4 * idsPerThread];
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < 4; i++) {
+                int offset = i * idsPerThread;
+                boolean batched = 0 == i % 2;
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    for (int j = offset; j < offset + idsPerThread; j += batched ? 500 : 1) {
+                        if (batched) {
+                            generator.generateIds(ids, j, 500);
+                        } else {
+                            ids[j] = generator.generateId();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> each : futures) {
+                each.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Arrays.sort(ids);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i] != ids[i - 1]);
+        }
+    }
+}
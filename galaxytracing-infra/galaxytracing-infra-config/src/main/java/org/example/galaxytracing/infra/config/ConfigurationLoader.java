@@ -74,6 +74,33 @@ public final class ConfigurationLoader {
         return (AgentConfiguration) YamlEngine.loadYaml(yamlFile, AgentConfiguration.class);
     }
     
+    /**
+     * Find the agent configuration file, the yaml one first.
+     *
+     * @param fileName configuration file name, formatted with the file type
+     * @param clazz    class
+     * @return configuration file
+     * @throws ConfigurationLoadException Configuration file not found
+     */
+    public static File findAgentFile(final String fileName, final Class<?> clazz) throws ConfigurationLoadException {
+        try {
+            return getFile(String.format(fileName, "yaml"), clazz);
+        } catch (ConfigurationLoadException ex) {
+            return getFile(String.format(fileName, "properties"), clazz);
+        }
+    }
+    
+    /**
+     * load agent configuration from a yaml or properties file.
+     *
+     * @param file configuration file
+     * @return AgentConfiguration
+     * @throws ConfigurationLoadException Configuration file load exception
+     */
+    public static AgentConfiguration loadAgentConfiguration(final File file) throws ConfigurationLoadException {
+        return file.getName().endsWith(".properties") ? new AgentConfiguration(loadProperties(file)) : loadAgentYaml(file);
+    }
+    
     
     
     /**
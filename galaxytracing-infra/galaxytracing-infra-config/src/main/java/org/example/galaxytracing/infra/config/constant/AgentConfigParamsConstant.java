@@ -32,12 +32,28 @@ public final class AgentConfigParamsConstant {
     
     public static final String REPORTER = "reporter";
     
+    public static final String GOVERNOR = "governor";
+    
     public static final String TYPE = "type";
     
     public static final String PROPS = "props";
     
     public static final String URL = "url";
     
+    public static final String URLS = "urls";
+    
+    public static final String CONNECT_TIMEOUT_MILLIS = "connect_timeout_millis";
+    
+    public static final String SOCKET_TIMEOUT_MILLIS = "socket_timeout_millis";
+    
+    public static final String EJECTION_BASE_MILLIS = "ejection_base_millis";
+    
+    public static final String EJECTION_MAX_MILLIS = "ejection_max_millis";
+    
+    public static final String RETRY_ATTEMPTS = "retry_attempts";
+    
+    public static final String RETRY_BACKOFF_MILLIS = "retry_backoff_millis";
+    
     public static final String MAX_CONN_COUNT = "max_conn_count";
     
     public static final String MAX_ROUTE_CONN_COUNT = "max_conn_count";
@@ -46,4 +62,26 @@ public final class AgentConfigParamsConstant {
     
     public static final String LOGGING = "logging";
     
+    public static final String WORKER_ID = "workerId";
+    
+    public static final String DATA_ID = "dataId";
+    
+    public static final String IDENTITY_FILE = "identityFile";
+    
+    public static final String ID_STRIPE_BITS = "idStripeBits";
+    
+    public static final String ENABLED = "enabled";
+    
+    public static final String CPU_BUDGET_PERCENT = "cpuBudgetPercent";
+    
+    public static final String FINISH_LATENCY_BUDGET_MICROS = "finishLatencyBudgetMicros";
+    
+    public static final String INTERVAL_MILLIS = "intervalMillis";
+    
+    public static final String RECOVERY_INTERVALS = "recoveryIntervals";
+    
+    public static final String SAMPLE_RATE = "sampleRate";
+    
+    public static final String KEPT_KEYS = "keptKeys";
+    
 }
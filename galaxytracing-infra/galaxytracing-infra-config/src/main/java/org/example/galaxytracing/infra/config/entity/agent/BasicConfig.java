@@ -40,8 +40,38 @@ public final class BasicConfig {
     
     private boolean logging;
     
+    /**
+     * Worker ID of the traceIds, derived from the network interface and the process ID if absent.
+     */
+    private Long workerId;
+    
+    /**
+     * Data ID of the traceIds, derived from the network interface if absent.
+     */
+    private Long dataId;
+    
+    /**
+     * File caching the derived worker ID and data ID across restarts, it must not be shared by agents running at the same time.
+     */
+    private String identityFile;
+    
+    /**
+     * Sequence bits of the traceIds carved into per-thread stripes, 0 to share one generator between all threads.
+     */
+    private int idStripeBits;
+    
     public BasicConfig(final Properties configuration) {
         this.tracingType = configuration.getProperty(PREFIX + AgentConfigParamsConstant.TRACING_TYPE);
         this.logging = Boolean.parseBoolean(configuration.getProperty(PREFIX + AgentConfigParamsConstant.LOGGING));
+        this.workerId = getLong(configuration, PREFIX + AgentConfigParamsConstant.WORKER_ID);
+        this.dataId = getLong(configuration, PREFIX + AgentConfigParamsConstant.DATA_ID);
+        this.identityFile = configuration.getProperty(PREFIX + AgentConfigParamsConstant.IDENTITY_FILE);
+        Long idStripeBits = getLong(configuration, PREFIX + AgentConfigParamsConstant.ID_STRIPE_BITS);
+        this.idStripeBits = null == idStripeBits ? 0 : idStripeBits.intValue();
+    }
+    
+    private static Long getLong(final Properties configuration, final String key) {
+        String value = configuration.getProperty(key);
+        return null == value || value.trim().isEmpty() ? null : Long.valueOf(value.trim());
     }
 }
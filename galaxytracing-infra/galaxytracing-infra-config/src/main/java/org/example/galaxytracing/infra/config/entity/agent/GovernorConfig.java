@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.config.entity.agent;
+
+import com.google.common.base.Splitter;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.example.galaxytracing.infra.config.constant.AgentConfigParamsConstant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Config of the governor which degrades tracing when the agent costs too much.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public final class GovernorConfig {
+    
+    private static final String PREFIX = AgentConfigParamsConstant.GOVERNOR + ".";
+    
+    /**
+     * Whether the governor runs, tracing is never degraded otherwise. Off by default, enable it once the budgets are
+     * calibrated for the application.
+     */
+    private boolean enabled;
+    
+    /**
+     * Percent of the CPU time of all processors the agent may spend, reporter thread and {@code finish()} included.
+     */
+    private double cpuBudgetPercent = 5D;
+    
+    /**
+     * Mean latency of {@code finish()} in microseconds the agent may add to a request.
+     */
+    private long finishLatencyBudgetMicros = 200L;
+    
+    /**
+     * Milliseconds between two checks of the budgets.
+     */
+    private long intervalMillis = 1000L;
+    
+    /**
+     * Number of consecutive checks within the budgets before tracing goes back up one level.
+     */
+    private int recoveryIntervals = 5;
+    
+    /**
+     * Ratio of the traces still reported once sampling is reduced.
+     */
+    private double sampleRate = 0.1D;
+    
+    /**
+     * Keys reported besides the traceId once attributes are dropped.
+     */
+    private List<String> keptKeys = new ArrayList<>();
+    
+    public GovernorConfig(final Properties configuration) {
+        this.enabled = Boolean.parseBoolean(configuration.getProperty(PREFIX + AgentConfigParamsConstant.ENABLED, String.valueOf(enabled)));
+        this.cpuBudgetPercent = Double.parseDouble(configuration.getProperty(PREFIX + AgentConfigParamsConstant.CPU_BUDGET_PERCENT, String.valueOf(cpuBudgetPercent)));
+        this.finishLatencyBudgetMicros = Long.parseLong(configuration.getProperty(PREFIX + AgentConfigParamsConstant.FINISH_LATENCY_BUDGET_MICROS, String.valueOf(finishLatencyBudgetMicros)));
+        this.intervalMillis = Long.parseLong(configuration.getProperty(PREFIX + AgentConfigParamsConstant.INTERVAL_MILLIS, String.valueOf(intervalMillis)));
+        this.recoveryIntervals = Integer.parseInt(configuration.getProperty(PREFIX + AgentConfigParamsConstant.RECOVERY_INTERVALS, String.valueOf(recoveryIntervals)));
+        this.sampleRate = Double.parseDouble(configuration.getProperty(PREFIX + AgentConfigParamsConstant.SAMPLE_RATE, String.valueOf(sampleRate)));
+        this.keptKeys = new ArrayList<>(Splitter.on(',').trimResults().omitEmptyStrings().splitToList(configuration.getProperty(PREFIX + AgentConfigParamsConstant.KEPT_KEYS, "")));
+    }
+}
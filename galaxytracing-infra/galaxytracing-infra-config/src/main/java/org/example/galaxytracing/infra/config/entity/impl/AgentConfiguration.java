@@ -22,6 +22,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.example.galaxytracing.infra.config.entity.Configuration;
 import org.example.galaxytracing.infra.config.entity.agent.BasicConfig;
+import org.example.galaxytracing.infra.config.entity.agent.GovernorConfig;
 import org.example.galaxytracing.infra.config.entity.agent.ReporterConfig;
 
 import java.util.Properties;
@@ -40,8 +41,11 @@ public final class AgentConfiguration implements Configuration {
     
     private ReporterConfig reporter;
     
+    private GovernorConfig governor = new GovernorConfig();
+    
     public AgentConfiguration(final Properties configuration) {
         this.basic = new BasicConfig(configuration);
         this.reporter = new ReporterConfig(configuration);
+        this.governor = new GovernorConfig(configuration);
     }
 }
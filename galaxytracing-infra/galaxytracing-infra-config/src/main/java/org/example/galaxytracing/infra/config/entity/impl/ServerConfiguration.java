@@ -17,12 +17,39 @@
 
 package org.example.galaxytracing.infra.config.entity.impl;
 
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
 import org.example.galaxytracing.infra.config.entity.Configuration;
+import org.example.galaxytracing.infra.config.entity.server.AggregationConfig;
+import org.example.galaxytracing.infra.config.entity.server.ClusterConfig;
+import org.example.galaxytracing.infra.config.entity.server.DeduplicationConfig;
+import org.example.galaxytracing.infra.config.entity.server.DependencyConfig;
+import org.example.galaxytracing.infra.config.entity.server.QueryConfig;
+import org.example.galaxytracing.infra.config.entity.server.SinkConfig;
+import org.example.galaxytracing.infra.config.entity.server.StorageConfig;
 
 /**
  * Server pojo of agent.
  *
  * @author JiekerTime
  */
+@Getter
+@Setter
+@NoArgsConstructor
 public final class ServerConfiguration implements Configuration {
+    
+    private StorageConfig storage = new StorageConfig();
+    
+    private QueryConfig query = new QueryConfig();
+    
+    private SinkConfig sink = new SinkConfig();
+    
+    private ClusterConfig cluster = new ClusterConfig();
+    
+    private AggregationConfig aggregation = new AggregationConfig();
+    
+    private DependencyConfig dependency = new DependencyConfig();
+    
+    private DeduplicationConfig deduplication = new DeduplicationConfig();
 }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.config.entity.server;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Config of the windowed aggregation of trace attributes.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public final class AggregationConfig {
+    
+    /**
+     * Whether ingested traces are aggregated.
+     */
+    private boolean enabled;
+    
+    /**
+     * Attribute keys whose values are counted.
+     */
+    private List<String> keys = new LinkedList<>();
+    
+    /**
+     * Attribute key marking a failed trace, whose value is neither empty nor {@code false}.
+     */
+    private String errorKey = "error";
+    
+    /**
+     * Number of distinct values counted per key, further values are counted together as {@code __other__}.
+     */
+    private int maxValuesPerKey = 1024;
+    
+    /**
+     * Number of second buckets kept, which bounds the sliding windows.
+     */
+    private int secondBuckets = 120;
+    
+    /**
+     * Number of minute buckets kept.
+     */
+    private int minuteBuckets = 120;
+    
+    /**
+     * Number of hour buckets kept.
+     */
+    private int hourBuckets = 48;
+}
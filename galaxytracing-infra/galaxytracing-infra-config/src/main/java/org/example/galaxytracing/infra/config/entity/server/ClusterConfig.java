@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.config.entity.server;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Config of the collector cluster.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public final class ClusterConfig {
+    
+    /**
+     * Whether traces are routed across the members, otherwise every collector keeps what it receives.
+     */
+    private boolean enabled;
+    
+    /**
+     * Address of this collector as listed in the members, in the form of {@code host:port}.
+     */
+    private String self = "127.0.0.1:9000";
+    
+    /**
+     * Addresses of all collectors including this one, every member must list the same addresses.
+     */
+    private List<String> members = new LinkedList<>();
+    
+    /**
+     * Number of virtual nodes of each member on the hash ring.
+     */
+    private int virtualNodes = 160;
+    
+    /**
+     * Number of traces which triggers a forward to the owning member.
+     */
+    private int forwardBatchSize = 500;
+    
+    /**
+     * Maximum milliseconds a trace waits to be forwarded.
+     */
+    private long forwardIntervalMillis = 20L;
+    
+    /**
+     * Number of traces waiting to be forwarded to one member, traces beyond it are handed off to the hint file.
+     */
+    private int forwardQueueCapacity = 65536;
+    
+    /**
+     * Milliseconds to wait for the owning member to acknowledge a batch.
+     */
+    private int forwardTimeoutMillis = 3000;
+    
+    /**
+     * Directory of the hint files, holding the traces whose owning member could not be reached.
+     */
+    private String hintDir = "data/hints";
+    
+    /**
+     * Milliseconds between two attempts to reach a member which failed, meanwhile its traces go to the hint file.
+     */
+    private long hintRetryMillis = 1000L;
+    
+    /**
+     * Milliseconds to wait for another member to answer a query.
+     */
+    private int queryTimeoutMillis = 3000;
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.config.entity.server;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Config of the duplicate suppression of reported batches.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public final class DeduplicationConfig {
+    
+    /**
+     * Whether batches carrying an id already seen are acknowledged without being stored again.
+     */
+    private boolean enabled = true;
+    
+    /**
+     * Milliseconds during which a batch id is remembered, the filters rotate every half window.
+     */
+    private long windowMillis = 10L * 60 * 1000;
+    
+    /**
+     * Expected number of batches in half a window, used to size the Bloom filters.
+     */
+    private int expectedBatches = 1 << 20;
+    
+    /**
+     * False positive rate of the Bloom filters at the expected number of batches.
+     */
+    private double falsePositiveRate = 0.001D;
+    
+    /**
+     * Number of batch ids checked exactly per generation, the current and the previous generation are kept.
+     */
+    private int recentBatches = 1 << 16;
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.config.entity.server;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Config of the service dependency graph.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public final class DependencyConfig {
+    
+    /**
+     * Whether the dependency graph is built from the ingested traces.
+     */
+    private boolean enabled;
+    
+    /**
+     * Attribute key of the calling service.
+     */
+    private String callerKey = "caller";
+    
+    /**
+     * Attribute key of the called service.
+     */
+    private String calleeKey = "callee";
+    
+    /**
+     * Attribute key marking a failed call, whose value is neither empty nor {@code false}.
+     */
+    private String errorKey = "error";
+    
+    /**
+     * Attribute key of the call duration in milliseconds.
+     */
+    private String durationKey = "duration";
+    
+    /**
+     * Maximum number of edges, calls between further pairs of services are not counted.
+     */
+    private int maxEdges = 10000;
+    
+    /**
+     * Relative accuracy of the latency quantiles.
+     */
+    private double latencyAccuracy = 0.01D;
+    
+    /**
+     * Milliseconds between two snapshots of the graph.
+     */
+    private long snapshotIntervalMillis = 60L * 1000;
+    
+    /**
+     * File of the graph snapshot.
+     */
+    private String snapshotFile = "data/dependency.snapshot";
+}
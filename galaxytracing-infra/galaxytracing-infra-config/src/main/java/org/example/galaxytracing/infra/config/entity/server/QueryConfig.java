@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.config.entity.server;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Query config of server frontend.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public final class QueryConfig {
+    
+    /**
+     * Total weight in bytes of the cached query results.
+     */
+    private long resultCacheBytes = 32L * 1024 * 1024;
+    
+    /**
+     * Milliseconds after which a cached query result expires, which bounds how stale a cached result can be.
+     */
+    private long resultCacheExpireMillis = 10L * 1000;
+    
+    /**
+     * Results larger than it in bytes are streamed without being cached.
+     */
+    private int maxCachedResultBytes = 1024 * 1024;
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.config.entity.server;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Config of the relational sink, which copies received traces into openGauss or PostgreSQL.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public final class SinkConfig {
+    
+    /**
+     * Whether received traces are written into the database.
+     */
+    private boolean enabled;
+    
+    /**
+     * JDBC url, for example {@code jdbc:opengauss://127.0.0.1:5432/galaxy}.
+     */
+    private String url;
+    
+    private String username;
+    
+    private String password;
+    
+    /**
+     * Table of traces, created when it does not exist.
+     */
+    private String table = "galaxy_trace";
+    
+    /**
+     * Maximum number of connections, which is also the number of concurrent flushes.
+     */
+    private int maxConnections = 4;
+    
+    /**
+     * Milliseconds to wait for a free connection before the flush fails.
+     */
+    private long connectionTimeoutMillis = 5000L;
+    
+    /**
+     * Number of traces which triggers a flush.
+     */
+    private int flushSize = 500;
+    
+    /**
+     * Maximum milliseconds a buffered trace waits for a flush.
+     */
+    private long flushIntervalMillis = 1000L;
+    
+    /**
+     * Number of traces which can be buffered, traces beyond it are dropped.
+     */
+    private int bufferCapacity = 100000;
+    
+    /**
+     * Whether batches are written with {@code COPY}, otherwise with multi-row inserts.
+     */
+    private boolean copy = true;
+    
+    /**
+     * Directory keeping the batches which failed to flush until the database is back.
+     */
+    private String spoolDir = "data/spool";
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.infra.config.entity.server;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Storage config of server backend.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public final class StorageConfig {
+    
+    private String dataDir = "data";
+    
+    /**
+     * Size in bytes at which the active segment is sealed.
+     */
+    private long segmentSize = 64L * 1024 * 1024;
+    
+    /**
+     * Expected number of traces, used to size the traceId index up front.
+     */
+    private long expectedTraceCount = 1L << 20;
+    
+    /**
+     * Age in milliseconds after which traces are dropped, 0 keeps traces forever.
+     */
+    private long retentionMillis = 7L * 24 * 60 * 60 * 1000;
+    
+    /**
+     * Total size in bytes above which the oldest segments are dropped, 0 means unlimited.
+     */
+    private long retentionBytes = 10L * 1024 * 1024 * 1024;
+    
+    /**
+     * Delay in milliseconds between two rounds of retention and compaction, 0 disables both.
+     */
+    private long compactionIntervalMillis = 60L * 1000;
+    
+    /**
+     * Bytes per second which compaction may read and write.
+     */
+    private long compactionBytesPerSecond = 8L * 1024 * 1024;
+    
+    /**
+     * Total weight in bytes of the traces cached for lookups by traceId.
+     */
+    private long traceCacheBytes = 64L * 1024 * 1024;
+    
+    /**
+     * Milliseconds after which a cached trace expires.
+     */
+    private long traceCacheExpireMillis = 10L * 60 * 1000;
+    
+    /**
+     * Size in bytes at which the write-ahead log rolls to a new file.
+     */
+    private long walFileSize = 64L * 1024 * 1024;
+    
+    /**
+     * Bytes of traces which trigger an fsync of the write-ahead log.
+     */
+    private int walGroupCommitBytes = 256 * 1024;
+    
+    /**
+     * Maximum milliseconds a trace waits for the others of its fsync group.
+     */
+    private long walGroupCommitMillis = 2L;
+    
+    /**
+     * Number of traces waiting for the write-ahead log, appends block beyond it.
+     */
+    private int walQueueCapacity = 65536;
+    
+    /**
+     * Milliseconds between two checkpoints of the traces applied to the store.
+     */
+    private long walCheckpointIntervalMillis = 1000L;
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.aggregation;
+
+import java.util.Arrays;
+
+/**
+ * Ring of tumbling buckets of one {@link Resolution}.
+ *
+ * <p>Bucket {@code n} covers {@code [n * width, (n + 1) * width)} milliseconds and lives in slot {@code n % slots}. Each
+ * slot holds a {@code long[]} with the trace count and the error count of every value id, so counting allocates
+ * nothing once the dictionary stops growing. Reusing a slot for a newer bucket clears it.</p>
+ *
+ * <p>Only the aggregating thread writes. Readers check the bucket of a slot before and after copying its counters and
+ * drop the copy if the slot was reused meanwhile.</p>
+ *
+ * @author JiekerTime
+ */
+final class CounterRing {
+    
+    private static final long RESETTING = -1L;
+    
+    private final long widthMillis;
+    
+    private final Slot[] slots;
+    
+    private volatile long latestBucket = Long.MIN_VALUE;
+    
+    CounterRing(final Resolution resolution, final int slotCount) {
+        widthMillis = resolution.getWidthMillis();
+        slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+    }
+    
+    long getWidthMillis() {
+        return widthMillis;
+    }
+    
+    int getSlotCount() {
+        return slots.length;
+    }
+    
+    long toBucket(final long timestamp) {
+        return Math.floorDiv(timestamp, widthMillis);
+    }
+    
+    /**
+     * Get the slot of the bucket the timestamp falls into, preparing it for counting.
+     *
+     * @param timestamp timestamp in milliseconds
+     * @param idCount number of value ids
+     * @return slot, null if the bucket is already out of the ring
+     */
+    Slot prepare(final long timestamp, final int idCount) {
+        long bucket = toBucket(timestamp);
+        long latest = latestBucket;
+        if (Long.MIN_VALUE != latest && bucket <= latest - slots.length) {
+            return null;
+        }
+        Slot result = slots[(int) Math.floorMod(bucket, (long) slots.length)];
+        if (result.bucket != bucket) {
+            result.bucket = RESETTING;
+            Arrays.fill(result.counters, 0L);
+            result.bucket = bucket;
+        }
+        if (bucket > latest) {
+            latestBucket = bucket;
+        }
+        result.ensureCapacity(idCount);
+        return result;
+    }
+    
+    /**
+     * Add the counters of a bucket to the totals.
+     *
+     * @param bucket bucket
+     * @param totals counts and error counts by value id
+     * @return whether the bucket is in the ring
+     */
+    boolean sumInto(final long bucket, final long[] totals) {
+        Slot slot = slots[(int) Math.floorMod(bucket, (long) slots.length)];
+        if (slot.bucket != bucket) {
+            return false;
+        }
+        long[] counters = slot.counters;
+        int length = Math.min(counters.length, totals.length);
+        long[] copy = Arrays.copyOf(counters, length);
+        if (slot.bucket != bucket) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            totals[i] += copy[i];
+        }
+        return true;
+    }
+    
+    static final class Slot {
+        
+        private volatile long bucket = RESETTING;
+        
+        private volatile long[] counters = new long[0];
+        
+        private void ensureCapacity(final int idCount) {
+            if (counters.length < idCount << 1) {
+                counters = Arrays.copyOf(counters, Math.max(idCount << 1, counters.length << 1));
+            }
+        }
+        
+        void increment(final int id, final boolean error) {
+            long[] current = counters;
+            current[id << 1]++;
+            if (error) {
+                current[(id << 1) + 1]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.aggregation;
+
+import com.google.common.base.Preconditions;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.infra.config.entity.server.AggregationConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streaming aggregation of trace attributes in tumbling buckets of a second, a minute and an hour.
+ *
+ * <p>Each trace counts once for the value of every configured key it carries, and once more as an error if it carries
+ * the error key. Traces are bucketed by the time of their traceId, traces older than the ring of a resolution are only
+ * dropped from that resolution. Sliding windows are summed over the finest buckets which cover them.</p>
+ *
+ * <p>{@link #accept(TraceRecord)} must be called from a single thread, queries may run on any thread.</p>
+ *
+ * @author JiekerTime
+ */
+public final class TraceAggregator {
+    
+    private final List<String> keys;
+    
+    private final String errorKey;
+    
+    private final ValueDictionary dictionary;
+    
+    private final Map<Resolution, CounterRing> rings = new EnumMap<>(Resolution.class);
+    
+    private final int[] valueIds;
+    
+    private final AtomicLong droppedCount = new AtomicLong();
+    
+    public TraceAggregator(final AggregationConfig config) {
+        Preconditions.checkArgument(config.getMaxValuesPerKey() > 0, "maxValuesPerKey must be positive.");
+        keys = new ArrayList<>(new LinkedHashSet<>(config.getKeys()));
+        errorKey = config.getErrorKey();
+        dictionary = new ValueDictionary(keys, config.getMaxValuesPerKey());
+        rings.put(Resolution.SECOND, new CounterRing(Resolution.SECOND, config.getSecondBuckets()));
+        rings.put(Resolution.MINUTE, new CounterRing(Resolution.MINUTE, config.getMinuteBuckets()));
+        rings.put(Resolution.HOUR, new CounterRing(Resolution.HOUR, config.getHourBuckets()));
+        valueIds = new int[keys.size()];
+    }
+    
+    /**
+     * Count a trace.
+     *
+     * @param record trace record
+     */
+    public void accept(final TraceRecord record) {
+        Map<String, String> attributes = record.getAttributes();
+        int idCount = 0;
+        for (int i = 0; i < valueIds.length; i++) {
+            String value = attributes.get(keys.get(i));
+            if (null == value) {
+                valueIds[i] = -1;
+            } else {
+                valueIds[i] = dictionary.getOrAdd(i, value);
+                idCount++;
+            }
+        }
+        if (0 == idCount) {
+            return;
+        }
+        boolean error = isError(attributes.get(errorKey));
+        long timestamp = SnowflakeIdParser.getTimestamp(record.getTraceId());
+        for (CounterRing each : rings.values()) {
+            CounterRing.Slot slot = each.prepare(timestamp, dictionary.size());
+            if (null == slot) {
+                droppedCount.incrementAndGet();
+                continue;
+            }
+            for (int valueId : valueIds) {
+                if (valueId >= 0) {
+                    slot.increment(valueId, error);
+                }
+            }
+        }
+    }
+    
+    private static boolean isError(final String value) {
+        return null != value && !value.isEmpty() && !"false".equalsIgnoreCase(value);
+    }
+    
+    /**
+     * Get the counts of the sliding window ending now.
+     *
+     * @param key attribute key
+     * @param windowMillis window size in milliseconds
+     * @return counts of the values seen in the window, ordered by count descending
+     * @throws IllegalArgumentException if the key is not aggregated or no resolution covers the window
+     */
+    public List<AggregatedCount> getSlidingWindow(final String key, final long windowMillis) {
+        Preconditions.checkArgument(windowMillis > 0, "Window must be positive.");
+        int keyIndex = getKeyIndex(key);
+        CounterRing ring = findRing(windowMillis);
+        long latest = ring.toBucket(System.currentTimeMillis());
+        long earliest = latest - (windowMillis + ring.getWidthMillis() - 1) / ring.getWidthMillis() + 1;
+        long[] totals = new long[dictionary.size() << 1];
+        for (long bucket = earliest; bucket <= latest; bucket++) {
+            ring.sumInto(bucket, totals);
+        }
+        return toCounts(keyIndex, totals);
+    }
+    
+    private CounterRing findRing(final long windowMillis) {
+        for (CounterRing each : rings.values()) {
+            if (windowMillis <= each.getWidthMillis() * each.getSlotCount()) {
+                return each;
+            }
+        }
+        throw new IllegalArgumentException(String.format("No resolution covers a window of %d milliseconds.", windowMillis));
+    }
+    
+    /**
+     * Get the latest tumbling windows of a resolution.
+     *
+     * @param key attribute key
+     * @param resolution resolution
+     * @param limit maximum number of buckets
+     * @return buckets from the latest backwards, including the current one
+     * @throws IllegalArgumentException if the key is not aggregated
+     */
+    public List<AggregatedBucket> getBuckets(final String key, final Resolution resolution, final int limit) {
+        int keyIndex = getKeyIndex(key);
+        CounterRing ring = rings.get(resolution);
+        long latest = ring.toBucket(System.currentTimeMillis());
+        int count = Math.min(limit, ring.getSlotCount());
+        List<AggregatedBucket> result = new LinkedList<>();
+        for (long bucket = latest; bucket > latest - count; bucket--) {
+            long[] totals = new long[dictionary.size() << 1];
+            if (ring.sumInto(bucket, totals)) {
+                result.add(new AggregatedBucket(bucket * ring.getWidthMillis(), toCounts(keyIndex, totals)));
+            }
+        }
+        return result;
+    }
+    
+    private int getKeyIndex(final String key) {
+        int result = dictionary.getKeyIndex(key);
+        Preconditions.checkArgument(result >= 0, "Attribute key %s is not aggregated.", key);
+        return result;
+    }
+    
+    private List<AggregatedCount> toCounts(final int keyIndex, final long[] totals) {
+        List<AggregatedCount> result = new ArrayList<>();
+        for (int id = 0; id < totals.length >> 1; id++) {
+            long count = totals[id << 1];
+            if (count > 0 && dictionary.getKeyIndexOf(id) == keyIndex) {
+                result.add(new AggregatedCount(dictionary.getValueOf(id), count, totals[(id << 1) + 1]));
+            }
+        }
+        result.sort((o1, o2) -> Long.compare(o2.getCount(), o1.getCount()));
+        return result;
+    }
+    
+    /**
+     * Get the number of times a trace was too old for the ring of a resolution.
+     *
+     * @return dropped count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+}
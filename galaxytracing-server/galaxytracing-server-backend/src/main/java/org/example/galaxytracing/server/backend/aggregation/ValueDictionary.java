@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.aggregation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary of the counted attribute values, each value of each key gets a dense id.
+ *
+ * <p>Only the aggregating thread adds values. Ids are published through {@link #size()}, so readers see the key and the
+ * value of every id below it.</p>
+ *
+ * @author JiekerTime
+ */
+final class ValueDictionary {
+    
+    static final String OTHER_VALUE = "__other__";
+    
+    private final Map<String, Integer> keyIndexes = new HashMap<>();
+    
+    private final List<Map<String, Integer>> valueIds;
+    
+    private final int maxValuesPerKey;
+    
+    private int[] keyIndexOfId = new int[64];
+    
+    private String[] valueOfId = new String[64];
+    
+    private volatile int size;
+    
+    ValueDictionary(final List<String> keys, final int maxValuesPerKey) {
+        valueIds = new ArrayList<>(keys.size());
+        for (String each : keys) {
+            keyIndexes.put(each, valueIds.size());
+            valueIds.add(new HashMap<>());
+        }
+        this.maxValuesPerKey = maxValuesPerKey;
+    }
+    
+    /**
+     * Get the index of a counted key.
+     *
+     * @param key attribute key
+     * @return key index, -1 if the key is not counted
+     */
+    int getKeyIndex(final String key) {
+        Integer result = keyIndexes.get(key);
+        return null == result ? -1 : result;
+    }
+    
+    /**
+     * Get the id of a value, adding it if it is new.
+     *
+     * @param keyIndex key index
+     * @param value attribute value
+     * @return value id
+     */
+    int getOrAdd(final int keyIndex, final String value) {
+        Map<String, Integer> ids = valueIds.get(keyIndex);
+        Integer result = ids.get(value);
+        if (null != result) {
+            return result;
+        }
+        if (ids.size() >= maxValuesPerKey) {
+            result = ids.get(OTHER_VALUE);
+            if (null != result) {
+                return result;
+            }
+            return add(ids, keyIndex, OTHER_VALUE);
+        }
+        return add(ids, keyIndex, value);
+    }
+    
+    private int add(final Map<String, Integer> ids, final int keyIndex, final String value) {
+        int result = size;
+        if (result == valueOfId.length) {
+            keyIndexOfId = Arrays.copyOf(keyIndexOfId, result << 1);
+            valueOfId = Arrays.copyOf(valueOfId, result << 1);
+        }
+        keyIndexOfId[result] = keyIndex;
+        valueOfId[result] = value;
+        ids.put(value, result);
+        size = result + 1;
+        return result;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    int getKeyIndexOf(final int id) {
+        return keyIndexOfId[id];
+    }
+    
+    String getValueOf(final int id) {
+        return valueOfId[id];
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Snapshot of the statistics of a {@link WeightedCache}.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@RequiredArgsConstructor
+public final class CacheStats {
+    
+    private final long hitCount;
+    
+    private final long missCount;
+    
+    private final long evictionCount;
+    
+    private final long expirationCount;
+    
+    private final long entryCount;
+    
+    private final long weightedSize;
+    
+    /**
+     * Get the ratio of hits to all lookups.
+     *
+     * @return hit rate, 1 if there was no lookup
+     */
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return 0L == total ? 1.0D : (double) hitCount / total;
+    }
+}
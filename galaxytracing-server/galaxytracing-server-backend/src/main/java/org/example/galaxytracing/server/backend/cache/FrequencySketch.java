@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.cache;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often keys were accessed recently.
+ *
+ * <p>Each key maps to one counter in each of 4 rows, the estimate is the smallest of them. Once the number of
+ * increments reaches the sample size all counters are halved, so the sketch forgets old history.</p>
+ *
+ * @author JiekerTime
+ */
+final class FrequencySketch {
+    
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    
+    private static final long RESET_MASK = 0x7777777777777777L;
+    
+    private static final int MAX_FREQUENCY = 15;
+    
+    private final long[] table;
+    
+    private final int tableMask;
+    
+    private final int sampleSize;
+    
+    private int size;
+    
+    FrequencySketch(final long expectedSize) {
+        int capacity = (int) Math.min(1L << 24, Math.max(16L, Long.highestOneBit(Math.max(expectedSize, 1L) - 1L) << 1));
+        table = new long[capacity];
+        tableMask = capacity - 1;
+        sampleSize = 10 * capacity;
+    }
+    
+    int frequency(final int hash) {
+        int start = (spread(hash) & 3) << 2;
+        int result = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++) {
+            int count = (int) ((table[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xFL);
+            result = Math.min(result, count);
+        }
+        return result;
+    }
+    
+    void increment(final int hash) {
+        int start = (spread(hash) & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int shift = (start + i) << 2;
+            if (((table[index] >>> shift) & 0xFL) != MAX_FREQUENCY) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+    
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size >>>= 1;
+    }
+    
+    private int indexOf(final int hash, final int row) {
+        long result = (hash + SEEDS[row]) * SEEDS[row];
+        result += result >>> 32;
+        return (int) result & tableMask;
+    }
+    
+    private static int spread(final int hash) {
+        int result = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (result >>> 16) ^ result;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.cache;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cache bounded by the total weight of its values, with frequency-aware admission and expiry after write.
+ *
+ * <p>New entries go to a small LRU window. When the window overflows its oldest entry becomes a candidate for the main
+ * LRU region, and is only admitted if a {@link FrequencySketch} says it was accessed more often than every entry the
+ * main region would evict to make room for it (W-TinyLFU). One-off lookups of a large scan therefore can not flush the
+ * hot entries, and a heavy candidate can not push out a hot entry behind a cold one.</p>
+ *
+ * <p>All operations are serialized on the cache, lookups reorder the LRU lists.</p>
+ *
+ * @param <K> type of key
+ * @param <V> type of value
+ * @author JiekerTime
+ */
+public final class WeightedCache<K, V> {
+    
+    private static final int WINDOW_PERCENT = 1;
+    
+    private final long maximumWeight;
+    
+    private final long windowMaximumWeight;
+    
+    private final long expireNanos;
+    
+    private final ToIntFunction<V> weigher;
+    
+    private final FrequencySketch sketch;
+    
+    private final Map<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75F, true);
+    
+    private final Map<K, Entry<V>> main = new LinkedHashMap<>(16, 0.75F, true);
+    
+    private long windowWeight;
+    
+    private long mainWeight;
+    
+    private long hitCount;
+    
+    private long missCount;
+    
+    private long evictionCount;
+    
+    private long expirationCount;
+    
+    /**
+     * Create a cache.
+     *
+     * @param maximumWeight maximum total weight of the values
+     * @param expectedSize expected number of entries, sizes the frequency sketch
+     * @param expireMillis milliseconds after which a written entry expires
+     * @param weigher weigher of values
+     */
+    public WeightedCache(final long maximumWeight, final long expectedSize, final long expireMillis, final ToIntFunction<V> weigher) {
+        Preconditions.checkArgument(maximumWeight > 0L, "Maximum weight must be positive.");
+        Preconditions.checkArgument(expireMillis > 0L, "Expire time must be positive.");
+        this.maximumWeight = maximumWeight;
+        this.windowMaximumWeight = Math.max(1L, maximumWeight * WINDOW_PERCENT / 100);
+        this.expireNanos = TimeUnit.MILLISECONDS.toNanos(expireMillis);
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(expectedSize);
+    }
+    
+    /**
+     * Get the cached value.
+     *
+     * @param key key
+     * @return value or null
+     */
+    public synchronized V get(final K key) {
+        sketch.increment(key.hashCode());
+        Entry<V> entry = window.get(key);
+        boolean inWindow = null != entry;
+        if (!inWindow) {
+            entry = main.get(key);
+        }
+        if (null == entry) {
+            missCount++;
+            return null;
+        }
+        if (System.nanoTime() - entry.writeNanos >= expireNanos) {
+            remove(key, inWindow);
+            expirationCount++;
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+    
+    /**
+     * Put a value, a value heavier than the whole cache is ignored.
+     *
+     * @param key key
+     * @param value value
+     */
+    public synchronized void put(final K key, final V value) {
+        invalidate(key);
+        int weight = weigher.applyAsInt(value);
+        if (weight > maximumWeight) {
+            return;
+        }
+        sketch.increment(key.hashCode());
+        window.put(key, new Entry<>(value, weight, System.nanoTime()));
+        windowWeight += weight;
+        while (windowWeight > windowMaximumWeight) {
+            Iterator<Map.Entry<K, Entry<V>>> iterator = window.entrySet().iterator();
+            Map.Entry<K, Entry<V>> candidate = iterator.next();
+            iterator.remove();
+            windowWeight -= candidate.getValue().weight;
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+    
+    private void admit(final K key, final Entry<V> candidate) {
+        long mainMaximumWeight = maximumWeight - windowMaximumWeight;
+        long excessWeight = mainWeight + candidate.weight - mainMaximumWeight;
+        if (candidate.weight > mainMaximumWeight || excessWeight > 0L && !isHotterThanVictims(key, excessWeight)) {
+            evictionCount++;
+            return;
+        }
+        Iterator<Entry<V>> victims = main.values().iterator();
+        while (mainWeight + candidate.weight > mainMaximumWeight) {
+            Entry<V> victim = victims.next();
+            victims.remove();
+            mainWeight -= victim.weight;
+            evictionCount++;
+        }
+        main.put(key, candidate);
+        mainWeight += candidate.weight;
+    }
+    
+    private boolean isHotterThanVictims(final K key, final long excessWeight) {
+        int frequency = sketch.frequency(key.hashCode());
+        long victimWeight = 0L;
+        for (Map.Entry<K, Entry<V>> each : main.entrySet()) {
+            if (victimWeight >= excessWeight) {
+                return true;
+            }
+            if (sketch.frequency(each.getKey().hashCode()) >= frequency) {
+                return false;
+            }
+            victimWeight += each.getValue().weight;
+        }
+        return true;
+    }
+    
+    /**
+     * Remove the cached value.
+     *
+     * @param key key
+     */
+    public synchronized void invalidate(final K key) {
+        if (window.containsKey(key)) {
+            remove(key, true);
+        } else if (main.containsKey(key)) {
+            remove(key, false);
+        }
+    }
+    
+    private void remove(final K key, final boolean inWindow) {
+        if (inWindow) {
+            windowWeight -= window.remove(key).weight;
+        } else {
+            mainWeight -= main.remove(key).weight;
+        }
+    }
+    
+    /**
+     * Remove all cached values.
+     */
+    public synchronized void invalidateAll() {
+        window.clear();
+        main.clear();
+        windowWeight = 0L;
+        mainWeight = 0L;
+    }
+    
+    /**
+     * Get the statistics.
+     *
+     * @return snapshot of statistics
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(hitCount, missCount, evictionCount, expirationCount, window.size() + main.size(), windowWeight + mainWeight);
+    }
+    
+    private static final class Entry<V> {
+        
+        private final V value;
+        
+        private final int weight;
+        
+        private final long writeNanos;
+        
+        Entry(final V value, final int weight, final long writeNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.writeNanos = writeNanos;
+        }
+    }
+}
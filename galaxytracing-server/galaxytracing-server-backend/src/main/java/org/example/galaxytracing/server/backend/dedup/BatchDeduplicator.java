@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.dedup;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.example.galaxytracing.infra.config.entity.server.DeduplicationConfig;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Suppresses batches which are reported again, such as retries of the agent.
+ *
+ * <p>A batch id is first checked against two generations of {@link BloomFilter}, each covering half of the window.
+ * Ids the filters have never seen are new without further work. A possible hit is confirmed against the exact
+ * {@link RecentIdSet}s of both generations, so a false positive of the filters never drops a batch. Duplicates older
+ * than the exact sets are let through.</p>
+ *
+ * <p>Every id is claimed in the exact set of the current generation with compare-and-set, so of two copies of a batch
+ * arriving together exactly one is accepted. Generations rotate every half window, or earlier once the exact set is
+ * full. A single thread builds the next pair while the others keep using the current one, and publishes it with one
+ * atomic write. Nothing on the ingest path takes a lock.</p>
+ *
+ * <p>The attempt storing a claimed batch stays registered until it finishes. A copy arriving meanwhile waits for that
+ * attempt instead of being acknowledged at once, so it is never acknowledged for a batch which then fails to store. A
+ * failed attempt releases the id before its waiters learn about it, so the next retry is accepted.</p>
+ *
+ * @author JiekerTime
+ */
+public final class BatchDeduplicator {
+    
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    
+    private final DeduplicationConfig config;
+    
+    private final long rotateIntervalNanos;
+    
+    private final AtomicReference<Generations> generations;
+    
+    private final AtomicBoolean rotating = new AtomicBoolean();
+    
+    private final LongAdder duplicateCount = new LongAdder();
+    
+    private final LongAdder filterFalsePositiveCount = new LongAdder();
+    
+    private final ConcurrentMap<String, CompletableFuture<Void>> attempts = new ConcurrentHashMap<>();
+    
+    public BatchDeduplicator(final DeduplicationConfig config) {
+        this.config = config;
+        rotateIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getWindowMillis()) / 2;
+        generations = new AtomicReference<>(new Generations(newGeneration(), newGeneration()));
+    }
+    
+    private Generation newGeneration() {
+        return new Generation(new BloomFilter(config.getExpectedBatches(), config.getFalsePositiveRate()),
+                new RecentIdSet(config.getRecentBatches()), System.nanoTime());
+    }
+    
+    /**
+     * Claim a batch id for an attempt to store the batch.
+     *
+     * @param batchId batch id
+     * @param attempt attempt to store the batch, completed by {@link #finish} if the claim succeeds
+     * @return null if the batch is new and must be stored, otherwise the future to acknowledge the duplicate after
+     */
+    public CompletableFuture<Void> claim(final String batchId, final CompletableFuture<Void> attempt) {
+        CompletableFuture<Void> original = attempts.putIfAbsent(batchId, attempt);
+        if (null != original) {
+            duplicateCount.increment();
+            return original;
+        }
+        if (!tryClaim(batchId)) {
+            attempts.remove(batchId, attempt);
+            return CompletableFuture.completedFuture(null);
+        }
+        return null;
+    }
+    
+    /**
+     * Finish the attempt of a claimed batch id, the id is released if the batch could not be stored.
+     *
+     * @param batchId batch id
+     * @param attempt attempt passed to {@link #claim}
+     * @param cause failure of the attempt, null if the batch is stored
+     */
+    public void finish(final String batchId, final CompletableFuture<Void> attempt, final Throwable cause) {
+        if (null != cause) {
+            release(batchId);
+        }
+        attempts.remove(batchId, attempt);
+        if (null == cause) {
+            attempt.complete(null);
+        } else {
+            attempt.completeExceptionally(cause);
+        }
+    }
+    
+    private boolean tryClaim(final String batchId) {
+        ByteBuffer hash = hash(batchId);
+        long hash1 = hash.getLong(0);
+        long hash2 = hash.getLong(Long.BYTES);
+        Generations current = getGenerations();
+        boolean maybeSeen = current.current.filter.mightContain(hash1, hash2) || current.previous.filter.mightContain(hash1, hash2);
+        if (maybeSeen && current.previous.ids.contains(hash1)) {
+            duplicateCount.increment();
+            return false;
+        }
+        if (!insert(current, hash1)) {
+            duplicateCount.increment();
+            return false;
+        }
+        current.current.filter.put(hash1, hash2);
+        if (maybeSeen) {
+            filterFalsePositiveCount.increment();
+        }
+        return true;
+    }
+    
+    private boolean insert(final Generations expected, final long fingerprint) {
+        Generations current = expected;
+        while (true) {
+            try {
+                return current.current.ids.insert(fingerprint);
+            } catch (final IllegalStateException ex) {
+                Generations rotated = rotate(current);
+                if (rotated == current) {
+                    Thread.yield();
+                } else if (rotated.previous.ids.contains(fingerprint)) {
+                    return false;
+                }
+                current = rotated;
+            }
+        }
+    }
+    
+    private void release(final String batchId) {
+        long fingerprint = hash(batchId).getLong(0);
+        Generations current = generations.get();
+        current.current.ids.remove(fingerprint);
+        current.previous.ids.remove(fingerprint);
+    }
+    
+    private static ByteBuffer hash(final String batchId) {
+        HashCode hashCode = HASH_FUNCTION.hashString(batchId, StandardCharsets.UTF_8);
+        return ByteBuffer.wrap(hashCode.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    private Generations getGenerations() {
+        Generations result = generations.get();
+        if (System.nanoTime() - result.current.startNanos < rotateIntervalNanos) {
+            return result;
+        }
+        return rotate(result);
+    }
+    
+    private Generations rotate(final Generations expected) {
+        if (rotating.compareAndSet(false, true)) {
+            try {
+                if (generations.get() == expected) {
+                    generations.set(new Generations(newGeneration(), expected.current));
+                }
+            } finally {
+                rotating.set(false);
+            }
+        }
+        return generations.get();
+    }
+    
+    /**
+     * Get the number of suppressed duplicates.
+     *
+     * @return duplicate count
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.sum();
+    }
+    
+    /**
+     * Get the number of new batches which the Bloom filters reported as possibly seen.
+     *
+     * @return false positive count
+     */
+    public long getFilterFalsePositiveCount() {
+        return filterFalsePositiveCount.sum();
+    }
+    
+    private static final class Generations {
+        
+        private final Generation current;
+        
+        private final Generation previous;
+        
+        Generations(final Generation current, final Generation previous) {
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+    
+    private static final class Generation {
+        
+        private final BloomFilter filter;
+        
+        private final RecentIdSet ids;
+        
+        private final long startNanos;
+        
+        Generation(final BloomFilter filter, final RecentIdSet ids, final long startNanos) {
+            this.filter = filter;
+            this.ids = ids;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.dedup;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free set of recent batch fingerprints.
+ *
+ * <p>An open addressing table of {@code long} fingerprints claimed with compare-and-set, so two threads inserting the
+ * same fingerprint agree on which one was first. Removed fingerprints leave a tombstone, the table is never cleared but
+ * replaced as a whole by the {@link BatchDeduplicator}.</p>
+ *
+ * @author JiekerTime
+ */
+final class RecentIdSet {
+    
+    private static final long EMPTY = 0L;
+    
+    private static final long TOMBSTONE = -1L;
+    
+    private final AtomicLongArray table;
+    
+    private final int mask;
+    
+    private final int capacity;
+    
+    private final AtomicInteger size = new AtomicInteger();
+    
+    RecentIdSet(final int capacity) {
+        this.capacity = capacity;
+        int length = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 2;
+        table = new AtomicLongArray(length);
+        mask = length - 1;
+    }
+    
+    /**
+     * Insert a fingerprint.
+     *
+     * @param fingerprint fingerprint
+     * @return true if inserted, false if already present
+     * @throws IllegalStateException if the set is full
+     */
+    boolean insert(final long fingerprint) {
+        long key = normalize(fingerprint);
+        if (size.get() >= capacity) {
+            throw new IllegalStateException("Recent batch ids are full.");
+        }
+        for (int i = spread(key) & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long current = table.get(i);
+            if (EMPTY == current) {
+                if (table.compareAndSet(i, EMPTY, key)) {
+                    size.incrementAndGet();
+                    return true;
+                }
+                current = table.get(i);
+            }
+            if (key == current) {
+                return false;
+            }
+        }
+        throw new IllegalStateException("Recent batch ids are full.");
+    }
+    
+    boolean contains(final long fingerprint) {
+        long key = normalize(fingerprint);
+        for (int i = spread(key) & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long current = table.get(i);
+            if (EMPTY == current) {
+                return false;
+            }
+            if (key == current) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    void remove(final long fingerprint) {
+        long key = normalize(fingerprint);
+        for (int i = spread(key) & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            long current = table.get(i);
+            if (EMPTY == current) {
+                return;
+            }
+            if (key == current && table.compareAndSet(i, key, TOMBSTONE)) {
+                return;
+            }
+        }
+    }
+    
+    boolean isFull() {
+        return size.get() >= capacity;
+    }
+    
+    private static long normalize(final long fingerprint) {
+        return EMPTY == fingerprint || TOMBSTONE == fingerprint ? 1L : fingerprint;
+    }
+    
+    private static int spread(final long key) {
+        long result = key * 0x9E3779B97F4A7C15L;
+        return (int) (result ^ (result >>> 32));
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.dependency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.config.entity.server.DependencyConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.wal.WalApplyListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service dependency graph built incrementally from the applied traces.
+ *
+ * <p>A trace carrying both the caller and the callee attribute counts as one call on the edge between them, with its
+ * error flag and its duration. Each edge keeps a call count, an error count and a {@link LatencySketch}, stored traces
+ * are never read again.</p>
+ *
+ * <p>Every {@code snapshotIntervalMillis} and on close, the applier thread writes the graph with the log sequence
+ * number it covers. After a restart the graph is loaded from the snapshot and the traces replayed by the write-ahead log
+ * up to that number are skipped, so no call is counted twice. The write-ahead log keeps its checkpoint at or before
+ * the snapshot, so the calls counted since the last snapshot are replayed after a crash instead of lost.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class DependencyGraph implements WalApplyListener, Closeable {
+    
+    private static final int SNAPSHOT_VERSION = 1;
+    
+    private final DependencyConfig config;
+    
+    private final File snapshotFile;
+    
+    private final long snapshotIntervalNanos;
+    
+    private final Map<String, Edge> edges = new ConcurrentHashMap<>();
+    
+    private double accuracy;
+    
+    private volatile long snapshotLsn;
+    
+    private long lastLsn;
+    
+    private long lastSnapshotNanos = System.nanoTime();
+    
+    private volatile long droppedCount;
+    
+    public DependencyGraph(final DependencyConfig config) {
+        this.config = config;
+        snapshotFile = new File(config.getSnapshotFile());
+        snapshotIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getSnapshotIntervalMillis());
+        accuracy = config.getLatencyAccuracy();
+    }
+    
+    /**
+     * Load the last snapshot, must be called before the write-ahead log is opened.
+     *
+     * @throws GalaxyTracingException I/O exception
+     */
+    public synchronized void open() throws GalaxyTracingException {
+        if (!snapshotFile.isFile()) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            int version = input.readInt();
+            if (SNAPSHOT_VERSION != version) {
+                throw new GalaxyTracingException("Unknown dependency snapshot version %d in %s", version, snapshotFile);
+            }
+            snapshotLsn = input.readLong();
+            accuracy = input.readDouble();
+            int edgeCount = input.readInt();
+            for (int i = 0; i < edgeCount; i++) {
+                String caller = input.readUTF();
+                String callee = input.readUTF();
+                Edge edge = new Edge(caller, callee, input.readLong(), input.readLong(), LatencySketch.readFrom(input, accuracy));
+                edges.put(toKey(caller, callee), edge);
+            }
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not read dependency snapshot %s", snapshotFile), ex);
+        }
+        lastLsn = snapshotLsn;
+        log.info("Dependency graph loaded, {} edges up to {}", edges.size(), snapshotLsn);
+    }
+    
+    @Override
+    public void onOpen(final long committedLsn) {
+        if (committedLsn < snapshotLsn) {
+            log.warn("Dependency snapshot is ahead of the write-ahead log at {}, count all replayed traces", committedLsn);
+            snapshotLsn = 0L;
+            lastLsn = 0L;
+        }
+    }
+    
+    @Override
+    public void onApply(final long nextLsn, final TraceRecord record) {
+        if (nextLsn <= snapshotLsn) {
+            return;
+        }
+        lastLsn = nextLsn;
+        Map<String, String> attributes = record.getAttributes();
+        String caller = attributes.get(config.getCallerKey());
+        String callee = attributes.get(config.getCalleeKey());
+        if (null != caller && null != callee) {
+            count(caller, callee, isError(attributes.get(config.getErrorKey())), parseDuration(attributes.get(config.getDurationKey())));
+        }
+        if (System.nanoTime() - lastSnapshotNanos >= snapshotIntervalNanos) {
+            snapshot();
+        }
+    }
+    
+    @Override
+    public long getDurableLsn() {
+        return snapshotLsn;
+    }
+    
+    private void count(final String caller, final String callee, final boolean error, final double durationMillis) {
+        String key = toKey(caller, callee);
+        Edge edge = edges.get(key);
+        if (null == edge) {
+            if (edges.size() >= config.getMaxEdges()) {
+                droppedCount++;
+                return;
+            }
+            edge = new Edge(caller, callee, 0L, 0L, new LatencySketch(accuracy));
+            edges.put(key, edge);
+        }
+        edge.add(error, durationMillis);
+    }
+    
+    private static String toKey(final String caller, final String callee) {
+        return caller + '\0' + callee;
+    }
+    
+    private static boolean isError(final String value) {
+        return null != value && !value.isEmpty() && !"false".equalsIgnoreCase(value);
+    }
+    
+    private static double parseDuration(final String value) {
+        if (null == value) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+    
+    /**
+     * Get all edges.
+     *
+     * @return edges
+     */
+    public List<DependencyEdge> getEdges() {
+        List<DependencyEdge> result = new ArrayList<>(edges.size());
+        for (Edge each : edges.values()) {
+            result.add(each.toDependencyEdge());
+        }
+        return result;
+    }
+    
+    /**
+     * Get the number of calls not counted because the graph is full, since start.
+     *
+     * @return dropped count
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+    
+    private synchronized void snapshot() {
+        lastSnapshotNanos = System.nanoTime();
+        if (lastLsn == snapshotLsn && snapshotFile.isFile()) {
+            return;
+        }
+        File parent = snapshotFile.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            log.error("Can not create dependency snapshot directory {}", parent);
+            return;
+        }
+        File temporaryFile = new File(parent, snapshotFile.getName() + ".tmp");
+        try (FileOutputStream fileOutput = new FileOutputStream(temporaryFile)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+            output.writeInt(SNAPSHOT_VERSION);
+            output.writeLong(lastLsn);
+            output.writeDouble(accuracy);
+            List<Edge> current = new ArrayList<>(edges.values());
+            output.writeInt(current.size());
+            for (Edge each : current) {
+                each.writeTo(output);
+            }
+            output.flush();
+            fileOutput.getFD().sync();
+            Files.move(temporaryFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            log.error("Can not write dependency snapshot {}", snapshotFile, ex);
+            return;
+        }
+        snapshotLsn = lastLsn;
+    }
+    
+    /**
+     * Write the last snapshot, must be called once the write-ahead log is closed.
+     */
+    @Override
+    public void close() {
+        snapshot();
+    }
+    
+    private static final class Edge {
+        
+        private final String caller;
+        
+        private final String callee;
+        
+        private long callCount;
+        
+        private long errorCount;
+        
+        private final LatencySketch latency;
+        
+        Edge(final String caller, final String callee, final long callCount, final long errorCount, final LatencySketch latency) {
+            this.caller = caller;
+            this.callee = callee;
+            this.callCount = callCount;
+            this.errorCount = errorCount;
+            this.latency = latency;
+        }
+        
+        synchronized void add(final boolean error, final double durationMillis) {
+            callCount++;
+            if (error) {
+                errorCount++;
+            }
+            if (!Double.isNaN(durationMillis)) {
+                latency.add(durationMillis);
+            }
+        }
+        
+        synchronized DependencyEdge toDependencyEdge() {
+            return new DependencyEdge(caller, callee, callCount, errorCount,
+                    latency.getMean(), latency.getQuantile(0.5D), latency.getQuantile(0.9D), latency.getQuantile(0.99D), latency.getMax());
+        }
+        
+        synchronized void writeTo(final DataOutputStream output) throws IOException {
+            output.writeUTF(caller);
+            output.writeUTF(callee);
+            output.writeLong(callCount);
+            output.writeLong(errorCount);
+            latency.writeTo(output);
+        }
+    }
+}
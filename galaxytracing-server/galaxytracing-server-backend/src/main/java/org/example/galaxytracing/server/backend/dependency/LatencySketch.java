@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.dependency;
+
+import com.google.common.base.Preconditions;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Latency sketch with relative accuracy.
+ *
+ * <p>Positive values fall into logarithmic buckets: bucket {@code i} covers {@code (gamma^(i-1), gamma^i]} with
+ * {@code gamma = (1 + accuracy) / (1 - accuracy)}, so every quantile is within {@code accuracy} of the true value
+ * whatever the distribution. Counts are kept in a {@code long[]} spanning only the buckets seen so far.</p>
+ *
+ * <p>Not thread safe.</p>
+ *
+ * @author JiekerTime
+ */
+public final class LatencySketch {
+    
+    private final double gamma;
+    
+    private final double logGamma;
+    
+    private long[] counts = new long[0];
+    
+    private int minIndex;
+    
+    private long zeroCount;
+    
+    private long count;
+    
+    private double sum;
+    
+    private double max;
+    
+    public LatencySketch(final double accuracy) {
+        Preconditions.checkArgument(accuracy > 0D && accuracy < 1D, "Accuracy must be between 0 and 1.");
+        gamma = (1D + accuracy) / (1D - accuracy);
+        logGamma = Math.log(gamma);
+    }
+    
+    /**
+     * Add a value.
+     *
+     * @param value value, values not above 0 count as 0
+     */
+    public void add(final double value) {
+        count++;
+        if (value <= 0D || Double.isNaN(value)) {
+            zeroCount++;
+            return;
+        }
+        sum += value;
+        max = Math.max(max, value);
+        int index = (int) Math.ceil(Math.log(value) / logGamma);
+        ensureBucket(index);
+        counts[index - minIndex]++;
+    }
+    
+    private void ensureBucket(final int index) {
+        if (0 == counts.length) {
+            counts = new long[8];
+            minIndex = index - 4;
+        } else if (index < minIndex) {
+            int grow = Math.max(minIndex - index, counts.length >> 1);
+            long[] grown = new long[counts.length + grow];
+            System.arraycopy(counts, 0, grown, grow, counts.length);
+            counts = grown;
+            minIndex -= grow;
+        } else if (index - minIndex >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index - minIndex + 1, counts.length + (counts.length >> 1)));
+        }
+    }
+    
+    /**
+     * Get the value at the quantile.
+     *
+     * @param quantile quantile between 0 and 1
+     * @return value, 0 if nothing was added
+     */
+    public double getQuantile(final double quantile) {
+        if (0L == count) {
+            return 0D;
+        }
+        long rank = (long) (quantile * (count - 1));
+        long seen = zeroCount;
+        if (rank < seen) {
+            return 0D;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                return Math.min(2D * Math.pow(gamma, i + minIndex) / (gamma + 1D), max);
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * Get the number of added values.
+     *
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * Get the mean of the values.
+     *
+     * @return mean, 0 if nothing was added
+     */
+    public double getMean() {
+        return 0L == count ? 0D : sum / count;
+    }
+    
+    /**
+     * Get the largest added value.
+     *
+     * @return max, 0 if nothing was added
+     */
+    public double getMax() {
+        return max;
+    }
+    
+    /**
+     * Write the sketch.
+     *
+     * @param output data output
+     * @throws IOException I/O exception
+     */
+    public void writeTo(final DataOutputStream output) throws IOException {
+        output.writeLong(count);
+        output.writeLong(zeroCount);
+        output.writeDouble(sum);
+        output.writeDouble(max);
+        output.writeInt(minIndex);
+        output.writeInt(counts.length);
+        for (long each : counts) {
+            output.writeLong(each);
+        }
+    }
+    
+    /**
+     * Read a sketch written by {@link #writeTo(DataOutputStream)}.
+     *
+     * @param input data input
+     * @param accuracy relative accuracy the sketch was written with
+     * @return latency sketch
+     * @throws IOException I/O exception
+     */
+    public static LatencySketch readFrom(final DataInputStream input, final double accuracy) throws IOException {
+        LatencySketch result = new LatencySketch(accuracy);
+        result.count = input.readLong();
+        result.zeroCount = input.readLong();
+        result.sum = input.readDouble();
+        result.max = input.readDouble();
+        result.minIndex = input.readInt();
+        result.counts = new long[input.readInt()];
+        for (int i = 0; i < result.counts.length; i++) {
+            result.counts[i] = input.readLong();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index;
+
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+
+/**
+ * Index maintained along with the segments of the trace store.
+ *
+ * <p>All callbacks come from the writer thread of the trace store.</p>
+ *
+ * @author JiekerTime
+ */
+public interface SegmentIndexer {
+    
+    /**
+     * Load or rebuild the index of a segment when the store opens.
+     *
+     * @param segment segment
+     */
+    void onOpen(Segment segment);
+    
+    /**
+     * Index a record appended to the active segment.
+     *
+     * @param segment active segment
+     * @param offset offset of the record
+     * @param record trace record
+     */
+    void onAppend(Segment segment, long offset, TraceRecord record);
+    
+    /**
+     * Persist the index of a segment which has been sealed.
+     *
+     * @param segment sealed segment
+     */
+    void onSeal(Segment segment);
+    
+    /**
+     * Remove the index of a segment which is dropped by retention or replaced by compaction.
+     *
+     * @param segment dropped segment
+     */
+    void onDrop(Segment segment);
+}
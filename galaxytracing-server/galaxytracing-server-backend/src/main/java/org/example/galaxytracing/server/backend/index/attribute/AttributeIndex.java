@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.attribute;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.index.SegmentIndexer;
+import org.example.galaxytracing.server.backend.index.attribute.filter.AttributeFilter;
+import org.example.galaxytracing.server.backend.index.bitmap.RoaringBitmap;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.example.galaxytracing.server.backend.storage.segment.SegmentRecordVisitor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Attribute index over all segments, one {@link SegmentAttributeIndex} per segment.
+ *
+ * <p>The index of a sealed segment is written to a {@code .attrindex} file next to the segment, so reopening the store
+ * only has to rebuild the index of the active segment. The file is synced to a temporary file and moved into place, an
+ * index file which can not be read or does not fit its segment is rebuilt from the segment.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class AttributeIndex implements SegmentIndexer {
+    
+    private static final String FILE_SUFFIX = ".attrindex";
+    
+    private final Map<Integer, SegmentAttributeIndex> indexes = new ConcurrentHashMap<>();
+    
+    @Override
+    public void onOpen(final Segment segment) {
+        File file = segment.siblingFile(FILE_SUFFIX);
+        if (segment.isSealed() && file.isFile()) {
+            SegmentAttributeIndex loaded = load(file, segment);
+            if (null != loaded) {
+                indexes.put(segment.getId(), loaded);
+                return;
+            }
+        }
+        SegmentAttributeIndex index = new SegmentAttributeIndex();
+        segment.scan((offset, traceId, payloadLength) -> index.add(offset, segment.read(offset).getAttributes()));
+        indexes.put(segment.getId(), index);
+        if (segment.isSealed()) {
+            onSeal(segment);
+        }
+    }
+    
+    @Override
+    public void onAppend(final Segment segment, final long offset, final TraceRecord record) {
+        indexes.computeIfAbsent(segment.getId(), key -> new SegmentAttributeIndex()).add(offset, record.getAttributes());
+    }
+    
+    @Override
+    public void onSeal(final Segment segment) {
+        SegmentAttributeIndex index = indexes.get(segment.getId());
+        if (null == index) {
+            return;
+        }
+        File file = segment.siblingFile(FILE_SUFFIX);
+        File temporaryFile = segment.siblingFile(FILE_SUFFIX + ".tmp");
+        try (FileOutputStream fileOutput = new FileOutputStream(temporaryFile)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+            index.writeTo(output);
+            output.flush();
+            fileOutput.getFD().sync();
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not write attribute index %s", temporaryFile), ex);
+        }
+        try {
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not write attribute index %s", file), ex);
+        }
+    }
+    
+    @Override
+    public void onDrop(final Segment segment) {
+        indexes.remove(segment.getId());
+        File file = segment.siblingFile(FILE_SUFFIX);
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not delete attribute index %s", file), ex);
+        }
+    }
+    
+    private static SegmentAttributeIndex load(final File file, final Segment segment) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            SegmentAttributeIndex result = SegmentAttributeIndex.readFrom(input);
+            if (result.fits(segment.size())) {
+                return result;
+            }
+            log.warn("Attribute index {} does not fit segment of {} bytes, rebuild it", file, segment.size());
+        } catch (IOException ex) {
+            log.warn("Can not read attribute index {}, rebuild it", file, ex);
+        }
+        return null;
+    }
+    
+    /**
+     * Visit the records matching the filter, only matched records are read from the segments.
+     *
+     * @param segments segments ordered by id
+     * @param filter attribute filter
+     * @param visitor record visitor
+     */
+    public void search(final Collection<Segment> segments, final AttributeFilter filter, final SegmentRecordVisitor visitor) {
+        for (Segment each : segments) {
+            if (!search(each, filter, 0L, visitor)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Visit the records of a segment matching the filter from an offset on.
+     *
+     * @param segment segment
+     * @param filter attribute filter
+     * @param startOffset records before the offset are skipped
+     * @param visitor record visitor
+     * @return continue the query or not
+     */
+    public boolean search(final Segment segment, final AttributeFilter filter, final long startOffset, final SegmentRecordVisitor visitor) {
+        SegmentAttributeIndex index = indexes.get(segment.getId());
+        if (null == index) {
+            return true;
+        }
+        RoaringBitmap matched = filter.evaluate(index);
+        int startOrdinal = index.findOrdinal(startOffset);
+        if (startOrdinal > 0) {
+            matched = RoaringBitmap.andNot(matched, RoaringBitmap.range(0, startOrdinal));
+        }
+        return matched.forEach(ordinal -> {
+            long offset = index.offset(ordinal);
+            return visitor.visit(segment, offset, segment.read(offset));
+        });
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.attribute;
+
+import org.example.galaxytracing.server.backend.index.bitmap.RoaringBitmap;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted index of one segment from attribute key and value to the ordinals of the records holding it.
+ *
+ * <p>The ordinal of a record is its position in the segment, the index keeps the offset of every ordinal. The traceId
+ * attribute is not indexed, it is served by the traceId index.</p>
+ *
+ * @author JiekerTime
+ */
+public final class SegmentAttributeIndex {
+    
+    private final Map<String, Map<String, RoaringBitmap>> postings;
+    
+    private int[] offsets;
+    
+    private int count;
+    
+    public SegmentAttributeIndex() {
+        this(new HashMap<>(), new int[64], 0);
+    }
+    
+    private SegmentAttributeIndex(final Map<String, Map<String, RoaringBitmap>> postings, final int[] offsets, final int count) {
+        this.postings = postings;
+        this.offsets = offsets;
+        this.count = count;
+    }
+    
+    /**
+     * Add a record, only the writer thread calls it.
+     *
+     * @param offset offset of the record
+     * @param attributes attributes of the record
+     */
+    public synchronized void add(final long offset, final Map<String, String> attributes) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count << 1);
+        }
+        int ordinal = count;
+        offsets[count++] = (int) offset;
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            if (TraceRecordCodec.TRACE_ID.equals(entry.getKey())) {
+                continue;
+            }
+            postings.computeIfAbsent(entry.getKey(), key -> new HashMap<>()).computeIfAbsent(entry.getValue(), value -> new RoaringBitmap()).add(ordinal);
+        }
+    }
+    
+    /**
+     * Get the ordinals of the records holding the attribute.
+     *
+     * @param key attribute key
+     * @param value attribute value
+     * @return posting list, owned by the caller
+     */
+    public synchronized RoaringBitmap get(final String key, final String value) {
+        Map<String, RoaringBitmap> values = postings.get(key);
+        RoaringBitmap result = null == values ? null : values.get(value);
+        return null == result ? new RoaringBitmap() : result.copy();
+    }
+    
+    /**
+     * Get the ordinals of all records.
+     *
+     * @return all ordinals
+     */
+    public synchronized RoaringBitmap all() {
+        return RoaringBitmap.range(0, count);
+    }
+    
+    /**
+     * Get the offset of the record.
+     *
+     * @param ordinal ordinal of the record
+     * @return offset in the segment
+     */
+    public synchronized long offset(final int ordinal) {
+        return offsets[ordinal];
+    }
+    
+    /**
+     * Find the ordinal of the first record at or after an offset.
+     *
+     * @param offset offset in the segment
+     * @return ordinal, the record count if no record starts at or after the offset
+     */
+    public synchronized int findOrdinal(final long offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (offsets[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Judge whether the index may belong to a segment of the size, records must start at 0 and end inside the segment.
+     *
+     * @param segmentSize size of the segment
+     * @return fits or not
+     */
+    synchronized boolean fits(final long segmentSize) {
+        return 0 == count ? 0L == segmentSize : 0 == offsets[0] && offsets[count - 1] < segmentSize;
+    }
+    
+    /**
+     * Write the index.
+     *
+     * @param output data output
+     * @throws IOException I/O exception
+     */
+    public synchronized void writeTo(final DataOutput output) throws IOException {
+        output.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            output.writeInt(offsets[i]);
+        }
+        output.writeInt(postings.size());
+        for (Map.Entry<String, Map<String, RoaringBitmap>> entry : postings.entrySet()) {
+            writeString(output, entry.getKey());
+            output.writeInt(entry.getValue().size());
+            for (Map.Entry<String, RoaringBitmap> each : entry.getValue().entrySet()) {
+                writeString(output, each.getKey());
+                each.getValue().writeTo(output);
+            }
+        }
+    }
+    
+    /**
+     * Read an index.
+     *
+     * @param input data input
+     * @return segment attribute index
+     * @throws IOException I/O exception
+     */
+    public static SegmentAttributeIndex readFrom(final DataInput input) throws IOException {
+        int count = input.readInt();
+        if (count < 0) {
+            throw new IOException(String.format("Illegal record count %d", count));
+        }
+        int[] offsets = new int[Math.max(count, 1)];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = input.readInt();
+        }
+        int keyCount = input.readInt();
+        Map<String, Map<String, RoaringBitmap>> postings = new HashMap<>(keyCount << 1);
+        for (int i = 0; i < keyCount; i++) {
+            String key = readString(input);
+            int valueCount = input.readInt();
+            Map<String, RoaringBitmap> values = new HashMap<>(valueCount << 1);
+            for (int j = 0; j < valueCount; j++) {
+                values.put(readString(input), RoaringBitmap.readFrom(input));
+            }
+            postings.put(key, values);
+        }
+        return new SegmentAttributeIndex(postings, offsets, count);
+    }
+    
+    private static void writeString(final DataOutput output, final String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+    
+    private static String readString(final DataInput input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
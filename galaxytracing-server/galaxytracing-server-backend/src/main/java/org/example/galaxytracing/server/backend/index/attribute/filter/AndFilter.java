@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.attribute.filter;
+
+import com.google.common.base.Preconditions;
+import lombok.Getter;
+import org.example.galaxytracing.server.backend.index.attribute.SegmentAttributeIndex;
+import org.example.galaxytracing.server.backend.index.bitmap.RoaringBitmap;
+
+import java.util.List;
+
+/**
+ * Match the records matched by all the filters.
+ *
+ * @author JiekerTime
+ */
+@Getter
+public final class AndFilter implements AttributeFilter {
+    
+    private final List<AttributeFilter> filters;
+    
+    public AndFilter(final List<AttributeFilter> filters) {
+        Preconditions.checkArgument(!filters.isEmpty(), "Filters can not be empty.");
+        this.filters = filters;
+    }
+    
+    @Override
+    public RoaringBitmap evaluate(final SegmentAttributeIndex index) {
+        RoaringBitmap result = filters.get(0).evaluate(index);
+        for (int i = 1; i < filters.size(); i++) {
+            result = RoaringBitmap.and(result, filters.get(i).evaluate(index));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.attribute.filter;
+
+import org.example.galaxytracing.server.backend.index.attribute.SegmentAttributeIndex;
+import org.example.galaxytracing.server.backend.index.bitmap.RoaringBitmap;
+
+/**
+ * Filter of trace attributes evaluated on the inverted index.
+ *
+ * @author JiekerTime
+ */
+public interface AttributeFilter {
+    
+    /**
+     * Evaluate the filter on the index of a segment.
+     *
+     * @param index attribute index of the segment
+     * @return ordinals of the matched records
+     */
+    RoaringBitmap evaluate(SegmentAttributeIndex index);
+}
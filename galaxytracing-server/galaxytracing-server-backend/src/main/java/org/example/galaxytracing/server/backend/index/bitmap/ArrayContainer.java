@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Sorted array of at most {@link Container#MAX_ARRAY_SIZE} values.
+ *
+ * @author JiekerTime
+ */
+final class ArrayContainer extends Container {
+    
+    private char[] values;
+    
+    private int cardinality;
+    
+    ArrayContainer() {
+        this(new char[4], 0);
+    }
+    
+    ArrayContainer(final char[] values, final int cardinality) {
+        this.values = values;
+        this.cardinality = cardinality;
+    }
+    
+    @Override
+    Container add(final char value) {
+        if (cardinality > 0 && values[cardinality - 1] < value) {
+            return append(value);
+        }
+        int index = Arrays.binarySearch(values, 0, cardinality, value);
+        if (index >= 0) {
+            return this;
+        }
+        if (cardinality == MAX_ARRAY_SIZE) {
+            return toBitmap().add(value);
+        }
+        int position = -index - 1;
+        ensureCapacity();
+        System.arraycopy(values, position, values, position + 1, cardinality - position);
+        values[position] = value;
+        cardinality++;
+        return this;
+    }
+    
+    private Container append(final char value) {
+        if (cardinality == MAX_ARRAY_SIZE) {
+            return toBitmap().add(value);
+        }
+        ensureCapacity();
+        values[cardinality++] = value;
+        return this;
+    }
+    
+    private void ensureCapacity() {
+        if (cardinality == values.length) {
+            values = Arrays.copyOf(values, Math.min(values.length << 1, MAX_ARRAY_SIZE));
+        }
+    }
+    
+    @Override
+    boolean contains(final char value) {
+        return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+    }
+    
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+    
+    @Override
+    Container and(final Container other) {
+        char[] result = new char[cardinality];
+        int count = 0;
+        for (int i = 0; i < cardinality; i++) {
+            if (other.contains(values[i])) {
+                result[count++] = values[i];
+            }
+        }
+        return new ArrayContainer(result, count);
+    }
+    
+    @Override
+    Container or(final Container other) {
+        if (other instanceof BitmapContainer) {
+            return other.or(this);
+        }
+        ArrayContainer that = (ArrayContainer) other;
+        if (cardinality + that.cardinality > MAX_ARRAY_SIZE) {
+            return toBitmap().or(other);
+        }
+        char[] result = new char[cardinality + that.cardinality];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < cardinality && j < that.cardinality) {
+            if (values[i] < that.values[j]) {
+                result[count++] = values[i++];
+            } else if (values[i] > that.values[j]) {
+                result[count++] = that.values[j++];
+            } else {
+                result[count++] = values[i++];
+                j++;
+            }
+        }
+        while (i < cardinality) {
+            result[count++] = values[i++];
+        }
+        while (j < that.cardinality) {
+            result[count++] = that.values[j++];
+        }
+        return new ArrayContainer(result, count);
+    }
+    
+    @Override
+    Container andNot(final Container other) {
+        char[] result = new char[cardinality];
+        int count = 0;
+        for (int i = 0; i < cardinality; i++) {
+            if (!other.contains(values[i])) {
+                result[count++] = values[i];
+            }
+        }
+        return new ArrayContainer(result, count);
+    }
+    
+    @Override
+    BitmapContainer toBitmap() {
+        BitmapContainer result = new BitmapContainer();
+        for (int i = 0; i < cardinality; i++) {
+            result.add(values[i]);
+        }
+        return result;
+    }
+    
+    @Override
+    Container copy() {
+        return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+    }
+    
+    @Override
+    boolean forEach(final int high, final IntPredicate consumer) {
+        for (int i = 0; i < cardinality; i++) {
+            if (!consumer.test(high | values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    void writeTo(final DataOutput output) throws IOException {
+        output.writeByte(ARRAY_TYPE);
+        output.writeShort(cardinality);
+        for (int i = 0; i < cardinality; i++) {
+            output.writeChar(values[i]);
+        }
+    }
+    
+    static ArrayContainer read(final DataInput input) throws IOException {
+        int cardinality = input.readUnsignedShort();
+        char[] values = new char[Math.max(cardinality, 1)];
+        for (int i = 0; i < cardinality; i++) {
+            values[i] = input.readChar();
+        }
+        return new ArrayContainer(values, cardinality);
+    }
+}
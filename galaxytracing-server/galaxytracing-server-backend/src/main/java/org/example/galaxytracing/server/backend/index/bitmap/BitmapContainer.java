@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.IntPredicate;
+
+/**
+ * Plain bitmap of 2^16 bits, used once a container holds more than {@link Container#MAX_ARRAY_SIZE} values.
+ *
+ * @author JiekerTime
+ */
+final class BitmapContainer extends Container {
+    
+    private static final int WORD_COUNT = 1 << 10;
+    
+    private final long[] words;
+    
+    private int cardinality;
+    
+    BitmapContainer() {
+        this(new long[WORD_COUNT], 0);
+    }
+    
+    private BitmapContainer(final long[] words, final int cardinality) {
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+    
+    @Override
+    Container add(final char value) {
+        long before = words[value >>> 6];
+        long after = before | (1L << value);
+        if (before != after) {
+            words[value >>> 6] = after;
+            cardinality++;
+        }
+        return this;
+    }
+    
+    @Override
+    boolean contains(final char value) {
+        return 0L != (words[value >>> 6] & (1L << value));
+    }
+    
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+    
+    @Override
+    Container and(final Container other) {
+        if (other instanceof ArrayContainer) {
+            return other.and(this);
+        }
+        long[] that = ((BitmapContainer) other).words;
+        long[] result = new long[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; i++) {
+            result[i] = words[i] & that[i];
+        }
+        return optimize(result);
+    }
+    
+    @Override
+    Container or(final Container other) {
+        long[] that = other.toBitmap().words;
+        long[] result = new long[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; i++) {
+            result[i] = words[i] | that[i];
+        }
+        return optimize(result);
+    }
+    
+    @Override
+    Container andNot(final Container other) {
+        long[] that = other.toBitmap().words;
+        long[] result = new long[WORD_COUNT];
+        for (int i = 0; i < WORD_COUNT; i++) {
+            result[i] = words[i] & ~that[i];
+        }
+        return optimize(result);
+    }
+    
+    private static Container optimize(final long[] words) {
+        int cardinality = 0;
+        for (long each : words) {
+            cardinality += Long.bitCount(each);
+        }
+        if (cardinality > MAX_ARRAY_SIZE) {
+            return new BitmapContainer(words, cardinality);
+        }
+        char[] values = new char[Math.max(cardinality, 1)];
+        int count = 0;
+        for (int i = 0; i < WORD_COUNT; i++) {
+            long word = words[i];
+            while (0L != word) {
+                values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return new ArrayContainer(values, cardinality);
+    }
+    
+    /**
+     * Fill the range of values.
+     *
+     * @param from start value, inclusive
+     * @param to end value, exclusive
+     * @return container of the range
+     */
+    static Container range(final int from, final int to) {
+        long[] words = new long[WORD_COUNT];
+        for (int i = from; i < to; i++) {
+            words[i >>> 6] |= 1L << i;
+        }
+        return optimize(words);
+    }
+    
+    @Override
+    BitmapContainer toBitmap() {
+        return this;
+    }
+    
+    @Override
+    Container copy() {
+        return new BitmapContainer(words.clone(), cardinality);
+    }
+    
+    @Override
+    boolean forEach(final int high, final IntPredicate consumer) {
+        for (int i = 0; i < WORD_COUNT; i++) {
+            long word = words[i];
+            while (0L != word) {
+                if (!consumer.test(high | ((i << 6) + Long.numberOfTrailingZeros(word)))) {
+                    return false;
+                }
+                word &= word - 1;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    void writeTo(final DataOutput output) throws IOException {
+        output.writeByte(BITMAP_TYPE);
+        for (long each : words) {
+            output.writeLong(each);
+        }
+    }
+    
+    static BitmapContainer read(final DataInput input) throws IOException {
+        long[] words = new long[WORD_COUNT];
+        int cardinality = 0;
+        for (int i = 0; i < WORD_COUNT; i++) {
+            words[i] = input.readLong();
+            cardinality += Long.bitCount(words[i]);
+        }
+        return new BitmapContainer(words, cardinality);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.IntPredicate;
+
+/**
+ * Container of the values sharing the same high 16 bits in a {@link RoaringBitmap}.
+ *
+ * @author JiekerTime
+ */
+abstract class Container {
+    
+    static final int MAX_ARRAY_SIZE = 4096;
+    
+    static final byte ARRAY_TYPE = 0;
+    
+    static final byte BITMAP_TYPE = 1;
+    
+    abstract Container add(char value);
+    
+    abstract boolean contains(char value);
+    
+    abstract int cardinality();
+    
+    abstract Container and(Container other);
+    
+    abstract Container or(Container other);
+    
+    abstract Container andNot(Container other);
+    
+    abstract BitmapContainer toBitmap();
+    
+    abstract Container copy();
+    
+    abstract boolean forEach(int high, IntPredicate consumer);
+    
+    abstract void writeTo(DataOutput output) throws IOException;
+    
+    static Container readFrom(final DataInput input) throws IOException {
+        return ARRAY_TYPE == input.readByte() ? ArrayContainer.read(input) : BitmapContainer.read(input);
+    }
+}
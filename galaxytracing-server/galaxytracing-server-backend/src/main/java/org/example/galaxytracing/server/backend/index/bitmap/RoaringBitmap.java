@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Compressed bitmap of non-negative ints in the roaring layout.
+ *
+ * <p>Values are grouped by their high 16 bits, each group is held by a container: a sorted array while it has at most
+ * 4096 values, a plain 8KB bitmap beyond. Posting lists of low-cardinality attributes stay small and dense ones stay
+ * fast to intersect.</p>
+ *
+ * @author JiekerTime
+ */
+public final class RoaringBitmap {
+    
+    private char[] keys;
+    
+    private Container[] containers;
+    
+    private int size;
+    
+    public RoaringBitmap() {
+        this(new char[4], new Container[4], 0);
+    }
+    
+    private RoaringBitmap(final char[] keys, final Container[] containers, final int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+    
+    /**
+     * Create a bitmap holding the range of values.
+     *
+     * @param from start value, inclusive
+     * @param to end value, exclusive
+     * @return bitmap
+     */
+    public static RoaringBitmap range(final int from, final int to) {
+        RoaringBitmap result = new RoaringBitmap();
+        int start = from;
+        while (start < to) {
+            int high = start >>> 16;
+            int end = Math.min(to, (high + 1) << 16);
+            result.append((char) high, BitmapContainer.range(start & 0xFFFF, end - (high << 16)));
+            start = end;
+        }
+        return result;
+    }
+    
+    /**
+     * Add a value, adding in ascending order is the fast path.
+     *
+     * @param value non-negative value
+     */
+    public void add(final int value) {
+        char high = (char) (value >>> 16);
+        int index = size > 0 && keys[size - 1] == high ? size - 1 : Arrays.binarySearch(keys, 0, size, high);
+        if (index >= 0) {
+            containers[index] = containers[index].add((char) value);
+            return;
+        }
+        int position = -index - 1;
+        ensureCapacity();
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(containers, position, containers, position + 1, size - position);
+        keys[position] = high;
+        containers[position] = new ArrayContainer().add((char) value);
+        size++;
+    }
+    
+    private void append(final char key, final Container container) {
+        if (0 == container.cardinality()) {
+            return;
+        }
+        ensureCapacity();
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+    }
+    
+    private void ensureCapacity() {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length << 1);
+            containers = Arrays.copyOf(containers, containers.length << 1);
+        }
+    }
+    
+    /**
+     * Copy the bitmap, the copy does not change along with this one.
+     *
+     * @return new bitmap
+     */
+    public RoaringBitmap copy() {
+        Container[] copied = new Container[containers.length];
+        for (int i = 0; i < size; i++) {
+            copied[i] = containers[i].copy();
+        }
+        return new RoaringBitmap(Arrays.copyOf(keys, keys.length), copied, size);
+    }
+    
+    /**
+     * Judge whether the value is in the bitmap.
+     *
+     * @param value value
+     * @return contains or not
+     */
+    public boolean contains(final int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+    
+    /**
+     * Get the number of values.
+     *
+     * @return cardinality
+     */
+    public int cardinality() {
+        int result = 0;
+        for (int i = 0; i < size; i++) {
+            result += containers[i].cardinality();
+        }
+        return result;
+    }
+    
+    /**
+     * Intersect two bitmaps.
+     *
+     * @param left left bitmap
+     * @param right right bitmap
+     * @return new bitmap
+     */
+    public static RoaringBitmap and(final RoaringBitmap left, final RoaringBitmap right) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.size && j < right.size) {
+            if (left.keys[i] < right.keys[j]) {
+                i++;
+            } else if (left.keys[i] > right.keys[j]) {
+                j++;
+            } else {
+                result.append(left.keys[i], left.containers[i].and(right.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Union two bitmaps.
+     *
+     * @param left left bitmap
+     * @param right right bitmap
+     * @return new bitmap
+     */
+    public static RoaringBitmap or(final RoaringBitmap left, final RoaringBitmap right) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.size || j < right.size) {
+            if (j == right.size || i < left.size && left.keys[i] < right.keys[j]) {
+                result.append(left.keys[i], left.containers[i].copy());
+                i++;
+            } else if (i == left.size || left.keys[i] > right.keys[j]) {
+                result.append(right.keys[j], right.containers[j].copy());
+                j++;
+            } else {
+                result.append(left.keys[i], left.containers[i].or(right.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Subtract the right bitmap from the left one.
+     *
+     * @param left left bitmap
+     * @param right right bitmap
+     * @return new bitmap
+     */
+    public static RoaringBitmap andNot(final RoaringBitmap left, final RoaringBitmap right) {
+        RoaringBitmap result = new RoaringBitmap();
+        int j = 0;
+        for (int i = 0; i < left.size; i++) {
+            while (j < right.size && right.keys[j] < left.keys[i]) {
+                j++;
+            }
+            if (j < right.size && right.keys[j] == left.keys[i]) {
+                result.append(left.keys[i], left.containers[i].andNot(right.containers[j]));
+            } else {
+                result.append(left.keys[i], left.containers[i].copy());
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Visit the values in ascending order.
+     *
+     * @param consumer returns false to stop
+     * @return visited all values or not
+     */
+    public boolean forEach(final IntPredicate consumer) {
+        for (int i = 0; i < size; i++) {
+            if (!containers[i].forEach(keys[i] << 16, consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Write the bitmap.
+     *
+     * @param output data output
+     * @throws IOException I/O exception
+     */
+    public void writeTo(final DataOutput output) throws IOException {
+        output.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            output.writeChar(keys[i]);
+            containers[i].writeTo(output);
+        }
+    }
+    
+    /**
+     * Read a bitmap.
+     *
+     * @param input data input
+     * @return bitmap
+     * @throws IOException I/O exception
+     */
+    public static RoaringBitmap readFrom(final DataInput input) throws IOException {
+        int size = input.readInt();
+        char[] keys = new char[Math.max(size, 1)];
+        Container[] containers = new Container[Math.max(size, 1)];
+        for (int i = 0; i < size; i++) {
+            keys[i] = input.readChar();
+            containers[i] = Container.readFrom(input);
+        }
+        return new RoaringBitmap(keys, containers, size);
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.time;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.example.galaxytracing.server.backend.storage.segment.SegmentRecordVisitor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Sparse time index of one segment.
+ *
+ * <p>Every {@link #BLOCK_RECORDS} records form a block, the index keeps the start offset and the min/max timestamp of
+ * each block. Timestamps come from the traceId, so neither building nor querying the index decodes a payload.</p>
+ *
+ * <p>TraceIds are only roughly time ordered, so once sealed the index also keeps the running max and the trailing min of
+ * the block timestamps. Both are monotonic, a query binary-searches the first candidate block and stops as soon as no
+ * later block can match.</p>
+ *
+ * @author JiekerTime
+ */
+public final class SegmentTimeIndex {
+    
+    /**
+     * Number of records in a block.
+     */
+    public static final int BLOCK_RECORDS = 128;
+    
+    private static final int BLOCK_ENTRY_SIZE = Long.BYTES * 3;
+    
+    private volatile Blocks blocks = new Blocks(16);
+    
+    private volatile int blockCount;
+    
+    private int recordsInLastBlock;
+    
+    private volatile long minTimestamp = Long.MAX_VALUE;
+    
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+    
+    private volatile long[] runningMax;
+    
+    private volatile long[] trailingMin;
+    
+    /**
+     * Add a record, only the writer thread calls it.
+     *
+     * @param offset offset of the record
+     * @param traceId traceId of the record
+     */
+    public void add(final long offset, final long traceId) {
+        long timestamp = SnowflakeIdParser.getTimestamp(traceId);
+        Blocks current = blocks;
+        int count = blockCount;
+        if (0 == count || BLOCK_RECORDS == recordsInLastBlock) {
+            if (count == current.offsets.length) {
+                current = current.grow();
+                blocks = current;
+            }
+            current.offsets[count] = offset;
+            current.mins[count] = timestamp;
+            current.maxs[count] = timestamp;
+            recordsInLastBlock = 0;
+            count++;
+        } else {
+            current.mins[count - 1] = Math.min(current.mins[count - 1], timestamp);
+            current.maxs[count - 1] = Math.max(current.maxs[count - 1], timestamp);
+        }
+        recordsInLastBlock++;
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+        blockCount = count;
+    }
+    
+    /**
+     * Freeze the index once its segment is sealed.
+     */
+    public void seal() {
+        int count = blockCount;
+        Blocks current = blocks;
+        long[] max = new long[count];
+        long[] min = new long[count];
+        for (int i = 0; i < count; i++) {
+            max[i] = 0 == i ? current.maxs[i] : Math.max(max[i - 1], current.maxs[i]);
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            min[i] = count - 1 == i ? current.mins[i] : Math.min(min[i + 1], current.mins[i]);
+        }
+        trailingMin = min;
+        runningMax = max;
+    }
+    
+    /**
+     * Judge whether the segment may hold records in the time range.
+     *
+     * @param from start timestamp, inclusive
+     * @param to end timestamp, inclusive
+     * @return overlaps or not
+     */
+    public boolean overlaps(final long from, final long to) {
+        return blockCount > 0 && minTimestamp <= to && maxTimestamp >= from;
+    }
+    
+    /**
+     * Judge whether the index may belong to a segment of the size, blocks must start at 0 and end inside the segment.
+     *
+     * @param segmentSize size of the segment
+     * @return fits or not
+     */
+    boolean fits(final long segmentSize) {
+        int count = blockCount;
+        if (0 == count) {
+            return 0L == segmentSize;
+        }
+        Blocks current = blocks;
+        return 0L == current.offsets[0] && current.offsets[count - 1] < segmentSize;
+    }
+    
+    /**
+     * Get the smallest timestamp of the indexed records.
+     *
+     * @return timestamp in milliseconds
+     */
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+    
+    /**
+     * Get the largest timestamp of the indexed records.
+     *
+     * @return timestamp in milliseconds
+     */
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+    
+    /**
+     * Visit the records of the segment in the time range.
+     *
+     * @param segment segment of this index
+     * @param from start timestamp, inclusive
+     * @param to end timestamp, inclusive
+     * @param visitor record visitor
+     * @return continue the query or not
+     */
+    public boolean search(final Segment segment, final long from, final long to, final SegmentRecordVisitor visitor) {
+        return search(segment, from, to, 0L, visitor);
+    }
+    
+    /**
+     * Visit the records of the segment in the time range from an offset on, blocks before the offset are not read.
+     *
+     * @param segment segment of this index
+     * @param from start timestamp, inclusive
+     * @param to end timestamp, inclusive
+     * @param startOffset records before the offset are skipped
+     * @param visitor record visitor
+     * @return continue the query or not
+     */
+    public boolean search(final Segment segment, final long from, final long to, final long startOffset, final SegmentRecordVisitor visitor) {
+        int count = blockCount;
+        Blocks current = blocks;
+        long[] max = runningMax;
+        long[] min = trailingMin;
+        long segmentSize = segment.size();
+        int start = Math.max(null == max ? 0 : firstCandidate(max, from), findBlock(current.offsets, count, startOffset));
+        for (int i = start; i < count; i++) {
+            if (null != min && min[i] > to) {
+                return true;
+            }
+            if (current.mins[i] > to || current.maxs[i] < from) {
+                continue;
+            }
+            long end = i + 1 < count ? current.offsets[i + 1] : segmentSize;
+            if (!searchBlock(segment, current.offsets[i], segment.read(current.offsets[i], (int) (end - current.offsets[i])), from, to, startOffset, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int firstCandidate(final long[] runningMax, final long from) {
+        int low = 0;
+        int high = runningMax.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (runningMax[mid] < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private static int findBlock(final long[] offsets, final int count, final long offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (offsets[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return Math.max(low - 1, 0);
+    }
+    
+    private static boolean searchBlock(final Segment segment, final long blockOffset, final ByteBuffer block, final long from, final long to, final long start, final SegmentRecordVisitor visitor) {
+        while (block.remaining() >= Segment.HEADER_SIZE) {
+            long offset = blockOffset + block.position();
+            int payloadLength = block.getInt();
+            long traceId = block.getLong();
+            long timestamp = SnowflakeIdParser.getTimestamp(traceId);
+            if (offset < start || timestamp < from || timestamp > to) {
+                block.position(block.position() + payloadLength);
+                continue;
+            }
+            byte[] payload = new byte[payloadLength];
+            block.get(payload);
+            if (!visitor.visit(segment, offset, TraceRecordCodec.decode(traceId, payload))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Write the index.
+     *
+     * @param output data output
+     * @throws IOException I/O exception
+     */
+    public void writeTo(final DataOutputStream output) throws IOException {
+        int count = blockCount;
+        Blocks current = blocks;
+        output.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            output.writeLong(current.offsets[i]);
+            output.writeLong(current.mins[i]);
+            output.writeLong(current.maxs[i]);
+        }
+    }
+    
+    /**
+     * Read a sealed index.
+     *
+     * @param input data input
+     * @param length length of the index in bytes, a block count which does not fit is rejected before allocating
+     * @return segment time index
+     * @throws IOException I/O exception
+     */
+    public static SegmentTimeIndex readFrom(final DataInputStream input, final long length) throws IOException {
+        SegmentTimeIndex result = new SegmentTimeIndex();
+        int count = input.readInt();
+        if (count < 0 || (long) count * BLOCK_ENTRY_SIZE > length - Integer.BYTES) {
+            throw new IOException(String.format("Illegal block count %d for %d bytes", count, length));
+        }
+        Blocks blocks = new Blocks(Math.max(count, 1));
+        for (int i = 0; i < count; i++) {
+            blocks.offsets[i] = input.readLong();
+            blocks.mins[i] = input.readLong();
+            blocks.maxs[i] = input.readLong();
+            result.minTimestamp = Math.min(result.minTimestamp, blocks.mins[i]);
+            result.maxTimestamp = Math.max(result.maxTimestamp, blocks.maxs[i]);
+        }
+        result.blocks = blocks;
+        result.blockCount = count;
+        result.seal();
+        return result;
+    }
+    
+    private static final class Blocks {
+        
+        private final long[] offsets;
+        
+        private final long[] mins;
+        
+        private final long[] maxs;
+        
+        Blocks(final int capacity) {
+            this(new long[capacity], new long[capacity], new long[capacity]);
+        }
+        
+        private Blocks(final long[] offsets, final long[] mins, final long[] maxs) {
+            this.offsets = offsets;
+            this.mins = mins;
+            this.maxs = maxs;
+        }
+        
+        Blocks grow() {
+            int capacity = offsets.length << 1;
+            return new Blocks(Arrays.copyOf(offsets, capacity), Arrays.copyOf(mins, capacity), Arrays.copyOf(maxs, capacity));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.time;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.index.SegmentIndexer;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.example.galaxytracing.server.backend.storage.segment.SegmentRecordVisitor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time range index over all segments, one {@link SegmentTimeIndex} per segment.
+ *
+ * <p>Sealed segments keep their index in a {@code .timeindex} file next to the segment. The index of the active segment
+ * lives in memory and is rebuilt from the record headers when the store opens.</p>
+ *
+ * <p>The file is synced to a temporary file and moved into place, an index file which can not be read or does not fit
+ * its segment is rebuilt from the segment.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class TimeRangeIndex implements SegmentIndexer {
+    
+    private static final String FILE_SUFFIX = ".timeindex";
+    
+    private final Map<Integer, SegmentTimeIndex> indexes = new ConcurrentHashMap<>();
+    
+    @Override
+    public void onOpen(final Segment segment) {
+        File file = segment.siblingFile(FILE_SUFFIX);
+        if (segment.isSealed() && file.isFile()) {
+            SegmentTimeIndex loaded = load(file, segment);
+            if (null != loaded) {
+                indexes.put(segment.getId(), loaded);
+                return;
+            }
+        }
+        SegmentTimeIndex index = new SegmentTimeIndex();
+        segment.scan((offset, traceId, payloadLength) -> index.add(offset, traceId));
+        indexes.put(segment.getId(), index);
+        if (segment.isSealed()) {
+            onSeal(segment);
+        }
+    }
+    
+    @Override
+    public void onAppend(final Segment segment, final long offset, final TraceRecord record) {
+        indexes.computeIfAbsent(segment.getId(), key -> new SegmentTimeIndex()).add(offset, record.getTraceId());
+    }
+    
+    @Override
+    public void onSeal(final Segment segment) {
+        SegmentTimeIndex index = indexes.get(segment.getId());
+        if (null == index) {
+            return;
+        }
+        index.seal();
+        File file = segment.siblingFile(FILE_SUFFIX);
+        File temporaryFile = segment.siblingFile(FILE_SUFFIX + ".tmp");
+        try (FileOutputStream fileOutput = new FileOutputStream(temporaryFile)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+            index.writeTo(output);
+            output.flush();
+            fileOutput.getFD().sync();
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not write time index %s", temporaryFile), ex);
+        }
+        try {
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not write time index %s", file), ex);
+        }
+    }
+    
+    @Override
+    public void onDrop(final Segment segment) {
+        indexes.remove(segment.getId());
+        File file = segment.siblingFile(FILE_SUFFIX);
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not delete time index %s", file), ex);
+        }
+    }
+    
+    private static SegmentTimeIndex load(final File file, final Segment segment) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            SegmentTimeIndex result = SegmentTimeIndex.readFrom(input, file.length());
+            if (result.fits(segment.size())) {
+                return result;
+            }
+            log.warn("Time index {} does not fit segment of {} bytes, rebuild it", file, segment.size());
+        } catch (IOException ex) {
+            log.warn("Can not read time index {}, rebuild it", file, ex);
+        }
+        return null;
+    }
+    
+    /**
+     * Get the smallest timestamp of the records in the segment.
+     *
+     * @param segmentId segment id
+     * @return timestamp in milliseconds, {@link Long#MAX_VALUE} if the segment is empty
+     */
+    public long getMinTimestamp(final int segmentId) {
+        SegmentTimeIndex index = indexes.get(segmentId);
+        return null == index ? Long.MAX_VALUE : index.getMinTimestamp();
+    }
+    
+    /**
+     * Get the largest timestamp of the records in the segment.
+     *
+     * @param segmentId segment id
+     * @return timestamp in milliseconds, {@link Long#MIN_VALUE} if the segment is empty
+     */
+    public long getMaxTimestamp(final int segmentId) {
+        SegmentTimeIndex index = indexes.get(segmentId);
+        return null == index ? Long.MIN_VALUE : index.getMaxTimestamp();
+    }
+    
+    /**
+     * Visit the records in the time range, segments and blocks outside the range are skipped.
+     *
+     * @param segments segments ordered by id
+     * @param from start timestamp in milliseconds, inclusive
+     * @param to end timestamp in milliseconds, inclusive
+     * @param visitor record visitor
+     */
+    public void search(final Collection<Segment> segments, final long from, final long to, final SegmentRecordVisitor visitor) {
+        for (Segment each : segments) {
+            if (!search(each, from, to, 0L, visitor)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Visit the records of a segment in the time range from an offset on.
+     *
+     * @param segment segment
+     * @param from start timestamp in milliseconds, inclusive
+     * @param to end timestamp in milliseconds, inclusive
+     * @param startOffset records before the offset are skipped
+     * @param visitor record visitor
+     * @return continue the query or not
+     */
+    public boolean search(final Segment segment, final long from, final long to, final long startOffset, final SegmentRecordVisitor visitor) {
+        SegmentTimeIndex index = indexes.get(segment.getId());
+        return null == index || !index.overlaps(from, to) || index.search(segment, from, to, startOffset, visitor);
+    }
+}
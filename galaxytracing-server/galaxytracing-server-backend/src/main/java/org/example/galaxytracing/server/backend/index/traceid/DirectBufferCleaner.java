@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.traceid;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Free direct buffers right away instead of waiting for the garbage collector, which may not run for a long time while
+ * the heap is quiet.
+ *
+ * <p>Java 9 and later free a buffer through {@code Unsafe.invokeCleaner}, Java 8 through the cleaner of the buffer. If
+ * neither is reachable the buffer is left to the garbage collector.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class DirectBufferCleaner {
+    
+    private static final Object UNSAFE;
+    
+    private static final Method INVOKE_CLEANER;
+    
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException ex) {
+            log.debug("Unsafe.invokeCleaner is not available, use the cleaner of direct buffers", ex);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+    
+    /**
+     * Free a direct buffer, the buffer must not be used any more.
+     *
+     * @param buffer direct buffer
+     */
+    static void clean(final ByteBuffer buffer) {
+        try {
+            if (null != INVOKE_CLEANER) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                return;
+            }
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            cleaner.getClass().getMethod("clean").invoke(cleaner);
+        } catch (ReflectiveOperationException ex) {
+            log.debug("Can not free direct buffer, leave it to the garbage collector", ex);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.traceid;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Open-addressing hash index from traceId to the location of the record, kept in direct memory.
+ *
+ * <p>Slots are 16 bytes ({@code [long traceId][long location]}) laid out in direct buffer pages, so the table holds
+ * hundreds of millions of entries without putting anything on the java heap. A location packs the segment id and the
+ * offset of the record, see {@link #location(int, long)}.</p>
+ *
+ * <p>There is a single writer and any number of readers. The writer fills the location before the key and publishes
+ * every change through the volatile {@code size}, readers treat a slot with an empty location as not yet written.
+ * Growing the table builds a new one and swaps the volatile reference, readers on the old table still see every
+ * published entry. Readers register on the table they probe, the writer frees the pages of an old table on its first
+ * change after the last of them left, without waiting for them.</p>
+ *
+ * <p>The table doubles from the live entries when it fills up. If removed entries take most of the used slots, it is
+ * rebuilt at the same capacity instead, so a workload which keeps adding and removing does not grow it forever.</p>
+ *
+ * @author JiekerTime
+ */
+public final class OffHeapTraceIdIndex {
+    
+    /**
+     * Returned by {@link #get(long)} when the traceId is not indexed.
+     */
+    public static final long NOT_FOUND = -1L;
+    
+    private static final long EMPTY = 0L;
+    
+    private static final long TOMBSTONE = 0L;
+    
+    private static final int OFFSET_BITS = 40;
+    
+    private static final long OFFSET_MASK = ~(-1L << OFFSET_BITS);
+    
+    private static final int MAX_SEGMENT_ID = (1 << (Long.SIZE - OFFSET_BITS - 1)) - 2;
+    
+    private static final int SLOT_SIZE = 16;
+    
+    private static final int PAGE_SHIFT = 27;
+    
+    private static final int LOAD_PERCENT = 60;
+    
+    private volatile Table table;
+    
+    private volatile long size;
+    
+    private long used;
+    
+    private final Collection<Table> retiredTables = new LinkedList<>();
+    
+    public OffHeapTraceIdIndex(final long expectedSize) {
+        table = new Table(capacityFor(expectedSize));
+    }
+    
+    private static long capacityFor(final long expectedSize) {
+        long minCapacity = Math.max(16L, expectedSize * 100L / LOAD_PERCENT + 1L);
+        return Long.highestOneBit(minCapacity - 1) << 1;
+    }
+    
+    /**
+     * Pack the segment id and offset into a location.
+     *
+     * @param segmentId segment id
+     * @param offset offset in the segment
+     * @return location
+     */
+    public static long location(final int segmentId, final long offset) {
+        Preconditions.checkArgument(segmentId >= 0 && segmentId <= MAX_SEGMENT_ID, "Illegal segment id %s.", segmentId);
+        Preconditions.checkArgument(offset >= 0 && offset <= OFFSET_MASK, "Illegal offset %s.", offset);
+        return ((long) (segmentId + 1) << OFFSET_BITS) | offset;
+    }
+    
+    /**
+     * Get the segment id of the location.
+     *
+     * @param location location
+     * @return segment id
+     */
+    public static int segmentId(final long location) {
+        return (int) (location >>> OFFSET_BITS) - 1;
+    }
+    
+    /**
+     * Get the offset of the location.
+     *
+     * @param location location
+     * @return offset in the segment
+     */
+    public static long offset(final long location) {
+        return location & OFFSET_MASK;
+    }
+    
+    /**
+     * Get the location of the traceId.
+     *
+     * @param traceId traceId
+     * @return location or {@link #NOT_FOUND}
+     */
+    public long get(final long traceId) {
+        if (0L == size) {
+            return NOT_FOUND;
+        }
+        Table current = acquire();
+        try {
+            long slot = mix(traceId) & current.mask;
+            while (true) {
+                long key = current.key(slot);
+                if (EMPTY == key) {
+                    return NOT_FOUND;
+                }
+                if (key == traceId) {
+                    long result = current.location(slot);
+                    return EMPTY == result ? NOT_FOUND : result;
+                }
+                slot = (slot + 1) & current.mask;
+            }
+        } finally {
+            current.readers.decrementAndGet();
+        }
+    }
+    
+    private Table acquire() {
+        while (true) {
+            Table result = table;
+            result.readers.incrementAndGet();
+            if (result == table) {
+                return result;
+            }
+            result.readers.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Put the location of the traceId, only the writer thread calls it.
+     *
+     * <p>Writing {@code size} even when an existing entry is overwritten publishes the new location to readers.</p>
+     *
+     * @param traceId traceId, must not be 0
+     * @param location location
+     * @return previous location or {@link #NOT_FOUND}
+     */
+    public long put(final long traceId, final long location) {
+        Preconditions.checkArgument(EMPTY != traceId, "Illegal trace id 0.");
+        Preconditions.checkArgument(EMPTY != location, "Illegal location 0.");
+        freeRetired();
+        if ((used + 1L) * 100L > table.capacity * LOAD_PERCENT) {
+            grow();
+        }
+        long previous = insert(table, traceId, location);
+        if (NOT_FOUND == previous) {
+            used++;
+        }
+        boolean added = NOT_FOUND == previous || TOMBSTONE == previous;
+        size = added ? size + 1 : size;
+        return added ? NOT_FOUND : previous;
+    }
+    
+    /**
+     * Remove the traceId, only the writer thread calls it.
+     *
+     * <p>The key stays in its slot as a tombstone so probe chains of concurrent readers are not broken, it is dropped
+     * the next time the table is rebuilt.</p>
+     *
+     * @param traceId traceId
+     * @return removed location or {@link #NOT_FOUND}
+     */
+    public long remove(final long traceId) {
+        Table current = table;
+        long slot = mix(traceId) & current.mask;
+        while (true) {
+            long key = current.key(slot);
+            if (EMPTY == key) {
+                return NOT_FOUND;
+            }
+            if (key == traceId) {
+                long result = current.location(slot);
+                if (TOMBSTONE == result) {
+                    return NOT_FOUND;
+                }
+                current.putLocation(slot, TOMBSTONE);
+                size = size - 1;
+                return result;
+            }
+            slot = (slot + 1) & current.mask;
+        }
+    }
+    
+    /**
+     * Get the number of indexed traces.
+     *
+     * @return size
+     */
+    public long size() {
+        return size;
+    }
+    
+    private long insert(final Table target, final long traceId, final long location) {
+        long slot = mix(traceId) & target.mask;
+        while (true) {
+            long key = target.key(slot);
+            if (EMPTY == key) {
+                target.putLocation(slot, location);
+                target.putKey(slot, traceId);
+                return NOT_FOUND;
+            }
+            if (key == traceId) {
+                long result = target.location(slot);
+                target.putLocation(slot, location);
+                return result;
+            }
+            slot = (slot + 1) & target.mask;
+        }
+    }
+    
+    private void grow() {
+        Table current = table;
+        Table result = new Table(size < used / 2L ? current.capacity : current.capacity << 1);
+        long live = 0L;
+        for (long slot = 0L; slot < current.capacity; slot++) {
+            long key = current.key(slot);
+            long location = current.location(slot);
+            if (EMPTY != key && TOMBSTONE != location) {
+                insert(result, key, location);
+                live++;
+            }
+        }
+        used = live;
+        table = result;
+        retiredTables.add(current);
+        freeRetired();
+    }
+    
+    private void freeRetired() {
+        if (retiredTables.isEmpty()) {
+            return;
+        }
+        Iterator<Table> iterator = retiredTables.iterator();
+        while (iterator.hasNext()) {
+            Table each = iterator.next();
+            if (0 == each.readers.get()) {
+                each.free();
+                iterator.remove();
+            }
+        }
+    }
+    
+    long capacity() {
+        return table.capacity;
+    }
+    
+    private static long mix(final long key) {
+        long result = key;
+        result ^= result >>> 33;
+        result *= 0xff51afd7ed558ccdL;
+        result ^= result >>> 33;
+        result *= 0xc4ceb9fe1a85ec53L;
+        result ^= result >>> 33;
+        return result;
+    }
+    
+    private static final class Table {
+        
+        private final long capacity;
+        
+        private final long mask;
+        
+        private final ByteBuffer[] pages;
+        
+        private final AtomicInteger readers = new AtomicInteger();
+        
+        Table(final long capacity) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            long bytes = capacity * SLOT_SIZE;
+            int pageSize = (int) Math.min(bytes, 1L << PAGE_SHIFT);
+            pages = new ByteBuffer[(int) (bytes / pageSize)];
+            for (int i = 0; i < pages.length; i++) {
+                pages[i] = ByteBuffer.allocateDirect(pageSize);
+            }
+        }
+        
+        long key(final long slot) {
+            long position = slot * SLOT_SIZE;
+            return pages[(int) (position >>> PAGE_SHIFT)].getLong((int) (position & ((1L << PAGE_SHIFT) - 1)));
+        }
+        
+        long location(final long slot) {
+            long position = slot * SLOT_SIZE + Long.BYTES;
+            return pages[(int) (position >>> PAGE_SHIFT)].getLong((int) (position & ((1L << PAGE_SHIFT) - 1)));
+        }
+        
+        void putKey(final long slot, final long key) {
+            long position = slot * SLOT_SIZE;
+            pages[(int) (position >>> PAGE_SHIFT)].putLong((int) (position & ((1L << PAGE_SHIFT) - 1)), key);
+        }
+        
+        void putLocation(final long slot, final long location) {
+            long position = slot * SLOT_SIZE + Long.BYTES;
+            pages[(int) (position >>> PAGE_SHIFT)].putLong((int) (position & ((1L << PAGE_SHIFT) - 1)), location);
+        }
+        
+        void free() {
+            for (ByteBuffer each : pages) {
+                DirectBufferCleaner.clean(each);
+            }
+        }
+    }
+}
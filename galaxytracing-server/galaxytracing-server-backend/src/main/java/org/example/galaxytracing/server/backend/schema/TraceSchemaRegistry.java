@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.schema;
+
+import com.huawei.shade.com.alibaba.fastjson.JSONArray;
+import com.huawei.shade.com.alibaba.fastjson.JSONObject;
+import org.example.galaxytracing.infra.common.constant.GalaxyTracingProtocolConstant;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Names of the typed keys of the trace schemas, registered by the agents.
+ *
+ * <p>An agent reports the typed keys of a trace as their IDs, and attaches the names of the keys to the first trace of
+ * a schema it posts to a collector. The names registered for a schema are merged, so agents holding several versions of
+ * a schema can report to the same collector as long as the IDs of the keys are stable.</p>
+ *
+ * @author JiekerTime
+ */
+public final class TraceSchemaRegistry {
+    
+    private final Map<String, Map<Integer, String>> schemas = new ConcurrentHashMap<>();
+    
+    /**
+     * Register the names attached to a trace, then replace the IDs of its typed keys by their names.
+     *
+     * <p>The members of the trace are cast to the types of the protocol, a malformed trace throws
+     * {@link ClassCastException} or {@link NumberFormatException}.</p>
+     *
+     * @param trace trace reported by the agent
+     * @return false if the name of a typed key of the trace is unknown
+     */
+    public boolean resolve(final JSONObject trace) {
+        JSONObject keyNames = (JSONObject) trace.remove(GalaxyTracingProtocolConstant.SCHEMA_KEY_NAMES);
+        if (null != keyNames) {
+            register(keyNames);
+        }
+        String schema = (String) trace.remove(GalaxyTracingProtocolConstant.SCHEMA);
+        JSONArray keys = (JSONArray) trace.remove(GalaxyTracingProtocolConstant.SCHEMA_KEYS);
+        if (null == schema || null == keys) {
+            return true;
+        }
+        Map<Integer, String> names = schemas.get(schema);
+        if (null == names) {
+            return false;
+        }
+        for (int i = 0; i + 1 < keys.size(); i += 2) {
+            String name = names.get(keys.getInteger(i));
+            if (null == name) {
+                return false;
+            }
+            trace.put(name, keys.get(i + 1));
+        }
+        return true;
+    }
+    
+    private void register(final JSONObject keyNames) {
+        for (Map.Entry<String, Object> entry : keyNames.entrySet()) {
+            Map<Integer, String> names = schemas.computeIfAbsent(entry.getKey(), each -> new ConcurrentHashMap<>());
+            for (Map.Entry<String, Object> each : ((JSONObject) entry.getValue()).entrySet()) {
+                names.put(Integer.valueOf(each.getKey()), String.valueOf(each.getValue()));
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.sink;
+
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Writer of a batch of traces into the trace table.
+ *
+ * <p>The table has the columns {@code trace_id BIGINT}, {@code trace_time BIGINT} and {@code attributes TEXT}. A batch
+ * is committed as a whole or not at all.</p>
+ *
+ * @author JiekerTime
+ */
+public interface BatchWriter {
+    
+    /**
+     * Write a batch.
+     *
+     * @param connection connection in auto-commit mode
+     * @param table table of traces
+     * @param records batch of traces
+     * @throws SQLException SQL exception
+     */
+    void write(Connection connection, String table, List<TraceRecord> records) throws SQLException;
+}
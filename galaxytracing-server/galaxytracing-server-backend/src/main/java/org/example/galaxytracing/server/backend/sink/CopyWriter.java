@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.sink;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.opengauss.PGConnection;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Batch writer with {@code COPY ... FROM STDIN}.
+ *
+ * <p>The batch is rendered in the text format of {@code COPY} and streamed in one round trip, which skips statement
+ * parsing and parameter binding altogether. It needs the openGauss or PostgreSQL driver.</p>
+ *
+ * @author JiekerTime
+ */
+public final class CopyWriter implements BatchWriter {
+    
+    @Override
+    public void write(final Connection connection, final String table, final List<TraceRecord> records) throws SQLException {
+        StringBuilder data = new StringBuilder(records.size() * 256);
+        for (TraceRecord each : records) {
+            data.append(each.getTraceId()).append('\t').append(SnowflakeIdParser.getTimestamp(each.getTraceId())).append('\t');
+            appendEscaped(data, new String(TraceRecordCodec.encode(each.getAttributes()), StandardCharsets.UTF_8));
+            data.append('\n');
+        }
+        try {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(String.format("COPY %s (trace_id, trace_time, attributes) FROM STDIN", table), new StringReader(data.toString()));
+        } catch (IOException ex) {
+            throw new SQLException("Can not copy traces", ex);
+        }
+    }
+    
+    private static void appendEscaped(final StringBuilder builder, final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char each = value.charAt(i);
+            switch (each) {
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                default:
+                    builder.append(each);
+            }
+        }
+    }
+}
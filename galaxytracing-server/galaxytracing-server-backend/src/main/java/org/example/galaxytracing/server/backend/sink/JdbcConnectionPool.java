@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.sink;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of JDBC connections.
+ *
+ * <p>A semaphore bounds the connections in use, idle connections are reused most recently released first and checked
+ * before they are handed out again.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class JdbcConnectionPool implements Closeable {
+    
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    
+    private final String url;
+    
+    private final String username;
+    
+    private final String password;
+    
+    private final long timeoutMillis;
+    
+    private final Semaphore permits;
+    
+    private final ConcurrentLinkedDeque<Connection> idleConnections = new ConcurrentLinkedDeque<>();
+    
+    private volatile boolean closed;
+    
+    public JdbcConnectionPool(final String url, final String username, final String password, final int maxConnections, final long timeoutMillis) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.timeoutMillis = timeoutMillis;
+        permits = new Semaphore(maxConnections, true);
+    }
+    
+    /**
+     * Borrow a connection, which must be given back by {@link #release(Connection, boolean)}.
+     *
+     * @return connection
+     * @throws SQLException no connection is free in time, or a new connection can not be opened
+     */
+    public Connection borrow() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException(String.format("No free connection in %d ms", timeoutMillis));
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", ex);
+        }
+        boolean borrowed = false;
+        try {
+            Connection result;
+            while (null != (result = idleConnections.pollFirst())) {
+                if (result.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    borrowed = true;
+                    return result;
+                }
+                closeQuietly(result);
+            }
+            result = DriverManager.getConnection(url, username, password);
+            borrowed = true;
+            return result;
+        } finally {
+            if (!borrowed) {
+                permits.release();
+            }
+        }
+    }
+    
+    /**
+     * Give back a borrowed connection.
+     *
+     * @param connection connection
+     * @param broken whether the connection failed, a broken connection is closed instead of reused
+     */
+    public void release(final Connection connection, final boolean broken) {
+        if (broken || closed) {
+            closeQuietly(connection);
+        } else {
+            idleConnections.offerFirst(connection);
+        }
+        permits.release();
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        Connection each;
+        while (null != (each = idleConnections.pollFirst())) {
+            closeQuietly(each);
+        }
+    }
+    
+    private static void closeQuietly(final Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            log.debug("Can not close connection", ex);
+        }
+    }
+}
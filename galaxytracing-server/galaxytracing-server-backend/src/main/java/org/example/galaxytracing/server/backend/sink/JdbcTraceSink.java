@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.sink;
+
+import com.google.common.base.Preconditions;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.thread.ExecutorThreadFactoryBuilder;
+import org.example.galaxytracing.infra.config.entity.server.SinkConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+
+import java.io.Closeable;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Relational sink which copies received traces into openGauss or PostgreSQL.
+ *
+ * <p>Traces are buffered and written in batches of {@code flushSize}, or whatever arrived within
+ * {@code flushIntervalMillis}. One flush worker runs per pooled connection. A batch which can not be written goes to
+ * the {@link TraceSpool}, spooled batches are written again once the database accepts writes, so the sink delivers at
+ * least once.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class JdbcTraceSink implements Closeable {
+    
+    private static final Pattern TABLE_NAME_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+    
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS %s (trace_id BIGINT NOT NULL, trace_time BIGINT NOT NULL, attributes TEXT NOT NULL)";
+    
+    private final SinkConfig config;
+    
+    private final JdbcConnectionPool connectionPool;
+    
+    private final BatchWriter batchWriter;
+    
+    private final TraceSpool spool;
+    
+    private final BlockingQueue<TraceRecord> buffer;
+    
+    private final ExecutorService executor;
+    
+    private final ReentrantLock replayLock = new ReentrantLock();
+    
+    private final AtomicInteger spooledBatches = new AtomicInteger();
+    
+    private final AtomicLong droppedCount = new AtomicLong();
+    
+    private volatile boolean tableCreated;
+    
+    private volatile boolean running;
+    
+    public JdbcTraceSink(final SinkConfig config) {
+        Preconditions.checkArgument(TABLE_NAME_PATTERN.matcher(config.getTable()).matches(), "Illegal table name `%s`.", config.getTable());
+        Preconditions.checkArgument(config.getMaxConnections() > 0, "Max connections must be positive.");
+        Preconditions.checkArgument(config.getFlushSize() > 0, "Flush size must be positive.");
+        this.config = config;
+        connectionPool = new JdbcConnectionPool(config.getUrl(), config.getUsername(), config.getPassword(), config.getMaxConnections(), config.getConnectionTimeoutMillis());
+        batchWriter = config.isCopy() ? new CopyWriter() : new MultiRowInsertWriter();
+        spool = new TraceSpool(new File(config.getSpoolDir()));
+        buffer = new ArrayBlockingQueue<>(config.getBufferCapacity());
+        executor = Executors.newFixedThreadPool(config.getMaxConnections(), ExecutorThreadFactoryBuilder.build("Sink-Flush-%d"));
+    }
+    
+    /**
+     * Start the flush workers.
+     */
+    public void start() {
+        spooledBatches.set(spool.list().size());
+        running = true;
+        for (int i = 0; i < config.getMaxConnections(); i++) {
+            executor.execute(this::runFlushWorker);
+        }
+        log.info("Trace sink started, {} spooled batches to replay", spooledBatches.get());
+    }
+    
+    /**
+     * Buffer a trace for the next flush, without blocking.
+     *
+     * @param record trace record
+     * @return false if the buffer is full and the trace is dropped
+     */
+    public boolean offer(final TraceRecord record) {
+        if (buffer.offer(record)) {
+            return true;
+        }
+        if (0 == droppedCount.getAndIncrement() % 10000) {
+            log.warn("Trace sink buffer is full, {} traces dropped so far", droppedCount.get());
+        }
+        return false;
+    }
+    
+    /**
+     * Get the number of traces dropped because the buffer was full.
+     *
+     * @return dropped count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    /**
+     * Get the number of batches waiting in the spool.
+     *
+     * @return spooled batches
+     */
+    public int getSpooledBatches() {
+        return spooledBatches.get();
+    }
+    
+    private void runFlushWorker() {
+        List<TraceRecord> batch = new ArrayList<>(config.getFlushSize());
+        while (running || !buffer.isEmpty()) {
+            try {
+                fill(batch);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            } else if (spooledBatches.get() > 0) {
+                replaySpool();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+    
+    private void fill(final List<TraceRecord> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMillis());
+        while (batch.size() < config.getFlushSize()) {
+            long remaining = deadline - System.nanoTime();
+            TraceRecord record = remaining > 0 ? buffer.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (null == record) {
+                return;
+            }
+            batch.add(record);
+            buffer.drainTo(batch, config.getFlushSize() - batch.size());
+        }
+    }
+    
+    private void flush(final List<TraceRecord> batch) {
+        if (!write(batch)) {
+            try {
+                spool.write(batch);
+                spooledBatches.incrementAndGet();
+            } catch (GalaxyTracingException ex) {
+                droppedCount.addAndGet(batch.size());
+                log.error("Can not spool {} traces, they are dropped", batch.size(), ex);
+            }
+            return;
+        }
+        if (spooledBatches.get() > 0) {
+            replaySpool();
+        }
+    }
+    
+    private void replaySpool() {
+        if (!replayLock.tryLock()) {
+            return;
+        }
+        try {
+            for (File each : spool.list()) {
+                if (!write(spool.read(each))) {
+                    return;
+                }
+                spool.delete(each);
+                spooledBatches.decrementAndGet();
+                log.info("Spooled batch {} replayed", each.getName());
+            }
+        } catch (GalaxyTracingException ex) {
+            log.error("Can not replay the spool", ex);
+        } finally {
+            replayLock.unlock();
+        }
+    }
+    
+    private boolean write(final List<TraceRecord> batch) {
+        Connection connection;
+        try {
+            connection = connectionPool.borrow();
+        } catch (SQLException ex) {
+            log.warn("Can not get a connection of the trace sink", ex);
+            return false;
+        }
+        boolean broken = false;
+        try {
+            if (!tableCreated) {
+                createTable(connection);
+            }
+            batchWriter.write(connection, config.getTable(), batch);
+            return true;
+        } catch (SQLException ex) {
+            broken = true;
+            log.warn("Can not write {} traces into {}", batch.size(), config.getTable(), ex);
+            return false;
+        } finally {
+            connectionPool.release(connection, broken);
+        }
+    }
+    
+    private void createTable(final Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(String.format(CREATE_TABLE_SQL, config.getTable()));
+        }
+        tableCreated = true;
+    }
+    
+    /**
+     * Flush the buffered traces and stop the flush workers.
+     */
+    @Override
+    public void close() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(config.getFlushIntervalMillis() + 30000L, TimeUnit.MILLISECONDS)) {
+                log.warn("Trace sink does not stop in time, {} buffered traces are lost", buffer.size());
+                executor.shutdownNow();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        connectionPool.close();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.sink;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Batch writer with multi-row prepared inserts.
+ *
+ * <p>Rows are bound {@link #ROWS_PER_STATEMENT} at a time into one {@code INSERT ... VALUES (...), (...)} statement,
+ * the full-size statements are sent as one JDBC batch and the remainder as one more statement, all in one
+ * transaction.</p>
+ *
+ * @author JiekerTime
+ */
+public final class MultiRowInsertWriter implements BatchWriter {
+    
+    /**
+     * Number of rows bound into one statement.
+     */
+    public static final int ROWS_PER_STATEMENT = 100;
+    
+    private static final int COLUMN_COUNT = 3;
+    
+    @Override
+    public void write(final Connection connection, final String table, final List<TraceRecord> records) throws SQLException {
+        int fullStatements = records.size() / ROWS_PER_STATEMENT;
+        int remainder = records.size() % ROWS_PER_STATEMENT;
+        connection.setAutoCommit(false);
+        try {
+            if (fullStatements > 0) {
+                try (PreparedStatement statement = connection.prepareStatement(createSQL(table, ROWS_PER_STATEMENT))) {
+                    for (int i = 0; i < fullStatements; i++) {
+                        bind(statement, records, i * ROWS_PER_STATEMENT, ROWS_PER_STATEMENT);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+            if (remainder > 0) {
+                try (PreparedStatement statement = connection.prepareStatement(createSQL(table, remainder))) {
+                    bind(statement, records, fullStatements * ROWS_PER_STATEMENT, remainder);
+                    statement.executeUpdate();
+                }
+            }
+            connection.commit();
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+    
+    private static String createSQL(final String table, final int rows) {
+        StringBuilder result = new StringBuilder(64 + rows * 10);
+        result.append("INSERT INTO ").append(table).append(" (trace_id, trace_time, attributes) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            result.append(0 == i ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        return result.toString();
+    }
+    
+    private static void bind(final PreparedStatement statement, final List<TraceRecord> records, final int from, final int rows) throws SQLException {
+        for (int i = 0; i < rows; i++) {
+            TraceRecord record = records.get(from + i);
+            int index = i * COLUMN_COUNT;
+            statement.setLong(index + 1, record.getTraceId());
+            statement.setLong(index + 2, SnowflakeIdParser.getTimestamp(record.getTraceId()));
+            statement.setString(index + 3, new String(TraceRecordCodec.encode(record.getAttributes()), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.sink;
+
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local spool of the batches which could not be written into the database.
+ *
+ * <p>Each batch is one file of {@code [int payloadLength][long traceId][payload]} records, the same layout as a segment.
+ * A file is written under a temporary name and renamed once complete, so a crash never leaves a torn batch to
+ * replay.</p>
+ *
+ * @author JiekerTime
+ */
+public final class TraceSpool {
+    
+    private static final String FILE_SUFFIX = ".spool";
+    
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    
+    private final File directory;
+    
+    private final AtomicLong sequence = new AtomicLong();
+    
+    public TraceSpool(final File directory) {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new GalaxyTracingException("Can not create spool directory %s", directory);
+        }
+        File[] temporaryFiles = directory.listFiles((dir, name) -> name.endsWith(TEMPORARY_SUFFIX));
+        for (File each : null == temporaryFiles ? new File[0] : temporaryFiles) {
+            delete(each);
+        }
+    }
+    
+    /**
+     * Spool a batch.
+     *
+     * @param records batch of traces
+     * @throws GalaxyTracingException I/O exception
+     */
+    public void write(final List<TraceRecord> records) throws GalaxyTracingException {
+        String name = String.format("%013d-%06d", System.currentTimeMillis(), sequence.getAndIncrement() % 1000000);
+        File temporaryFile = new File(directory, name + TEMPORARY_SUFFIX);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            for (TraceRecord each : records) {
+                byte[] payload = TraceRecordCodec.encode(each.getAttributes());
+                output.writeInt(payload.length);
+                output.writeLong(each.getTraceId());
+                output.write(payload);
+            }
+        } catch (IOException ex) {
+            delete(temporaryFile);
+            throw new GalaxyTracingException(String.format("Can not write spool file %s", temporaryFile), ex);
+        }
+        try {
+            Files.move(temporaryFile.toPath(), new File(directory, name + FILE_SUFFIX).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            delete(temporaryFile);
+            throw new GalaxyTracingException(String.format("Can not rename spool file %s", temporaryFile), ex);
+        }
+    }
+    
+    /**
+     * List the spooled batches, oldest first.
+     *
+     * @return spool files
+     */
+    public List<File> list() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (null == files) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+    
+    /**
+     * Read a spooled batch.
+     *
+     * @param file spool file
+     * @return batch of traces
+     * @throws GalaxyTracingException I/O exception
+     */
+    public List<TraceRecord> read(final File file) throws GalaxyTracingException {
+        List<TraceRecord> result = new ArrayList<>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int payloadLength;
+                try {
+                    payloadLength = input.readInt();
+                } catch (EOFException ex) {
+                    return result;
+                }
+                long traceId = input.readLong();
+                byte[] payload = new byte[payloadLength];
+                input.readFully(payload);
+                result.add(TraceRecordCodec.decode(traceId, payload));
+            }
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not read spool file %s", file), ex);
+        }
+    }
+    
+    /**
+     * Delete a spooled batch once it is written into the database.
+     *
+     * @param file spool file
+     * @throws GalaxyTracingException I/O exception
+     */
+    public void delete(final File file) throws GalaxyTracingException {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not delete spool file %s", file), ex);
+        }
+    }
+}
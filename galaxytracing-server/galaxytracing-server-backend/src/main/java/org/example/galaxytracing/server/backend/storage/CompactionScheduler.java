@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage;
+
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.thread.ExecutorThreadFactoryBuilder;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.infra.config.entity.server.StorageConfig;
+import org.example.galaxytracing.server.backend.index.SegmentIndexer;
+import org.example.galaxytracing.server.backend.index.traceid.OffHeapTraceIdIndex;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background retention and compaction of the sealed segments.
+ *
+ * <p>Retention drops whole segments which are older than the retention age, then the oldest segments while the store
+ * is larger than the retention size. Compaction merges adjacent sealed segments which are small or mostly dead into
+ * one segment, dropping overwritten, deleted and expired records on the way. Reads and writes of compaction share one
+ * rate limiter so ingestion keeps its disk bandwidth.</p>
+ *
+ * <p>Each round schedules the next one once it ends, whatever the outcome, so a failed round never stops retention.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+final class CompactionScheduler {
+    
+    private static final String COMPACTION_DIRECTORY = "compaction";
+    
+    private final TraceStore store;
+    
+    private final StorageConfig config;
+    
+    private final File compactionDirectory;
+    
+    private final RateLimiter rateLimiter;
+    
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(ExecutorThreadFactoryBuilder.build("Compaction-%d"));
+    
+    CompactionScheduler(final TraceStore store, final File directory, final StorageConfig config) {
+        this.store = store;
+        this.config = config;
+        compactionDirectory = new File(directory, COMPACTION_DIRECTORY);
+        rateLimiter = RateLimiter.create(config.getCompactionBytesPerSecond());
+    }
+    
+    void start() {
+        scheduleNextRound();
+    }
+    
+    private void scheduleNextRound() {
+        if (!executor.isShutdown()) {
+            executor.schedule(this::run, config.getCompactionIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    void stop() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Compaction does not stop in 30 seconds");
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void run() {
+        boolean unexpected = true;
+        try {
+            runOnce();
+            unexpected = false;
+        } catch (GalaxyTracingException ex) {
+            unexpected = false;
+            log.error("Compaction failed", ex);
+        } finally {
+            if (unexpected) {
+                log.error("Compaction failed by an unexpected error, retry in the next round");
+            }
+            scheduleNextRound();
+        }
+    }
+    
+    /**
+     * Run one round of retention and compaction.
+     */
+    void runOnce() {
+        store.closeRetiredSegments();
+        long cutoff = config.getRetentionMillis() > 0 ? System.currentTimeMillis() - config.getRetentionMillis() : Long.MIN_VALUE;
+        List<Segment> sealedSegments = store.getSealedSegments();
+        List<Segment> retained = new ArrayList<>(sealedSegments.size());
+        long totalSize = store.getTotalSize();
+        for (Segment each : sealedSegments) {
+            boolean expired = store.getMaxTimestamp(each) < cutoff;
+            boolean oversize = config.getRetentionBytes() > 0 && totalSize > config.getRetentionBytes();
+            if (expired || oversize) {
+                totalSize -= each.size();
+                store.dropSegment(each);
+                log.info("Segment {} dropped by retention", each.getId());
+            } else {
+                retained.add(each);
+            }
+        }
+        compact(retained, cutoff);
+    }
+    
+    private void compact(final List<Segment> sealedSegments, final long cutoff) {
+        long segmentSize = config.getSegmentSize();
+        int start = 0;
+        while (start < sealedSegments.size()) {
+            if (!isCandidate(sealedSegments.get(start))) {
+                start++;
+                continue;
+            }
+            List<Segment> sources = new ArrayList<>();
+            long liveSize = 0L;
+            int end = start;
+            while (end < sealedSegments.size() && isCandidate(sealedSegments.get(end))) {
+                Segment each = sealedSegments.get(end);
+                long eachLiveSize = each.size() - store.getDeadSize(each);
+                if (!sources.isEmpty() && liveSize + eachLiveSize > segmentSize) {
+                    break;
+                }
+                sources.add(each);
+                liveSize += eachLiveSize;
+                end++;
+            }
+            if (sources.size() > 1 || isMostlyDead(sources.get(0))) {
+                merge(sources, cutoff);
+            }
+            start = end;
+        }
+    }
+    
+    private boolean isCandidate(final Segment segment) {
+        return segment.size() < config.getSegmentSize() / 2 || isMostlyDead(segment);
+    }
+    
+    private boolean isMostlyDead(final Segment segment) {
+        long deadSize = store.getDeadSize(segment);
+        return deadSize > 0L && deadSize * 2 >= segment.size();
+    }
+    
+    private void merge(final List<Segment> sources, final long cutoff) {
+        prepareCompactionDirectory();
+        Segment target = Segment.create(compactionDirectory, sources.get(0).getId());
+        Relocations relocations = new Relocations();
+        for (Segment each : sources) {
+            each.scan((offset, traceId, payloadLength) -> {
+                long location = OffHeapTraceIdIndex.location(each.getId(), offset);
+                if (!store.isIndexedAt(traceId, location)) {
+                    return;
+                }
+                int recordSize = Segment.HEADER_SIZE + payloadLength;
+                if (SnowflakeIdParser.getTimestamp(traceId) < cutoff) {
+                    relocations.add(traceId, location, OffHeapTraceIdIndex.NOT_FOUND, recordSize);
+                    return;
+                }
+                rateLimiter.acquire(recordSize << 1);
+                long targetOffset = target.append(traceId, each.read(offset + Segment.HEADER_SIZE, payloadLength).array());
+                relocations.add(traceId, location, targetOffset, recordSize);
+            });
+        }
+        target.seal();
+        for (SegmentIndexer each : store.newIndexers()) {
+            each.onOpen(target);
+        }
+        try {
+            target.close();
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not close segment %s", target.getFile()), ex);
+        }
+        store.replaceSegments(sources, target.getFile(), relocations);
+        log.info("Segments {} to {} compacted to {} bytes", sources.get(0).getId(), sources.get(sources.size() - 1).getId(), target.size());
+    }
+    
+    private void prepareCompactionDirectory() {
+        if (!compactionDirectory.isDirectory() && !compactionDirectory.mkdirs()) {
+            throw new GalaxyTracingException("Can not create compaction directory %s", compactionDirectory);
+        }
+        for (File each : compactionDirectory.listFiles()) {
+            try {
+                Files.delete(each.toPath());
+            } catch (IOException ex) {
+                throw new GalaxyTracingException(String.format("Can not clean compaction directory %s", compactionDirectory), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage;
+
+import java.util.Arrays;
+
+/**
+ * Records which compaction moves out of the source segments.
+ *
+ * <p>Each entry is the traceId, its location in the source segment, its offset in the compacted segment or
+ * {@code -1} if the record is expired, and the record size. Entries are added in the order of the source locations.</p>
+ *
+ * @author JiekerTime
+ */
+final class Relocations {
+    
+    private long[] traceIds = new long[1024];
+    
+    private long[] sources = new long[1024];
+    
+    private long[] targets = new long[1024];
+    
+    private int[] sizes = new int[1024];
+    
+    private int size;
+    
+    void add(final long traceId, final long source, final long target, final int recordSize) {
+        if (size == traceIds.length) {
+            int capacity = size << 1;
+            traceIds = Arrays.copyOf(traceIds, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        traceIds[size] = traceId;
+        sources[size] = source;
+        targets[size] = target;
+        sizes[size] = recordSize;
+        size++;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    long traceId(final int index) {
+        return traceIds[index];
+    }
+    
+    long source(final int index) {
+        return sources[index];
+    }
+    
+    long target(final int index) {
+        return targets[index];
+    }
+    
+    int recordSize(final int index) {
+        return sizes[index];
+    }
+    
+    /**
+     * Find the offset in the compacted segment of the first record kept at or after a source location.
+     *
+     * @param source location in the source segments
+     * @return offset in the compacted segment, or {@code -1} if no later record is kept
+     */
+    long findTarget(final long source) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sources[mid] < source) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < size; i++) {
+            if (targets[i] >= 0L) {
+                return targets[i];
+            }
+        }
+        return -1L;
+    }
+}
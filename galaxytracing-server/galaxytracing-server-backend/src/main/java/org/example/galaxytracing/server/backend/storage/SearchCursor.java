@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+
+/**
+ * Position of a search in the {@link TraceStore}, a search stopped by its visitor resumes after the last visited
+ * record instead of from the first segment.
+ *
+ * <p>The position is the segment and the offset following the last visited record. If compaction replaces the segment
+ * in between, the store moves the cursor to the first record the segment kept in the compacted one.</p>
+ *
+ * @author JiekerTime
+ */
+@Getter(AccessLevel.PACKAGE)
+public final class SearchCursor {
+    
+    private Segment segment;
+    
+    private int segmentId;
+    
+    private long offset;
+    
+    void moveTo(final Segment segment, final int segmentId, final long offset) {
+        this.segment = segment;
+        this.segmentId = segmentId;
+        this.offset = offset;
+    }
+}
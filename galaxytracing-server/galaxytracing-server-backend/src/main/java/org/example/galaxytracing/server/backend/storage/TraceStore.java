@@ -0,0 +1,757 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage;
+
+import com.google.common.base.Preconditions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.config.entity.server.StorageConfig;
+import org.example.galaxytracing.server.backend.cache.CacheStats;
+import org.example.galaxytracing.server.backend.cache.WeightedCache;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.index.SegmentIndexer;
+import org.example.galaxytracing.server.backend.index.attribute.AttributeIndex;
+import org.example.galaxytracing.server.backend.index.attribute.filter.AttributeFilter;
+import org.example.galaxytracing.server.backend.index.time.TimeRangeIndex;
+import org.example.galaxytracing.server.backend.index.traceid.OffHeapTraceIdIndex;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.backend.storage.column.ColumnarStore;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.example.galaxytracing.server.backend.storage.segment.SegmentRecordVisitor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Segmented trace storage of the server backend.
+ *
+ * <p>Traces are appended to the active segment by a single writer, the active segment is sealed once it reaches the
+ * configured size. Lookups by traceId go through {@link OffHeapTraceIdIndex}, which is rebuilt from the segment
+ * headers on {@link #open()}. Other indexes follow the segments through {@link SegmentIndexer}.</p>
+ *
+ * <p>Deletes are logged as {@code [long traceId][long offset]} to a {@code .deletes} file next to the segment holding
+ * the record, {@link #open()} replays them after the scan so deleted traces and the dead bytes of every segment survive
+ * a restart.</p>
+ *
+ * <p>Searches only visit the copy of a trace which the traceId index points to. Older copies left by an overwrite, a
+ * replay of the write-ahead log or an interrupted compaction are skipped until compaction drops them.</p>
+ *
+ * <p>Sealed segments are dropped by retention and merged by compaction in the background, see
+ * {@link CompactionScheduler}. Replaced segments are closed one round later so running queries can finish on them.</p>
+ *
+ * <p>Lookups and searches hold the read side of the segment lock, retention and compaction switch the segments, their
+ * indexes and the traceId index over under the write side. A reader therefore sees either the replaced segments or the
+ * compacted one, never a traceId pointing to a segment which is not published yet.</p>
+ *
+ * <p>A search may stop and resume later through a {@link SearchCursor}. The store remembers where the records of a
+ * replaced segment went until it is closed, so a cursor pointing into it moves on to the compacted segment. A cursor
+ * kept longer than that is expired.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class TraceStore implements Closeable {
+    
+    private static final String DELETES_SUFFIX = ".deletes";
+    
+    private static final int DELETE_ENTRY_SIZE = Long.BYTES * 2;
+    
+    private final File directory;
+    
+    private final long segmentSize;
+    
+    private final OffHeapTraceIdIndex traceIdIndex;
+    
+    private final TimeRangeIndex timeRangeIndex = new TimeRangeIndex();
+    
+    private final AttributeIndex attributeIndex = new AttributeIndex();
+    
+    private final ColumnarStore columnarStore = new ColumnarStore();
+    
+    private final Collection<SegmentIndexer> indexers = new LinkedList<>();
+    
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    
+    private final Map<Integer, Long> deadSizes = new ConcurrentHashMap<>();
+    
+    private final Collection<Segment> retiredSegments = new LinkedList<>();
+    
+    private final Map<Segment, Replacement> replacements = new HashMap<>();
+    
+    private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    
+    private final CompactionScheduler compactionScheduler;
+    
+    private final WeightedCache<Long, TraceRecord> traceCache;
+    
+    private volatile long generation;
+    
+    private Segment activeSegment;
+    
+    public TraceStore(final StorageConfig config) {
+        Preconditions.checkArgument(config.getSegmentSize() > 0 && config.getSegmentSize() < Integer.MAX_VALUE, "Illegal segment size.");
+        this.directory = new File(config.getDataDir());
+        this.segmentSize = config.getSegmentSize();
+        this.traceIdIndex = new OffHeapTraceIdIndex(config.getExpectedTraceCount());
+        indexers.add(timeRangeIndex);
+        indexers.add(attributeIndex);
+        indexers.add(columnarStore);
+        compactionScheduler = config.getCompactionIntervalMillis() > 0 ? new CompactionScheduler(this, directory, config) : null;
+        traceCache = new WeightedCache<>(config.getTraceCacheBytes(), config.getTraceCacheBytes() / 1024, config.getTraceCacheExpireMillis(), TraceStore::weigh);
+    }
+    
+    private static int weigh(final TraceRecord record) {
+        int result = 64;
+        for (Map.Entry<String, String> entry : record.getAttributes().entrySet()) {
+            result += 96 + (entry.getKey().length() + entry.getValue().length()) * 2;
+        }
+        return result;
+    }
+    
+    /**
+     * Open the existing segments, rebuild the traceId index and the dead bytes of each segment.
+     *
+     * @throws GalaxyTracingException I/O exception
+     */
+    public synchronized void open() throws GalaxyTracingException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new GalaxyTracingException("Can not create data directory %s", directory);
+        }
+        File[] files = directory.listFiles((dir, name) -> Segment.isSegmentFile(name));
+        Arrays.sort(files);
+        for (File each : files) {
+            Segment segment = Segment.open(each);
+            segments.put(segment.getId(), segment);
+            segment.scan((offset, traceId, payloadLength) -> markDead(traceIdIndex.put(traceId, OffHeapTraceIdIndex.location(segment.getId(), offset))));
+        }
+        for (Segment each : segments.values()) {
+            replayDeletes(each);
+        }
+        for (File each : directory.listFiles((dir, name) -> name.endsWith(DELETES_SUFFIX))) {
+            if (!segments.containsKey(Integer.parseInt(each.getName().substring(0, each.getName().length() - DELETES_SUFFIX.length())))) {
+                deleteFile(each);
+            }
+        }
+        for (Segment each : segments.headMap(segments.isEmpty() ? 0 : segments.lastKey()).values()) {
+            each.seal();
+        }
+        for (Segment each : segments.values()) {
+            for (SegmentIndexer indexer : indexers) {
+                indexer.onOpen(each);
+            }
+        }
+        activeSegment = segments.isEmpty() ? createSegment(0) : segments.lastEntry().getValue();
+        if (null != compactionScheduler) {
+            compactionScheduler.start();
+        }
+        log.info("Trace store opened with {} segments and {} traces", segments.size(), traceIdIndex.size());
+    }
+    
+    private void replayDeletes(final Segment segment) {
+        ByteBuffer entries = readDeletes(segment.siblingFile(DELETES_SUFFIX));
+        while (entries.hasRemaining()) {
+            long traceId = entries.getLong();
+            long location = OffHeapTraceIdIndex.location(segment.getId(), entries.getLong());
+            if (isIndexedAt(traceId, location)) {
+                traceIdIndex.remove(traceId);
+                markDead(location);
+            }
+        }
+    }
+    
+    private Segment createSegment(final int id) {
+        Segment result = Segment.create(directory, id);
+        segments.put(id, result);
+        return result;
+    }
+    
+    /**
+     * Append a trace.
+     *
+     * @param record trace record
+     * @throws GalaxyTracingException I/O exception
+     */
+    public synchronized void append(final TraceRecord record) throws GalaxyTracingException {
+        byte[] payload = TraceRecordCodec.encode(record.getAttributes());
+        if (activeSegment.size() > 0 && activeSegment.size() + Segment.HEADER_SIZE + payload.length > segmentSize) {
+            roll();
+        }
+        long offset = activeSegment.append(record.getTraceId(), payload);
+        long previous = traceIdIndex.put(record.getTraceId(), OffHeapTraceIdIndex.location(activeSegment.getId(), offset));
+        if (OffHeapTraceIdIndex.NOT_FOUND != previous) {
+            traceCache.invalidate(record.getTraceId());
+            markDead(previous);
+        }
+        for (SegmentIndexer each : indexers) {
+            each.onAppend(activeSegment, offset, record);
+        }
+    }
+    
+    /**
+     * Flush the appended traces to disk, sealed segments are flushed already.
+     *
+     * @throws GalaxyTracingException I/O exception
+     */
+    public synchronized void flush() throws GalaxyTracingException {
+        activeSegment.flush();
+    }
+    
+    /**
+     * Delete a trace, its record is dropped by the next compaction of the segment.
+     *
+     * <p>Searches skip the trace at once, aggregations count it until the record is dropped. The delete is synced to the
+     * delete log of the segment before the trace leaves the index.</p>
+     *
+     * @param traceId traceId
+     * @return deleted or not
+     * @throws GalaxyTracingException I/O exception
+     */
+    public synchronized boolean delete(final long traceId) throws GalaxyTracingException {
+        long location = traceIdIndex.get(traceId);
+        if (OffHeapTraceIdIndex.NOT_FOUND == location) {
+            return false;
+        }
+        ByteBuffer entry = ByteBuffer.allocate(DELETE_ENTRY_SIZE);
+        entry.putLong(traceId).putLong(OffHeapTraceIdIndex.offset(location)).flip();
+        appendDeletes(segments.get(OffHeapTraceIdIndex.segmentId(location)).siblingFile(DELETES_SUFFIX), entry);
+        traceIdIndex.remove(traceId);
+        traceCache.invalidate(traceId);
+        markDead(location);
+        return true;
+    }
+    
+    private void markDead(final long location) {
+        if (OffHeapTraceIdIndex.NOT_FOUND == location) {
+            return;
+        }
+        Segment segment = segments.get(OffHeapTraceIdIndex.segmentId(location));
+        if (null != segment) {
+            long recordSize = Segment.HEADER_SIZE + segment.read(OffHeapTraceIdIndex.offset(location), Integer.BYTES).getInt();
+            deadSizes.merge(segment.getId(), recordSize, Long::sum);
+        }
+    }
+    
+    private void roll() {
+        activeSegment.seal();
+        for (SegmentIndexer each : indexers) {
+            each.onSeal(activeSegment);
+        }
+        log.info("Segment {} sealed at {} bytes", activeSegment.getId(), activeSegment.size());
+        activeSegment = createSegment(activeSegment.getId() + 1);
+    }
+    
+    /**
+     * Get the trace by traceId.
+     *
+     * @param traceId traceId
+     * @return trace record or null
+     * @throws GalaxyTracingException I/O exception
+     */
+    public TraceRecord get(final long traceId) throws GalaxyTracingException {
+        TraceRecord result = traceCache.get(traceId);
+        if (null != result) {
+            return result;
+        }
+        long location;
+        segmentLock.readLock().lock();
+        try {
+            location = traceIdIndex.get(traceId);
+            Segment segment = OffHeapTraceIdIndex.NOT_FOUND == location ? null : segments.get(OffHeapTraceIdIndex.segmentId(location));
+            if (null == segment) {
+                return null;
+            }
+            result = segment.read(OffHeapTraceIdIndex.offset(location));
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+        synchronized (this) {
+            if (isIndexedAt(traceId, location)) {
+                traceCache.put(traceId, result);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Get the statistics of the cache of lookups by traceId.
+     *
+     * @return cache statistics
+     */
+    public CacheStats getTraceCacheStats() {
+        return traceCache.stats();
+    }
+    
+    /**
+     * Get the generation of the store, which increases whenever retention or compaction removes segments.
+     *
+     * <p>Caches of query results compare it to find out whether a cached result may hold removed traces.</p>
+     *
+     * @return generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+    
+    /**
+     * Visit the traces whose traceId was generated in the time range.
+     *
+     * @param from start timestamp in milliseconds, inclusive
+     * @param to end timestamp in milliseconds, inclusive
+     * @param visitor record visitor
+     * @throws GalaxyTracingException I/O exception
+     */
+    public void searchByTime(final long from, final long to, final TraceRecordVisitor visitor) throws GalaxyTracingException {
+        searchByTime(from, to, new SearchCursor(), visitor);
+    }
+    
+    /**
+     * Visit the traces whose traceId was generated in the time range, starting after the last record visited through
+     * the cursor.
+     *
+     * @param from start timestamp in milliseconds, inclusive
+     * @param to end timestamp in milliseconds, inclusive
+     * @param cursor position of the search, moved along with it
+     * @param visitor record visitor
+     * @return whether all segments are searched, false if the visitor stopped the search
+     * @throws GalaxyTracingException I/O exception or the cursor is expired
+     */
+    public boolean searchByTime(final long from, final long to, final SearchCursor cursor, final TraceRecordVisitor visitor) throws GalaxyTracingException {
+        return search(cursor, (segment, startOffset, segmentVisitor) -> timeRangeIndex.search(segment, from, to, startOffset, segmentVisitor), visitor);
+    }
+    
+    /**
+     * Visit the traces matching the attribute filter.
+     *
+     * @param filter attribute filter
+     * @param visitor record visitor
+     * @throws GalaxyTracingException I/O exception
+     */
+    public void searchByAttributes(final AttributeFilter filter, final TraceRecordVisitor visitor) throws GalaxyTracingException {
+        searchByAttributes(filter, new SearchCursor(), visitor);
+    }
+    
+    /**
+     * Visit the traces matching the attribute filter, starting after the last record visited through the cursor.
+     *
+     * @param filter attribute filter
+     * @param cursor position of the search, moved along with it
+     * @param visitor record visitor
+     * @return whether all segments are searched, false if the visitor stopped the search
+     * @throws GalaxyTracingException I/O exception or the cursor is expired
+     */
+    public boolean searchByAttributes(final AttributeFilter filter, final SearchCursor cursor, final TraceRecordVisitor visitor) throws GalaxyTracingException {
+        return search(cursor, (segment, startOffset, segmentVisitor) -> attributeIndex.search(segment, filter, startOffset, segmentVisitor), visitor);
+    }
+    
+    private boolean search(final SearchCursor cursor, final SegmentSearch search, final TraceRecordVisitor visitor) {
+        segmentLock.readLock().lock();
+        try {
+            resume(cursor);
+            SegmentRecordVisitor segmentVisitor = (segment, offset, record) -> {
+                cursor.moveTo(segment, segment.getId(), offset + 1L);
+                return !isIndexedAt(record.getTraceId(), OffHeapTraceIdIndex.location(segment.getId(), offset)) || visitor.visit(record);
+            };
+            for (Segment each : segments.tailMap(cursor.getSegmentId()).values()) {
+                if (!search.search(each, each.getId() == cursor.getSegmentId() ? cursor.getOffset() : 0L, segmentVisitor)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+    
+    private void resume(final SearchCursor cursor) {
+        Segment segment = cursor.getSegment();
+        while (null != segment && segments.get(segment.getId()) != segment) {
+            Replacement replacement = replacements.get(segment);
+            if (null == replacement) {
+                throw new GalaxyTracingException("Search cursor in segment %s is expired", segment.getId());
+            }
+            segment = replacement.move(cursor);
+        }
+    }
+    
+    /**
+     * Count the traces by the value of an attribute.
+     *
+     * @param groupKey attribute key to group by
+     * @return count of each value
+     * @throws GalaxyTracingException I/O exception
+     */
+    public Map<String, Long> countBy(final String groupKey) throws GalaxyTracingException {
+        return countBy(groupKey, null, null);
+    }
+    
+    /**
+     * Count the traces holding the filter attribute by the value of another attribute.
+     *
+     * @param groupKey attribute key to group by
+     * @param filterKey attribute key to filter by
+     * @param filterValue attribute value which the filter key must equal
+     * @return count of each value
+     * @throws GalaxyTracingException I/O exception
+     */
+    public Map<String, Long> countBy(final String groupKey, final String filterKey, final String filterValue) throws GalaxyTracingException {
+        segmentLock.readLock().lock();
+        try {
+            return columnarStore.countBy(segments.values(), groupKey, filterKey, filterValue);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Get the segments ordered by id.
+     *
+     * @return segments
+     */
+    public Map<Integer, Segment> getSegments() {
+        return segments;
+    }
+    
+    synchronized List<Segment> getSealedSegments() {
+        return new ArrayList<>(segments.headMap(activeSegment.getId()).values());
+    }
+    
+    long getTotalSize() {
+        long result = 0L;
+        for (Segment each : segments.values()) {
+            result += each.size();
+        }
+        return result;
+    }
+    
+    long getDeadSize(final Segment segment) {
+        return deadSizes.getOrDefault(segment.getId(), 0L);
+    }
+    
+    long getMaxTimestamp(final Segment segment) {
+        return timeRangeIndex.getMaxTimestamp(segment.getId());
+    }
+    
+    boolean isIndexedAt(final long traceId, final long location) {
+        return traceIdIndex.get(traceId) == location;
+    }
+    
+    Collection<SegmentIndexer> newIndexers() {
+        return Arrays.asList(new TimeRangeIndex(), new AttributeIndex(), new ColumnarStore());
+    }
+    
+    /**
+     * Drop a sealed segment with all its indexes.
+     *
+     * @param segment sealed segment
+     * @throws GalaxyTracingException I/O exception
+     */
+    void dropSegment(final Segment segment) throws GalaxyTracingException {
+        Relocations relocations = new Relocations();
+        segment.scan((offset, traceId, payloadLength) -> {
+            long location = OffHeapTraceIdIndex.location(segment.getId(), offset);
+            if (isIndexedAt(traceId, location)) {
+                relocations.add(traceId, location, OffHeapTraceIdIndex.NOT_FOUND, Segment.HEADER_SIZE + payloadLength);
+            }
+        });
+        synchronized (this) {
+            segmentLock.writeLock().lock();
+            try {
+                relocate(relocations, segment.getId());
+                retire(segment);
+                replacements.put(segment, new Replacement(null, null));
+            } finally {
+                segmentLock.writeLock().unlock();
+            }
+            deleteFile(segment.getFile());
+            deleteFile(segment.siblingFile(DELETES_SUFFIX));
+        }
+    }
+    
+    /**
+     * Replace the source segments by the compacted segment, the traceId index and all other indexes switch over in the
+     * same step.
+     *
+     * <p>The compacted segment takes the id of the first source and its index files are already built next to it. The
+     * compacted segment file replaces the first source before the other sources are deleted, so a crash in between may
+     * leave duplicated records but never loses one. Index files of the first source are deleted before the compacted
+     * segment moves in and the compacted index files follow it, so a crash in between leaves a segment without index
+     * files, which {@link #open()} rebuilds, but never with the index files of the replaced segment.</p>
+     *
+     * <p>Readers keep using the open sources and their in-memory indexes while the files move. The compacted segment is
+     * opened and sealed first, then its indexes are loaded, the segments are switched and the traceId index is relocated
+     * under the write side of the segment lock.</p>
+     *
+     * <p>Records deleted while compaction was copying them are logged at their new offsets. Before the move the delete
+     * log of the first source holds both the old and the new entries, which is valid for either segment file, after
+     * the move only the new entries are kept.</p>
+     *
+     * @param sources source segments ordered by id
+     * @param compactedFile file of the compacted segment
+     * @param relocations records moved out of the sources
+     * @throws GalaxyTracingException I/O exception
+     */
+    synchronized void replaceSegments(final List<Segment> sources, final File compactedFile, final Relocations relocations) throws GalaxyTracingException {
+        int id = sources.get(0).getId();
+        File deletesFile = sources.get(0).siblingFile(DELETES_SUFFIX);
+        ByteBuffer deletes = collectDeletes(relocations);
+        writeDeletes(deletesFile, mergeDeletes(readDeletes(deletesFile), deletes, relocations));
+        File[] indexFiles = compactedFile.getParentFile().listFiles((dir, name) -> !name.equals(compactedFile.getName()));
+        for (File each : indexFiles) {
+            deleteFile(new File(directory, each.getName()));
+        }
+        moveFile(compactedFile);
+        for (File each : indexFiles) {
+            moveFile(each);
+        }
+        if (deletes.hasRemaining()) {
+            writeDeletes(deletesFile, deletes);
+        } else {
+            deleteFile(deletesFile);
+        }
+        Segment result = Segment.open(new File(directory, compactedFile.getName()));
+        result.seal();
+        segmentLock.writeLock().lock();
+        try {
+            for (SegmentIndexer each : indexers) {
+                each.onOpen(result);
+            }
+            for (Segment each : sources.subList(1, sources.size())) {
+                retire(each);
+            }
+            retireReplaced(sources.get(0));
+            segments.put(id, result);
+            Replacement replacement = new Replacement(result, relocations);
+            for (Segment each : sources) {
+                replacements.put(each, replacement);
+            }
+            long deadSize = relocate(relocations, id);
+            if (deadSize > 0L) {
+                deadSizes.put(id, deadSize);
+            }
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+        for (Segment each : sources.subList(1, sources.size())) {
+            deleteFile(each.getFile());
+            deleteFile(each.siblingFile(DELETES_SUFFIX));
+        }
+    }
+    
+    private ByteBuffer collectDeletes(final Relocations relocations) {
+        int count = 0;
+        for (int i = 0; i < relocations.size(); i++) {
+            if (isDeletedDuringCompaction(relocations, i)) {
+                count++;
+            }
+        }
+        ByteBuffer result = ByteBuffer.allocate(count * DELETE_ENTRY_SIZE);
+        for (int i = 0; i < relocations.size(); i++) {
+            if (isDeletedDuringCompaction(relocations, i)) {
+                result.putLong(relocations.traceId(i)).putLong(relocations.target(i));
+            }
+        }
+        result.flip();
+        return result;
+    }
+    
+    private boolean isDeletedDuringCompaction(final Relocations relocations, final int index) {
+        return OffHeapTraceIdIndex.NOT_FOUND != relocations.target(index) && OffHeapTraceIdIndex.NOT_FOUND == traceIdIndex.get(relocations.traceId(index));
+    }
+    
+    private static ByteBuffer mergeDeletes(final ByteBuffer oldEntries, final ByteBuffer newEntries, final Relocations relocations) {
+        Set<Long> copiedTraceIds = new HashSet<>();
+        for (int i = 0; i < relocations.size(); i++) {
+            if (OffHeapTraceIdIndex.NOT_FOUND != relocations.target(i)) {
+                copiedTraceIds.add(relocations.traceId(i));
+            }
+        }
+        ByteBuffer result = ByteBuffer.allocate(oldEntries.remaining() + newEntries.remaining());
+        while (oldEntries.hasRemaining()) {
+            long traceId = oldEntries.getLong();
+            long offset = oldEntries.getLong();
+            if (!copiedTraceIds.contains(traceId)) {
+                result.putLong(traceId).putLong(offset);
+            }
+        }
+        result.put(newEntries.duplicate());
+        result.flip();
+        return result;
+    }
+    
+    private static ByteBuffer readDeletes(final File file) {
+        if (!file.isFile()) {
+            return ByteBuffer.allocate(0);
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            return ByteBuffer.wrap(bytes, 0, bytes.length - bytes.length % DELETE_ENTRY_SIZE);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not read delete log %s", file), ex);
+        }
+    }
+    
+    private static void appendDeletes(final File file, final ByteBuffer entries) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (entries.hasRemaining()) {
+                channel.write(entries);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not write delete log %s", file), ex);
+        }
+    }
+    
+    private static void writeDeletes(final File file, final ByteBuffer entries) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        deleteFile(tempFile);
+        appendDeletes(tempFile, entries.duplicate());
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not move %s to %s", tempFile, file), ex);
+        }
+    }
+    
+    private long relocate(final Relocations relocations, final int targetId) {
+        long result = 0L;
+        for (int i = 0; i < relocations.size(); i++) {
+            if (OffHeapTraceIdIndex.NOT_FOUND == relocations.target(i) && isIndexedAt(relocations.traceId(i), relocations.source(i))) {
+                traceIdIndex.remove(relocations.traceId(i));
+                traceCache.invalidate(relocations.traceId(i));
+            }
+        }
+        for (int i = 0; i < relocations.size(); i++) {
+            if (OffHeapTraceIdIndex.NOT_FOUND == relocations.target(i)) {
+                continue;
+            }
+            if (isIndexedAt(relocations.traceId(i), relocations.source(i))) {
+                traceIdIndex.put(relocations.traceId(i), OffHeapTraceIdIndex.location(targetId, relocations.target(i)));
+            } else {
+                result += relocations.recordSize(i);
+            }
+        }
+        return result;
+    }
+    
+    private void retire(final Segment segment) {
+        for (SegmentIndexer each : indexers) {
+            each.onDrop(segment);
+        }
+        segments.remove(segment.getId());
+        retireReplaced(segment);
+    }
+    
+    private void retireReplaced(final Segment segment) {
+        generation++;
+        deadSizes.remove(segment.getId());
+        retiredSegments.add(segment);
+    }
+    
+    private void moveFile(final File file) {
+        try {
+            Files.move(file.toPath(), new File(directory, file.getName()).toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not move %s to %s", file, directory), ex);
+        }
+    }
+    
+    private static void deleteFile(final File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not delete %s", file), ex);
+        }
+    }
+    
+    synchronized void closeRetiredSegments() throws GalaxyTracingException {
+        for (Segment each : retiredSegments) {
+            try {
+                each.close();
+            } catch (IOException ex) {
+                throw new GalaxyTracingException(String.format("Can not close segment %s", each.getFile()), ex);
+            }
+        }
+        retiredSegments.clear();
+        segmentLock.writeLock().lock();
+        try {
+            replacements.clear();
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (null != compactionScheduler) {
+            compactionScheduler.stop();
+        }
+        synchronized (this) {
+            if (null != activeSegment) {
+                activeSegment.seal();
+            }
+            for (Segment each : segments.values()) {
+                each.close();
+            }
+            segments.clear();
+            closeRetiredSegments();
+        }
+    }
+    
+    private interface SegmentSearch {
+        
+        boolean search(Segment segment, long startOffset, SegmentRecordVisitor visitor);
+    }
+    
+    @RequiredArgsConstructor
+    private static final class Replacement {
+        
+        private final Segment target;
+        
+        private final Relocations relocations;
+        
+        private Segment move(final SearchCursor cursor) {
+            if (null == target) {
+                cursor.moveTo(null, cursor.getSegmentId() + 1, 0L);
+                return null;
+            }
+            long offset = relocations.findTarget(OffHeapTraceIdIndex.location(cursor.getSegmentId(), cursor.getOffset()));
+            cursor.moveTo(target, target.getId(), offset < 0L ? target.size() : offset);
+            return target;
+        }
+    }
+}
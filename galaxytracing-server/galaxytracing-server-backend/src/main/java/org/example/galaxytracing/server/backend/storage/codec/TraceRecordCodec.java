@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.codec;
+
+import com.huawei.shade.com.alibaba.fastjson.JSONException;
+import com.huawei.shade.com.alibaba.fastjson.JSONObject;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.schema.TraceSchemaRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Row codec of trace records, the payload is the JSON reported by the agent.
+ *
+ * @author JiekerTime
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TraceRecordCodec {
+    
+    /**
+     * Key of the traceId inside the reported attributes.
+     */
+    public static final String TRACE_ID = "traceId";
+    
+    /**
+     * Encode attributes into the row payload.
+     *
+     * @param attributes attributes of trace
+     * @return payload
+     */
+    public static byte[] encode(final Map<String, String> attributes) {
+        return JSONObject.toJSONString(attributes).getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Decode the row payload.
+     *
+     * @param traceId traceId
+     * @param payload payload
+     * @return trace record
+     */
+    public static TraceRecord decode(final long traceId, final byte[] payload) {
+        return new TraceRecord(traceId, decodeAttributes(new String(payload, StandardCharsets.UTF_8)));
+    }
+    
+    /**
+     * Decode a trace reported by the agent.
+     *
+     * @param json json of trace
+     * @return trace record
+     * @throws GalaxyTracingException json is malformed, or traceId is missing or illegal
+     */
+    public static TraceRecord decode(final String json) throws GalaxyTracingException {
+        return decode(json, null);
+    }
+    
+    /**
+     * Decode a trace reported by the agent, replacing the IDs of its typed keys by their names.
+     *
+     * @param json json of trace
+     * @param schemaRegistry names of the typed keys, null to keep the typed keys as they are
+     * @return trace record, null if the name of a typed key of the trace is unknown
+     * @throws GalaxyTracingException json is malformed, or traceId is missing or illegal
+     */
+    public static TraceRecord decode(final String json, final TraceSchemaRegistry schemaRegistry) throws GalaxyTracingException {
+        Map<String, String> attributes;
+        try {
+            JSONObject trace = JSONObject.parseObject(json);
+            if (null != schemaRegistry && !schemaRegistry.resolve(trace)) {
+                return null;
+            }
+            attributes = decodeAttributes(trace);
+        } catch (JSONException | ClassCastException | NumberFormatException ex) {
+            throw new GalaxyTracingException(String.format("Malformed trace: %s", json), ex);
+        }
+        String traceId = attributes.get(TRACE_ID);
+        if (traceId == null) {
+            throw new GalaxyTracingException("Trace without traceId: %s", json);
+        }
+        try {
+            return new TraceRecord(Long.parseLong(traceId), attributes);
+        } catch (NumberFormatException ex) {
+            throw new GalaxyTracingException(String.format("Illegal traceId %s", traceId), ex);
+        }
+    }
+    
+    private static Map<String, String> decodeAttributes(final String json) {
+        return decodeAttributes(JSONObject.parseObject(json));
+    }
+    
+    private static Map<String, String> decodeAttributes(final JSONObject object) {
+        Map<String, String> result = new HashMap<>(object.size() << 1);
+        for (Map.Entry<String, Object> entry : object.entrySet()) {
+            result.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        return result;
+    }
+}
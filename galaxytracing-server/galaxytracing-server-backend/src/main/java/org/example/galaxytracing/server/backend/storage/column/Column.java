@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.column;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Values of one attribute key across all records of a sealed segment, row {@code i} belongs to the {@code i}th record.
+ *
+ * <p>Missing values are recorded in a null bitmap, a set bit marks a null row.</p>
+ *
+ * @author JiekerTime
+ */
+public abstract class Column {
+    
+    static final byte PLAIN_ENCODING = 0;
+    
+    static final byte DICTIONARY_ENCODING = 1;
+    
+    @Getter
+    private final int rowCount;
+    
+    private final long[] nulls;
+    
+    Column(final int rowCount, final long[] nulls) {
+        this.rowCount = rowCount;
+        this.nulls = nulls;
+    }
+    
+    /**
+     * Judge whether the value of the row is null.
+     *
+     * @param row row number
+     * @return is null or not
+     */
+    public final boolean isNull(final int row) {
+        return 0L != (nulls[row >>> 6] & 1L << row);
+    }
+    
+    /**
+     * Get the value of the row.
+     *
+     * @param row row number
+     * @return value or null
+     */
+    public abstract String getString(int row);
+    
+    static Column read(final ByteBuffer buffer, final int rowCount) {
+        byte encoding = buffer.get();
+        long[] nulls = new long[wordCount(rowCount)];
+        for (int i = 0; i < nulls.length; i++) {
+            nulls[i] = buffer.getLong();
+        }
+        return DICTIONARY_ENCODING == encoding ? DictionaryColumn.read(buffer, rowCount, nulls) : PlainColumn.read(buffer, rowCount, nulls);
+    }
+    
+    static int wordCount(final int rowCount) {
+        return (rowCount + 63) >>> 6;
+    }
+    
+    static String readString(final ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.column;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collect the values of one attribute key, the encoding is chosen when the column is written.
+ *
+ * @author JiekerTime
+ */
+final class ColumnBuilder {
+    
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+    
+    private final Map<String, Integer> codesByValue = new HashMap<>();
+    
+    private final List<String> values = new ArrayList<>();
+    
+    private int[] codes;
+    
+    private int nonNullCount;
+    
+    ColumnBuilder(final int capacity) {
+        codes = new int[Math.max(capacity, 16)];
+        Arrays.fill(codes, -1);
+    }
+    
+    void set(final int row, final String value) {
+        if (row >= codes.length) {
+            int oldLength = codes.length;
+            codes = Arrays.copyOf(codes, Math.max(row + 1, oldLength << 1));
+            Arrays.fill(codes, oldLength, codes.length, -1);
+        }
+        Integer code = codesByValue.get(value);
+        if (null == code) {
+            code = values.size();
+            codesByValue.put(value, code);
+            values.add(value);
+        }
+        codes[row] = code;
+        nonNullCount++;
+    }
+    
+    void writeTo(final DataOutput output, final int rowCount) throws IOException {
+        boolean dictionary = values.size() <= MAX_DICTIONARY_SIZE && values.size() << 1 <= nonNullCount;
+        output.writeByte(dictionary ? Column.DICTIONARY_ENCODING : Column.PLAIN_ENCODING);
+        long[] nulls = new long[Column.wordCount(rowCount)];
+        for (int row = 0; row < rowCount; row++) {
+            if (code(row) < 0) {
+                nulls[row >>> 6] |= 1L << row;
+            }
+        }
+        for (long each : nulls) {
+            output.writeLong(each);
+        }
+        if (dictionary) {
+            writeDictionary(output, rowCount);
+        } else {
+            writePlain(output, rowCount);
+        }
+    }
+    
+    private int code(final int row) {
+        return row < codes.length ? codes[row] : -1;
+    }
+    
+    private void writeDictionary(final DataOutput output, final int rowCount) throws IOException {
+        output.writeInt(values.size());
+        for (String each : values) {
+            byte[] bytes = each.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        int codeWidth = DictionaryColumn.codeWidth(values.size());
+        for (int row = 0; row < rowCount; row++) {
+            int code = Math.max(code(row), 0);
+            switch (codeWidth) {
+                case Byte.BYTES:
+                    output.writeByte(code);
+                    break;
+                case Short.BYTES:
+                    output.writeChar(code);
+                    break;
+                default:
+                    output.writeInt(code);
+            }
+        }
+    }
+    
+    private void writePlain(final DataOutput output, final int rowCount) throws IOException {
+        byte[][] encoded = new byte[rowCount][];
+        int end = 0;
+        for (int row = 0; row < rowCount; row++) {
+            int code = code(row);
+            if (code >= 0) {
+                encoded[row] = values.get(code).getBytes(StandardCharsets.UTF_8);
+                end += encoded[row].length;
+            }
+            output.writeInt(end);
+        }
+        for (byte[] each : encoded) {
+            if (null != each) {
+                output.write(each);
+            }
+        }
+    }
+}
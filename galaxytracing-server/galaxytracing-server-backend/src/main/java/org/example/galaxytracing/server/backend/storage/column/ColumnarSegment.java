@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.column;
+
+import lombok.Getter;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Columnar copy of a sealed segment, only the directory stays in memory and columns are read on demand.
+ *
+ * @author JiekerTime
+ */
+public final class ColumnarSegment {
+    
+    @Getter
+    private final File file;
+    
+    @Getter
+    private final int rowCount;
+    
+    private final Map<String, long[]> directory;
+    
+    private ColumnarSegment(final File file, final int rowCount, final Map<String, long[]> directory) {
+        this.file = file;
+        this.rowCount = rowCount;
+        this.directory = directory;
+    }
+    
+    /**
+     * Open a columnar file.
+     *
+     * @param file columnar file
+     * @return columnar segment
+     * @throws GalaxyTracingException I/O exception or the file is truncated
+     */
+    public static ColumnarSegment open(final File file) throws GalaxyTracingException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int rowCount = input.readInt();
+            int columnCount = input.readInt();
+            Map<String, long[]> directory = new HashMap<>(columnCount << 1);
+            for (int i = 0; i < columnCount; i++) {
+                byte[] name = new byte[input.readInt()];
+                input.readFully(name);
+                long[] entry = {input.readLong(), input.readInt()};
+                if (entry[0] + entry[1] > file.length()) {
+                    throw new GalaxyTracingException("Columnar segment %s is truncated", file);
+                }
+                directory.put(new String(name, StandardCharsets.UTF_8), entry);
+            }
+            return new ColumnarSegment(file, rowCount, directory);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not open columnar segment %s", file), ex);
+        }
+    }
+    
+    /**
+     * Get the names of all columns.
+     *
+     * @return column names
+     */
+    public Collection<String> getColumnNames() {
+        return Collections.unmodifiableSet(directory.keySet());
+    }
+    
+    /**
+     * Read a column.
+     *
+     * @param name attribute key
+     * @return column or null if no record holds the key
+     * @throws GalaxyTracingException I/O exception
+     */
+    public Column readColumn(final String name) throws GalaxyTracingException {
+        long[] entry = directory.get(name);
+        if (null == entry) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) entry[1]);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = entry[0];
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new GalaxyTracingException("Unexpected end of columnar segment %s at %d", file, position);
+                }
+                position += read;
+            }
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not read columnar segment %s", file), ex);
+        }
+        buffer.flip();
+        return Column.read(buffer, rowCount);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.column;
+
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build the columnar file of a segment record by record.
+ *
+ * <p>The file starts with the row count and a directory of {@code [name][position][length]} per column, followed by the
+ * column bodies, so a reader only has to load the columns a query touches. The file is synced to a temporary file and
+ * moved into place, so it is either complete or absent.</p>
+ *
+ * @author JiekerTime
+ */
+final class ColumnarSegmentBuilder {
+    
+    private final Map<String, ColumnBuilder> columns = new LinkedHashMap<>();
+    
+    private int rowCount;
+    
+    void add(final Map<String, String> attributes) {
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            if (TraceRecordCodec.TRACE_ID.equals(entry.getKey()) || null == entry.getValue()) {
+                continue;
+            }
+            columns.computeIfAbsent(entry.getKey(), key -> new ColumnBuilder(rowCount + 1)).set(rowCount, entry.getValue());
+        }
+        rowCount++;
+    }
+    
+    void writeTo(final File file) throws IOException {
+        List<byte[]> names = new ArrayList<>(columns.size());
+        List<byte[]> bodies = new ArrayList<>(columns.size());
+        long position = Integer.BYTES * 2;
+        for (Map.Entry<String, ColumnBuilder> entry : columns.entrySet()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            entry.getValue().writeTo(new DataOutputStream(body), rowCount);
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            bodies.add(body.toByteArray());
+            position += Integer.BYTES + name.length + Long.BYTES + Integer.BYTES;
+        }
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOutput = new FileOutputStream(temporaryFile)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+            output.writeInt(rowCount);
+            output.writeInt(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                output.writeInt(names.get(i).length);
+                output.write(names.get(i));
+                output.writeLong(position);
+                output.writeInt(bodies.get(i).length);
+                position += bodies.get(i).length;
+            }
+            for (byte[] each : bodies) {
+                output.write(each);
+            }
+            output.flush();
+            fileOutput.getFD().sync();
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.column;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.index.SegmentIndexer;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Columnar copies of the sealed segments for aggregate queries.
+ *
+ * <p>Columns of the active segment are collected while records are appended and written to a {@code .columns} file
+ * when the segment is sealed. The active segment itself is still scanned in row format.</p>
+ *
+ * <p>A columnar file which can not be opened or whose row count differs from the records of its segment is rebuilt from
+ * the segment.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class ColumnarStore implements SegmentIndexer {
+    
+    private static final String FILE_SUFFIX = ".columns";
+    
+    private final Map<Integer, ColumnarSegment> columnarSegments = new ConcurrentHashMap<>();
+    
+    private final Map<Integer, ColumnarSegmentBuilder> builders = new HashMap<>();
+    
+    @Override
+    public void onOpen(final Segment segment) {
+        File file = segment.siblingFile(FILE_SUFFIX);
+        if (segment.isSealed() && file.isFile()) {
+            ColumnarSegment loaded = load(file, segment);
+            if (null != loaded) {
+                columnarSegments.put(segment.getId(), loaded);
+                return;
+            }
+        }
+        ColumnarSegmentBuilder builder = new ColumnarSegmentBuilder();
+        segment.scan((offset, traceId, payloadLength) -> builder.add(segment.read(offset).getAttributes()));
+        builders.put(segment.getId(), builder);
+        if (segment.isSealed()) {
+            onSeal(segment);
+        }
+    }
+    
+    private static ColumnarSegment load(final File file, final Segment segment) {
+        ColumnarSegment result;
+        try {
+            result = ColumnarSegment.open(file);
+        } catch (GalaxyTracingException ex) {
+            log.warn("Can not open columnar segment {}, rebuild it", file, ex);
+            return null;
+        }
+        final int[] recordCount = {0};
+        segment.scan((offset, traceId, payloadLength) -> recordCount[0]++);
+        if (result.getRowCount() == recordCount[0]) {
+            return result;
+        }
+        log.warn("Columnar segment {} has {} rows but its segment has {} records, rebuild it", file, result.getRowCount(), recordCount[0]);
+        return null;
+    }
+    
+    @Override
+    public void onAppend(final Segment segment, final long offset, final TraceRecord record) {
+        builders.computeIfAbsent(segment.getId(), key -> new ColumnarSegmentBuilder()).add(record.getAttributes());
+    }
+    
+    @Override
+    public void onSeal(final Segment segment) {
+        ColumnarSegmentBuilder builder = builders.remove(segment.getId());
+        if (null == builder) {
+            return;
+        }
+        File file = segment.siblingFile(FILE_SUFFIX);
+        try {
+            builder.writeTo(file);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not write columnar segment %s", file), ex);
+        }
+        columnarSegments.put(segment.getId(), ColumnarSegment.open(file));
+    }
+    
+    @Override
+    public void onDrop(final Segment segment) {
+        builders.remove(segment.getId());
+        columnarSegments.remove(segment.getId());
+        File file = segment.siblingFile(FILE_SUFFIX);
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not delete columnar segment %s", file), ex);
+        }
+    }
+    
+    /**
+     * Count the records by the value of the group key, records without the key are not counted.
+     *
+     * @param segments segments ordered by id
+     * @param groupKey attribute key to group by
+     * @param filterKey attribute key to filter by, null means no filter
+     * @param filterValue attribute value which the filter key must equal
+     * @return count of each value
+     */
+    public Map<String, Long> countBy(final Collection<Segment> segments, final String groupKey, final String filterKey, final String filterValue) {
+        Map<String, Long> result = new HashMap<>();
+        for (Segment each : segments) {
+            ColumnarSegment columnarSegment = columnarSegments.get(each.getId());
+            if (null == columnarSegment) {
+                countRows(each, groupKey, filterKey, filterValue, result);
+            } else {
+                countColumns(columnarSegment, groupKey, filterKey, filterValue, result);
+            }
+        }
+        return result;
+    }
+    
+    private static void countRows(final Segment segment, final String groupKey, final String filterKey, final String filterValue, final Map<String, Long> result) {
+        segment.scan((offset, traceId, payloadLength) -> {
+            Map<String, String> attributes = segment.read(offset).getAttributes();
+            String value = attributes.get(groupKey);
+            if (null != value && (null == filterKey || filterValue.equals(attributes.get(filterKey)))) {
+                result.merge(value, 1L, Long::sum);
+            }
+        });
+    }
+    
+    private static void countColumns(final ColumnarSegment segment, final String groupKey, final String filterKey, final String filterValue, final Map<String, Long> result) {
+        Column group = segment.readColumn(groupKey);
+        Column filter = null == filterKey ? null : segment.readColumn(filterKey);
+        if (null == group || null != filterKey && null == filter) {
+            return;
+        }
+        int filterCode = null == filter ? -1 : findCode(filter, filterValue);
+        if (filter instanceof DictionaryColumn && filterCode < 0) {
+            return;
+        }
+        if (!(group instanceof DictionaryColumn)) {
+            for (int row = 0; row < segment.getRowCount(); row++) {
+                if (!group.isNull(row) && matches(filter, filterCode, filterValue, row)) {
+                    result.merge(group.getString(row), 1L, Long::sum);
+                }
+            }
+            return;
+        }
+        DictionaryColumn dictionaryGroup = (DictionaryColumn) group;
+        long[] counts = new long[dictionaryGroup.getDictionarySize()];
+        for (int row = 0; row < segment.getRowCount(); row++) {
+            if (!group.isNull(row) && matches(filter, filterCode, filterValue, row)) {
+                counts[dictionaryGroup.getCode(row)]++;
+            }
+        }
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.merge(dictionaryGroup.lookup(code), counts[code], Long::sum);
+            }
+        }
+    }
+    
+    private static int findCode(final Column column, final String value) {
+        if (!(column instanceof DictionaryColumn)) {
+            return -1;
+        }
+        DictionaryColumn dictionaryColumn = (DictionaryColumn) column;
+        for (int code = 0; code < dictionaryColumn.getDictionarySize(); code++) {
+            if (dictionaryColumn.lookup(code).equals(value)) {
+                return code;
+            }
+        }
+        return -1;
+    }
+    
+    private static boolean matches(final Column filter, final int filterCode, final String filterValue, final int row) {
+        if (null == filter) {
+            return true;
+        }
+        if (filter.isNull(row)) {
+            return false;
+        }
+        return filter instanceof DictionaryColumn ? ((DictionaryColumn) filter).getCode(row) == filterCode : filterValue.equals(filter.getString(row));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.column;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Column of low cardinality values, each row keeps the code of its value in the dictionary.
+ *
+ * <p>Codes are stored in 1, 2 or 4 bytes depending on the dictionary size. Aggregations should work on codes and only
+ * look the dictionary up once per distinct value.</p>
+ *
+ * @author JiekerTime
+ */
+public final class DictionaryColumn extends Column {
+    
+    private final String[] dictionary;
+    
+    private final ByteBuffer codes;
+    
+    private final int codeWidth;
+    
+    private DictionaryColumn(final int rowCount, final long[] nulls, final String[] dictionary, final ByteBuffer codes, final int codeWidth) {
+        super(rowCount, nulls);
+        this.dictionary = dictionary;
+        this.codes = codes;
+        this.codeWidth = codeWidth;
+    }
+    
+    static DictionaryColumn read(final ByteBuffer buffer, final int rowCount, final long[] nulls) {
+        String[] dictionary = new String[buffer.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(buffer);
+        }
+        int codeWidth = codeWidth(dictionary.length);
+        ByteBuffer codes = buffer.slice();
+        codes.limit(rowCount * codeWidth);
+        buffer.position(buffer.position() + rowCount * codeWidth);
+        return new DictionaryColumn(rowCount, nulls, dictionary, codes, codeWidth);
+    }
+    
+    static int codeWidth(final int dictionarySize) {
+        if (dictionarySize <= 1 << Byte.SIZE) {
+            return Byte.BYTES;
+        }
+        return dictionarySize <= 1 << Short.SIZE ? Short.BYTES : Integer.BYTES;
+    }
+    
+    /**
+     * Get the number of distinct values.
+     *
+     * @return dictionary size
+     */
+    public int getDictionarySize() {
+        return dictionary.length;
+    }
+    
+    /**
+     * Get the value of the code.
+     *
+     * @param code code in the dictionary
+     * @return value
+     */
+    public String lookup(final int code) {
+        return dictionary[code];
+    }
+    
+    /**
+     * Get the code of the row, meaningless if the row is null.
+     *
+     * @param row row number
+     * @return code in the dictionary
+     */
+    public int getCode(final int row) {
+        switch (codeWidth) {
+            case Byte.BYTES:
+                return codes.get(row) & 0xFF;
+            case Short.BYTES:
+                return codes.getChar(row << 1);
+            default:
+                return codes.getInt(row << 2);
+        }
+    }
+    
+    @Override
+    public String getString(final int row) {
+        return isNull(row) ? null : dictionary[getCode(row)];
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.column;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Column of high cardinality values, stored as UTF-8 bytes with an end offset per row.
+ *
+ * @author JiekerTime
+ */
+public final class PlainColumn extends Column {
+    
+    private final ByteBuffer ends;
+    
+    private final ByteBuffer data;
+    
+    private PlainColumn(final int rowCount, final long[] nulls, final ByteBuffer ends, final ByteBuffer data) {
+        super(rowCount, nulls);
+        this.ends = ends;
+        this.data = data;
+    }
+    
+    static PlainColumn read(final ByteBuffer buffer, final int rowCount, final long[] nulls) {
+        ByteBuffer ends = buffer.slice();
+        ends.limit(rowCount * Integer.BYTES);
+        buffer.position(buffer.position() + rowCount * Integer.BYTES);
+        int dataLength = 0 == rowCount ? 0 : ends.getInt((rowCount - 1) * Integer.BYTES);
+        ByteBuffer data = buffer.slice();
+        data.limit(dataLength);
+        buffer.position(buffer.position() + dataLength);
+        return new PlainColumn(rowCount, nulls, ends, data);
+    }
+    
+    @Override
+    public String getString(final int row) {
+        if (isNull(row)) {
+            return null;
+        }
+        int start = 0 == row ? 0 : ends.getInt((row - 1) * Integer.BYTES);
+        int end = ends.getInt(row * Integer.BYTES);
+        return new String(data.array(), data.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.segment;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file of trace records.
+ *
+ * <p>Each record is laid out as {@code [int payloadLength][long traceId][payload]}. Only one thread appends to a segment,
+ * reads use positional I/O and are safe from any thread.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class Segment implements Closeable {
+    
+    /**
+     * Size of the record header.
+     */
+    public static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    
+    /**
+     * Suffix of segment files.
+     */
+    public static final String FILE_SUFFIX = ".segment";
+    
+    private static final String ID_FORMAT = "%010d";
+    
+    @Getter
+    private final int id;
+    
+    @Getter
+    private final File file;
+    
+    private final FileChannel channel;
+    
+    private ByteBuffer appendBuffer = ByteBuffer.allocate(4096);
+    
+    private volatile long size;
+    
+    @Getter
+    private volatile boolean sealed;
+    
+    private Segment(final int id, final File file, final FileChannel channel, final long size) {
+        this.id = id;
+        this.file = file;
+        this.channel = channel;
+        this.size = size;
+    }
+    
+    /**
+     * Create an empty segment.
+     *
+     * @param directory data directory
+     * @param id segment id
+     * @return segment
+     * @throws GalaxyTracingException I/O exception
+     */
+    public static Segment create(final File directory, final int id) throws GalaxyTracingException {
+        File file = new File(directory, String.format(ID_FORMAT, id) + FILE_SUFFIX);
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(id, file, channel, 0L);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not create segment %s", file), ex);
+        }
+    }
+    
+    /**
+     * Open an existing segment, a torn record at the tail is truncated.
+     *
+     * @param file segment file
+     * @return segment
+     * @throws GalaxyTracingException I/O exception
+     */
+    public static Segment open(final File file) throws GalaxyTracingException {
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment result = new Segment(parseId(file.getName()), file, channel, channel.size());
+            result.recover();
+            return result;
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not open segment %s", file), ex);
+        }
+    }
+    
+    /**
+     * Judge whether the file name is a segment.
+     *
+     * @param fileName file name
+     * @return is segment or not
+     */
+    public static boolean isSegmentFile(final String fileName) {
+        return fileName.endsWith(FILE_SUFFIX);
+    }
+    
+    /**
+     * Parse segment id from the file name.
+     *
+     * @param fileName file name
+     * @return segment id
+     */
+    public static int parseId(final String fileName) {
+        return Integer.parseInt(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+    }
+    
+    /**
+     * Get the file which belongs to this segment, such as an index file.
+     *
+     * @param suffix suffix of the file
+     * @return file next to the segment
+     */
+    public File siblingFile(final String suffix) {
+        return new File(file.getParentFile(), String.format(ID_FORMAT, id) + suffix);
+    }
+    
+    private void recover() throws IOException {
+        final long[] validSize = {0L};
+        scan((offset, traceId, payloadLength) -> validSize[0] = offset + HEADER_SIZE + payloadLength);
+        if (validSize[0] < size) {
+            log.warn("Segment {} has a torn tail, truncate from {} to {}", file, size, validSize[0]);
+            channel.truncate(validSize[0]);
+            size = validSize[0];
+        }
+    }
+    
+    /**
+     * Append a record, only the writer thread calls it.
+     *
+     * <p>The record is written from a buffer which is reused by the next append.</p>
+     *
+     * @param traceId traceId
+     * @param payload payload
+     * @return offset of the record
+     * @throws GalaxyTracingException I/O exception or segment is sealed
+     */
+    public long append(final long traceId, final byte[] payload) throws GalaxyTracingException {
+        if (sealed) {
+            throw new GalaxyTracingException("Segment %s is sealed", file);
+        }
+        long result = size;
+        if (appendBuffer.capacity() < HEADER_SIZE + payload.length) {
+            appendBuffer = ByteBuffer.allocate(Integer.highestOneBit(HEADER_SIZE + payload.length - 1) << 1);
+        }
+        ByteBuffer buffer = appendBuffer;
+        buffer.clear();
+        buffer.putInt(payload.length).putLong(traceId).put(payload).flip();
+        try {
+            long position = result;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not append to segment %s", file), ex);
+        }
+        size = result + buffer.limit();
+        return result;
+    }
+    
+    /**
+     * Read the record at the offset.
+     *
+     * @param offset offset of the record
+     * @return trace record
+     * @throws GalaxyTracingException I/O exception
+     */
+    public TraceRecord read(final long offset) throws GalaxyTracingException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, offset);
+        int payloadLength = header.getInt(0);
+        long traceId = header.getLong(Integer.BYTES);
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        readFully(payload, offset + HEADER_SIZE);
+        return TraceRecordCodec.decode(traceId, payload.array());
+    }
+    
+    /**
+     * Read a range of the segment, which holds whole records.
+     *
+     * @param offset start offset
+     * @param length length in bytes
+     * @return buffer ready to get from
+     * @throws GalaxyTracingException I/O exception
+     */
+    public ByteBuffer read(final long offset, final int length) throws GalaxyTracingException {
+        ByteBuffer result = ByteBuffer.allocate(length);
+        readFully(result, offset);
+        result.flip();
+        return result;
+    }
+    
+    private void readFully(final ByteBuffer buffer, final long offset) {
+        try {
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new GalaxyTracingException("Unexpected end of segment %s at %d", file, position);
+                }
+                position += read;
+            }
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not read segment %s", file), ex);
+        }
+    }
+    
+    /**
+     * Scan the record headers without reading payloads.
+     *
+     * @param visitor segment visitor
+     * @throws GalaxyTracingException I/O exception
+     */
+    public void scan(final SegmentVisitor visitor) throws GalaxyTracingException {
+        long limit = size;
+        if (0L == limit) {
+            return;
+        }
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, limit);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not map segment %s", file), ex);
+        }
+        int offset = 0;
+        while (offset + HEADER_SIZE <= limit) {
+            int payloadLength = buffer.getInt(offset);
+            if (payloadLength < 0 || offset + HEADER_SIZE + (long) payloadLength > limit) {
+                return;
+            }
+            visitor.visit(offset, buffer.getLong(offset + Integer.BYTES), payloadLength);
+            offset += HEADER_SIZE + payloadLength;
+        }
+    }
+    
+    /**
+     * Flush the appended records to disk.
+     *
+     * @throws GalaxyTracingException I/O exception
+     */
+    public void flush() throws GalaxyTracingException {
+        try {
+            channel.force(false);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not flush segment %s", file), ex);
+        }
+    }
+    
+    /**
+     * Flush the segment to disk and reject further appends.
+     *
+     * @throws GalaxyTracingException I/O exception
+     */
+    public void seal() throws GalaxyTracingException {
+        try {
+            channel.force(true);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not seal segment %s", file), ex);
+        }
+        sealed = true;
+    }
+    
+    /**
+     * Get the size of the segment.
+     *
+     * @return size in bytes
+     */
+    public long size() {
+        return size;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.segment;
+
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+
+/**
+ * Visitor of the records which an index reads from a segment.
+ *
+ * @author JiekerTime
+ */
+public interface SegmentRecordVisitor {
+    
+    /**
+     * Visit a record.
+     *
+     * @param segment segment holding the record
+     * @param offset offset of the record in the segment
+     * @param record trace record
+     * @return continue the query or not
+     */
+    boolean visit(Segment segment, long offset, TraceRecord record);
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.wal;
+
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+
+/**
+ * Listener of the traces applied from the write-ahead log.
+ *
+ * <p>Listeners are called from the applier thread right after the trace store. After a restart the log is applied
+ * again from the last checkpoint, listeners keeping durable state can skip the positions they already saw. The
+ * checkpoint never passes {@link #getDurableLsn()}, so the log a listener has not persisted yet survives a crash.</p>
+ *
+ * @author JiekerTime
+ */
+public interface WalApplyListener {
+    
+    /**
+     * Called once the log is recovered, before any trace is applied.
+     *
+     * @param committedLsn log sequence number up to which the log is committed
+     */
+    default void onOpen(final long committedLsn) {
+    }
+    
+    /**
+     * Called once a trace is applied.
+     *
+     * @param nextLsn log sequence number right after the trace
+     * @param record trace record
+     */
+    void onApply(long nextLsn, TraceRecord record);
+    
+    /**
+     * Get the log sequence number up to which the applied traces are persisted by the listener, called from the applier
+     * thread before each checkpoint.
+     *
+     * @return durable log sequence number, {@link Long#MAX_VALUE} for a listener without durable state
+     */
+    default long getDurableLsn() {
+        return Long.MAX_VALUE;
+    }
+}
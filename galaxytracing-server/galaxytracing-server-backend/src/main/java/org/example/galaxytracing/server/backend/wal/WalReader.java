@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.wal;
+
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sequential reader of the committed part of the write-ahead log.
+ *
+ * <p>Records are read through a buffer of {@link #BUFFER_SIZE} bytes, which is refilled with one positional read
+ * whenever the next record is not fully inside it.</p>
+ *
+ * @author JiekerTime
+ */
+final class WalReader implements Closeable {
+    
+    private static final int BUFFER_SIZE = 256 * 1024;
+    
+    private final ConcurrentSkipListMap<Long, File> files;
+    
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    
+    private long bufferLsn;
+    
+    private long fileBaseLsn = -1L;
+    
+    private FileChannel channel;
+    
+    WalReader(final ConcurrentSkipListMap<Long, File> files) {
+        this.files = files;
+        buffer.limit(0);
+    }
+    
+    /**
+     * Visit the records in the range.
+     *
+     * @param fromLsn log sequence number of the first record
+     * @param toLsn committed log sequence number, exclusive
+     * @param visitor record visitor
+     * @throws GalaxyTracingException I/O exception or the log is corrupted
+     */
+    void read(final long fromLsn, final long toLsn, final WalVisitor visitor) throws GalaxyTracingException {
+        long lsn = fromLsn;
+        while (lsn < toLsn) {
+            locate(lsn);
+            ensureBuffered(lsn, WriteAheadLog.HEADER_SIZE, toLsn);
+            int payloadLength = buffer.getInt((int) (lsn - bufferLsn));
+            int recordSize = WriteAheadLog.HEADER_SIZE + payloadLength;
+            if (payloadLength < 0 || lsn + recordSize > toLsn) {
+                throw new GalaxyTracingException("Write-ahead log is corrupted at %d", lsn);
+            }
+            ensureBuffered(lsn, recordSize, toLsn);
+            int position = (int) (lsn - bufferLsn);
+            byte[] payload = new byte[payloadLength];
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position(position + WriteAheadLog.HEADER_SIZE);
+            duplicate.get(payload);
+            long traceId = buffer.getLong(position + Integer.BYTES * 2);
+            lsn += recordSize;
+            visitor.visit(lsn, traceId, payload);
+        }
+    }
+    
+    private void locate(final long lsn) {
+        Map.Entry<Long, File> entry = files.floorEntry(lsn);
+        if (null == entry) {
+            throw new GalaxyTracingException("Write-ahead log at %d is missing", lsn);
+        }
+        if (entry.getKey() == fileBaseLsn) {
+            return;
+        }
+        closeChannel();
+        try {
+            channel = FileChannel.open(entry.getValue().toPath(), StandardOpenOption.READ);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not open write-ahead log %s", entry.getValue()), ex);
+        }
+        fileBaseLsn = entry.getKey();
+        buffer.limit(0);
+    }
+    
+    private void ensureBuffered(final long lsn, final int length, final long toLsn) {
+        if (lsn >= bufferLsn && lsn + length <= bufferLsn + buffer.limit()) {
+            return;
+        }
+        if (length > buffer.capacity()) {
+            buffer = ByteBuffer.allocate(length);
+        }
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), toLsn - lsn));
+        bufferLsn = lsn;
+        try {
+            long position = lsn - fileBaseLsn;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not read write-ahead log at %d", lsn), ex);
+        }
+        buffer.flip();
+        if (buffer.limit() < length) {
+            throw new GalaxyTracingException("Unexpected end of write-ahead log at %d", lsn);
+        }
+    }
+    
+    private void closeChannel() {
+        if (null == channel) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new GalaxyTracingException("Can not close write-ahead log", ex);
+        }
+        channel = null;
+    }
+    
+    @Override
+    public void close() {
+        closeChannel();
+        fileBaseLsn = -1L;
+    }
+}
@@ -0,0 +1,524 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.wal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.thread.ExecutorThreadFactoryBuilder;
+import org.example.galaxytracing.infra.config.entity.server.StorageConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.TraceStore;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log between ingestion and the trace store.
+ *
+ * <p>{@link #append(TraceRecord)} completes once the trace is fsynced to the log, so the agent is acknowledged without
+ * waiting for the store and its indexes. A single writer thread commits the waiting traces in groups: one write and
+ * one fsync for up to {@code walGroupCommitBytes}, or whatever arrived within {@code walGroupCommitMillis} of the
+ * first trace of the group.</p>
+ *
+ * <p>An applier thread tails the committed log and appends the traces to the store. Every
+ * {@code walCheckpointIntervalMillis} it flushes the store, persists the applied position and deletes the log files
+ * before it. The checkpoint is held back to the lowest {@link WalApplyListener#getDurableLsn()}, so the log not yet
+ * persisted by a listener is kept. On {@link #open()} the log from the last checkpoint on is applied again, so a crash loses no acknowledged
+ * trace; traces applied twice overwrite themselves in the store. Applied traces are then passed to the
+ * {@link WalApplyListener}s. If the store fails, the applier retries from the failed trace with an exponential
+ * backoff of up to 10 seconds, the committed log keeps the traces meanwhile.</p>
+ *
+ * <p>Each record is laid out as {@code [int payloadLength][int crc32][long traceId][payload]}. Log sequence numbers
+ * are byte positions over all log files, each file is named after the sequence number it starts at.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class WriteAheadLog implements Closeable {
+    
+    /**
+     * Size of the record header.
+     */
+    static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES;
+    
+    private static final String WAL_DIRECTORY = "wal";
+    
+    private static final String FILE_SUFFIX = ".wal";
+    
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    
+    private static final long IDLE_WAIT_MILLIS = 100L;
+    
+    private static final long MAX_RETRY_MILLIS = 10000L;
+    
+    private final File directory;
+    
+    private final TraceStore store;
+    
+    private final List<WalApplyListener> listeners = new CopyOnWriteArrayList<>();
+    
+    private final StorageConfig config;
+    
+    private final BlockingQueue<PendingAppend> pendingAppends;
+    
+    private final ConcurrentSkipListMap<Long, File> files = new ConcurrentSkipListMap<>();
+    
+    private final Object commitSignal = new Object();
+    
+    private final ExecutorService writerExecutor = Executors.newSingleThreadExecutor(ExecutorThreadFactoryBuilder.build("WAL-Writer-%d"));
+    
+    private final ExecutorService applierExecutor = Executors.newSingleThreadExecutor(ExecutorThreadFactoryBuilder.build("WAL-Applier-%d"));
+    
+    private final WalReader reader = new WalReader(files);
+    
+    private FileChannel writeChannel;
+    
+    private long writeFileBaseLsn;
+    
+    private volatile long committedLsn;
+    
+    private volatile long appliedLsn;
+    
+    private long checkpointLsn;
+    
+    private volatile boolean closed;
+    
+    private volatile boolean writerStopped;
+    
+    public WriteAheadLog(final StorageConfig config, final TraceStore store) {
+        directory = new File(config.getDataDir(), WAL_DIRECTORY);
+        this.store = store;
+        this.config = config;
+        pendingAppends = new ArrayBlockingQueue<>(config.getWalQueueCapacity());
+    }
+    
+    /**
+     * Add a listener of the applied traces, must be called before {@link #open()}.
+     *
+     * @param listener listener
+     */
+    public void addListener(final WalApplyListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Recover the log, then start committing new traces and applying the log from the last checkpoint on.
+     *
+     * @throws GalaxyTracingException I/O exception
+     */
+    public synchronized void open() throws GalaxyTracingException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new GalaxyTracingException("Can not create write-ahead log directory %s", directory);
+        }
+        File[] logFiles = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        for (File each : null == logFiles ? new File[0] : logFiles) {
+            files.put(Long.parseLong(each.getName().substring(0, each.getName().length() - FILE_SUFFIX.length())), each);
+        }
+        checkpointLsn = readCheckpoint();
+        try {
+            if (files.isEmpty()) {
+                committedLsn = checkpointLsn;
+                createWriteFile(checkpointLsn);
+            } else {
+                Map.Entry<Long, File> last = files.lastEntry();
+                writeChannel = FileChannel.open(last.getValue().toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                writeFileBaseLsn = last.getKey();
+                committedLsn = writeFileBaseLsn + recover(writeChannel, last.getValue());
+            }
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not open write-ahead log in %s", directory), ex);
+        }
+        appliedLsn = Math.min(Math.max(checkpointLsn, files.firstKey()), committedLsn);
+        log.info("Write-ahead log opened, {} bytes to apply from {}", committedLsn - appliedLsn, appliedLsn);
+        for (WalApplyListener each : listeners) {
+            each.onOpen(committedLsn);
+        }
+        writerExecutor.execute(this::runWriter);
+        applierExecutor.execute(this::runApplier);
+    }
+    
+    private long readCheckpoint() throws GalaxyTracingException {
+        File file = new File(directory, CHECKPOINT_FILE);
+        if (!file.isFile()) {
+            return 0L;
+        }
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            return input.readLong();
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not read checkpoint %s", file), ex);
+        }
+    }
+    
+    private static long recover(final FileChannel channel, final File file) throws IOException {
+        long size = channel.size();
+        long validSize = 0L;
+        if (size > 0L) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+            while (validSize + HEADER_SIZE <= size) {
+                int payloadLength = buffer.getInt((int) validSize);
+                if (payloadLength < 0 || validSize + HEADER_SIZE + payloadLength > size) {
+                    break;
+                }
+                ByteBuffer body = buffer.duplicate();
+                body.position((int) validSize + Integer.BYTES * 2);
+                body.limit((int) validSize + HEADER_SIZE + payloadLength);
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if ((int) crc.getValue() != buffer.getInt((int) validSize + Integer.BYTES)) {
+                    break;
+                }
+                validSize += HEADER_SIZE + payloadLength;
+            }
+        }
+        if (validSize < size) {
+            log.warn("Write-ahead log {} has a torn tail, truncate from {} to {}", file, size, validSize);
+            channel.truncate(validSize);
+            channel.force(true);
+        }
+        return validSize;
+    }
+    
+    private void createWriteFile(final long baseLsn) throws IOException {
+        File file = new File(directory, String.format("%020d", baseLsn) + FILE_SUFFIX);
+        writeChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeFileBaseLsn = baseLsn;
+        files.put(baseLsn, file);
+    }
+    
+    /**
+     * Append a trace, blocks while too many traces are waiting for the log.
+     *
+     * @param record trace record
+     * @return future completed once the trace is durable in the log
+     */
+    public CompletableFuture<Void> append(final TraceRecord record) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        if (closed) {
+            result.completeExceptionally(new GalaxyTracingException("Write-ahead log is closed"));
+            return result;
+        }
+        try {
+            pendingAppends.put(new PendingAppend(record.getTraceId(), TraceRecordCodec.encode(record.getAttributes()), result));
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+    
+    /**
+     * Get the log sequence number up to which traces are durable.
+     *
+     * @return committed log sequence number
+     */
+    public long getCommittedLsn() {
+        return committedLsn;
+    }
+    
+    /**
+     * Get the log sequence number up to which traces are appended to the store.
+     *
+     * @return applied log sequence number
+     */
+    public long getAppliedLsn() {
+        return appliedLsn;
+    }
+    
+    /**
+     * Get the number of traces waiting to be committed.
+     *
+     * @return pending appends
+     */
+    public int getPendingAppends() {
+        return pendingAppends.size();
+    }
+    
+    private void runWriter() {
+        List<PendingAppend> group = new ArrayList<>();
+        long groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(config.getWalGroupCommitMillis());
+        try {
+            while (!closed || !pendingAppends.isEmpty()) {
+                PendingAppend first = pendingAppends.poll(IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (null == first) {
+                    continue;
+                }
+                group.add(first);
+                int groupBytes = first.size();
+                long deadline = System.nanoTime() + groupCommitNanos;
+                while (groupBytes < config.getWalGroupCommitBytes()) {
+                    PendingAppend next = pendingAppends.poll();
+                    if (null == next) {
+                        long remaining = deadline - System.nanoTime();
+                        next = remaining > 0L ? pendingAppends.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (null == next) {
+                            break;
+                        }
+                    }
+                    group.add(next);
+                    groupBytes += next.size();
+                }
+                commit(group, groupBytes);
+                group.clear();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            failPendingAppends(group);
+            writerStopped = true;
+            signalCommit();
+        }
+    }
+    
+    private void commit(final List<PendingAppend> group, final int groupBytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(groupBytes);
+        for (PendingAppend each : group) {
+            buffer.putInt(each.payload.length).putInt(each.crc).putLong(each.traceId).put(each.payload);
+        }
+        buffer.flip();
+        try {
+            long fileSize = committedLsn - writeFileBaseLsn;
+            if (fileSize > 0L && fileSize + groupBytes > config.getWalFileSize()) {
+                writeChannel.close();
+                createWriteFile(committedLsn);
+                fileSize = 0L;
+            }
+            long position = fileSize;
+            while (buffer.hasRemaining()) {
+                position += writeChannel.write(buffer, position);
+            }
+            writeChannel.force(false);
+        } catch (IOException ex) {
+            GalaxyTracingException cause = new GalaxyTracingException("Can not commit the write-ahead log", ex);
+            log.error("Can not commit {} traces", group.size(), cause);
+            for (PendingAppend each : group) {
+                each.future.completeExceptionally(cause);
+            }
+            return;
+        }
+        committedLsn += groupBytes;
+        signalCommit();
+        for (PendingAppend each : group) {
+            each.future.complete(null);
+        }
+    }
+    
+    private void failPendingAppends(final List<PendingAppend> group) {
+        pendingAppends.drainTo(group);
+        GalaxyTracingException cause = new GalaxyTracingException("Write-ahead log is closed");
+        for (PendingAppend each : group) {
+            each.future.completeExceptionally(cause);
+        }
+    }
+    
+    private void signalCommit() {
+        synchronized (commitSignal) {
+            commitSignal.notifyAll();
+        }
+    }
+    
+    private void runApplier() {
+        long checkpointIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getWalCheckpointIntervalMillis());
+        long lastCheckpointNanos = System.nanoTime();
+        long retryMillis = IDLE_WAIT_MILLIS;
+        while (true) {
+            long committed = committedLsn;
+            if (appliedLsn < committed) {
+                try {
+                    reader.read(appliedLsn, committed, this::apply);
+                    retryMillis = IDLE_WAIT_MILLIS;
+                } catch (GalaxyTracingException ex) {
+                    log.error("Can not apply the write-ahead log at {}, retry in {} ms", appliedLsn, retryMillis, ex);
+                    if (writerStopped || !backOff(retryMillis)) {
+                        return;
+                    }
+                    retryMillis = Math.min(retryMillis << 1, MAX_RETRY_MILLIS);
+                }
+            } else if (writerStopped && appliedLsn == committedLsn) {
+                break;
+            } else if (!awaitCommit()) {
+                return;
+            }
+            if (System.nanoTime() - lastCheckpointNanos >= checkpointIntervalNanos) {
+                checkpoint();
+                lastCheckpointNanos = System.nanoTime();
+            }
+        }
+        checkpoint();
+    }
+    
+    private void apply(final long nextLsn, final long traceId, final byte[] payload) {
+        TraceRecord record = TraceRecordCodec.decode(traceId, payload);
+        store.append(record);
+        for (WalApplyListener each : listeners) {
+            each.onApply(nextLsn, record);
+        }
+        appliedLsn = nextLsn;
+    }
+    
+    private static boolean backOff(final long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private boolean awaitCommit() {
+        synchronized (commitSignal) {
+            try {
+                if (appliedLsn == committedLsn && !writerStopped) {
+                    commitSignal.wait(IDLE_WAIT_MILLIS);
+                }
+                return true;
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+    
+    private void checkpoint() {
+        long lsn = appliedLsn;
+        for (WalApplyListener each : listeners) {
+            lsn = Math.min(lsn, each.getDurableLsn());
+        }
+        if (lsn <= checkpointLsn) {
+            return;
+        }
+        try {
+            store.flush();
+            writeCheckpoint(lsn);
+        } catch (GalaxyTracingException ex) {
+            log.error("Can not checkpoint the write-ahead log at {}", lsn, ex);
+            return;
+        }
+        checkpointLsn = lsn;
+        Iterator<Map.Entry<Long, File>> iterator = files.entrySet().iterator();
+        Map.Entry<Long, File> current = iterator.next();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, File> next = iterator.next();
+            if (next.getKey() > lsn) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(current.getValue().toPath());
+            } catch (IOException ex) {
+                log.warn("Can not delete write-ahead log {}", current.getValue(), ex);
+                return;
+            }
+            files.remove(current.getKey());
+            current = next;
+        }
+    }
+    
+    private void writeCheckpoint(final long lsn) throws GalaxyTracingException {
+        File file = new File(directory, CHECKPOINT_FILE);
+        File temporaryFile = new File(directory, CHECKPOINT_FILE + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temporaryFile)) {
+            new DataOutputStream(output).writeLong(lsn);
+            output.getFD().sync();
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not write checkpoint %s", temporaryFile), ex);
+        }
+        try {
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not write checkpoint %s", file), ex);
+        }
+    }
+    
+    /**
+     * Commit the waiting traces, apply the whole log to the store and checkpoint it.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        awaitTermination(writerExecutor, "writer");
+        awaitTermination(applierExecutor, "applier");
+        synchronized (this) {
+            reader.close();
+            if (null != writeChannel) {
+                writeChannel.close();
+            }
+        }
+    }
+    
+    private static void awaitTermination(final ExecutorService executor, final String name) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.warn("Write-ahead log {} does not stop in 60 seconds", name);
+                executor.shutdownNow();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static final class PendingAppend {
+        
+        private final long traceId;
+        
+        private final byte[] payload;
+        
+        private final int crc;
+        
+        private final CompletableFuture<Void> future;
+        
+        PendingAppend(final long traceId, final byte[] payload, final CompletableFuture<Void> future) {
+            this.traceId = traceId;
+            this.payload = payload;
+            this.future = future;
+            CRC32 checksum = new CRC32();
+            checksum.update(ByteBuffer.allocate(Long.BYTES).putLong(0, traceId));
+            checksum.update(payload);
+            crc = (int) checksum.getValue();
+        }
+        
+        int size() {
+            return HEADER_SIZE + payload.length;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.aggregation;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class CounterRingTest {
+    
+    private static final long WIDTH = Resolution.SECOND.getWidthMillis();
+    
+    private final CounterRing ring = new CounterRing(Resolution.SECOND, 4);
+    
+    @Test
+    public void assertCountInBucket() {
+        CounterRing.Slot slot = ring.prepare(2500L, 2);
+        slot.increment(0, false);
+        slot.increment(0, true);
+        slot.increment(1, false);
+        long[] totals = new long[4];
+        assertTrue(ring.sumInto(2L, totals));
+        assertThat(totals, is(new long[]{2L, 1L, 1L, 0L}));
+        assertFalse(ring.sumInto(1L, new long[4]));
+    }
+    
+    @Test
+    public void assertRolloverClearsReusedSlot() {
+        ring.prepare(0L, 1).increment(0, true);
+        CounterRing.Slot reused = ring.prepare(4 * WIDTH, 1);
+        reused.increment(0, false);
+        assertFalse(ring.sumInto(0L, new long[2]));
+        long[] totals = new long[2];
+        assertTrue(ring.sumInto(4L, totals));
+        assertThat(totals, is(new long[]{1L, 0L}));
+    }
+    
+    @Test
+    public void assertKeepBucketsWithinRing() {
+        for (long bucket = 0L; bucket < 6L; bucket++) {
+            ring.prepare(bucket * WIDTH, 1).increment(0, false);
+        }
+        assertFalse(ring.sumInto(1L, new long[2]));
+        for (long bucket = 2L; bucket < 6L; bucket++) {
+            long[] totals = new long[2];
+            assertTrue(ring.sumInto(bucket, totals));
+            assertThat(totals[0], is(1L));
+        }
+    }
+    
+    @Test
+    public void assertDropBucketOutOfRing() {
+        ring.prepare(10 * WIDTH, 1);
+        assertThat(ring.prepare(6 * WIDTH, 1), nullValue());
+        assertThat(ring.prepare(7 * WIDTH + WIDTH - 1, 1), notNullValue());
+    }
+    
+    @Test
+    public void assertLateTraceInRingDoesNotMoveLatestBucket() {
+        ring.prepare(10 * WIDTH, 1);
+        ring.prepare(8 * WIDTH, 1).increment(0, false);
+        assertThat(ring.prepare(7 * WIDTH, 1), notNullValue());
+        long[] totals = new long[2];
+        assertTrue(ring.sumInto(8L, totals));
+        assertThat(totals[0], is(1L));
+    }
+    
+    @Test
+    public void assertGrowCountersKeepsCounts() {
+        ring.prepare(0L, 1).increment(0, true);
+        ring.prepare(0L, 3).increment(2, false);
+        long[] totals = new long[6];
+        assertTrue(ring.sumInto(0L, totals));
+        assertThat(totals, is(new long[]{1L, 1L, 0L, 0L, 1L, 0L}));
+    }
+    
+    @Test
+    public void assertBucketOfNegativeTimestamp() {
+        assertThat(ring.toBucket(-1L), is(-1L));
+        ring.prepare(-1L, 1).increment(0, false);
+        long[] totals = new long[2];
+        assertTrue(ring.sumInto(-1L, totals));
+        assertThat(totals[0], is(1L));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.aggregation;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.infra.config.entity.server.AggregationConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class TraceAggregatorTest {
+    
+    private final TraceAggregator aggregator = new TraceAggregator(createConfig());
+    
+    @Test
+    public void assertSlidingWindowCountsRecentTraces() {
+        long now = System.currentTimeMillis();
+        aggregator.accept(createRecord(now, "order", true));
+        aggregator.accept(createRecord(now, "order", false));
+        aggregator.accept(createRecord(now, "user", false));
+        List<AggregatedCount> actual = aggregator.getSlidingWindow("service", TimeUnit.SECONDS.toMillis(10L));
+        assertThat(actual.size(), is(2));
+        assertCount(actual.get(0), "order", 2L, 1L);
+        assertCount(actual.get(1), "user", 1L, 0L);
+    }
+    
+    @Test
+    public void assertSlidingWindowExcludesOlderBuckets() {
+        long now = System.currentTimeMillis();
+        aggregator.accept(createRecord(now - TimeUnit.SECONDS.toMillis(30L), "order", false));
+        aggregator.accept(createRecord(now, "user", false));
+        List<AggregatedCount> recent = aggregator.getSlidingWindow("service", TimeUnit.SECONDS.toMillis(10L));
+        assertThat(recent.size(), is(1));
+        assertCount(recent.get(0), "user", 1L, 0L);
+        assertThat(aggregator.getSlidingWindow("service", TimeUnit.SECONDS.toMillis(60L)).size(), is(2));
+    }
+    
+    @Test
+    public void assertSlidingWindowBeyondSecondsUsesMinuteBuckets() {
+        long now = System.currentTimeMillis();
+        aggregator.accept(createRecord(now - TimeUnit.MINUTES.toMillis(3L), "order", true));
+        assertThat(aggregator.getSlidingWindow("service", TimeUnit.SECONDS.toMillis(60L)).size(), is(0));
+        List<AggregatedCount> actual = aggregator.getSlidingWindow("service", TimeUnit.MINUTES.toMillis(5L));
+        assertThat(actual.size(), is(1));
+        assertCount(actual.get(0), "order", 1L, 1L);
+    }
+    
+    @Test
+    public void assertTraceOutOfSecondRingIsDroppedFromItOnly() {
+        long now = System.currentTimeMillis();
+        aggregator.accept(createRecord(now, "user", false));
+        aggregator.accept(createRecord(now - TimeUnit.MINUTES.toMillis(10L), "order", false));
+        assertThat(aggregator.getDroppedCount(), is(1L));
+        assertThat(aggregator.getSlidingWindow("service", TimeUnit.MINUTES.toMillis(30L)).size(), is(2));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void assertRejectWindowBeyondRings() {
+        aggregator.getSlidingWindow("service", TimeUnit.DAYS.toMillis(30L));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void assertRejectKeyNotAggregated() {
+        aggregator.getSlidingWindow("region", TimeUnit.SECONDS.toMillis(10L));
+    }
+    
+    @Test
+    public void assertBucketsNewestFirst() {
+        long now = System.currentTimeMillis();
+        aggregator.accept(createRecord(now - TimeUnit.MINUTES.toMillis(2L), "order", false));
+        aggregator.accept(createRecord(now, "user", false));
+        List<AggregatedBucket> actual = aggregator.getBuckets("service", Resolution.MINUTE, 5);
+        assertThat(actual.size(), is(2));
+        assertTrue(actual.get(0).getStartMillis() > actual.get(1).getStartMillis());
+        assertCount(actual.get(0).getCounts().get(0), "user", 1L, 0L);
+        assertCount(actual.get(1).getCounts().get(0), "order", 1L, 0L);
+    }
+    
+    private static void assertCount(final AggregatedCount actual, final String value, final long count, final long errorCount) {
+        assertThat(actual.getValue(), is(value));
+        assertThat(actual.getCount(), is(count));
+        assertThat(actual.getErrorCount(), is(errorCount));
+    }
+    
+    private static TraceRecord createRecord(final long timestamp, final String service, final boolean error) {
+        Map<String, String> attributes = new HashMap<>(4, 1);
+        attributes.put("service", service);
+        attributes.put("error", String.valueOf(error));
+        return new TraceRecord(SnowflakeIdParser.getMinId(timestamp), attributes);
+    }
+    
+    private static AggregationConfig createConfig() {
+        AggregationConfig result = new AggregationConfig();
+        result.setKeys(Arrays.asList("service"));
+        result.setSecondBuckets(120);
+        return result;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.cache;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class FrequencySketchTest {
+    
+    @Test
+    public void assertIncrement() {
+        FrequencySketch sketch = new FrequencySketch(1024L);
+        assertThat(sketch.frequency("foo".hashCode()), is(0));
+        sketch.increment("foo".hashCode());
+        sketch.increment("foo".hashCode());
+        sketch.increment("foo".hashCode());
+        assertThat(sketch.frequency("foo".hashCode()), is(3));
+    }
+    
+    @Test
+    public void assertCapFrequency() {
+        FrequencySketch sketch = new FrequencySketch(1024L);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("foo".hashCode());
+        }
+        assertThat(sketch.frequency("foo".hashCode()), is(15));
+    }
+    
+    @Test
+    public void assertHalveAfterSampleSize() {
+        FrequencySketch sketch = new FrequencySketch(16L);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(-1);
+        }
+        assertThat(sketch.frequency(-1), is(10));
+        for (int i = 0; i < 150; i++) {
+            sketch.increment(i);
+        }
+        assertTrue(sketch.frequency(-1) <= 7);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.cache;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class WeightedCacheTest {
+    
+    @Test
+    public void assertGetAndPut() {
+        WeightedCache<String, String> cache = new WeightedCache<>(100L, 16L, 60000L, String::length);
+        cache.put("foo", "bar");
+        assertThat(cache.get("foo"), is("bar"));
+        assertThat(cache.get("baz"), is(nullValue()));
+        CacheStats stats = cache.stats();
+        assertThat(stats.getHitCount(), is(1L));
+        assertThat(stats.getMissCount(), is(1L));
+        assertThat(stats.getEntryCount(), is(1L));
+        assertThat(stats.getWeightedSize(), is(3L));
+    }
+    
+    @Test
+    public void assertReplaceValue() {
+        WeightedCache<String, String> cache = new WeightedCache<>(100L, 16L, 60000L, String::length);
+        cache.put("foo", "bar");
+        cache.put("foo", "value");
+        assertThat(cache.get("foo"), is("value"));
+        assertThat(cache.stats().getEntryCount(), is(1L));
+        assertThat(cache.stats().getWeightedSize(), is(5L));
+    }
+    
+    @Test
+    public void assertBoundTotalWeight() {
+        WeightedCache<Integer, String> cache = new WeightedCache<>(1000L, 128L, 60000L, String::length);
+        for (int i = 0; i < 500; i++) {
+            cache.put(i, "0123456789");
+            assertTrue(cache.stats().getWeightedSize() <= 1000L);
+        }
+        assertTrue(cache.stats().getEvictionCount() > 0L);
+    }
+    
+    @Test
+    public void assertIgnoreValueHeavierThanCache() {
+        WeightedCache<String, String> cache = new WeightedCache<>(4L, 16L, 60000L, String::length);
+        cache.put("foo", "heavy");
+        assertThat(cache.get("foo"), is(nullValue()));
+        assertThat(cache.stats().getWeightedSize(), is(0L));
+    }
+    
+    @Test
+    public void assertResistScan() {
+        WeightedCache<Integer, String> cache = new WeightedCache<>(1000L, 1000L, 60000L, value -> 1);
+        for (int i = 0; i < 900; i++) {
+            cache.put(i, "hot");
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 900; i++) {
+                cache.get(i);
+            }
+        }
+        for (int i = 900; i < 10900; i++) {
+            cache.put(i, "scan");
+        }
+        int retained = 0;
+        for (int i = 0; i < 900; i++) {
+            retained += null == cache.get(i) ? 0 : 1;
+        }
+        assertTrue(retained > 850);
+    }
+    
+    @Test
+    public void assertRejectCandidateHotterVictimWouldMakeRoomFor() {
+        WeightedCache<String, String> cache = new WeightedCache<>(100L, 16L, 60000L, String::length);
+        cache.put("cold", repeat('c', 40));
+        cache.put("hot", repeat('h', 40));
+        for (int i = 0; i < 5; i++) {
+            cache.get("hot");
+        }
+        cache.get("candidate");
+        cache.get("candidate");
+        cache.put("candidate", repeat('x', 60));
+        assertThat(cache.get("candidate"), is(nullValue()));
+        assertThat(cache.get("cold"), is(repeat('c', 40)));
+        assertThat(cache.get("hot"), is(repeat('h', 40)));
+    }
+    
+    @Test
+    public void assertAdmitCandidateHotterThanAllVictims() {
+        WeightedCache<String, String> cache = new WeightedCache<>(100L, 16L, 60000L, String::length);
+        cache.put("cold", repeat('c', 40));
+        cache.put("warm", repeat('w', 40));
+        for (int i = 0; i < 5; i++) {
+            cache.get("candidate");
+        }
+        cache.put("candidate", repeat('x', 60));
+        assertThat(cache.get("candidate"), is(repeat('x', 60)));
+        assertThat(cache.get("cold"), is(nullValue()));
+        assertThat(cache.get("warm"), is(nullValue()));
+        assertThat(cache.stats().getEvictionCount(), is(2L));
+    }
+    
+    @Test
+    public void assertExpireAfterWrite() throws InterruptedException {
+        WeightedCache<String, String> cache = new WeightedCache<>(100L, 16L, 1L, String::length);
+        cache.put("foo", "bar");
+        Thread.sleep(5L);
+        assertThat(cache.get("foo"), is(nullValue()));
+        assertThat(cache.stats().getExpirationCount(), is(1L));
+        assertThat(cache.stats().getEntryCount(), is(0L));
+    }
+    
+    @Test
+    public void assertInvalidate() {
+        WeightedCache<String, String> cache = new WeightedCache<>(100L, 16L, 60000L, String::length);
+        cache.put("foo", "bar");
+        cache.put("baz", repeat('z', 40));
+        cache.invalidate("foo");
+        assertThat(cache.get("foo"), is(nullValue()));
+        cache.invalidateAll();
+        assertThat(cache.get("baz"), is(nullValue()));
+        assertThat(cache.stats().getWeightedSize(), is(0L));
+    }
+    
+    private static String repeat(final char c, final int count) {
+        StringBuilder result = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            result.append(c);
+        }
+        return result.toString();
+    }
+}
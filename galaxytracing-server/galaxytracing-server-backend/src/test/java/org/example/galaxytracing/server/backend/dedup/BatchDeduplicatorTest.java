@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.dedup;
+
+import org.example.galaxytracing.infra.config.entity.server.DeduplicationConfig;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class BatchDeduplicatorTest {
+    
+    private final BatchDeduplicator deduplicator = new BatchDeduplicator(createConfig());
+    
+    @Test
+    public void assertClaimNewBatch() {
+        assertThat(deduplicator.claim("batch-1", new CompletableFuture<>()), nullValue());
+        assertThat(deduplicator.claim("batch-2", new CompletableFuture<>()), nullValue());
+        assertThat(deduplicator.getDuplicateCount(), is(0L));
+    }
+    
+    @Test
+    public void assertDuplicateWaitsForFailedAttempt() throws InterruptedException {
+        CompletableFuture<Void> attempt = new CompletableFuture<>();
+        assertThat(deduplicator.claim("batch-1", attempt), nullValue());
+        CompletableFuture<Void> duplicate = deduplicator.claim("batch-1", new CompletableFuture<>());
+        assertThat(duplicate, sameInstance(attempt));
+        assertFalse(duplicate.isDone());
+        deduplicator.finish("batch-1", attempt, new IOException("store failed"));
+        try {
+            duplicate.get();
+            fail("Duplicate of a failed batch must not be acknowledged");
+        } catch (ExecutionException ex) {
+            assertThat(ex.getCause(), instanceOf(IOException.class));
+        }
+        assertThat(deduplicator.getDuplicateCount(), is(1L));
+    }
+    
+    @Test
+    public void assertRetryAcceptedAfterFailedAttempt() {
+        CompletableFuture<Void> attempt = new CompletableFuture<>();
+        deduplicator.claim("batch-1", attempt);
+        deduplicator.finish("batch-1", attempt, new IOException("store failed"));
+        CompletableFuture<Void> retry = new CompletableFuture<>();
+        assertThat(deduplicator.claim("batch-1", retry), nullValue());
+        deduplicator.finish("batch-1", retry, null);
+        assertTrue(retry.isDone());
+        assertFalse(retry.isCompletedExceptionally());
+    }
+    
+    @Test
+    public void assertDuplicateAcknowledgedAfterCommittedAttempt() {
+        CompletableFuture<Void> attempt = new CompletableFuture<>();
+        deduplicator.claim("batch-1", attempt);
+        deduplicator.finish("batch-1", attempt, null);
+        CompletableFuture<Void> duplicate = deduplicator.claim("batch-1", new CompletableFuture<>());
+        assertTrue(duplicate.isDone());
+        assertFalse(duplicate.isCompletedExceptionally());
+        assertThat(deduplicator.getDuplicateCount(), is(1L));
+    }
+    
+    private static DeduplicationConfig createConfig() {
+        DeduplicationConfig result = new DeduplicationConfig();
+        result.setExpectedBatches(1024);
+        result.setRecentBatches(256);
+        return result;
+    }
+}
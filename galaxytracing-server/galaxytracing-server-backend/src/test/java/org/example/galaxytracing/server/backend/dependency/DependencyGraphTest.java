@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.dependency;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.example.galaxytracing.infra.config.entity.server.DependencyConfig;
+import org.example.galaxytracing.infra.config.entity.server.StorageConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.TraceStore;
+import org.example.galaxytracing.server.backend.wal.WriteAheadLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class DependencyGraphTest {
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final SnowflakeId snowflakeId = new SnowflakeId(1L, 1L);
+    
+    @Test
+    public void assertCountCalls() throws IOException {
+        DependencyGraph graph = new DependencyGraph(createConfig(temporaryFolder.newFolder()));
+        graph.open();
+        graph.onOpen(0L);
+        graph.onApply(10L, createRecord("gateway", "order", "false", "10"));
+        graph.onApply(20L, createRecord("gateway", "order", "true", "30"));
+        graph.onApply(30L, createRecord("order", "stock", null, null));
+        graph.onApply(40L, createRecord("order", null, null, null));
+        Map<String, DependencyEdge> edges = toMap(graph.getEdges());
+        assertThat(edges.size(), is(2));
+        assertThat(edges.get("gateway->order").getCallCount(), is(2L));
+        assertThat(edges.get("gateway->order").getErrorCount(), is(1L));
+        assertThat(edges.get("gateway->order").getMaxMillis() >= 29D, is(true));
+        assertThat(edges.get("order->stock").getCallCount(), is(1L));
+    }
+    
+    @Test
+    public void assertDropCallsWhenFull() throws IOException {
+        DependencyConfig config = createConfig(temporaryFolder.newFolder());
+        config.setMaxEdges(1);
+        DependencyGraph graph = new DependencyGraph(config);
+        graph.onApply(10L, createRecord("gateway", "order", null, null));
+        graph.onApply(20L, createRecord("order", "stock", null, null));
+        assertThat(graph.getEdges().size(), is(1));
+        assertThat(graph.getDroppedCount(), is(1L));
+    }
+    
+    @Test
+    public void assertSkipReplayedCallsAfterSnapshot() throws IOException {
+        DependencyConfig config = createConfig(temporaryFolder.newFolder());
+        DependencyGraph graph = new DependencyGraph(config);
+        graph.onApply(10L, createRecord("gateway", "order", null, null));
+        graph.onApply(20L, createRecord("gateway", "order", null, null));
+        assertThat(graph.getDurableLsn(), is(0L));
+        graph.close();
+        assertThat(graph.getDurableLsn(), is(20L));
+        DependencyGraph reopened = new DependencyGraph(config);
+        reopened.open();
+        reopened.onOpen(30L);
+        assertThat(reopened.getDurableLsn(), is(20L));
+        reopened.onApply(10L, createRecord("gateway", "order", null, null));
+        reopened.onApply(20L, createRecord("gateway", "order", null, null));
+        reopened.onApply(30L, createRecord("gateway", "order", null, null));
+        assertThat(reopened.getEdges().get(0).getCallCount(), is(3L));
+    }
+    
+    @Test
+    public void assertCountAllWhenSnapshotAheadOfLog() throws IOException {
+        DependencyConfig config = createConfig(temporaryFolder.newFolder());
+        DependencyGraph graph = new DependencyGraph(config);
+        graph.onApply(20L, createRecord("gateway", "order", null, null));
+        graph.close();
+        DependencyGraph reopened = new DependencyGraph(config);
+        reopened.open();
+        reopened.onOpen(10L);
+        assertThat(reopened.getDurableLsn(), is(0L));
+        reopened.onApply(10L, createRecord("gateway", "order", null, null));
+        assertThat(reopened.getEdges().get(0).getCallCount(), is(2L));
+    }
+    
+    @Test
+    public void assertKeepCallsAfterCrash() throws Exception {
+        File dataDir = temporaryFolder.newFolder();
+        StorageConfig storageConfig = createStorageConfig(dataDir);
+        File crashDir = temporaryFolder.newFolder();
+        try (TraceStore store = new TraceStore(storageConfig); WriteAheadLog wal = new WriteAheadLog(storageConfig, store)) {
+            DependencyGraph graph = new DependencyGraph(createConfig(dataDir));
+            graph.open();
+            wal.addListener(graph);
+            store.open();
+            wal.open();
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(wal.append(createRecord("gateway", "order", null, "5")));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10L, TimeUnit.SECONDS);
+            awaitApplied(wal);
+            Thread.sleep(300L);
+            assertThat(graph.getEdges().get(0).getCallCount(), is(20L));
+            assertThat(readCheckpoint(new File(dataDir, "wal")), is(0L));
+            copyDirectory(new File(dataDir, "wal"), new File(crashDir, "wal"));
+        }
+        StorageConfig crashConfig = createStorageConfig(crashDir);
+        DependencyGraph recovered = new DependencyGraph(createConfig(crashDir));
+        try (TraceStore store = new TraceStore(crashConfig); WriteAheadLog wal = new WriteAheadLog(crashConfig, store)) {
+            recovered.open();
+            wal.addListener(recovered);
+            store.open();
+            wal.open();
+            awaitApplied(wal);
+        }
+        assertThat(recovered.getEdges().get(0).getCallCount(), is(20L));
+    }
+    
+    private static void awaitApplied(final WriteAheadLog wal) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (wal.getAppliedLsn() < wal.getCommittedLsn() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(wal.getAppliedLsn(), is(wal.getCommittedLsn()));
+    }
+    
+    private static long readCheckpoint(final File directory) throws IOException {
+        File file = new File(directory, "checkpoint");
+        if (!file.isFile()) {
+            return 0L;
+        }
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            return input.readLong();
+        }
+    }
+    
+    private static void copyDirectory(final File source, final File target) throws IOException {
+        assertTrue(target.mkdirs());
+        for (File each : source.listFiles()) {
+            Files.copy(each.toPath(), new File(target, each.getName()).toPath());
+        }
+    }
+    
+    private static Map<String, DependencyEdge> toMap(final List<DependencyEdge> edges) {
+        Map<String, DependencyEdge> result = new HashMap<>(edges.size(), 1);
+        for (DependencyEdge each : edges) {
+            result.put(each.getCaller() + "->" + each.getCallee(), each);
+        }
+        return result;
+    }
+    
+    private static DependencyConfig createConfig(final File directory) {
+        DependencyConfig result = new DependencyConfig();
+        result.setEnabled(true);
+        result.setSnapshotFile(new File(directory, "dependency.snapshot").getPath());
+        result.setSnapshotIntervalMillis(60L * 60 * 1000);
+        return result;
+    }
+    
+    private static StorageConfig createStorageConfig(final File dataDir) {
+        StorageConfig result = new StorageConfig();
+        result.setDataDir(dataDir.getPath());
+        result.setExpectedTraceCount(16L);
+        result.setCompactionIntervalMillis(0L);
+        result.setTraceCacheBytes(1024L * 1024);
+        result.setWalCheckpointIntervalMillis(10L);
+        return result;
+    }
+    
+    private TraceRecord createRecord(final String caller, final String callee, final String error, final String duration) {
+        long traceId = snowflakeId.generateId();
+        Map<String, String> attributes = new HashMap<>(8, 1);
+        attributes.put("traceId", String.valueOf(traceId));
+        putIfNotNull(attributes, "caller", caller);
+        putIfNotNull(attributes, "callee", callee);
+        putIfNotNull(attributes, "error", error);
+        putIfNotNull(attributes, "duration", duration);
+        return new TraceRecord(traceId, attributes);
+    }
+    
+    private static void putIfNotNull(final Map<String, String> attributes, final String key, final String value) {
+        if (null != value) {
+            attributes.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.attribute;
+
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.index.attribute.filter.TermFilter;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class AttributeIndexTest {
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void assertLoadIndexFile() throws IOException {
+        Segment segment = createSegment(0, 100);
+        assertTrue(segment.siblingFile(".attrindex").isFile());
+        assertFalse(segment.siblingFile(".attrindex.tmp").exists());
+        assertThat(countErrors(segment), is(34));
+        segment.close();
+    }
+    
+    @Test
+    public void assertRebuildTruncatedIndexFile() throws IOException {
+        Segment segment = createSegment(0, 100);
+        File file = segment.siblingFile(".attrindex");
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(file.length() / 2);
+        }
+        assertThat(countErrors(segment), is(34));
+        segment.close();
+    }
+    
+    @Test
+    public void assertRebuildIndexFileOfOtherSegment() throws IOException {
+        Segment large = createSegment(0, 100);
+        Segment small = createSegment(1, 10);
+        Files.copy(large.siblingFile(".attrindex").toPath(), small.siblingFile(".attrindex").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertThat(countErrors(small), is(4));
+        large.close();
+        small.close();
+    }
+    
+    private Segment createSegment(final int id, final int recordCount) {
+        AttributeIndex index = new AttributeIndex();
+        Segment result = Segment.create(temporaryFolder.getRoot(), id);
+        for (int i = 0; i < recordCount; i++) {
+            Map<String, String> attributes = new HashMap<>(2, 1);
+            attributes.put("index", String.valueOf(i));
+            attributes.put("status", 0 == i % 3 ? "error" : "ok");
+            index.onAppend(result, result.append(i + 1, TraceRecordCodec.encode(attributes)), new TraceRecord(i + 1, attributes));
+        }
+        result.seal();
+        index.onSeal(result);
+        return result;
+    }
+    
+    private static int countErrors(final Segment segment) {
+        AttributeIndex index = new AttributeIndex();
+        index.onOpen(segment);
+        List<TraceRecord> visited = new ArrayList<>();
+        index.search(Collections.singletonList(segment), new TermFilter("status", "error"), (each, offset, record) -> visited.add(record));
+        return visited.size();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.attribute.filter;
+
+import org.example.galaxytracing.server.backend.index.attribute.SegmentAttributeIndex;
+import org.example.galaxytracing.server.backend.index.bitmap.RoaringBitmap;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public final class AttributeFilterTest {
+    
+    private final SegmentAttributeIndex index = new SegmentAttributeIndex();
+    
+    @Before
+    public void setUp() {
+        for (int i = 0; i < 10; i++) {
+            Map<String, String> attributes = new HashMap<>(4, 1);
+            attributes.put("traceId", String.valueOf(i));
+            attributes.put("serviceName", 0 == i % 2 ? "order-service" : "pay-service");
+            attributes.put("status", i < 3 ? "error" : "ok");
+            index.add(i * 100L, attributes);
+        }
+    }
+    
+    @Test
+    public void assertTermFilter() {
+        assertThat(evaluate(new TermFilter("serviceName", "order-service")), is(Arrays.asList(0, 2, 4, 6, 8)));
+        assertThat(evaluate(new TermFilter("serviceName", "user-service")), is(new ArrayList<Integer>()));
+        assertThat(evaluate(new TermFilter("region", "east")), is(new ArrayList<Integer>()));
+        assertThat(evaluate(new TermFilter("traceId", "1")), is(new ArrayList<Integer>()));
+    }
+    
+    @Test
+    public void assertAndFilter() {
+        AttributeFilter filter = new AndFilter(Arrays.asList(new TermFilter("serviceName", "order-service"), new TermFilter("status", "error")));
+        assertThat(evaluate(filter), is(Arrays.asList(0, 2)));
+    }
+    
+    @Test
+    public void assertOrFilter() {
+        AttributeFilter filter = new OrFilter(Arrays.asList(new TermFilter("serviceName", "pay-service"), new TermFilter("status", "error")));
+        assertThat(evaluate(filter), is(Arrays.asList(0, 1, 2, 3, 5, 7, 9)));
+    }
+    
+    @Test
+    public void assertNotFilter() {
+        assertThat(evaluate(new NotFilter(new TermFilter("status", "ok"))), is(Arrays.asList(0, 1, 2)));
+        assertThat(evaluate(new NotFilter(new TermFilter("region", "east"))), is(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)));
+    }
+    
+    @Test
+    public void assertNestedFilter() {
+        AttributeFilter filter = new AndFilter(Arrays.asList(
+                new NotFilter(new TermFilter("status", "error")), new OrFilter(Arrays.asList(new TermFilter("serviceName", "order-service"), new TermFilter("status", "missing")))));
+        assertThat(evaluate(filter), is(Arrays.asList(4, 6, 8)));
+    }
+    
+    @Test
+    public void assertFilterDoesNotChangeIndex() {
+        RoaringBitmap matched = new TermFilter("status", "error").evaluate(index);
+        matched.add(9);
+        assertThat(evaluate(new TermFilter("status", "error")), is(Arrays.asList(0, 1, 2)));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void assertEmptyAndFilter() {
+        new AndFilter(new ArrayList<>());
+    }
+    
+    private List<Integer> evaluate(final AttributeFilter filter) {
+        List<Integer> result = new ArrayList<>();
+        filter.evaluate(index).forEach(result::add);
+        return result;
+    }
+}
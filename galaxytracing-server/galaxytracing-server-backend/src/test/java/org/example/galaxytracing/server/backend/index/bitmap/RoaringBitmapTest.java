@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.bitmap;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class RoaringBitmapTest {
+    
+    @Test
+    public void assertArrayContainerConvertsToBitmap() {
+        Container container = new ArrayContainer();
+        for (int i = 0; i < Container.MAX_ARRAY_SIZE; i++) {
+            container = container.add((char) (i * 2));
+        }
+        assertThat(container, instanceOf(ArrayContainer.class));
+        container = container.add((char) 1);
+        assertThat(container, instanceOf(BitmapContainer.class));
+        assertThat(container.cardinality(), is(Container.MAX_ARRAY_SIZE + 1));
+        assertTrue(container.contains((char) 1));
+        assertTrue(container.contains((char) 8190));
+        assertFalse(container.contains((char) 3));
+    }
+    
+    @Test
+    public void assertBitmapContainerConvertsToArray() {
+        Container dense = BitmapContainer.range(0, 10000);
+        assertThat(dense, instanceOf(BitmapContainer.class));
+        Container sparse = BitmapContainer.range(0, 100);
+        assertThat(sparse, instanceOf(ArrayContainer.class));
+        assertThat(dense.and(sparse), instanceOf(ArrayContainer.class));
+        assertThat(dense.and(sparse).cardinality(), is(100));
+        Container remaining = dense.andNot(BitmapContainer.range(100, 10000));
+        assertThat(remaining, instanceOf(ArrayContainer.class));
+        assertThat(remaining.cardinality(), is(100));
+        assertThat(sparse.or(BitmapContainer.range(100, 5000)), instanceOf(BitmapContainer.class));
+    }
+    
+    @Test
+    public void assertAddOutOfOrder() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        int[] values = {70000, 5, 3, 200000, 5, 65536, 0};
+        for (int each : values) {
+            bitmap.add(each);
+        }
+        assertThat(bitmap.cardinality(), is(6));
+        assertThat(toList(bitmap), is(toList(0, 3, 5, 65536, 70000, 200000)));
+        assertFalse(bitmap.contains(4));
+        assertFalse(bitmap.contains(131072));
+    }
+    
+    @Test
+    public void assertRange() {
+        RoaringBitmap bitmap = RoaringBitmap.range(65530, 65546);
+        assertThat(bitmap.cardinality(), is(16));
+        assertTrue(bitmap.contains(65535));
+        assertTrue(bitmap.contains(65536));
+        assertFalse(bitmap.contains(65546));
+        assertThat(RoaringBitmap.range(0, 0).cardinality(), is(0));
+        assertThat(RoaringBitmap.range(0, 200000).cardinality(), is(200000));
+    }
+    
+    @Test
+    public void assertSetOperations() {
+        Random random = new Random(7L);
+        for (int round = 0; round < 10; round++) {
+            BitSet left = randomBits(random);
+            BitSet right = randomBits(random);
+            BitSet and = (BitSet) left.clone();
+            and.and(right);
+            BitSet or = (BitSet) left.clone();
+            or.or(right);
+            BitSet andNot = (BitSet) left.clone();
+            andNot.andNot(right);
+            RoaringBitmap leftBitmap = toBitmap(left);
+            RoaringBitmap rightBitmap = toBitmap(right);
+            assertThat(toList(RoaringBitmap.and(leftBitmap, rightBitmap)), is(toList(and)));
+            assertThat(toList(RoaringBitmap.or(leftBitmap, rightBitmap)), is(toList(or)));
+            assertThat(toList(RoaringBitmap.andNot(leftBitmap, rightBitmap)), is(toList(andNot)));
+            assertThat(toList(leftBitmap), is(toList(left)));
+        }
+    }
+    
+    @Test
+    public void assertCopyIsIndependent() {
+        RoaringBitmap bitmap = RoaringBitmap.range(0, 10);
+        RoaringBitmap copied = bitmap.copy();
+        copied.add(100);
+        assertFalse(bitmap.contains(100));
+        assertThat(copied.cardinality(), is(11));
+    }
+    
+    @Test
+    public void assertStopForEach() {
+        List<Integer> visited = new ArrayList<>();
+        assertFalse(RoaringBitmap.range(0, 100).forEach(value -> visited.add(value) && value < 9));
+        assertThat(visited.size(), is(10));
+    }
+    
+    @Test
+    public void assertWriteAndRead() throws IOException {
+        BitSet bits = randomBits(new Random(11L));
+        RoaringBitmap bitmap = toBitmap(bits);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        bitmap.writeTo(new DataOutputStream(output));
+        RoaringBitmap actual = RoaringBitmap.readFrom(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+        assertThat(actual.cardinality(), is(bits.cardinality()));
+        assertThat(toList(actual), is(toList(bits)));
+    }
+    
+    private static BitSet randomBits(final Random random) {
+        BitSet result = new BitSet();
+        for (int high = 0; high < 4; high++) {
+            int count = random.nextBoolean() ? random.nextInt(100) : 4000 + random.nextInt(20000);
+            for (int i = 0; i < count; i++) {
+                result.set((high << 16) + random.nextInt(1 << 16));
+            }
+        }
+        return result;
+    }
+    
+    private static RoaringBitmap toBitmap(final BitSet bits) {
+        RoaringBitmap result = new RoaringBitmap();
+        bits.stream().forEach(result::add);
+        return result;
+    }
+    
+    private static List<Integer> toList(final RoaringBitmap bitmap) {
+        List<Integer> result = new ArrayList<>();
+        bitmap.forEach(result::add);
+        return result;
+    }
+    
+    private static List<Integer> toList(final BitSet bits) {
+        List<Integer> result = new ArrayList<>();
+        bits.stream().forEach(result::add);
+        return result;
+    }
+    
+    private static List<Integer> toList(final int... values) {
+        List<Integer> result = new ArrayList<>();
+        for (int each : values) {
+            result.add(each);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.time;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class SegmentTimeIndexTest {
+    
+    private static final long START = 1700000000000L;
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final List<Long> traceIds = new ArrayList<>();
+    
+    private Segment segment;
+    
+    private SegmentTimeIndex index;
+    
+    @Before
+    public void setUp() {
+        segment = Segment.create(temporaryFolder.getRoot(), 0);
+        index = new SegmentTimeIndex();
+        for (int i = 0; i < 1000; i++) {
+            long timestamp = START + i / 10 - (0 == i % 7 ? 3 : 0);
+            long traceId = SnowflakeIdParser.getMinId(timestamp) | i % 10;
+            traceIds.add(traceId);
+            index.add(segment.append(traceId, TraceRecordCodec.encode(Collections.singletonMap("index", String.valueOf(i)))), traceId);
+        }
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        segment.close();
+    }
+    
+    @Test
+    public void assertTimestamps() {
+        assertThat(index.getMinTimestamp(), is(START - 3));
+        assertThat(index.getMaxTimestamp(), is(START + 99));
+        assertTrue(index.overlaps(START + 99, START + 200));
+        assertFalse(index.overlaps(START + 100, START + 200));
+        assertFalse(index.overlaps(START - 10, START - 4));
+    }
+    
+    @Test
+    public void assertSearchActiveIndex() {
+        assertSearch(index);
+    }
+    
+    @Test
+    public void assertSearchSealedIndex() {
+        index.seal();
+        assertSearch(index);
+    }
+    
+    @Test
+    public void assertSearchReadIndex() throws IOException {
+        index.seal();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(output));
+        SegmentTimeIndex actual = SegmentTimeIndex.readFrom(new DataInputStream(new ByteArrayInputStream(output.toByteArray())), output.size());
+        assertThat(actual.getMinTimestamp(), is(index.getMinTimestamp()));
+        assertThat(actual.getMaxTimestamp(), is(index.getMaxTimestamp()));
+        assertSearch(actual);
+    }
+    
+    private void assertSearch(final SegmentTimeIndex actual) {
+        assertSearch(actual, START + 20, START + 29);
+        assertSearch(actual, START - 3, START);
+        assertSearch(actual, START + 95, START + 200);
+        assertSearch(actual, START + 100, START + 200);
+        assertSearch(actual, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+    
+    private void assertSearch(final SegmentTimeIndex actual, final long from, final long to) {
+        List<Long> expected = new ArrayList<>();
+        for (long each : traceIds) {
+            long timestamp = SnowflakeIdParser.getTimestamp(each);
+            if (timestamp >= from && timestamp <= to) {
+                expected.add(each);
+            }
+        }
+        List<Long> visited = new ArrayList<>();
+        assertTrue(actual.search(segment, from, to, (each, offset, record) -> visited.add(record.getTraceId())));
+        Collections.sort(expected);
+        Collections.sort(visited);
+        assertThat(visited, is(expected));
+    }
+    
+    @Test
+    public void assertStopSearch() {
+        List<TraceRecord> visited = new ArrayList<>();
+        assertFalse(index.search(segment, START, START + 99, (each, offset, record) -> !visited.add(record)));
+        assertThat(visited.size(), is(1));
+    }
+    
+    @Test
+    public void assertFits() {
+        assertTrue(index.fits(segment.size()));
+        assertFalse(index.fits(100L));
+        assertTrue(new SegmentTimeIndex().fits(0L));
+        assertFalse(new SegmentTimeIndex().fits(segment.size()));
+    }
+    
+    @Test(expected = IOException.class)
+    public void assertReadTruncatedIndex() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(output));
+        byte[] bytes = Arrays.copyOf(output.toByteArray(), output.size() / 2);
+        SegmentTimeIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)), bytes.length);
+    }
+    
+    @Test(expected = IOException.class)
+    public void assertRejectBlockCountBeyondLength() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new DataOutputStream(output).writeInt(Integer.MAX_VALUE);
+        SegmentTimeIndex.readFrom(new DataInputStream(new ByteArrayInputStream(output.toByteArray())), output.size());
+    }
+}
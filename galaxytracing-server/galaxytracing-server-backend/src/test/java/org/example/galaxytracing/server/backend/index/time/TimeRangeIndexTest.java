@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.time;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class TimeRangeIndexTest {
+    
+    private static final long START = 1700000000000L;
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void assertSkipSegmentsOutsideRange() throws IOException {
+        TimeRangeIndex index = new TimeRangeIndex();
+        Segment first = createSegment(index, 0, START, 300);
+        Segment second = createSegment(index, 1, START + 10000L, 300);
+        first.close();
+        List<Long> visited = new ArrayList<>();
+        index.search(Arrays.asList(first, second), START + 10000L, START + 10009L, (segment, offset, record) -> visited.add(record.getTraceId()));
+        assertThat(visited.size(), is(10));
+        assertThat(index.getMinTimestamp(1), is(START + 10000L));
+        assertThat(index.getMaxTimestamp(1), is(START + 10299L));
+        assertThat(index.getMaxTimestamp(2), is(Long.MIN_VALUE));
+        second.close();
+    }
+    
+    @Test
+    public void assertLoadIndexFile() throws IOException {
+        Segment segment = createSegment(new TimeRangeIndex(), 0, START, 300);
+        assertTrue(segment.siblingFile(".timeindex").isFile());
+        assertFalse(segment.siblingFile(".timeindex.tmp").exists());
+        assertThat(countRecords(segment), is(300));
+        segment.close();
+    }
+    
+    @Test
+    public void assertRebuildTruncatedIndexFile() throws IOException {
+        Segment segment = createSegment(new TimeRangeIndex(), 0, START, 300);
+        File file = segment.siblingFile(".timeindex");
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(6L);
+        }
+        assertThat(countRecords(segment), is(300));
+        assertTrue(file.length() > 6L);
+        segment.close();
+    }
+    
+    @Test
+    public void assertRebuildIndexFileOfOtherSegment() throws IOException {
+        Segment large = createSegment(new TimeRangeIndex(), 0, START, 1000);
+        Segment small = createSegment(new TimeRangeIndex(), 1, START, 10);
+        Files.copy(large.siblingFile(".timeindex").toPath(), small.siblingFile(".timeindex").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertThat(countRecords(small), is(10));
+        large.close();
+        small.close();
+    }
+    
+    private Segment createSegment(final TimeRangeIndex index, final int id, final long startTimestamp, final int recordCount) {
+        Segment result = Segment.create(temporaryFolder.getRoot(), id);
+        for (int i = 0; i < recordCount; i++) {
+            long traceId = SnowflakeIdParser.getMinId(startTimestamp + i);
+            Map<String, String> attributes = Collections.singletonMap("index", String.valueOf(i));
+            index.onAppend(result, result.append(traceId, TraceRecordCodec.encode(attributes)), new TraceRecord(traceId, attributes));
+        }
+        result.seal();
+        index.onSeal(result);
+        return result;
+    }
+    
+    private static int countRecords(final Segment segment) {
+        TimeRangeIndex index = new TimeRangeIndex();
+        index.onOpen(segment);
+        List<TraceRecord> visited = new ArrayList<>();
+        index.search(Collections.singletonList(segment), Long.MIN_VALUE, Long.MAX_VALUE, (each, offset, record) -> visited.add(record));
+        return visited.size();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.index.traceid;
+
+import org.junit.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public final class OffHeapTraceIdIndexTest {
+    
+    @Test
+    public void assertLocation() {
+        long location = OffHeapTraceIdIndex.location(3, 1024L);
+        assertThat(OffHeapTraceIdIndex.segmentId(location), is(3));
+        assertThat(OffHeapTraceIdIndex.offset(location), is(1024L));
+        assertThat(OffHeapTraceIdIndex.segmentId(OffHeapTraceIdIndex.location(0, 0L)), is(0));
+    }
+    
+    @Test
+    public void assertPutAndOverwrite() {
+        OffHeapTraceIdIndex index = new OffHeapTraceIdIndex(16L);
+        assertThat(index.get(1L), is(OffHeapTraceIdIndex.NOT_FOUND));
+        assertThat(index.put(1L, OffHeapTraceIdIndex.location(0, 0L)), is(OffHeapTraceIdIndex.NOT_FOUND));
+        assertThat(index.put(1L, OffHeapTraceIdIndex.location(1, 8L)), is(OffHeapTraceIdIndex.location(0, 0L)));
+        assertThat(index.get(1L), is(OffHeapTraceIdIndex.location(1, 8L)));
+        assertThat(index.size(), is(1L));
+    }
+    
+    @Test
+    public void assertGrowAndRehash() {
+        OffHeapTraceIdIndex index = new OffHeapTraceIdIndex(1L);
+        for (long traceId = 1L; traceId <= 100000L; traceId++) {
+            index.put(traceId, OffHeapTraceIdIndex.location(0, traceId));
+        }
+        assertThat(index.size(), is(100000L));
+        for (long traceId = 1L; traceId <= 100000L; traceId++) {
+            assertThat(index.get(traceId), is(OffHeapTraceIdIndex.location(0, traceId)));
+        }
+        assertThat(index.get(100001L), is(OffHeapTraceIdIndex.NOT_FOUND));
+    }
+    
+    @Test
+    public void assertGrowByDoubling() {
+        OffHeapTraceIdIndex index = new OffHeapTraceIdIndex(16L);
+        assertThat(index.capacity(), is(32L));
+        for (long traceId = 1L; traceId <= 20L; traceId++) {
+            index.put(traceId, OffHeapTraceIdIndex.location(0, traceId));
+        }
+        assertThat(index.capacity(), is(64L));
+        for (long traceId = 21L; traceId <= 100000L; traceId++) {
+            index.put(traceId, OffHeapTraceIdIndex.location(0, traceId));
+        }
+        assertThat(index.capacity(), is(262144L));
+    }
+    
+    @Test
+    public void assertKeepCapacityWhenRemovedEntriesDominate() {
+        OffHeapTraceIdIndex index = new OffHeapTraceIdIndex(16L);
+        for (long traceId = 1L; traceId <= 100000L; traceId++) {
+            index.put(traceId, OffHeapTraceIdIndex.location(0, traceId));
+            index.remove(traceId);
+        }
+        index.put(100001L, OffHeapTraceIdIndex.location(0, 1L));
+        assertThat(index.capacity(), is(32L));
+        assertThat(index.size(), is(1L));
+        assertThat(index.get(100000L), is(OffHeapTraceIdIndex.NOT_FOUND));
+        assertThat(index.get(100001L), is(OffHeapTraceIdIndex.location(0, 1L)));
+    }
+    
+    @Test
+    public void assertRemoveLeavesTombstone() {
+        OffHeapTraceIdIndex index = new OffHeapTraceIdIndex(16L);
+        for (long traceId = 1L; traceId <= 8L; traceId++) {
+            index.put(traceId, OffHeapTraceIdIndex.location(0, traceId));
+        }
+        assertThat(index.remove(3L), is(OffHeapTraceIdIndex.location(0, 3L)));
+        assertThat(index.remove(3L), is(OffHeapTraceIdIndex.NOT_FOUND));
+        assertThat(index.remove(100L), is(OffHeapTraceIdIndex.NOT_FOUND));
+        assertThat(index.get(3L), is(OffHeapTraceIdIndex.NOT_FOUND));
+        assertThat(index.size(), is(7L));
+        for (long traceId = 1L; traceId <= 8L; traceId++) {
+            if (3L != traceId) {
+                assertThat(index.get(traceId), is(OffHeapTraceIdIndex.location(0, traceId)));
+            }
+        }
+    }
+    
+    @Test
+    public void assertReuseTombstone() {
+        OffHeapTraceIdIndex index = new OffHeapTraceIdIndex(16L);
+        index.put(1L, OffHeapTraceIdIndex.location(0, 0L));
+        for (int i = 0; i < 1000; i++) {
+            index.remove(1L);
+            assertThat(index.put(1L, OffHeapTraceIdIndex.location(1, i)), is(OffHeapTraceIdIndex.NOT_FOUND));
+        }
+        assertThat(index.size(), is(1L));
+        assertThat(index.get(1L), is(OffHeapTraceIdIndex.location(1, 999L)));
+    }
+    
+    @Test
+    public void assertDropTombstonesOnGrow() {
+        OffHeapTraceIdIndex index = new OffHeapTraceIdIndex(16L);
+        for (long traceId = 1L; traceId <= 10000L; traceId++) {
+            index.put(traceId, OffHeapTraceIdIndex.location(0, traceId));
+            if (0L == traceId % 2) {
+                index.remove(traceId);
+            }
+        }
+        assertThat(index.size(), is(5000L));
+        for (long traceId = 1L; traceId <= 10000L; traceId++) {
+            assertThat(index.get(traceId), is(0L == traceId % 2 ? OffHeapTraceIdIndex.NOT_FOUND : OffHeapTraceIdIndex.location(0, traceId)));
+        }
+    }
+    
+    @Test
+    public void assertConcurrentReadersDuringPut() throws InterruptedException {
+        OffHeapTraceIdIndex index = new OffHeapTraceIdIndex(1L);
+        AtomicLong published = new AtomicLong();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                while (published.get() < 200000L && null == failure.get()) {
+                    long max = published.get();
+                    if (0L == max) {
+                        continue;
+                    }
+                    long traceId = ThreadLocalRandom.current().nextLong(1L, max + 1);
+                    long location = index.get(traceId);
+                    if (OffHeapTraceIdIndex.location(0, traceId) != location) {
+                        failure.set(String.format("Trace %d is at %d", traceId, location));
+                    }
+                }
+            });
+            readers[i].start();
+        }
+        for (long traceId = 1L; traceId <= 200000L; traceId++) {
+            index.put(traceId, OffHeapTraceIdIndex.location(0, traceId));
+            published.set(traceId);
+        }
+        for (Thread each : readers) {
+            each.join();
+        }
+        assertThat(failure.get(), is(nullValue()));
+    }
+}
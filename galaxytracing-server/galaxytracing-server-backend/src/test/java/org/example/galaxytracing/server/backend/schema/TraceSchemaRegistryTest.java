@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.schema;
+
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+public final class TraceSchemaRegistryTest {
+    
+    private static final String KEY_NAMES = "\"@keyNames\":{\"example.OrderAgent\":{\"1\":\"orderId\",\"2\":\"service.name\"}}";
+    
+    private final TraceSchemaRegistry registry = new TraceSchemaRegistry();
+    
+    @Test
+    public void assertResolveRegisteredKeyNames() {
+        TraceRecord first = TraceRecordCodec.decode("{" + KEY_NAMES + ",\"traceId\":\"1\",\"@schema\":\"example.OrderAgent\",\"@keys\":[1,42,2,\"order\"]}", registry);
+        assertThat(first.getAttributes().get("orderId"), is("42"));
+        assertThat(first.getAttributes().get("service.name"), is("order"));
+        assertFalse(first.getAttributes().containsKey("@keyNames"));
+        assertFalse(first.getAttributes().containsKey("@keys"));
+        TraceRecord second = TraceRecordCodec.decode("{\"traceId\":\"2\",\"@schema\":\"example.OrderAgent\",\"@keys\":[2,\"pay\"]}", registry);
+        assertThat(second.getAttributes().size(), is(2));
+        assertThat(second.getAttributes().get("service.name"), is("pay"));
+    }
+    
+    @Test
+    public void assertUnknownSchema() {
+        assertThat(TraceRecordCodec.decode("{\"traceId\":\"1\",\"@schema\":\"example.OrderAgent\",\"@keys\":[1,42]}", registry), nullValue());
+    }
+    
+    @Test
+    public void assertUnknownKeyOfRegisteredSchema() {
+        TraceRecordCodec.decode("{" + KEY_NAMES + ",\"traceId\":\"1\"}", registry);
+        assertThat(TraceRecordCodec.decode("{\"traceId\":\"2\",\"@schema\":\"example.OrderAgent\",\"@keys\":[3,true]}", registry), nullValue());
+        TraceRecordCodec.decode("{\"@keyNames\":{\"example.OrderAgent\":{\"3\":\"paid\"}},\"traceId\":\"3\"}", registry);
+        TraceRecord actual = TraceRecordCodec.decode("{\"traceId\":\"4\",\"@schema\":\"example.OrderAgent\",\"@keys\":[1,42,3,true]}", registry);
+        assertThat(actual.getAttributes().get("orderId"), is("42"));
+        assertThat(actual.getAttributes().get("paid"), is("true"));
+    }
+    
+    @Test
+    public void assertKeepTraceWithoutSchema() {
+        TraceRecord actual = TraceRecordCodec.decode("{\"traceId\":\"1\",\"k\":\"v\"}", registry);
+        assertThat(actual.getTraceId(), is(1L));
+        assertThat(actual.getAttributes().get("k"), is("v"));
+    }
+    
+    @Test(expected = GalaxyTracingException.class)
+    public void assertRejectMalformedKeys() {
+        TraceRecordCodec.decode("{" + KEY_NAMES + ",\"traceId\":\"1\",\"@schema\":\"example.OrderAgent\",\"@keys\":{\"1\":42}}", registry);
+    }
+    
+    @Test(expected = GalaxyTracingException.class)
+    public void assertRejectMalformedKeyNames() {
+        TraceRecordCodec.decode("{\"@keyNames\":{\"example.OrderAgent\":{\"one\":\"orderId\"}},\"traceId\":\"1\"}", registry);
+    }
+}
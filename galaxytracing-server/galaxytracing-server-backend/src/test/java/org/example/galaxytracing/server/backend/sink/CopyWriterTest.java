@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.sink;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.junit.Test;
+import org.opengauss.PGConnection;
+import org.opengauss.copy.CopyManager;
+import org.opengauss.core.BaseConnection;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public final class CopyWriterTest {
+    
+    private final SnowflakeId snowflakeId = new SnowflakeId(1L, 1L);
+    
+    @Test
+    public void assertCopyInOneRoundTrip() throws SQLException, IOException {
+        List<TraceRecord> records = Arrays.asList(createRecord("order-service"), createRecord("line\tbreak\nback\\slash"));
+        List<String> lines = copy(records);
+        assertThat(lines.size(), is(records.size()));
+        for (int i = 0; i < records.size(); i++) {
+            TraceRecord expected = records.get(i);
+            String[] columns = lines.get(i).split("\t", -1);
+            assertThat(columns.length, is(3));
+            assertThat(Long.parseLong(columns[0]), is(expected.getTraceId()));
+            assertThat(Long.parseLong(columns[1]), is(SnowflakeIdParser.getTimestamp(expected.getTraceId())));
+            assertThat(TraceRecordCodec.decode(expected.getTraceId(), unescape(columns[2]).getBytes(StandardCharsets.UTF_8)).getAttributes(), is(expected.getAttributes()));
+        }
+    }
+    
+    private static List<String> copy(final List<TraceRecord> records) throws SQLException, IOException {
+        BaseConnection baseConnection = proxy(BaseConnection.class, (method, args) -> null);
+        RecordingCopyManager copyManager = new RecordingCopyManager(baseConnection);
+        PGConnection pgConnection = proxy(PGConnection.class, (method, args) -> "getCopyAPI".equals(method.getName()) ? copyManager : null);
+        Connection connection = proxy(Connection.class, (method, args) -> "unwrap".equals(method.getName()) && PGConnection.class == args[0] ? pgConnection : null);
+        new CopyWriter().write(connection, "galaxy_trace", records);
+        assertThat(copyManager.sql, is("COPY galaxy_trace (trace_id, trace_time, attributes) FROM STDIN"));
+        try (BufferedReader lines = new BufferedReader(new StringReader(copyManager.data))) {
+            return lines.lines().collect(Collectors.toList());
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(final Class<T> type, final BiFunction<Method, Object[], Object> handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> handler.apply(method, args));
+    }
+    
+    private static String unescape(final String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        boolean escaping = false;
+        for (char each : value.toCharArray()) {
+            if (escaping) {
+                result.append(unescape(each));
+                escaping = false;
+            } else if ('\\' == each) {
+                escaping = true;
+            } else {
+                result.append(each);
+            }
+        }
+        return result.toString();
+    }
+    
+    private static char unescape(final char escaped) {
+        switch (escaped) {
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            default:
+                return escaped;
+        }
+    }
+    
+    private TraceRecord createRecord(final String serviceName) {
+        long traceId = snowflakeId.generateId();
+        Map<String, String> attributes = new LinkedHashMap<>(4, 1);
+        attributes.put("traceId", String.valueOf(traceId));
+        attributes.put("serviceName", serviceName);
+        return new TraceRecord(traceId, attributes);
+    }
+    
+    private static final class RecordingCopyManager extends CopyManager {
+        
+        private String sql;
+        
+        private String data;
+        
+        RecordingCopyManager(final BaseConnection connection) throws SQLException {
+            super(connection);
+        }
+        
+        @Override
+        public long copyIn(final String sql, final Reader from) throws IOException {
+            this.sql = sql;
+            StringBuilder builder = new StringBuilder();
+            char[] buffer = new char[1024];
+            int length;
+            while (-1 != (length = from.read(buffer))) {
+                builder.append(buffer, 0, length);
+            }
+            data = builder.toString();
+            return 0L;
+        }
+    }
+}
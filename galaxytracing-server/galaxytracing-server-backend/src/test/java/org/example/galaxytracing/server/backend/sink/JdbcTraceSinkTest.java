@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.sink;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.example.galaxytracing.infra.config.entity.server.SinkConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class JdbcTraceSinkTest {
+    
+    private static final String URL = "jdbc:h2:mem:galaxy_trace_sink;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final SnowflakeId snowflakeId = new SnowflakeId(1L, 1L);
+    
+    private Connection connection;
+    
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(URL);
+    }
+    
+    @After
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS galaxy_trace");
+        }
+        connection.close();
+    }
+    
+    @Test
+    public void assertFlushInMultiRowBatches() throws SQLException {
+        JdbcTraceSink sink = new JdbcTraceSink(createConfig(URL, 250));
+        sink.start();
+        for (int i = 0; i < 520; i++) {
+            assertTrue(sink.offer(createRecord("order-service")));
+        }
+        sink.close();
+        assertThat(countRows(), is(520));
+        assertThat(sink.getSpooledBatches(), is(0));
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("SELECT attributes FROM galaxy_trace")) {
+            assertTrue(resultSet.next());
+            assertThat(resultSet.getString(1), containsString("order-service"));
+        }
+    }
+    
+    @Test
+    public void assertSpoolAndReplay() throws SQLException {
+        JdbcTraceSink unavailableSink = new JdbcTraceSink(createConfig("jdbc:unavailable:galaxy", 10));
+        unavailableSink.start();
+        for (int i = 0; i < 30; i++) {
+            unavailableSink.offer(createRecord("pay-service"));
+        }
+        unavailableSink.close();
+        assertTrue(unavailableSink.getSpooledBatches() > 0);
+        JdbcTraceSink sink = new JdbcTraceSink(createConfig(URL, 10));
+        sink.start();
+        sink.offer(createRecord("pay-service"));
+        sink.close();
+        assertThat(sink.getSpooledBatches(), is(0));
+        assertThat(countRows(), is(31));
+    }
+    
+    private SinkConfig createConfig(final String url, final int flushSize) {
+        SinkConfig result = new SinkConfig();
+        result.setEnabled(true);
+        result.setUrl(url);
+        result.setCopy(false);
+        result.setMaxConnections(1);
+        result.setConnectionTimeoutMillis(1000L);
+        result.setFlushSize(flushSize);
+        result.setFlushIntervalMillis(100L);
+        result.setSpoolDir(temporaryFolder.getRoot().getPath());
+        return result;
+    }
+    
+    private TraceRecord createRecord(final String serviceName) {
+        long traceId = snowflakeId.generateId();
+        Map<String, String> attributes = new HashMap<>(4, 1);
+        attributes.put("traceId", String.valueOf(traceId));
+        attributes.put("serviceName", serviceName);
+        return new TraceRecord(traceId, attributes);
+    }
+    
+    private int countRows() throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM galaxy_trace")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage;
+
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.example.galaxytracing.infra.config.entity.server.StorageConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.index.attribute.filter.TermFilter;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class CompactionSchedulerTest {
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final SnowflakeId snowflakeId = new SnowflakeId(1L, 1L);
+    
+    @Test
+    public void assertMergeMostlyDeadSegments() throws IOException {
+        StorageConfig config = createConfig();
+        TraceRecord[] records = new TraceRecord[100];
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            for (int i = 0; i < records.length; i++) {
+                records[i] = createRecord("service-" + i);
+                store.append(records[i]);
+            }
+            for (int i = 0; i < records.length; i++) {
+                if (0 != i % 10) {
+                    store.delete(records[i].getTraceId());
+                }
+            }
+            final int segmentCount = store.getSegments().size();
+            CompactionScheduler scheduler = new CompactionScheduler(store, temporaryFolder.getRoot(), config);
+            scheduler.runOnce();
+            scheduler.runOnce();
+            scheduler.stop();
+            assertTrue(store.getSegments().size() < segmentCount);
+            assertThat(store.getDeadSize(store.getSegments().get(0)), is(0L));
+            assertRecords(store, records);
+        }
+        for (File each : temporaryFolder.getRoot().listFiles((dir, name) -> name.endsWith(".deletes"))) {
+            assertTrue(new File(temporaryFolder.getRoot(), each.getName().replace(".deletes", Segment.FILE_SUFFIX)).isFile());
+        }
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            assertRecords(store, records);
+            for (Segment each : store.getSealedSegments()) {
+                assertThat(store.getDeadSize(each), is(0L));
+            }
+        }
+    }
+    
+    @Test
+    public void assertDropOldestSegmentsBySize() throws IOException {
+        StorageConfig config = createConfig();
+        config.setRetentionBytes(config.getSegmentSize() * 2);
+        TraceRecord first = createRecord("order-service");
+        TraceRecord last = createRecord("order-service");
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            store.append(first);
+            for (int i = 0; i < 100; i++) {
+                store.append(createRecord("service-" + i));
+            }
+            store.append(last);
+            store.delete(first.getTraceId());
+            CompactionScheduler scheduler = new CompactionScheduler(store, temporaryFolder.getRoot(), config);
+            scheduler.runOnce();
+            scheduler.stop();
+            assertTrue(store.getTotalSize() <= config.getRetentionBytes());
+            assertFalse(store.getSegments().containsKey(0));
+            assertThat(store.get(last.getTraceId()), is(notNullValue()));
+        }
+        assertFalse(new File(temporaryFolder.getRoot(), "0000000000.segment").exists());
+        assertFalse(new File(temporaryFolder.getRoot(), "0000000000.deletes").exists());
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            assertThat(store.get(first.getTraceId()), is(nullValue()));
+            assertThat(store.get(last.getTraceId()), is(notNullValue()));
+        }
+    }
+    
+    @Test
+    public void assertDropExpiredSegments() throws IOException, InterruptedException {
+        StorageConfig config = createConfig();
+        config.setRetentionMillis(1L);
+        TraceRecord[] records = new TraceRecord[40];
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            for (int i = 0; i < records.length; i++) {
+                records[i] = createRecord("service-" + i);
+                store.append(records[i]);
+            }
+            Thread.sleep(10L);
+            CompactionScheduler scheduler = new CompactionScheduler(store, temporaryFolder.getRoot(), config);
+            scheduler.runOnce();
+            scheduler.stop();
+            assertThat(store.getSealedSegments().size(), is(0));
+            assertThat(store.get(records[0].getTraceId()), is(nullValue()));
+            assertThat(store.get(records[records.length - 1].getTraceId()), is(notNullValue()));
+        }
+    }
+    
+    @Test
+    public void assertKeepSchedulingAfterFailedRound() throws IOException, InterruptedException {
+        StorageConfig config = createConfig();
+        StorageConfig schedulerConfig = createConfig();
+        schedulerConfig.setCompactionIntervalMillis(10L);
+        try (TraceStore store = new TraceStore(config)) {
+            CompactionScheduler scheduler = new CompactionScheduler(store, temporaryFolder.getRoot(), schedulerConfig);
+            scheduler.start();
+            Thread.sleep(50L);
+            store.open();
+            appendMostlyDeleted(store, new ArrayList<>());
+            int segmentCount = store.getSegments().size();
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (store.getSegments().size() >= segmentCount && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            scheduler.stop();
+            assertTrue(store.getSegments().size() < segmentCount);
+        }
+    }
+    
+    @Test
+    public void assertReadDuringCompaction() throws IOException, InterruptedException, ExecutionException {
+        StorageConfig config = createConfig();
+        List<TraceRecord> kept = new CopyOnWriteArrayList<>();
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            CompactionScheduler scheduler = new CompactionScheduler(store, temporaryFolder.getRoot(), config);
+            appendMostlyDeleted(store, kept);
+            final Future<Integer> lookups = executor.submit(() -> {
+                int result = 0;
+                while (!done.get()) {
+                    for (TraceRecord each : kept) {
+                        assertThat(store.get(each.getTraceId()).getAttributes(), is(each.getAttributes()));
+                    }
+                    result++;
+                }
+                return result;
+            });
+            final Future<Integer> searches = executor.submit(() -> {
+                int result = 0;
+                while (!done.get()) {
+                    List<TraceRecord> expected = new ArrayList<>(kept);
+                    assertSearched(expected, visitor -> store.searchByTime(0L, Long.MAX_VALUE, visitor), false);
+                    assertSearched(expected, visitor -> store.searchByAttributes(new TermFilter("kept", "true"), visitor), true);
+                    result++;
+                }
+                return result;
+            });
+            for (int i = 0; i < 20; i++) {
+                appendMostlyDeleted(store, kept);
+                scheduler.runOnce();
+            }
+            done.set(true);
+            assertTrue(lookups.get() > 0);
+            assertTrue(searches.get() > 0);
+            scheduler.stop();
+        } finally {
+            done.set(true);
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void assertResumeSearchAcrossCompaction() throws IOException {
+        StorageConfig config = createConfig();
+        List<TraceRecord> kept = new ArrayList<>();
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            appendMostlyDeleted(store, kept);
+            appendMostlyDeleted(store, kept);
+            SearchCursor byTime = new SearchCursor();
+            SearchCursor byAttributes = new SearchCursor();
+            List<Long> byTimeIds = new ArrayList<>();
+            List<Long> byAttributesIds = new ArrayList<>();
+            assertFalse(store.searchByTime(0L, Long.MAX_VALUE, byTime, record -> collect(byTimeIds, record, 3)));
+            assertFalse(store.searchByAttributes(new TermFilter("kept", "true"), byAttributes, record -> collect(byAttributesIds, record, 4)));
+            CompactionScheduler scheduler = new CompactionScheduler(store, temporaryFolder.getRoot(), config);
+            scheduler.runOnce();
+            scheduler.stop();
+            assertThat(store.getSegments().get(byTime.getSegmentId()), not(byTime.getSegment()));
+            assertTrue(store.searchByTime(0L, Long.MAX_VALUE, byTime, record -> collect(byTimeIds, record, Integer.MAX_VALUE)));
+            assertTrue(store.searchByAttributes(new TermFilter("kept", "true"), byAttributes, record -> collect(byAttributesIds, record, Integer.MAX_VALUE)));
+            List<Long> expected = new ArrayList<>();
+            for (TraceRecord each : kept) {
+                expected.add(each.getTraceId());
+            }
+            assertThat(byTimeIds, is(expected));
+            assertThat(byAttributesIds, is(expected));
+        }
+    }
+    
+    @Test(expected = GalaxyTracingException.class)
+    public void assertExpireCursorOfClosedSegment() throws IOException {
+        StorageConfig config = createConfig();
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            appendMostlyDeleted(store, new ArrayList<>());
+            appendMostlyDeleted(store, new ArrayList<>());
+            SearchCursor cursor = new SearchCursor();
+            List<Long> ids = new ArrayList<>();
+            assertFalse(store.searchByTime(0L, Long.MAX_VALUE, cursor, record -> collect(ids, record, 3)));
+            CompactionScheduler scheduler = new CompactionScheduler(store, temporaryFolder.getRoot(), config);
+            scheduler.runOnce();
+            scheduler.runOnce();
+            scheduler.stop();
+            store.searchByTime(0L, Long.MAX_VALUE, cursor, record -> true);
+        }
+    }
+    
+    private static boolean collect(final List<Long> traceIds, final TraceRecord record, final int limit) {
+        traceIds.add(record.getTraceId());
+        return traceIds.size() < limit;
+    }
+    
+    private void appendMostlyDeleted(final TraceStore store, final List<TraceRecord> kept) {
+        List<TraceRecord> deleted = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            TraceRecord record = createRecord("service-" + i);
+            if (0 == i % 10) {
+                record.getAttributes().put("kept", "true");
+            }
+            store.append(record);
+            if (0 == i % 10) {
+                kept.add(record);
+            } else {
+                deleted.add(record);
+            }
+        }
+        for (TraceRecord each : deleted) {
+            store.delete(each.getTraceId());
+        }
+    }
+    
+    private static void assertSearched(final List<TraceRecord> expected, final SearchCall search, final boolean keptOnly) {
+        Set<Long> actual = new HashSet<>();
+        search.call(record -> {
+            assertTrue(actual.add(record.getTraceId()));
+            assertTrue(!keptOnly || "true".equals(record.getAttributes().get("kept")));
+            return true;
+        });
+        for (TraceRecord each : expected) {
+            assertTrue(actual.contains(each.getTraceId()));
+        }
+    }
+    
+    private void assertRecords(final TraceStore store, final TraceRecord[] records) {
+        for (int i = 0; i < records.length; i++) {
+            TraceRecord actual = store.get(records[i].getTraceId());
+            if (0 == i % 10) {
+                assertThat(actual.getAttributes(), is(records[i].getAttributes()));
+            } else {
+                assertThat(actual, is(nullValue()));
+            }
+        }
+    }
+    
+    private StorageConfig createConfig() {
+        StorageConfig result = new StorageConfig();
+        result.setDataDir(temporaryFolder.getRoot().getPath());
+        result.setSegmentSize(1024L);
+        result.setExpectedTraceCount(16L);
+        result.setRetentionMillis(0L);
+        result.setRetentionBytes(0L);
+        result.setCompactionIntervalMillis(0L);
+        result.setCompactionBytesPerSecond(1024L * 1024 * 1024);
+        result.setTraceCacheBytes(1024L * 1024);
+        return result;
+    }
+    
+    private TraceRecord createRecord(final String serviceName) {
+        long traceId = snowflakeId.generateId();
+        Map<String, String> attributes = new HashMap<>(4, 1);
+        attributes.put("traceId", String.valueOf(traceId));
+        attributes.put("serviceName", serviceName);
+        return new TraceRecord(traceId, attributes);
+    }
+    
+    private interface SearchCall {
+        
+        void call(TraceRecordVisitor visitor);
+    }
+}
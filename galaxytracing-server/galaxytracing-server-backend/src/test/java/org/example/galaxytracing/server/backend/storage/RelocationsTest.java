@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage;
+
+import org.example.galaxytracing.server.backend.index.traceid.OffHeapTraceIdIndex;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public final class RelocationsTest {
+    
+    @Test
+    public void assertAddBeyondInitialCapacity() {
+        Relocations relocations = new Relocations();
+        for (int i = 0; i < 5000; i++) {
+            relocations.add(i + 1, OffHeapTraceIdIndex.location(1, i), 0 == i % 3 ? OffHeapTraceIdIndex.NOT_FOUND : i * 2L, 12 + i);
+        }
+        assertThat(relocations.size(), is(5000));
+        for (int i = 0; i < 5000; i++) {
+            assertThat(relocations.traceId(i), is(i + 1L));
+            assertThat(relocations.source(i), is(OffHeapTraceIdIndex.location(1, i)));
+            assertThat(relocations.target(i), is(0 == i % 3 ? OffHeapTraceIdIndex.NOT_FOUND : i * 2L));
+            assertThat(relocations.recordSize(i), is(12 + i));
+        }
+    }
+}
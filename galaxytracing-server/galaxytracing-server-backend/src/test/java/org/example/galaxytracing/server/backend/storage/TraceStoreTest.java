@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage;
+
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.example.galaxytracing.infra.config.entity.server.StorageConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.index.attribute.filter.TermFilter;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class TraceStoreTest {
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final SnowflakeId snowflakeId = new SnowflakeId(1L, 1L);
+    
+    @Test
+    public void assertDeleteSurvivesReopen() throws IOException {
+        StorageConfig config = createConfig();
+        TraceRecord deleted = createRecord("order-service");
+        TraceRecord kept = createRecord("pay-service");
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            store.append(deleted);
+            store.append(kept);
+            assertTrue(store.delete(deleted.getTraceId()));
+            assertFalse(store.delete(deleted.getTraceId()));
+        }
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            assertThat(store.get(deleted.getTraceId()), is(nullValue()));
+            assertThat(store.get(kept.getTraceId()), is(notNullValue()));
+            assertThat(store.getDeadSize(store.getSegments().get(0)), is(recordSize(deleted)));
+        }
+    }
+    
+    @Test
+    public void assertOverwriteDeadSizeSurvivesReopen() throws IOException {
+        StorageConfig config = createConfig();
+        TraceRecord first = createRecord("order-service");
+        Map<String, String> attributes = new HashMap<>(first.getAttributes());
+        attributes.put("status", "done");
+        TraceRecord second = new TraceRecord(first.getTraceId(), attributes);
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            store.append(first);
+            store.append(second);
+            assertThat(store.getDeadSize(store.getSegments().get(0)), is(recordSize(first)));
+        }
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            assertThat(store.get(first.getTraceId()).getAttributes().get("status"), is("done"));
+            assertThat(store.getDeadSize(store.getSegments().get(0)), is(recordSize(first)));
+        }
+    }
+    
+    @Test
+    public void assertDeleteAcrossSegmentsSurvivesReopen() throws IOException {
+        StorageConfig config = createConfig();
+        config.setSegmentSize(256L);
+        TraceRecord[] records = new TraceRecord[20];
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            for (int i = 0; i < records.length; i++) {
+                records[i] = createRecord("service-" + i);
+                store.append(records[i]);
+            }
+            for (int i = 0; i < records.length; i += 2) {
+                assertTrue(store.delete(records[i].getTraceId()));
+            }
+        }
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            assertTrue(store.getSegments().size() > 1);
+            for (int i = 0; i < records.length; i++) {
+                assertThat(null == store.get(records[i].getTraceId()), is(0 == i % 2));
+            }
+            long deadSize = 0L;
+            for (Segment each : store.getSegments().values()) {
+                deadSize += store.getDeadSize(each);
+            }
+            long expectedDeadSize = 0L;
+            for (int i = 0; i < records.length; i += 2) {
+                expectedDeadSize += recordSize(records[i]);
+            }
+            assertThat(deadSize, is(expectedDeadSize));
+        }
+    }
+    
+    @Test
+    public void assertSearchSkipsOverwrittenCopies() throws IOException {
+        StorageConfig config = createConfig();
+        TraceRecord first = createRecord("order-service");
+        Map<String, String> attributes = new HashMap<>(first.getAttributes());
+        attributes.put("status", "done");
+        TraceRecord second = new TraceRecord(first.getTraceId(), attributes);
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            store.append(first);
+            store.append(createRecord("pay-service"));
+            store.append(second);
+            assertSearchedOnce(store, second);
+        }
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            assertSearchedOnce(store, second);
+        }
+    }
+    
+    @Test
+    public void assertResumeSearchFromCursor() throws IOException {
+        StorageConfig config = createConfig();
+        config.setSegmentSize(256L);
+        List<TraceRecord> records = new ArrayList<>();
+        try (TraceStore store = new TraceStore(config)) {
+            store.open();
+            for (int i = 0; i < 20; i++) {
+                TraceRecord record = createRecord("order-service");
+                records.add(record);
+                store.append(record);
+            }
+            assertTrue(store.getSegments().size() > 1);
+            SearchCursor byTime = new SearchCursor();
+            assertResumed(records, visitor -> store.searchByTime(0L, Long.MAX_VALUE, byTime, visitor));
+            SearchCursor byAttributes = new SearchCursor();
+            assertResumed(records, visitor -> store.searchByAttributes(new TermFilter("serviceName", "order-service"), byAttributes, visitor));
+        }
+    }
+    
+    private static void assertResumed(final List<TraceRecord> expected, final ResumableSearch search) {
+        List<Long> actual = new ArrayList<>();
+        int calls = 0;
+        boolean done = false;
+        while (!done) {
+            calls++;
+            int stopAt = actual.size() + 3;
+            done = search.search(record -> actual.add(record.getTraceId()) && actual.size() < stopAt);
+        }
+        assertThat(calls, is(expected.size() / 3 + 1));
+        List<Long> expectedIds = new ArrayList<>();
+        for (TraceRecord each : expected) {
+            expectedIds.add(each.getTraceId());
+        }
+        assertThat(actual, is(expectedIds));
+    }
+    
+    private static void assertSearchedOnce(final TraceStore store, final TraceRecord expected) {
+        List<TraceRecord> byTime = new ArrayList<>();
+        store.searchByTime(0L, Long.MAX_VALUE, record -> record.getTraceId() != expected.getTraceId() || byTime.add(record));
+        assertThat(byTime.size(), is(1));
+        assertThat(byTime.get(0).getAttributes(), is(expected.getAttributes()));
+        List<TraceRecord> byAttributes = new ArrayList<>();
+        store.searchByAttributes(new TermFilter("serviceName", "order-service"), byAttributes::add);
+        assertThat(byAttributes.size(), is(1));
+        assertThat(byAttributes.get(0).getAttributes(), is(expected.getAttributes()));
+    }
+    
+    private StorageConfig createConfig() {
+        StorageConfig result = new StorageConfig();
+        result.setDataDir(temporaryFolder.getRoot().getPath());
+        result.setExpectedTraceCount(16L);
+        result.setCompactionIntervalMillis(0L);
+        result.setTraceCacheBytes(1024L * 1024);
+        return result;
+    }
+    
+    private TraceRecord createRecord(final String serviceName) {
+        long traceId = snowflakeId.generateId();
+        Map<String, String> attributes = new HashMap<>(4, 1);
+        attributes.put("traceId", String.valueOf(traceId));
+        attributes.put("serviceName", serviceName);
+        return new TraceRecord(traceId, attributes);
+    }
+    
+    private static long recordSize(final TraceRecord record) {
+        return Segment.HEADER_SIZE + TraceRecordCodec.encode(record.getAttributes()).length;
+    }
+    
+    private interface ResumableSearch {
+        
+        boolean search(TraceRecordVisitor visitor);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.storage.column;
+
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.backend.storage.segment.Segment;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+public final class ColumnarStoreTest {
+    
+    private static final int RECORD_COUNT = 1000;
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void assertEncodings() throws IOException {
+        Segment segment = createSegment(new ColumnarStore(), 0, RECORD_COUNT, true);
+        ColumnarSegment columnarSegment = ColumnarSegment.open(segment.siblingFile(".columns"));
+        assertThat(columnarSegment.getRowCount(), is(RECORD_COUNT));
+        assertFalse(columnarSegment.getColumnNames().contains(TraceRecordCodec.TRACE_ID));
+        Column service = columnarSegment.readColumn("service");
+        assertThat(service, instanceOf(DictionaryColumn.class));
+        assertThat(((DictionaryColumn) service).getDictionarySize(), is(10));
+        Column endpoint = columnarSegment.readColumn("endpoint");
+        assertThat(endpoint, instanceOf(DictionaryColumn.class));
+        assertThat(((DictionaryColumn) endpoint).getDictionarySize(), is(300));
+        Column user = columnarSegment.readColumn("user");
+        assertThat(user, instanceOf(PlainColumn.class));
+        assertThat(columnarSegment.readColumn("missing"), is(nullValue()));
+        for (int row = 0; row < RECORD_COUNT; row++) {
+            assertThat(service.getString(row), is("service-" + row % 10));
+            assertThat(endpoint.getString(row), is("/endpoint-" + row % 300));
+            assertThat(user.getString(row), is("user-" + row));
+        }
+        segment.close();
+    }
+    
+    @Test
+    public void assertNulls() throws IOException {
+        Segment segment = createSegment(new ColumnarStore(), 0, RECORD_COUNT, true);
+        ColumnarSegment columnarSegment = ColumnarSegment.open(segment.siblingFile(".columns"));
+        Column region = columnarSegment.readColumn("region");
+        Column detail = columnarSegment.readColumn("detail");
+        assertThat(region, instanceOf(DictionaryColumn.class));
+        assertThat(detail, instanceOf(PlainColumn.class));
+        for (int row = 0; row < RECORD_COUNT; row++) {
+            assertThat(region.isNull(row), is(0 != row % 3));
+            assertThat(region.getString(row), is(0 == row % 3 ? "east" : null));
+            assertThat(detail.isNull(row), is(0 != row % 7));
+            assertThat(detail.getString(row), is(0 == row % 7 ? "detail-" + row : null));
+        }
+        segment.close();
+    }
+    
+    @Test
+    public void assertCountByAgreesWithRows() throws IOException {
+        ColumnarStore columnarStore = new ColumnarStore();
+        Segment sealed = createSegment(columnarStore, 0, RECORD_COUNT, true);
+        Segment active = createSegment(columnarStore, 1, RECORD_COUNT, false);
+        assertCountBy(columnarStore, sealed, active, "service", null, null);
+        assertCountBy(columnarStore, sealed, active, "region", null, null);
+        assertCountBy(columnarStore, sealed, active, "service", "status", "error");
+        assertCountBy(columnarStore, sealed, active, "service", "region", "east");
+        assertCountBy(columnarStore, sealed, active, "region", "user", "user-3");
+        assertCountBy(columnarStore, sealed, active, "service", "status", "unknown");
+        assertCountBy(columnarStore, sealed, active, "missing", null, null);
+        assertCountBy(columnarStore, sealed, active, "service", "missing", "value");
+        Map<String, Long> expected = new HashMap<>(4, 1);
+        expected.put("service-0", 20L);
+        assertThat(columnarStore.countBy(Collections.singletonList(sealed), "service", "status", "error"), is(expected));
+        sealed.close();
+        active.close();
+    }
+    
+    private static void assertCountBy(final ColumnarStore columnarStore, final Segment sealed, final Segment active, final String groupKey, final String filterKey, final String filterValue) {
+        Map<String, Long> columns = columnarStore.countBy(Collections.singletonList(sealed), groupKey, filterKey, filterValue);
+        Map<String, Long> rows = columnarStore.countBy(Collections.singletonList(active), groupKey, filterKey, filterValue);
+        assertThat(columns, is(rows));
+        Map<String, Long> both = columnarStore.countBy(Arrays.asList(sealed, active), groupKey, filterKey, filterValue);
+        assertThat(both.keySet(), is(rows.keySet()));
+        for (Map.Entry<String, Long> entry : rows.entrySet()) {
+            assertThat(both.get(entry.getKey()), is(entry.getValue() * 2));
+        }
+    }
+    
+    @Test
+    public void assertRebuildTruncatedColumnarFile() throws IOException {
+        Segment segment = createSegment(new ColumnarStore(), 0, RECORD_COUNT, true);
+        File file = segment.siblingFile(".columns");
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(file.length() / 2);
+        }
+        assertThat(countServices(segment), is(RECORD_COUNT));
+        assertThat(ColumnarSegment.open(file).getRowCount(), is(RECORD_COUNT));
+        segment.close();
+    }
+    
+    @Test
+    public void assertRebuildColumnarFileOfOtherSegment() throws IOException {
+        Segment large = createSegment(new ColumnarStore(), 0, RECORD_COUNT, true);
+        Segment small = createSegment(new ColumnarStore(), 1, 10, true);
+        Files.copy(large.siblingFile(".columns").toPath(), small.siblingFile(".columns").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertThat(countServices(small), is(10));
+        assertThat(ColumnarSegment.open(small.siblingFile(".columns")).getRowCount(), is(10));
+        large.close();
+        small.close();
+    }
+    
+    private static int countServices(final Segment segment) {
+        ColumnarStore columnarStore = new ColumnarStore();
+        columnarStore.onOpen(segment);
+        long result = 0L;
+        for (long each : columnarStore.countBy(Collections.singletonList(segment), "service", null, null).values()) {
+            result += each;
+        }
+        return (int) result;
+    }
+    
+    private Segment createSegment(final ColumnarStore columnarStore, final int id, final int recordCount, final boolean sealed) {
+        Segment result = Segment.create(temporaryFolder.getRoot(), id);
+        for (int i = 0; i < recordCount; i++) {
+            Map<String, String> attributes = new HashMap<>(16, 1);
+            attributes.put(TraceRecordCodec.TRACE_ID, String.valueOf(i + 1));
+            attributes.put("service", "service-" + i % 10);
+            attributes.put("status", 0 == i % 50 ? "error" : "ok");
+            attributes.put("endpoint", "/endpoint-" + i % 300);
+            attributes.put("user", "user-" + i);
+            if (0 == i % 3) {
+                attributes.put("region", "east");
+            }
+            if (0 == i % 7) {
+                attributes.put("detail", "detail-" + i);
+            }
+            columnarStore.onAppend(result, result.append(i + 1, TraceRecordCodec.encode(attributes)), new TraceRecord(i + 1, attributes));
+        }
+        if (sealed) {
+            result.seal();
+            columnarStore.onSeal(result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.backend.wal;
+
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeId;
+import org.example.galaxytracing.infra.config.entity.server.StorageConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.TraceStore;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class WriteAheadLogTest {
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final SnowflakeId snowflakeId = new SnowflakeId(1L, 1L);
+    
+    @Test
+    public void assertAcknowledgeAfterGroupCommit() throws Exception {
+        StorageConfig config = createConfig(temporaryFolder.newFolder());
+        config.setWalGroupCommitMillis(20L);
+        List<TraceRecord> records = createRecords(100);
+        AtomicBoolean acknowledgedEarly = new AtomicBoolean();
+        try (TraceStore store = new TraceStore(config); WriteAheadLog wal = new WriteAheadLog(config, store)) {
+            store.open();
+            wal.open();
+            long startLsn = wal.getCommittedLsn();
+            List<CompletableFuture<Void>> futures = new ArrayList<>(records.size());
+            long endLsn = startLsn;
+            for (TraceRecord each : records) {
+                endLsn += recordSize(each);
+                long expectedLsn = endLsn;
+                futures.add(wal.append(each).thenRun(() -> acknowledgedEarly.compareAndSet(false, wal.getCommittedLsn() < expectedLsn)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10L, TimeUnit.SECONDS);
+            assertFalse(acknowledgedEarly.get());
+            assertThat(wal.getCommittedLsn(), is(endLsn));
+            awaitApplied(wal);
+            for (TraceRecord each : records) {
+                assertThat(store.get(each.getTraceId()).getAttributes(), is(each.getAttributes()));
+            }
+        }
+    }
+    
+    @Test
+    public void assertReplayAfterCrash() throws Exception {
+        File dataDir = temporaryFolder.newFolder();
+        StorageConfig config = createConfig(dataDir);
+        List<TraceRecord> records = createRecords(50);
+        long committedLsn;
+        File crashDir = temporaryFolder.newFolder();
+        try (TraceStore store = new TraceStore(config); WriteAheadLog wal = new WriteAheadLog(config, store)) {
+            store.open();
+            wal.open();
+            appendAll(wal, records);
+            committedLsn = wal.getCommittedLsn();
+            copyDirectory(new File(dataDir, "wal"), new File(crashDir, "wal"));
+        }
+        assertFalse(new File(crashDir, "wal/checkpoint").exists());
+        StorageConfig crashConfig = createConfig(crashDir);
+        List<Long> appliedLsns = new ArrayList<>();
+        try (TraceStore store = new TraceStore(crashConfig); WriteAheadLog wal = new WriteAheadLog(crashConfig, store)) {
+            wal.addListener((nextLsn, record) -> appliedLsns.add(nextLsn));
+            store.open();
+            wal.open();
+            assertThat(wal.getCommittedLsn(), is(committedLsn));
+            awaitApplied(wal);
+            for (TraceRecord each : records) {
+                assertThat(store.get(each.getTraceId()), is(notNullValue()));
+            }
+        }
+        assertThat(appliedLsns.size(), is(records.size()));
+        assertThat(appliedLsns.get(appliedLsns.size() - 1), is(committedLsn));
+    }
+    
+    @Test
+    public void assertTruncateTornTail() throws Exception {
+        File dataDir = temporaryFolder.newFolder();
+        StorageConfig config = createConfig(dataDir);
+        List<TraceRecord> records = createRecords(10);
+        long committedLsn;
+        File crashDir = temporaryFolder.newFolder();
+        try (TraceStore store = new TraceStore(config); WriteAheadLog wal = new WriteAheadLog(config, store)) {
+            store.open();
+            wal.open();
+            appendAll(wal, records);
+            committedLsn = wal.getCommittedLsn();
+            copyDirectory(new File(dataDir, "wal"), new File(crashDir, "wal"));
+        }
+        File logFile = lastLogFile(new File(crashDir, "wal"));
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "rw")) {
+            randomAccessFile.seek(randomAccessFile.length());
+            randomAccessFile.write(new byte[]{0, 0, 0, 42, 1, 2, 3});
+        }
+        StorageConfig crashConfig = createConfig(crashDir);
+        try (TraceStore store = new TraceStore(crashConfig); WriteAheadLog wal = new WriteAheadLog(crashConfig, store)) {
+            store.open();
+            wal.open();
+            assertThat(wal.getCommittedLsn(), is(committedLsn));
+            assertThat(logFile.length(), is(committedLsn));
+            awaitApplied(wal);
+            assertThat(store.get(records.get(records.size() - 1).getTraceId()), is(notNullValue()));
+        }
+    }
+    
+    @Test
+    public void assertTruncateCorruptedRecord() throws Exception {
+        File dataDir = temporaryFolder.newFolder();
+        StorageConfig config = createConfig(dataDir);
+        List<TraceRecord> records = createRecords(10);
+        long committedLsn;
+        File crashDir = temporaryFolder.newFolder();
+        try (TraceStore store = new TraceStore(config); WriteAheadLog wal = new WriteAheadLog(config, store)) {
+            store.open();
+            wal.open();
+            appendAll(wal, records);
+            committedLsn = wal.getCommittedLsn();
+            copyDirectory(new File(dataDir, "wal"), new File(crashDir, "wal"));
+        }
+        File logFile = lastLogFile(new File(crashDir, "wal"));
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "rw")) {
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            int last = randomAccessFile.read();
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            randomAccessFile.write(last ^ 0xFF);
+        }
+        TraceRecord lastRecord = records.get(records.size() - 1);
+        StorageConfig crashConfig = createConfig(crashDir);
+        try (TraceStore store = new TraceStore(crashConfig); WriteAheadLog wal = new WriteAheadLog(crashConfig, store)) {
+            store.open();
+            wal.open();
+            assertThat(wal.getCommittedLsn(), is(committedLsn - recordSize(lastRecord)));
+            awaitApplied(wal);
+            assertThat(store.get(lastRecord.getTraceId()), is(nullValue()));
+            assertThat(store.get(records.get(0).getTraceId()), is(notNullValue()));
+        }
+    }
+    
+    @Test
+    public void assertCheckpointDeletesAppliedFiles() throws Exception {
+        File dataDir = temporaryFolder.newFolder();
+        StorageConfig config = createConfig(dataDir);
+        config.setWalFileSize(512L);
+        config.setWalGroupCommitBytes(1);
+        long committedLsn;
+        try (TraceStore store = new TraceStore(config); WriteAheadLog wal = new WriteAheadLog(config, store)) {
+            store.open();
+            wal.open();
+            appendAll(wal, createRecords(50));
+            assertTrue(logFiles(new File(dataDir, "wal")).length > 1);
+            committedLsn = wal.getCommittedLsn();
+        }
+        File[] logFiles = logFiles(new File(dataDir, "wal"));
+        assertThat(logFiles.length, is(1));
+        assertTrue(Long.parseLong(logFiles[0].getName().replace(".wal", "")) <= committedLsn);
+        try (DataInputStream input = new DataInputStream(new FileInputStream(new File(dataDir, "wal/checkpoint")))) {
+            assertThat(input.readLong(), is(committedLsn));
+        }
+    }
+    
+    @Test
+    public void assertBackOffWhileApplyFails() throws Exception {
+        StorageConfig config = createConfig(temporaryFolder.newFolder());
+        AtomicInteger attempts = new AtomicInteger();
+        long failUntil = System.currentTimeMillis() + 500L;
+        try (TraceStore store = new TraceStore(config); WriteAheadLog wal = new WriteAheadLog(config, store)) {
+            wal.addListener((nextLsn, record) -> {
+                attempts.incrementAndGet();
+                if (System.currentTimeMillis() < failUntil) {
+                    throw new GalaxyTracingException("Listener is failing");
+                }
+            });
+            store.open();
+            wal.open();
+            appendAll(wal, createRecords(1));
+            awaitApplied(wal);
+        }
+        assertTrue(attempts.get() > 1);
+        assertTrue(attempts.get() < 10);
+    }
+    
+    private void appendAll(final WriteAheadLog wal, final List<TraceRecord> records) throws Exception {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(records.size());
+        for (TraceRecord each : records) {
+            futures.add(wal.append(each));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10L, TimeUnit.SECONDS);
+    }
+    
+    private static void awaitApplied(final WriteAheadLog wal) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (wal.getAppliedLsn() < wal.getCommittedLsn() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(wal.getAppliedLsn(), is(wal.getCommittedLsn()));
+    }
+    
+    private static void copyDirectory(final File source, final File target) throws IOException {
+        assertTrue(target.mkdirs());
+        for (File each : source.listFiles()) {
+            Files.copy(each.toPath(), new File(target, each.getName()).toPath());
+        }
+    }
+    
+    private static File[] logFiles(final File directory) {
+        return directory.listFiles((dir, name) -> name.endsWith(".wal"));
+    }
+    
+    private static File lastLogFile(final File directory) {
+        File result = null;
+        for (File each : logFiles(directory)) {
+            if (null == result || each.getName().compareTo(result.getName()) > 0) {
+                result = each;
+            }
+        }
+        return result;
+    }
+    
+    private StorageConfig createConfig(final File dataDir) {
+        StorageConfig result = new StorageConfig();
+        result.setDataDir(dataDir.getPath());
+        result.setExpectedTraceCount(16L);
+        result.setCompactionIntervalMillis(0L);
+        result.setTraceCacheBytes(1024L * 1024);
+        result.setWalCheckpointIntervalMillis(60L * 60 * 1000);
+        return result;
+    }
+    
+    private List<TraceRecord> createRecords(final int count) {
+        List<TraceRecord> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long traceId = snowflakeId.generateId();
+            Map<String, String> attributes = new HashMap<>(4, 1);
+            attributes.put("traceId", String.valueOf(traceId));
+            attributes.put("serviceName", "service-" + i);
+            result.add(new TraceRecord(traceId, attributes));
+        }
+        return result;
+    }
+    
+    private static long recordSize(final TraceRecord record) {
+        return WriteAheadLog.HEADER_SIZE + TraceRecordCodec.encode(record.getAttributes()).length;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center;
+
+import com.google.common.base.Preconditions;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Member of the collector cluster.
+ *
+ * @author JiekerTime
+ */
+@Getter
+@RequiredArgsConstructor
+@EqualsAndHashCode
+public final class ClusterNode {
+    
+    private final String host;
+    
+    private final int port;
+    
+    /**
+     * Parse a member address.
+     *
+     * @param address address in the form of {@code host:port}
+     * @return cluster node
+     */
+    public static ClusterNode parse(final String address) {
+        int index = address.lastIndexOf(':');
+        Preconditions.checkArgument(index > 0 && index < address.length() - 1, "Illegal member address `%s`.", address);
+        return new ClusterNode(address.substring(0, index).trim(), Integer.parseInt(address.substring(index + 1).trim()));
+    }
+    
+    /**
+     * Get the address of the node.
+     *
+     * @return address in the form of {@code host:port}
+     */
+    public String getAddress() {
+        return host + ":" + port;
+    }
+    
+    /**
+     * Get the HTTP url of a path on the node.
+     *
+     * @param path path starting with {@code /}
+     * @return url
+     */
+    public String getUrl(final String path) {
+        return "http://" + getAddress() + path;
+    }
+    
+    @Override
+    public String toString() {
+        return getAddress();
+    }
+}
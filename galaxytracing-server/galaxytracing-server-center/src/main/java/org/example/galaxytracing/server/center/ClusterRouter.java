@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center;
+
+import com.google.common.base.Preconditions;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.config.entity.server.ClusterConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.center.forward.TraceForwarder;
+import org.example.galaxytracing.server.center.query.ClusterQueryClient;
+import org.example.galaxytracing.server.center.route.ConsistentHashRing;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Router of traces across a static list of collectors.
+ *
+ * <p>Every member builds the same {@link ConsistentHashRing} from the configured members, so all of them agree on the
+ * owner of a traceId without talking to each other. A collector keeps the traces it owns and forwards the others in
+ * batches through the {@link TraceForwarder}.</p>
+ *
+ * <p>Queries fan out through the {@link ClusterQueryClient}: a lookup asks the owner, and every member only if neither
+ * this collector nor the owner holds the trace, then assembles the fragments found. Searches and aggregations ask
+ * every member. A member which does not answer is skipped, so the result may be partial but is never blocked by
+ * it.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class ClusterRouter implements Closeable {
+    
+    @Getter
+    private final ClusterNode self;
+    
+    private final ConsistentHashRing ring;
+    
+    private final List<ClusterNode> remoteNodes;
+    
+    private final TraceForwarder forwarder;
+    
+    private final ClusterQueryClient queryClient;
+    
+    public ClusterRouter(final ClusterConfig config) {
+        self = ClusterNode.parse(config.getSelf());
+        Set<ClusterNode> members = new LinkedHashSet<>();
+        for (String each : config.getMembers()) {
+            members.add(ClusterNode.parse(each));
+        }
+        Preconditions.checkArgument(members.contains(self), "Members do not contain self `%s`.", self);
+        remoteNodes = new LinkedList<>(members);
+        remoteNodes.remove(self);
+        ring = new ConsistentHashRing(members, config.getVirtualNodes());
+        forwarder = new TraceForwarder(config, remoteNodes);
+        queryClient = new ClusterQueryClient(config, remoteNodes.size());
+        log.info("Cluster router started on {} with members {}", self, members);
+    }
+    
+    /**
+     * Find the member owning a trace.
+     *
+     * @param traceId traceId
+     * @return owning member
+     */
+    public ClusterNode getOwner(final long traceId) {
+        return ring.locate(traceId);
+    }
+    
+    /**
+     * Judge whether this collector owns a trace.
+     *
+     * @param traceId traceId
+     * @return owned or not
+     */
+    public boolean isLocal(final long traceId) {
+        return self.equals(ring.locate(traceId));
+    }
+    
+    /**
+     * Forward a trace owned by another member.
+     *
+     * @param record trace record
+     * @return future completed once the owner acknowledged the trace or the trace is durable in the hint file
+     */
+    public CompletableFuture<Void> forward(final TraceRecord record) {
+        return forwarder.forward(ring.locate(record.getTraceId()), record);
+    }
+    
+    /**
+     * Look up the fragments of a trace held by the other members.
+     *
+     * @param traceId traceId
+     * @param path path of the trace on every member
+     * @param foundLocally whether this collector holds a fragment
+     * @return fragments held by the other members
+     */
+    public List<TraceRecord> lookup(final long traceId, final String path, final boolean foundLocally) {
+        List<TraceRecord> result = new LinkedList<>();
+        ClusterNode owner = getOwner(traceId);
+        if (!self.equals(owner)) {
+            addFragment(result, owner, path);
+        }
+        if (foundLocally || !result.isEmpty()) {
+            return result;
+        }
+        for (ClusterNode each : remoteNodes) {
+            if (!each.equals(owner)) {
+                addFragment(result, each, path);
+            }
+        }
+        return result;
+    }
+    
+    private void addFragment(final List<TraceRecord> fragments, final ClusterNode node, final String path) {
+        try {
+            TraceRecord fragment = queryClient.get(node, path);
+            if (null != fragment) {
+                fragments.add(fragment);
+            }
+        } catch (GalaxyTracingException ex) {
+            log.warn("Skip {} in the lookup of {}", node, path, ex);
+        }
+    }
+    
+    /**
+     * Assemble the fragments of a trace into one record, a key held by several fragments keeps its first value.
+     *
+     * @param fragments fragments of the same trace
+     * @return trace record
+     */
+    public static TraceRecord assemble(final List<TraceRecord> fragments) {
+        if (1 == fragments.size()) {
+            return fragments.get(0);
+        }
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (TraceRecord each : fragments) {
+            for (Map.Entry<String, String> entry : each.getAttributes().entrySet()) {
+                attributes.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        return new TraceRecord(fragments.get(0).getTraceId(), attributes);
+    }
+    
+    /**
+     * Start a search of the other members, the caller reads their NDJSON results and closes the search.
+     *
+     * @param path path and query of the search on every member
+     * @return search of the other members
+     */
+    public ClusterSearch search(final String path) {
+        return new ClusterSearch(queryClient, remoteNodes.iterator(), path);
+    }
+    
+    /**
+     * Fetch the JSON answers of the other members.
+     *
+     * @param path path and query on every member
+     * @return answers of the members which answered
+     */
+    public List<String> fetch(final String path) {
+        List<String> result = new ArrayList<>(remoteNodes.size());
+        for (ClusterNode each : remoteNodes) {
+            try {
+                result.add(queryClient.getString(each, path));
+            } catch (GalaxyTracingException ex) {
+                log.warn("Skip {} in the query of {}", each, path, ex);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public void close() {
+        forwarder.close();
+        queryClient.close();
+    }
+}
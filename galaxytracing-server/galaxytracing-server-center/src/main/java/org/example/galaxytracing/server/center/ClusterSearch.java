@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.center.query.ClusterQueryClient;
+import org.example.galaxytracing.server.center.query.LineStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Search fanned out to the other members, their NDJSON responses are read one member after another.
+ *
+ * <p>The response being read stays open while the visitor stops the search, a resumed search goes on with the next
+ * line instead of asking the members again. A member which fails is skipped.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class ClusterSearch implements Closeable {
+    
+    private final ClusterQueryClient queryClient;
+    
+    private final Iterator<ClusterNode> nodes;
+    
+    private final String path;
+    
+    private ClusterNode node;
+    
+    private LineStream stream;
+    
+    ClusterSearch(final ClusterQueryClient queryClient, final Iterator<ClusterNode> nodes, final String path) {
+        this.queryClient = queryClient;
+        this.nodes = nodes;
+        this.path = path;
+    }
+    
+    /**
+     * Visit the next lines of the members until the visitor stops or all members are read.
+     *
+     * @param visitor visitor of the lines
+     * @return whether all members are read, false if the visitor stopped the search
+     */
+    public boolean resume(final ClusterQueryClient.LineVisitor visitor) {
+        while (null != stream || nodes.hasNext()) {
+            if (!read(visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean read(final ClusterQueryClient.LineVisitor visitor) {
+        try {
+            if (null == stream) {
+                node = nodes.next();
+                stream = queryClient.open(node, path);
+            }
+            if (!stream.read(visitor)) {
+                return false;
+            }
+        } catch (GalaxyTracingException ex) {
+            log.warn("Skip {} in the search of {}", node, path, ex);
+        }
+        close();
+        return true;
+    }
+    
+    @Override
+    public void close() {
+        if (null == stream) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException ex) {
+            log.warn("Can not close the search of {} on {}", path, node, ex);
+        }
+        stream = null;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center.forward;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.center.ClusterNode;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Hint file of the traces owned by a member which could not be reached.
+ *
+ * <p>Traces are appended as NDJSON lines and fsynced before the agent is acknowledged. To hand them off, the hint file
+ * is renamed to a replay file, so new hints go to a fresh file meanwhile, and the replay file is posted to the owner
+ * batch by batch. It is deleted once the owner acknowledged all of it, otherwise the next attempt starts it over. The
+ * owner stores each trace by its traceId, so a batch posted twice overwrites itself.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+final class HintedHandoff {
+    
+    private static final String FILE_SUFFIX = ".hints";
+    
+    private static final String REPLAY_SUFFIX = ".replay";
+    
+    private final File hintFile;
+    
+    private final File replayFile;
+    
+    HintedHandoff(final File directory, final ClusterNode node) {
+        String name = node.getHost() + "_" + node.getPort() + FILE_SUFFIX;
+        hintFile = new File(directory, name);
+        replayFile = new File(directory, name + REPLAY_SUFFIX);
+    }
+    
+    /**
+     * Append traces to the hint file.
+     *
+     * @param records trace records
+     * @throws GalaxyTracingException I/O exception
+     */
+    synchronized void append(final Collection<TraceRecord> records) throws GalaxyTracingException {
+        File directory = hintFile.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new GalaxyTracingException("Can not create hint directory %s", directory);
+        }
+        try (FileOutputStream output = new FileOutputStream(hintFile, true)) {
+            for (TraceRecord each : records) {
+                output.write(TraceRecordCodec.encode(each.getAttributes()));
+                output.write('\n');
+            }
+            output.getFD().sync();
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not write hint file %s", hintFile), ex);
+        }
+    }
+    
+    /**
+     * Judge whether there are traces to hand off.
+     *
+     * @return has hints or not
+     */
+    boolean hasHints() {
+        return replayFile.isFile() || hintFile.length() > 0L;
+    }
+    
+    /**
+     * Hand off the hinted traces.
+     *
+     * @param batchSize number of traces sent at once
+     * @param sender sender of a batch to the owner
+     * @throws GalaxyTracingException I/O exception or the owner failed, the hints are kept
+     */
+    void handOff(final int batchSize, final BatchSender sender) throws GalaxyTracingException {
+        synchronized (this) {
+            if (!replayFile.isFile()) {
+                if (!hintFile.isFile()) {
+                    return;
+                }
+                try {
+                    Files.move(hintFile.toPath(), replayFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException ex) {
+                    throw new GalaxyTracingException(String.format("Can not move hint file %s", hintFile), ex);
+                }
+            }
+        }
+        int count = 0;
+        List<TraceRecord> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(replayFile), StandardCharsets.UTF_8))) {
+            String line;
+            while (null != (line = reader.readLine())) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    batch.add(TraceRecordCodec.decode(line));
+                } catch (GalaxyTracingException ex) {
+                    log.warn("Skip broken hint in {}", replayFile, ex);
+                    continue;
+                }
+                if (batch.size() >= batchSize) {
+                    sender.send(batch);
+                    count += batch.size();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                sender.send(batch);
+                count += batch.size();
+            }
+            Files.delete(replayFile.toPath());
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not hand off hint file %s", replayFile), ex);
+        }
+        log.info("Handed off {} hinted traces from {}", count, replayFile);
+    }
+    
+    /**
+     * Sender of a batch of traces to the owning member.
+     */
+    interface BatchSender {
+        
+        /**
+         * Send a batch and wait for the acknowledgement.
+         *
+         * @param records trace records
+         * @throws IOException I/O exception or the owner refused the batch
+         */
+        void send(List<TraceRecord> records) throws IOException;
+    }
+}
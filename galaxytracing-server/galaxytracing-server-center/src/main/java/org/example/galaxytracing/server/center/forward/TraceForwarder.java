@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center.forward;
+
+import com.huawei.shade.org.apache.http.HttpResponse;
+import com.huawei.shade.org.apache.http.client.config.RequestConfig;
+import com.huawei.shade.org.apache.http.client.methods.RequestBuilder;
+import com.huawei.shade.org.apache.http.entity.ByteArrayEntity;
+import com.huawei.shade.org.apache.http.entity.ContentType;
+import com.huawei.shade.org.apache.http.impl.client.CloseableHttpClient;
+import com.huawei.shade.org.apache.http.impl.client.HttpClients;
+import com.huawei.shade.org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import com.huawei.shade.org.apache.http.util.EntityUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.thread.ExecutorThreadFactoryBuilder;
+import org.example.galaxytracing.infra.config.entity.server.ClusterConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.center.ClusterNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwarder of traces to the members owning them.
+ *
+ * <p>Each remote member has its own queue and sender thread. The sender posts the queued traces as one NDJSON batch to
+ * {@value #FORWARD_PATH} of the member, once {@code forwardBatchSize} traces are queued or the first of them waited
+ * {@code forwardIntervalMillis}. The futures of a batch complete when the member acknowledges it, which happens after
+ * the batch is durable there.</p>
+ *
+ * <p>Traces never stay on a collector not owning them. If a batch fails, a timeout included, or the queue is full, the
+ * traces go to the {@link HintedHandoff} of the member and the futures complete once the hints are durable. The member
+ * is then skipped for {@code hintRetryMillis}, after which the sender hands the hints off before it tries again. A
+ * batch which timed out but reached the member is posted again, the member overwrites it by traceId, so no trace is
+ * kept twice.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+public final class TraceForwarder implements Closeable {
+    
+    /**
+     * Path of the forward endpoint on every member.
+     */
+    public static final String FORWARD_PATH = "/cluster/forward";
+    
+    private static final String CONTENT_TYPE = "application/x-ndjson";
+    
+    private final ClusterConfig config;
+    
+    private final PoolingHttpClientConnectionManager connectionManager;
+    
+    private final CloseableHttpClient httpClient;
+    
+    private final RequestConfig requestConfig;
+    
+    private final Map<ClusterNode, BlockingQueue<PendingForward>> queues = new HashMap<>();
+    
+    private final Map<ClusterNode, HintedHandoff> handoffs = new HashMap<>();
+    
+    private final ExecutorService executor;
+    
+    private volatile boolean running = true;
+    
+    public TraceForwarder(final ClusterConfig config, final Collection<ClusterNode> remoteNodes) {
+        this.config = config;
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(Math.max(1, remoteNodes.size()) * 2);
+        connectionManager.setDefaultMaxPerRoute(2);
+        httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+        requestConfig = RequestConfig.custom().setConnectTimeout(config.getForwardTimeoutMillis()).setSocketTimeout(config.getForwardTimeoutMillis()).build();
+        executor = Executors.newFixedThreadPool(Math.max(1, remoteNodes.size()), ExecutorThreadFactoryBuilder.build("Forwarder-%d"));
+        File hintDirectory = new File(config.getHintDir());
+        for (ClusterNode each : remoteNodes) {
+            BlockingQueue<PendingForward> queue = new ArrayBlockingQueue<>(config.getForwardQueueCapacity());
+            HintedHandoff handoff = new HintedHandoff(hintDirectory, each);
+            queues.put(each, queue);
+            handoffs.put(each, handoff);
+            executor.execute(() -> runSender(each, queue, handoff));
+        }
+    }
+    
+    /**
+     * Queue a trace for its owning member.
+     *
+     * @param owner owning member
+     * @param record trace record
+     * @return future completed once the owner acknowledged the trace or the trace is durable in the hint file
+     */
+    public CompletableFuture<Void> forward(final ClusterNode owner, final TraceRecord record) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        BlockingQueue<PendingForward> queue = queues.get(owner);
+        if (null == queue) {
+            result.completeExceptionally(new GalaxyTracingException("%s is not a remote member", owner));
+        } else if (!running || !queue.offer(new PendingForward(record, result))) {
+            hint(owner, handoffs.get(owner), Collections.singletonList(new PendingForward(record, result)));
+        }
+        return result;
+    }
+    
+    private void runSender(final ClusterNode node, final BlockingQueue<PendingForward> queue, final HintedHandoff handoff) {
+        List<PendingForward> batch = new ArrayList<>(config.getForwardBatchSize());
+        long retryNanos = System.nanoTime();
+        try {
+            while (running || !queue.isEmpty()) {
+                if (System.nanoTime() - retryNanos >= 0L && handoff.hasHints() && !handOff(node, handoff)) {
+                    retryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getHintRetryMillis());
+                }
+                fill(queue, batch);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                if (System.nanoTime() - retryNanos < 0L) {
+                    hint(node, handoff, batch);
+                } else if (!send(node, batch)) {
+                    hint(node, handoff, batch);
+                    retryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getHintRetryMillis());
+                }
+                batch.clear();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queue.drainTo(batch);
+            hint(node, handoff, batch);
+        }
+    }
+    
+    private void fill(final BlockingQueue<PendingForward> queue, final List<PendingForward> batch) throws InterruptedException {
+        PendingForward first = queue.poll(100L, TimeUnit.MILLISECONDS);
+        if (null == first) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getForwardIntervalMillis());
+        while (batch.size() < config.getForwardBatchSize()) {
+            queue.drainTo(batch, config.getForwardBatchSize() - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= config.getForwardBatchSize() || remaining <= 0L) {
+                return;
+            }
+            PendingForward next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (null == next) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+    
+    private boolean send(final ClusterNode node, final List<PendingForward> batch) {
+        List<TraceRecord> records = new ArrayList<>(batch.size());
+        for (PendingForward each : batch) {
+            records.add(each.record);
+        }
+        try {
+            post(node, records);
+        } catch (IOException ex) {
+            log.warn("Can not forward {} traces to {}, hand them off later", batch.size(), node, ex);
+            return false;
+        }
+        for (PendingForward each : batch) {
+            each.future.complete(null);
+        }
+        return true;
+    }
+    
+    private boolean handOff(final ClusterNode node, final HintedHandoff handoff) {
+        try {
+            handoff.handOff(config.getForwardBatchSize(), records -> post(node, records));
+            return true;
+        } catch (GalaxyTracingException ex) {
+            log.warn("Can not hand off the hinted traces to {}, retry in {} ms", node, config.getHintRetryMillis(), ex);
+            return false;
+        }
+    }
+    
+    private static void hint(final ClusterNode node, final HintedHandoff handoff, final List<PendingForward> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<TraceRecord> records = new ArrayList<>(batch.size());
+        for (PendingForward each : batch) {
+            records.add(each.record);
+        }
+        try {
+            handoff.append(records);
+        } catch (GalaxyTracingException ex) {
+            log.error("Can not hint {} traces of {}", batch.size(), node, ex);
+            for (PendingForward each : batch) {
+                each.future.completeExceptionally(ex);
+            }
+            return;
+        }
+        for (PendingForward each : batch) {
+            each.future.complete(null);
+        }
+    }
+    
+    private void post(final ClusterNode node, final List<TraceRecord> records) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(records.size() * 256);
+        for (TraceRecord each : records) {
+            byte[] line = TraceRecordCodec.encode(each.getAttributes());
+            body.write(line, 0, line.length);
+            body.write('\n');
+        }
+        HttpResponse response = httpClient.execute(RequestBuilder.post(node.getUrl(FORWARD_PATH)).setConfig(requestConfig)
+                .setEntity(new ByteArrayEntity(body.toByteArray(), ContentType.create(CONTENT_TYPE, StandardCharsets.UTF_8))).build());
+        int statusCode = response.getStatusLine().getStatusCode();
+        EntityUtils.consume(response.getEntity());
+        if (200 != statusCode) {
+            throw new IOException(String.format("Forward to %s answered status %d", node, statusCode));
+        }
+    }
+    
+    /**
+     * Send the queued traces and stop the senders, the traces which can not be sent go to the hint files.
+     */
+    @Override
+    public void close() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(config.getForwardTimeoutMillis() + 5000L, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        connectionManager.shutdown();
+    }
+    
+    private static final class PendingForward {
+        
+        private final TraceRecord record;
+        
+        private final CompletableFuture<Void> future;
+        
+        PendingForward(final TraceRecord record, final CompletableFuture<Void> future) {
+            this.record = record;
+            this.future = future;
+        }
+    }
+}
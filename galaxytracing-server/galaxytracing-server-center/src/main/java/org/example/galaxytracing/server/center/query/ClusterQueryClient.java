@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center.query;
+
+import com.huawei.shade.org.apache.http.HttpEntity;
+import com.huawei.shade.org.apache.http.client.config.RequestConfig;
+import com.huawei.shade.org.apache.http.client.methods.CloseableHttpResponse;
+import com.huawei.shade.org.apache.http.client.methods.RequestBuilder;
+import com.huawei.shade.org.apache.http.impl.client.CloseableHttpClient;
+import com.huawei.shade.org.apache.http.impl.client.HttpClients;
+import com.huawei.shade.org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import com.huawei.shade.org.apache.http.util.EntityUtils;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.config.entity.server.ClusterConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.center.ClusterNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Client of the query endpoints of the other members.
+ *
+ * <p>Every request carries {@value #LOCAL_SCOPE}, so the member answers from its own store only and does not fan out
+ * again.</p>
+ *
+ * @author JiekerTime
+ */
+public final class ClusterQueryClient implements Closeable {
+    
+    /**
+     * Query parameter limiting a query to the member receiving it.
+     */
+    public static final String LOCAL_SCOPE = "scope=local";
+    
+    private static final int NOT_FOUND = 404;
+    
+    private final PoolingHttpClientConnectionManager connectionManager;
+    
+    private final CloseableHttpClient httpClient;
+    
+    private final RequestConfig requestConfig;
+    
+    public ClusterQueryClient(final ClusterConfig config, final int memberCount) {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(Math.max(1, memberCount) * 4);
+        connectionManager.setDefaultMaxPerRoute(4);
+        httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+        int timeout = config.getQueryTimeoutMillis();
+        requestConfig = RequestConfig.custom().setConnectionRequestTimeout(timeout).setConnectTimeout(timeout).setSocketTimeout(timeout).build();
+    }
+    
+    /**
+     * Get a trace held by a member.
+     *
+     * @param node member
+     * @param path path of the trace
+     * @return trace record, null if the member does not hold it
+     * @throws GalaxyTracingException I/O exception or the member failed
+     */
+    public TraceRecord get(final ClusterNode node, final String path) throws GalaxyTracingException {
+        try (CloseableHttpResponse response = execute(node, path)) {
+            if (NOT_FOUND == response.getStatusLine().getStatusCode()) {
+                EntityUtils.consume(response.getEntity());
+                return null;
+            }
+            return TraceRecordCodec.decode(EntityUtils.toString(checkStatus(node, response), StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not query %s", node), ex);
+        }
+    }
+    
+    /**
+     * Get the response of a member as a string.
+     *
+     * @param node member
+     * @param path path and query
+     * @return response body
+     * @throws GalaxyTracingException I/O exception or the member failed
+     */
+    public String getString(final ClusterNode node, final String path) throws GalaxyTracingException {
+        try (CloseableHttpResponse response = execute(node, path)) {
+            return EntityUtils.toString(checkStatus(node, response), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not query %s", node), ex);
+        }
+    }
+    
+    /**
+     * Open the NDJSON response of a member, the caller reads and closes it.
+     *
+     * <p>An open response holds a pooled connection to the member, waiting for a free connection is bounded by the
+     * query timeout.</p>
+     *
+     * @param node member
+     * @param path path and query
+     * @return open response
+     * @throws GalaxyTracingException I/O exception or the member failed
+     */
+    public LineStream open(final ClusterNode node, final String path) throws GalaxyTracingException {
+        try {
+            CloseableHttpResponse response = execute(node, path);
+            try {
+                return new LineStream(node, response, checkStatus(node, response).getContent());
+            } catch (IOException ex) {
+                response.close();
+                throw ex;
+            }
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not query %s", node), ex);
+        }
+    }
+    
+    private CloseableHttpResponse execute(final ClusterNode node, final String path) throws IOException {
+        String url = node.getUrl(path) + (path.indexOf('?') < 0 ? '?' : '&') + LOCAL_SCOPE;
+        return httpClient.execute(RequestBuilder.get(url).setConfig(requestConfig).build());
+    }
+    
+    private static HttpEntity checkStatus(final ClusterNode node, final CloseableHttpResponse response) throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (200 != statusCode) {
+            EntityUtils.consume(response.getEntity());
+            throw new IOException(String.format("Query to %s answered status %d", node, statusCode));
+        }
+        return response.getEntity();
+    }
+    
+    @Override
+    public void close() {
+        connectionManager.shutdown();
+    }
+    
+    /**
+     * Visitor of the lines of a response.
+     */
+    public interface LineVisitor {
+        
+        /**
+         * Visit a line.
+         *
+         * @param line line without the line break
+         * @return whether to continue
+         */
+        boolean visit(byte[] line);
+    }
+}
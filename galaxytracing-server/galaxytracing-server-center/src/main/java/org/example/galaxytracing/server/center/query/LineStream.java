@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center.query;
+
+import com.huawei.shade.org.apache.http.client.methods.CloseableHttpResponse;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.center.ClusterNode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Open NDJSON response of a member, read line by line.
+ *
+ * <p>Lines are only read while the visitor wants them. In between, the response stays open and the member is held
+ * back by TCP flow control, so a slow reader does not pile the response up in memory.</p>
+ *
+ * @author JiekerTime
+ */
+public final class LineStream implements Closeable {
+    
+    private final ClusterNode node;
+    
+    private final CloseableHttpResponse response;
+    
+    private final BufferedReader reader;
+    
+    LineStream(final ClusterNode node, final CloseableHttpResponse response, final InputStream content) {
+        this.node = node;
+        this.response = response;
+        reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Visit the next lines until the visitor stops or the response ends.
+     *
+     * @param visitor visitor of the lines
+     * @return whether the response ended, false if the visitor stopped
+     * @throws GalaxyTracingException I/O exception
+     */
+    public boolean read(final ClusterQueryClient.LineVisitor visitor) throws GalaxyTracingException {
+        try {
+            String line = reader.readLine();
+            while (null != line) {
+                if (!line.isEmpty() && !visitor.visit(line.getBytes(StandardCharsets.UTF_8))) {
+                    return false;
+                }
+                line = reader.readLine();
+            }
+            return true;
+        } catch (IOException ex) {
+            throw new GalaxyTracingException(String.format("Can not read the response of %s", node), ex);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        response.close();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center.route;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.example.galaxytracing.server.center.ClusterNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring over the cluster members, keyed by traceId.
+ *
+ * <p>Each member is placed on the ring at {@code virtualNodes} points, a traceId belongs to the member of the first point
+ * at or after its hash. Adding or removing a member only moves the traces between its points and their predecessors.
+ * The ring is immutable, positions live in a sorted {@code long[]} so a lookup is one binary search.</p>
+ *
+ * @author JiekerTime
+ */
+public final class ConsistentHashRing {
+    
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    
+    private final long[] positions;
+    
+    private final ClusterNode[] owners;
+    
+    public ConsistentHashRing(final Collection<ClusterNode> nodes, final int virtualNodes) {
+        Preconditions.checkArgument(!nodes.isEmpty(), "Hash ring needs at least one node.");
+        Preconditions.checkArgument(virtualNodes > 0, "Virtual nodes must be positive.");
+        Map<Long, ClusterNode> ring = new TreeMap<>();
+        for (ClusterNode each : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(HASH_FUNCTION.hashString(each.getAddress() + "#" + i, StandardCharsets.UTF_8).asLong(), each);
+            }
+        }
+        positions = new long[ring.size()];
+        owners = new ClusterNode[ring.size()];
+        int index = 0;
+        for (Map.Entry<Long, ClusterNode> entry : ring.entrySet()) {
+            positions[index] = entry.getKey();
+            owners[index] = entry.getValue();
+            index++;
+        }
+    }
+    
+    /**
+     * Find the member owning a trace.
+     *
+     * @param traceId traceId
+     * @return owning member
+     */
+    public ClusterNode locate(final long traceId) {
+        int index = Arrays.binarySearch(positions, HASH_FUNCTION.hashLong(traceId).asLong());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == positions.length ? 0 : index];
+    }
+}
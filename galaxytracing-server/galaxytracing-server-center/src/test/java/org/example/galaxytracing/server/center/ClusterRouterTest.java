@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center;
+
+import com.sun.net.httpserver.HttpServer;
+import org.example.galaxytracing.infra.config.entity.server.ClusterConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class ClusterRouterTest {
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+    
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    
+    private final List<HttpServer> servers = new ArrayList<>();
+    
+    private ClusterNode self;
+    
+    private ClusterNode first;
+    
+    private ClusterNode second;
+    
+    private ClusterRouter router;
+    
+    @Before
+    public void setUp() throws IOException {
+        self = new ClusterNode("127.0.0.1", getFreePort());
+        first = startMember();
+        second = startMember();
+        ClusterConfig config = new ClusterConfig();
+        config.setEnabled(true);
+        config.setSelf(self.getAddress());
+        config.setMembers(Arrays.asList(self.getAddress(), first.getAddress(), second.getAddress()));
+        config.setHintDir(temporaryFolder.newFolder().getPath());
+        config.setQueryTimeoutMillis(1000);
+        router = new ClusterRouter(config);
+    }
+    
+    @After
+    public void tearDown() {
+        router.close();
+        for (HttpServer each : servers) {
+            each.stop(0);
+        }
+    }
+    
+    @Test
+    public void assertLookupOwnerOnly() {
+        long traceId = findTraceOwnedBy(first);
+        responses.put(first.getAddress() + "/traces/" + traceId, "{\"traceId\":\"" + traceId + "\",\"caller\":\"gateway\"}");
+        List<TraceRecord> fragments = router.lookup(traceId, "/traces/" + traceId, false);
+        assertThat(fragments.size(), is(1));
+        assertThat(fragments.get(0).getAttributes().get("caller"), is("gateway"));
+        assertThat(requests, is(Arrays.asList(first.getAddress() + "/traces/" + traceId + "?scope=local")));
+    }
+    
+    @Test
+    public void assertLookupFanOutWhenOwnerMisses() {
+        long traceId = findTraceOwnedBy(first);
+        responses.put(second.getAddress() + "/traces/" + traceId, "{\"traceId\":\"" + traceId + "\",\"callee\":\"order\"}");
+        List<TraceRecord> fragments = router.lookup(traceId, "/traces/" + traceId, false);
+        assertThat(fragments.size(), is(1));
+        assertThat(fragments.get(0).getAttributes().get("callee"), is("order"));
+        assertThat(requests.size(), is(2));
+    }
+    
+    @Test
+    public void assertLookupLocalOwnerWithoutRequest() {
+        long traceId = findTraceOwnedBy(self);
+        assertTrue(router.lookup(traceId, "/traces/" + traceId, true).isEmpty());
+        assertTrue(requests.isEmpty());
+    }
+    
+    @Test
+    public void assertLookupSkipUnreachableMember() {
+        long traceId = findTraceOwnedBy(first);
+        servers.get(0).stop(0);
+        responses.put(second.getAddress() + "/traces/" + traceId, "{\"traceId\":\"" + traceId + "\",\"callee\":\"order\"}");
+        assertThat(router.lookup(traceId, "/traces/" + traceId, false).size(), is(1));
+    }
+    
+    @Test
+    public void assertAssembleFragments() {
+        Map<String, String> caller = new HashMap<>(4, 1);
+        caller.put("traceId", "7");
+        caller.put("caller", "gateway");
+        caller.put("duration", "10");
+        Map<String, String> callee = new HashMap<>(4, 1);
+        callee.put("traceId", "7");
+        callee.put("callee", "order");
+        callee.put("duration", "20");
+        TraceRecord actual = ClusterRouter.assemble(Arrays.asList(new TraceRecord(7L, caller), new TraceRecord(7L, callee)));
+        assertThat(actual.getTraceId(), is(7L));
+        assertThat(actual.getAttributes().size(), is(4));
+        assertThat(actual.getAttributes().get("caller"), is("gateway"));
+        assertThat(actual.getAttributes().get("callee"), is("order"));
+        assertThat(actual.getAttributes().get("duration"), is("10"));
+    }
+    
+    @Test
+    public void assertSearchUntilVisitorStops() {
+        responses.put(first.getAddress() + "/traces", "{\"traceId\":\"1\"}\n{\"traceId\":\"2\"}\n");
+        responses.put(second.getAddress() + "/traces", "{\"traceId\":\"3\"}\n");
+        List<String> lines = new ArrayList<>();
+        try (ClusterSearch search = router.search("/traces?limit=2")) {
+            assertFalse(search.resume(line -> {
+                lines.add(new String(line, StandardCharsets.UTF_8));
+                return lines.size() < 2;
+            }));
+        }
+        assertThat(lines, is(Arrays.asList("{\"traceId\":\"1\"}", "{\"traceId\":\"2\"}")));
+        assertThat(requests.size(), is(1));
+    }
+    
+    @Test
+    public void assertResumeSearchWithoutAskingAgain() {
+        responses.put(first.getAddress() + "/traces", "{\"traceId\":\"1\"}\n{\"traceId\":\"2\"}\n");
+        responses.put(second.getAddress() + "/traces", "{\"traceId\":\"3\"}\n");
+        List<String> lines = new ArrayList<>();
+        try (ClusterSearch search = router.search("/traces")) {
+            assertFalse(search.resume(line -> !lines.add(new String(line, StandardCharsets.UTF_8))));
+            assertTrue(search.resume(line -> lines.add(new String(line, StandardCharsets.UTF_8))));
+        }
+        assertThat(lines, is(Arrays.asList("{\"traceId\":\"1\"}", "{\"traceId\":\"2\"}", "{\"traceId\":\"3\"}")));
+        assertThat(requests.size(), is(2));
+    }
+    
+    @Test
+    public void assertSearchSkipUnreachableMember() {
+        servers.get(0).stop(0);
+        responses.put(second.getAddress() + "/traces", "{\"traceId\":\"3\"}\n");
+        List<String> lines = new ArrayList<>();
+        try (ClusterSearch search = router.search("/traces")) {
+            assertTrue(search.resume(line -> lines.add(new String(line, StandardCharsets.UTF_8))));
+        }
+        assertThat(lines, is(Arrays.asList("{\"traceId\":\"3\"}")));
+    }
+    
+    @Test
+    public void assertFetchFromAnsweringMembers() {
+        responses.put(first.getAddress() + "/aggregations", "{\"counts\":[]}");
+        assertThat(router.fetch("/aggregations?key=serviceName"), is(Arrays.asList("{\"counts\":[]}")));
+        assertThat(requests.size(), is(2));
+    }
+    
+    private long findTraceOwnedBy(final ClusterNode node) {
+        long result = 1L;
+        while (!node.equals(router.getOwner(result))) {
+            result++;
+        }
+        return result;
+    }
+    
+    private ClusterNode startMember() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ClusterNode result = new ClusterNode("127.0.0.1", server.getAddress().getPort());
+        server.createContext("/", exchange -> {
+            requests.add(result.getAddress() + exchange.getRequestURI());
+            String response = responses.get(result.getAddress() + exchange.getRequestURI().getPath());
+            if (null == response) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                byte[] body = response.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        servers.add(server);
+        return result;
+    }
+    
+    private static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center.forward;
+
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.center.ClusterNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class HintedHandoffTest {
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final ClusterNode node = new ClusterNode("127.0.0.1", 9001);
+    
+    @Test
+    public void assertHandOffInBatches() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        HintedHandoff handoff = new HintedHandoff(directory, node);
+        assertFalse(handoff.hasHints());
+        handoff.append(Arrays.asList(createRecord(1L), createRecord(2L), createRecord(3L)));
+        handoff.append(Collections.singletonList(createRecord(4L)));
+        assertTrue(handoff.hasHints());
+        List<List<Long>> batches = new ArrayList<>();
+        handoff.handOff(3, records -> batches.add(toTraceIds(records)));
+        assertThat(batches, is(Arrays.asList(Arrays.asList(1L, 2L, 3L), Collections.singletonList(4L))));
+        assertFalse(handoff.hasHints());
+        assertThat(directory.list().length, is(0));
+    }
+    
+    @Test
+    public void assertKeepHintsWhenOwnerFails() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        HintedHandoff handoff = new HintedHandoff(directory, node);
+        handoff.append(Arrays.asList(createRecord(1L), createRecord(2L)));
+        try {
+            handoff.handOff(10, records -> {
+                throw new IOException("Owner is down");
+            });
+            fail("Expected GalaxyTracingException");
+        } catch (GalaxyTracingException ex) {
+            assertTrue(handoff.hasHints());
+        }
+        handoff.append(Collections.singletonList(createRecord(3L)));
+        List<Long> sent = new ArrayList<>();
+        handoff.handOff(10, records -> sent.addAll(toTraceIds(records)));
+        assertThat(sent, is(Arrays.asList(1L, 2L)));
+        assertTrue(handoff.hasHints());
+        handoff.handOff(10, records -> sent.addAll(toTraceIds(records)));
+        assertThat(sent, is(Arrays.asList(1L, 2L, 3L)));
+        assertFalse(handoff.hasHints());
+    }
+    
+    @Test
+    public void assertSkipTornHint() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        HintedHandoff handoff = new HintedHandoff(directory, node);
+        handoff.append(Collections.singletonList(createRecord(1L)));
+        try (FileOutputStream output = new FileOutputStream(new File(directory, "127.0.0.1_9001.hints"), true)) {
+            output.write("{\"traceId\":\"2\",\"serv".getBytes(StandardCharsets.UTF_8));
+        }
+        List<Long> sent = new ArrayList<>();
+        handoff.handOff(10, records -> sent.addAll(toTraceIds(records)));
+        assertThat(sent, is(Collections.singletonList(1L)));
+        assertFalse(handoff.hasHints());
+    }
+    
+    private static List<Long> toTraceIds(final List<TraceRecord> records) {
+        List<Long> result = new ArrayList<>(records.size());
+        for (TraceRecord each : records) {
+            result.add(each.getTraceId());
+        }
+        return result;
+    }
+    
+    private static TraceRecord createRecord(final long traceId) {
+        Map<String, String> attributes = new HashMap<>(4, 1);
+        attributes.put("traceId", String.valueOf(traceId));
+        attributes.put("serviceName", "order");
+        return new TraceRecord(traceId, attributes);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center.forward;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpServer;
+import org.example.galaxytracing.infra.config.entity.server.ClusterConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.center.ClusterNode;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class TraceForwarderTest {
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    
+    private volatile long delayMillis;
+    
+    private HttpServer owner;
+    
+    @After
+    public void tearDown() {
+        if (null != owner) {
+            owner.stop(0);
+        }
+    }
+    
+    @Test
+    public void assertForwardToOwner() throws Exception {
+        int port = getFreePort();
+        owner = startOwner(port);
+        File hintDir = temporaryFolder.newFolder();
+        ClusterNode node = new ClusterNode("127.0.0.1", port);
+        TraceForwarder forwarder = new TraceForwarder(createConfig(hintDir), Collections.singletonList(node));
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (long traceId = 1L; traceId <= 3L; traceId++) {
+                futures.add(forwarder.forward(node, createRecord(traceId)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10L, TimeUnit.SECONDS);
+        } finally {
+            forwarder.close();
+        }
+        assertThat(received.size(), is(3));
+        assertTrue(received.get(0).contains("\"traceId\":\"1\""));
+        assertThat(hintDir.list().length, is(0));
+    }
+    
+    @Test
+    public void assertHandOffOnceOwnerIsBack() throws Exception {
+        int port = getFreePort();
+        File hintDir = temporaryFolder.newFolder();
+        ClusterNode node = new ClusterNode("127.0.0.1", port);
+        TraceForwarder forwarder = new TraceForwarder(createConfig(hintDir), Collections.singletonList(node));
+        try {
+            forwarder.forward(node, createRecord(1L)).get(10L, TimeUnit.SECONDS);
+            forwarder.forward(node, createRecord(2L)).get(10L, TimeUnit.SECONDS);
+            assertThat(hintDir.list().length, is(1));
+            assertTrue(received.isEmpty());
+            owner = startOwner(port);
+            awaitReceived(2);
+            awaitNoHints(hintDir);
+        } finally {
+            forwarder.close();
+        }
+        assertTrue(received.get(0).contains("\"traceId\":\"1\""));
+        assertTrue(received.get(1).contains("\"traceId\":\"2\""));
+    }
+    
+    @Test
+    public void assertHintInsteadOfFailAfterTimeout() throws Exception {
+        int port = getFreePort();
+        owner = startOwner(port);
+        delayMillis = 600L;
+        File hintDir = temporaryFolder.newFolder();
+        ClusterNode node = new ClusterNode("127.0.0.1", port);
+        TraceForwarder forwarder = new TraceForwarder(createConfig(hintDir), Collections.singletonList(node));
+        try {
+            forwarder.forward(node, createRecord(1L)).get(10L, TimeUnit.SECONDS);
+            delayMillis = 0L;
+            awaitNoHints(hintDir);
+        } finally {
+            forwarder.close();
+        }
+        assertTrue(received.size() >= 1);
+        for (String each : received) {
+            assertTrue(each.contains("\"traceId\":\"1\""));
+        }
+    }
+    
+    private HttpServer startOwner(final int port) throws IOException {
+        HttpServer result = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        result.createContext(TraceForwarder.FORWARD_PATH, exchange -> {
+            String body = new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8);
+            try {
+                Thread.sleep(delayMillis);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            for (String each : body.split("\n")) {
+                if (!each.isEmpty()) {
+                    received.add(each);
+                }
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        result.start();
+        return result;
+    }
+    
+    private void awaitReceived(final int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (received.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(received.size(), is(count));
+    }
+    
+    private static void awaitNoHints(final File hintDir) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (0 != hintDir.list().length && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(hintDir.list().length, is(0));
+    }
+    
+    private static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+    
+    private static ClusterConfig createConfig(final File hintDir) {
+        ClusterConfig result = new ClusterConfig();
+        result.setForwardIntervalMillis(1L);
+        result.setForwardTimeoutMillis(300);
+        result.setForwardQueueCapacity(16);
+        result.setHintDir(hintDir.getPath());
+        result.setHintRetryMillis(100L);
+        return result;
+    }
+    
+    private static TraceRecord createRecord(final long traceId) {
+        Map<String, String> attributes = new HashMap<>(4, 1);
+        attributes.put("traceId", String.valueOf(traceId));
+        attributes.put("serviceName", "order");
+        return new TraceRecord(traceId, attributes);
+    }
+}
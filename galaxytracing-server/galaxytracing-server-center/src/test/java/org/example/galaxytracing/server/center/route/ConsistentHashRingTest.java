@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.center.route;
+
+import org.example.galaxytracing.server.center.ClusterNode;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class ConsistentHashRingTest {
+    
+    private static final int TRACE_COUNT = 30000;
+    
+    private final ClusterNode first = new ClusterNode("127.0.0.1", 9000);
+    
+    private final ClusterNode second = new ClusterNode("127.0.0.1", 9001);
+    
+    private final ClusterNode third = new ClusterNode("127.0.0.1", 9002);
+    
+    @Test
+    public void assertLocateIndependentOfMemberOrder() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList(first, second, third), 160);
+        ConsistentHashRing reversed = new ConsistentHashRing(Arrays.asList(third, second, first), 160);
+        for (long traceId = 0L; traceId < TRACE_COUNT; traceId++) {
+            assertThat(reversed.locate(traceId), is(ring.locate(traceId)));
+        }
+    }
+    
+    @Test
+    public void assertLocateSingleMember() {
+        ConsistentHashRing ring = new ConsistentHashRing(Collections.singletonList(first), 1);
+        for (long traceId = 0L; traceId < 100L; traceId++) {
+            assertThat(ring.locate(traceId), is(first));
+        }
+    }
+    
+    @Test
+    public void assertSpreadEvenly() {
+        List<ClusterNode> nodes = Arrays.asList(first, second, third);
+        ConsistentHashRing ring = new ConsistentHashRing(nodes, 160);
+        Map<ClusterNode, Integer> counts = new HashMap<>(4, 1);
+        for (long traceId = 0L; traceId < TRACE_COUNT; traceId++) {
+            counts.merge(ring.locate(traceId), 1, Integer::sum);
+        }
+        for (ClusterNode each : nodes) {
+            assertTrue(counts.get(each) > TRACE_COUNT / 3 * 0.8D);
+            assertTrue(counts.get(each) < TRACE_COUNT / 3 * 1.2D);
+        }
+    }
+    
+    @Test
+    public void assertMoveOnlyToAddedMember() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList(first, second), 160);
+        ConsistentHashRing grown = new ConsistentHashRing(Arrays.asList(first, second, third), 160);
+        int moved = 0;
+        for (long traceId = 0L; traceId < TRACE_COUNT; traceId++) {
+            ClusterNode owner = grown.locate(traceId);
+            if (!owner.equals(ring.locate(traceId))) {
+                assertThat(owner, is(third));
+                moved++;
+            }
+        }
+        assertTrue(moved < TRACE_COUNT / 3 * 1.2D);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void assertRejectNoMember() {
+        new ConsistentHashRing(Collections.emptyList(), 160);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void assertRejectNoVirtualNode() {
+        new ConsistentHashRing(Collections.singletonList(first), 0);
+    }
+}
@@ -30,22 +30,55 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
+import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.config.entity.impl.ServerConfiguration;
+import org.example.galaxytracing.server.backend.aggregation.TraceAggregator;
+import org.example.galaxytracing.server.backend.dedup.BatchDeduplicator;
+import org.example.galaxytracing.server.backend.dependency.DependencyGraph;
+import org.example.galaxytracing.server.backend.schema.TraceSchemaRegistry;
+import org.example.galaxytracing.server.backend.sink.JdbcTraceSink;
+import org.example.galaxytracing.server.backend.storage.TraceStore;
+import org.example.galaxytracing.server.backend.wal.WriteAheadLog;
+import org.example.galaxytracing.server.center.ClusterRouter;
+import org.example.galaxytracing.server.frontend.http.cache.QueryResultCache;
+import org.example.galaxytracing.server.frontend.metrics.ServerMetrics;
 import org.example.galaxytracing.server.frontend.netty.ServerHandlerInitializer;
 
+import java.io.IOException;
+
 /**
  * Timed received data from client.
  *
  * @author JiekerTime
  */
 @Slf4j(topic = "server")
+@RequiredArgsConstructor
 public final class Collector {
     
     private static final int DEFAULT_PORT = 9000;
     
     private static final int DEFAULT_WORKER_THREAD_COUNT = 10;
     
+    private final ServerConfiguration configuration;
+    
+    private TraceStore traceStore;
+    
+    private TraceAggregator traceAggregator;
+    
+    private DependencyGraph dependencyGraph;
+    
+    private WriteAheadLog writeAheadLog;
+    
+    private JdbcTraceSink traceSink;
+    
+    private ClusterRouter clusterRouter;
+    
+    private BatchDeduplicator batchDeduplicator;
+    
+    private ServerMetrics serverMetrics;
+    
     private EventLoopGroup bossGroup;
     
     private EventLoopGroup workerGroup;
@@ -53,19 +86,54 @@ public final class Collector {
     /**
      * Collector startup entrance.
      */
-    @SneakyThrows(InterruptedException.class)
+    @SneakyThrows({InterruptedException.class, IOException.class})
     public void start() {
+        traceStore = new TraceStore(configuration.getStorage());
+        traceStore.open();
+        writeAheadLog = new WriteAheadLog(configuration.getStorage(), traceStore);
+        if (configuration.getAggregation().isEnabled()) {
+            traceAggregator = new TraceAggregator(configuration.getAggregation());
+            writeAheadLog.addListener((nextLsn, record) -> traceAggregator.accept(record));
+        }
+        if (configuration.getDependency().isEnabled()) {
+            dependencyGraph = new DependencyGraph(configuration.getDependency());
+            dependencyGraph.open();
+            writeAheadLog.addListener(dependencyGraph);
+        }
+        writeAheadLog.open();
+        if (configuration.getSink().isEnabled()) {
+            traceSink = new JdbcTraceSink(configuration.getSink());
+            traceSink.start();
+        }
+        if (configuration.getCluster().isEnabled()) {
+            clusterRouter = new ClusterRouter(configuration.getCluster());
+        }
+        if (configuration.getDeduplication().isEnabled()) {
+            batchDeduplicator = new BatchDeduplicator(configuration.getDeduplication());
+        }
         try {
             ChannelFuture future = initBootstrap();
             future.channel().closeFuture().sync();
         } finally {
             workerGroup.shutdownGracefully();
             bossGroup.shutdownGracefully();
+            if (null != clusterRouter) {
+                clusterRouter.close();
+            }
+            writeAheadLog.close();
+            if (null != dependencyGraph) {
+                dependencyGraph.close();
+            }
+            if (null != traceSink) {
+                traceSink.close();
+            }
+            traceStore.close();
         }
     }
     
     private ChannelFuture initBootstrap() throws InterruptedException {
         initEventLoop();
+        serverMetrics = new ServerMetrics(workerGroup);
         ServerBootstrap bootstrap = new ServerBootstrap();
         bootstrap.group(bossGroup, workerGroup)
                 .channel(Epoll.isAvailable() ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
@@ -75,9 +143,10 @@ public final class Collector {
                 .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
                 .childOption(ChannelOption.TCP_NODELAY, true)
                 .handler(new LoggingHandler(LogLevel.INFO))
-                .childHandler(new ServerHandlerInitializer());
+                .childHandler(new ServerHandlerInitializer(traceStore, writeAheadLog, new QueryResultCache(configuration.getQuery()), traceSink, clusterRouter,
+                        traceAggregator, dependencyGraph, batchDeduplicator, serverMetrics, new TraceSchemaRegistry()));
         log.info("GalaxyTracing Server start success");
-        return bootstrap.bind(DEFAULT_PORT).sync();
+        return bootstrap.bind(null == clusterRouter ? DEFAULT_PORT : clusterRouter.getSelf().getPort()).sync();
     }
     
     private void initEventLoop() {
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.http.cache;
+
+import lombok.Getter;
+import org.example.galaxytracing.infra.config.entity.server.QueryConfig;
+import org.example.galaxytracing.server.backend.cache.CacheStats;
+import org.example.galaxytracing.server.backend.cache.WeightedCache;
+
+/**
+ * Cache of streamed query results keyed by the request URI.
+ *
+ * <p>Results are tagged with the generation of the trace store. Once retention or compaction removes segments the
+ * generation moves on and the whole cache is dropped, newly appended traces only show up after the entry expires.</p>
+ *
+ * @author JiekerTime
+ */
+public final class QueryResultCache {
+    
+    private final WeightedCache<String, byte[]> cache;
+    
+    @Getter
+    private final int maxResultBytes;
+    
+    private volatile long generation;
+    
+    public QueryResultCache(final QueryConfig config) {
+        cache = new WeightedCache<>(config.getResultCacheBytes(), config.getResultCacheBytes() / (16 * 1024), config.getResultCacheExpireMillis(), body -> body.length);
+        maxResultBytes = config.getMaxCachedResultBytes();
+    }
+    
+    /**
+     * Get the cached result.
+     *
+     * @param query request URI
+     * @param currentGeneration current generation of the trace store
+     * @return NDJSON body or null
+     */
+    public byte[] get(final String query, final long currentGeneration) {
+        checkGeneration(currentGeneration);
+        return cache.get(query);
+    }
+    
+    /**
+     * Cache a complete result.
+     *
+     * @param query request URI
+     * @param queryGeneration generation of the trace store when the query started
+     * @param body NDJSON body
+     */
+    public void put(final String query, final long queryGeneration, final byte[] body) {
+        if (queryGeneration == generation) {
+            cache.put(query, body);
+        }
+    }
+    
+    private void checkGeneration(final long currentGeneration) {
+        if (currentGeneration == generation) {
+            return;
+        }
+        synchronized (this) {
+            if (currentGeneration != generation) {
+                cache.invalidateAll();
+                generation = currentGeneration;
+            }
+        }
+    }
+    
+    /**
+     * Get the statistics.
+     *
+     * @return cache statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
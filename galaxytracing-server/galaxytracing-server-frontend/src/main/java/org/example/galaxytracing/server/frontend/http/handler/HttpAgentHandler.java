@@ -29,16 +29,48 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.util.CharsetUtil;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.constant.GalaxyTracingProtocolConstant;
 import org.example.galaxytracing.infra.common.constant.GalaxyTracingServerMessage;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
 import org.example.galaxytracing.infra.common.thread.ExecutorServiceManager;
+import org.example.galaxytracing.server.backend.dedup.BatchDeduplicator;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.schema.TraceSchemaRegistry;
+import org.example.galaxytracing.server.backend.sink.JdbcTraceSink;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.backend.wal.WriteAheadLog;
+import org.example.galaxytracing.server.center.ClusterRouter;
+import org.example.galaxytracing.server.frontend.metrics.ServerMetrics;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
- * HTTP handler of Agent.
+ * HTTP handler of Agent, other requests are passed to the next handler.
+ *
+ * <p>Received traces are acknowledged once they are durable in the {@link WriteAheadLog}, which appends them to the
+ * trace store in the background. Committed traces are also copied to the relational sink if it is enabled.</p>
+ *
+ * <p>In a cluster, traces owned by another collector are forwarded to it and acknowledged once the owner has them, or
+ * once they are durable in the hint file handed off to the owner when it is back. A trace is never stored by a
+ * collector not owning it.</p>
+ *
+ * <p>The depth of the ingestion executor queue and the time requests wait in it are recorded in the
+ * {@link ServerMetrics}.</p>
+ *
+ * <p>A batch whose id was already accepted is acknowledged without being stored again, so retries of the agent neither
+ * store a trace twice nor count it twice in the aggregates. A copy arriving while the first attempt is still in flight
+ * is answered with the outcome of that attempt. The id is released if the batch can not be stored.</p>
+ *
+ * <p>The IDs of the typed keys of a trace are replaced by their names registered in the {@link TraceSchemaRegistry}
+ * before the trace is stored or forwarded. A trace holding a key whose name is unknown, because the collector restarted
+ * since the agent registered them, is answered with {@code 409 Conflict} so that the agent registers them again.</p>
  *
  * @author JiekerTime
  */
 @Slf4j(topic = "server")
+@RequiredArgsConstructor
 public final class HttpAgentHandler extends ChannelInboundHandlerAdapter {
     
     private static final String DEFAULT_URI_PATH = "/collector";
@@ -51,21 +83,83 @@ public final class HttpAgentHandler extends ChannelInboundHandlerAdapter {
         EXECUTOR_SERVICE_MANAGER = new ExecutorServiceManager(10, THREAD_NAME_FORMAT);
     }
     
+    private final WriteAheadLog writeAheadLog;
+    
+    private final JdbcTraceSink traceSink;
+    
+    private final ClusterRouter clusterRouter;
+    
+    private final BatchDeduplicator batchDeduplicator;
+    
+    private final ServerMetrics serverMetrics;
+    
+    private final TraceSchemaRegistry schemaRegistry;
+    
     @Override
     public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        FullHttpRequest httpRequest = (FullHttpRequest) msg;
+        if (!DEFAULT_URI_PATH.equals(httpRequest.uri())) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        long queuedNanos = System.nanoTime();
+        serverMetrics.onAgentTaskQueued();
         EXECUTOR_SERVICE_MANAGER.getExecutorService().execute(() -> {
-            FullHttpRequest httpRequest = (FullHttpRequest) msg;
-            
-            if (DEFAULT_URI_PATH.equals(httpRequest.uri()) && HttpMethod.POST.equals(httpRequest.method())) {
-                String data = httpRequest.content().toString(CharsetUtil.UTF_8);
-                log.info("Received data :{}", data);
-                send(GalaxyTracingServerMessage.RESPONSE_OK, ctx, HttpResponseStatus.OK);
-            } else {
+            serverMetrics.onAgentTaskStarted(System.nanoTime() - queuedNanos);
+            try {
+                if (HttpMethod.POST.equals(httpRequest.method())) {
+                    String data = httpRequest.content().toString(CharsetUtil.UTF_8);
+                    log.debug("Received data :{}", data);
+                    TraceRecord record = TraceRecordCodec.decode(data, schemaRegistry);
+                    if (null == record) {
+                        send(GalaxyTracingServerMessage.UNKNOWN_SCHEMA_ERROR, ctx, HttpResponseStatus.CONFLICT);
+                        return;
+                    }
+                    String batchId = null == batchDeduplicator ? null : httpRequest.headers().get(GalaxyTracingProtocolConstant.BATCH_ID_HEADER);
+                    accept(ctx, record, batchId);
+                } else {
+                    send(GalaxyTracingServerMessage.WRONG_REQUEST_ERROR, ctx, HttpResponseStatus.BAD_REQUEST);
+                }
+            } catch (GalaxyTracingException ex) {
+                log.warn("Can not decode the received trace", ex);
                 send(GalaxyTracingServerMessage.WRONG_REQUEST_ERROR, ctx, HttpResponseStatus.BAD_REQUEST);
+            } finally {
+                httpRequest.release();
             }
         });
     }
     
+    private void accept(final ChannelHandlerContext ctx, final TraceRecord record, final String batchId) {
+        CompletableFuture<Void> attempt = new CompletableFuture<>();
+        CompletableFuture<Void> original = null == batchId ? null : batchDeduplicator.claim(batchId, attempt);
+        if (null != original) {
+            log.debug("Duplicate batch {} is acknowledged once its first attempt is stored", batchId);
+            original.whenComplete((ignored, cause) -> respond(ctx, cause));
+            return;
+        }
+        boolean local = null == clusterRouter || clusterRouter.isLocal(record.getTraceId());
+        CompletableFuture<Void> stored = local ? writeAheadLog.append(record) : clusterRouter.forward(record);
+        stored.whenComplete((ignored, cause) -> {
+            if (null != cause) {
+                log.error(local ? "Can not store the received trace" : "Can not forward the received trace", cause);
+            } else if (local && null != traceSink) {
+                traceSink.offer(record);
+            }
+            if (null != batchId) {
+                batchDeduplicator.finish(batchId, attempt, cause);
+            }
+            respond(ctx, cause);
+        });
+    }
+    
+    private void respond(final ChannelHandlerContext ctx, final Throwable cause) {
+        if (null == cause) {
+            send(GalaxyTracingServerMessage.RESPONSE_OK, ctx, HttpResponseStatus.OK);
+        } else {
+            send(GalaxyTracingServerMessage.INTERNAL_ERROR, ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+    
     @Override
     public void channelActive(final ChannelHandlerContext ctx) {
         log.info("Address of the connected client:" + ctx.channel().remoteAddress());
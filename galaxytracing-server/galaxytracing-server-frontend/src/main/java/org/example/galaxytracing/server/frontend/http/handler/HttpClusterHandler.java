@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.http.handler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.constant.GalaxyTracingServerMessage;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.thread.ExecutorServiceManager;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.sink.JdbcTraceSink;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.backend.wal.WriteAheadLog;
+import org.example.galaxytracing.server.center.forward.TraceForwarder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * HTTP handler of the batches forwarded by other collectors of the cluster, other requests are passed to the next
+ * handler.
+ *
+ * <p>A batch is NDJSON of traces this collector owns. It is acknowledged once all of its traces are durable in the
+ * {@link WriteAheadLog}. Traces are never forwarded again, so collectors which disagree on the members can not bounce
+ * a batch between them.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+@RequiredArgsConstructor
+public final class HttpClusterHandler extends ChannelInboundHandlerAdapter {
+    
+    private static final String THREAD_NAME_FORMAT = "Cluster-%d";
+    
+    private static final ExecutorServiceManager EXECUTOR_SERVICE_MANAGER;
+    
+    static {
+        EXECUTOR_SERVICE_MANAGER = new ExecutorServiceManager(4, THREAD_NAME_FORMAT);
+    }
+    
+    private final WriteAheadLog writeAheadLog;
+    
+    private final JdbcTraceSink traceSink;
+    
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        FullHttpRequest httpRequest = (FullHttpRequest) msg;
+        if (!TraceForwarder.FORWARD_PATH.equals(httpRequest.uri())) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        EXECUTOR_SERVICE_MANAGER.getExecutorService().execute(() -> {
+            try {
+                if (HttpMethod.POST.equals(httpRequest.method())) {
+                    store(ctx, decode(httpRequest.content().toString(CharsetUtil.UTF_8)));
+                } else {
+                    send(GalaxyTracingServerMessage.WRONG_REQUEST_ERROR, ctx, HttpResponseStatus.BAD_REQUEST);
+                }
+            } catch (GalaxyTracingException ex) {
+                log.warn("Can not decode the forwarded batch", ex);
+                send(GalaxyTracingServerMessage.WRONG_REQUEST_ERROR, ctx, HttpResponseStatus.BAD_REQUEST);
+            } finally {
+                httpRequest.release();
+            }
+        });
+    }
+    
+    private static List<TraceRecord> decode(final String batch) throws GalaxyTracingException {
+        List<TraceRecord> result = new ArrayList<>();
+        int start = 0;
+        while (start < batch.length()) {
+            int end = batch.indexOf('\n', start);
+            if (-1 == end) {
+                end = batch.length();
+            }
+            if (end > start) {
+                result.add(TraceRecordCodec.decode(batch.substring(start, end)));
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+    
+    private void store(final ChannelHandlerContext ctx, final List<TraceRecord> records) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = writeAheadLog.append(records.get(i));
+        }
+        CompletableFuture.allOf(futures).whenComplete((ignored, cause) -> {
+            if (null != cause) {
+                log.error("Can not store the forwarded batch", cause);
+                send(GalaxyTracingServerMessage.INTERNAL_ERROR, ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+                return;
+            }
+            if (null != traceSink) {
+                records.forEach(traceSink::offer);
+            }
+            send(GalaxyTracingServerMessage.RESPONSE_OK, ctx, HttpResponseStatus.OK);
+        });
+    }
+    
+    private void send(final String content, final ChannelHandlerContext ctx, final HttpResponseStatus status) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.copiedBuffer(content, CharsetUtil.UTF_8));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain;charset=UTF-8");
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.http.handler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.CharsetUtil;
+import lombok.RequiredArgsConstructor;
+import org.example.galaxytracing.server.frontend.metrics.ServerMetrics;
+
+/**
+ * HTTP handler of {@code GET /metrics}, which returns the {@link ServerMetrics} in the Prometheus text format. Other
+ * requests are passed to the next handler.
+ *
+ * <p>Rendering only reads counters, so it runs on the event loop.</p>
+ *
+ * @author JiekerTime
+ */
+@RequiredArgsConstructor
+public final class HttpMetricsHandler extends ChannelInboundHandlerAdapter {
+    
+    private static final String METRICS_PATH = "/metrics";
+    
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    
+    private final ServerMetrics serverMetrics;
+    
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        FullHttpRequest httpRequest = (FullHttpRequest) msg;
+        if (!HttpMethod.GET.equals(httpRequest.method()) || !METRICS_PATH.equals(new QueryStringDecoder(httpRequest.uri()).path())) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        httpRequest.release();
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                Unpooled.copiedBuffer(serverMetrics.render(), CharsetUtil.UTF_8));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE);
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.http.handler;
+
+import com.huawei.shade.com.alibaba.fastjson.JSONArray;
+import com.huawei.shade.com.alibaba.fastjson.JSONObject;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.CharsetUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.galaxytracing.infra.common.constant.GalaxyTracingServerMessage;
+import org.example.galaxytracing.infra.common.exception.GalaxyTracingException;
+import org.example.galaxytracing.infra.common.thread.ExecutorServiceManager;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.server.backend.aggregation.AggregatedBucket;
+import org.example.galaxytracing.server.backend.aggregation.AggregatedCount;
+import org.example.galaxytracing.server.backend.aggregation.Resolution;
+import org.example.galaxytracing.server.backend.aggregation.TraceAggregator;
+import org.example.galaxytracing.server.backend.cache.CacheStats;
+import org.example.galaxytracing.server.backend.dependency.DependencyEdge;
+import org.example.galaxytracing.server.backend.dependency.DependencyGraph;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.index.attribute.filter.AndFilter;
+import org.example.galaxytracing.server.backend.index.attribute.filter.AttributeFilter;
+import org.example.galaxytracing.server.backend.index.attribute.filter.NotFilter;
+import org.example.galaxytracing.server.backend.index.attribute.filter.TermFilter;
+import org.example.galaxytracing.server.backend.storage.SearchCursor;
+import org.example.galaxytracing.server.backend.storage.TraceRecordVisitor;
+import org.example.galaxytracing.server.backend.storage.TraceStore;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.center.ClusterRouter;
+import org.example.galaxytracing.server.center.ClusterSearch;
+import org.example.galaxytracing.server.frontend.http.cache.QueryResultCache;
+import org.example.galaxytracing.server.frontend.http.stream.NdjsonResponseWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * HTTP handler of trace queries.
+ *
+ * <ul>
+ *     <li>{@code GET /traces/{traceId}} returns one trace as JSON.</li>
+ *     <li>{@code GET /traces?from=&to=&tag=key:value&exclude=key:value&limit=} streams the matched traces as NDJSON.
+ *     {@code from} and {@code to} are inclusive milliseconds, every {@code tag} must match and no {@code exclude} may
+ *     match.</li>
+ *     <li>{@code GET /cache/stats} returns the statistics of the trace cache and the query result cache.</li>
+ *     <li>{@code GET /aggregations?key=&window=} returns the count, error count and rate per second of every value of
+ *     an aggregated attribute key over the sliding window of {@code window} milliseconds ending now.</li>
+ *     <li>{@code GET /aggregations/buckets?key=&resolution=second|minute|hour&limit=} returns the latest tumbling
+ *     windows of the resolution, newest first.</li>
+ *     <li>{@code GET /dependencies} returns the edges of the service dependency graph with their call count, error
+ *     count and latency quantiles in milliseconds.</li>
+ * </ul>
+ *
+ * <p>Queries run on their own executor, so neither the event loops nor the ingestion executor wait for storage
+ * reads. Small complete results are kept in the {@link QueryResultCache}. A search stops while its client does not
+ * keep up and goes on where it stopped once the channel is writable again: the local part from its
+ * {@link SearchCursor}, the part of the other members from their responses, which stay open meanwhile. A search paused
+ * until compaction closes the segment it stopped in is aborted.</p>
+ *
+ * <p>In a cluster, lookups, searches and aggregations fan out through the {@link ClusterRouter}: the fragments of a
+ * trace found on several members are assembled into one, search results of the other members are streamed after the
+ * local ones up to the limit, a trace found on several members once, and counts are summed per value. Requests
+ * carrying {@code scope=local} are answered from this collector only, searches fanned out are not cached.</p>
+ *
+ * @author JiekerTime
+ */
+@Slf4j(topic = "server")
+@RequiredArgsConstructor
+public final class HttpQueryHandler extends ChannelInboundHandlerAdapter {
+    
+    private static final String TRACES_PATH = "/traces";
+    
+    private static final String TRACE_PATH_PREFIX = TRACES_PATH + "/";
+    
+    private static final String CACHE_STATS_PATH = "/cache/stats";
+    
+    private static final String AGGREGATIONS_PATH = "/aggregations";
+    
+    private static final String AGGREGATION_BUCKETS_PATH = AGGREGATIONS_PATH + "/buckets";
+    
+    private static final String DEPENDENCIES_PATH = "/dependencies";
+    
+    private static final long DEFAULT_WINDOW_MILLIS = 60L * 1000;
+    
+    private static final int DEFAULT_BUCKET_LIMIT = 60;
+    
+    private static final String SCOPE_PARAMETER = "scope";
+    
+    private static final String LOCAL_SCOPE = "local";
+    
+    private static final String THREAD_NAME_FORMAT = "Query-%d";
+    
+    private static final int DEFAULT_LIMIT = 1000;
+    
+    private static final ExecutorServiceManager EXECUTOR_SERVICE_MANAGER;
+    
+    static {
+        EXECUTOR_SERVICE_MANAGER = new ExecutorServiceManager(4, THREAD_NAME_FORMAT);
+    }
+    
+    private final TraceStore traceStore;
+    
+    private final QueryResultCache queryResultCache;
+    
+    private final ClusterRouter clusterRouter;
+    
+    private final TraceAggregator traceAggregator;
+    
+    private final DependencyGraph dependencyGraph;
+    
+    private volatile NdjsonResponseWriter writer;
+    
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        FullHttpRequest httpRequest = (FullHttpRequest) msg;
+        try {
+            QueryStringDecoder decoder = new QueryStringDecoder(httpRequest.uri());
+            boolean fanOut = null != clusterRouter && !LOCAL_SCOPE.equals(getString(decoder.parameters(), SCOPE_PARAMETER, null));
+            if (!HttpMethod.GET.equals(httpRequest.method())) {
+                send(GalaxyTracingServerMessage.WRONG_REQUEST_ERROR, ctx, HttpResponseStatus.BAD_REQUEST);
+            } else if (decoder.path().startsWith(TRACE_PATH_PREFIX)) {
+                lookup(ctx, Long.parseLong(decoder.path().substring(TRACE_PATH_PREFIX.length())), fanOut);
+            } else if (TRACES_PATH.equals(decoder.path())) {
+                search(ctx, httpRequest.uri(), decoder.parameters(), fanOut);
+            } else if (CACHE_STATS_PATH.equals(decoder.path())) {
+                EXECUTOR_SERVICE_MANAGER.getExecutorService().execute(() -> sendJson(ctx, this::createCacheStats));
+            } else if (null != traceAggregator && AGGREGATIONS_PATH.equals(decoder.path())) {
+                String query = fanOut ? httpRequest.uri() : null;
+                EXECUTOR_SERVICE_MANAGER.getExecutorService().execute(() -> sendJson(ctx, () -> createSlidingWindow(decoder.parameters(), query)));
+            } else if (null != traceAggregator && AGGREGATION_BUCKETS_PATH.equals(decoder.path())) {
+                String query = fanOut ? httpRequest.uri() : null;
+                EXECUTOR_SERVICE_MANAGER.getExecutorService().execute(() -> sendJson(ctx, () -> createBuckets(decoder.parameters(), query)));
+            } else if (null != dependencyGraph && DEPENDENCIES_PATH.equals(decoder.path())) {
+                EXECUTOR_SERVICE_MANAGER.getExecutorService().execute(() -> sendJson(ctx, this::createDependencies));
+            } else {
+                send(GalaxyTracingServerMessage.WRONG_REQUEST_ERROR, ctx, HttpResponseStatus.BAD_REQUEST);
+            }
+        } catch (IllegalArgumentException ex) {
+            send(GalaxyTracingServerMessage.WRONG_REQUEST_ERROR, ctx, HttpResponseStatus.BAD_REQUEST);
+        } finally {
+            httpRequest.release();
+        }
+    }
+    
+    private void lookup(final ChannelHandlerContext ctx, final long traceId, final boolean fanOut) {
+        EXECUTOR_SERVICE_MANAGER.getExecutorService().execute(() -> {
+            List<TraceRecord> fragments = new LinkedList<>();
+            try {
+                TraceRecord record = traceStore.get(traceId);
+                if (null != record) {
+                    fragments.add(record);
+                }
+            } catch (GalaxyTracingException ex) {
+                log.error("Lookup of trace {} failed", traceId, ex);
+                send(GalaxyTracingServerMessage.INTERNAL_ERROR, ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+                return;
+            }
+            if (fanOut) {
+                fragments.addAll(clusterRouter.lookup(traceId, TRACE_PATH_PREFIX + traceId, !fragments.isEmpty()));
+            }
+            if (fragments.isEmpty()) {
+                send(GalaxyTracingServerMessage.TRACE_NOT_FOUND_ERROR, ctx, HttpResponseStatus.NOT_FOUND);
+            } else {
+                sendJson(ctx, TraceRecordCodec.encode(ClusterRouter.assemble(fragments).getAttributes()));
+            }
+        });
+    }
+    
+    private String createCacheStats() {
+        Map<String, Object> result = new LinkedHashMap<>(4, 1);
+        result.put("traceCache", toMap(traceStore.getTraceCacheStats()));
+        result.put("queryResultCache", toMap(queryResultCache.stats()));
+        return JSONObject.toJSONString(result);
+    }
+    
+    private static Map<String, Object> toMap(final CacheStats stats) {
+        Map<String, Object> result = new LinkedHashMap<>(16, 1);
+        result.put("hitCount", stats.getHitCount());
+        result.put("missCount", stats.getMissCount());
+        result.put("hitRate", stats.getHitRate());
+        result.put("evictionCount", stats.getEvictionCount());
+        result.put("expirationCount", stats.getExpirationCount());
+        result.put("entryCount", stats.getEntryCount());
+        result.put("weightedSize", stats.getWeightedSize());
+        return result;
+    }
+    
+    private static Map<String, Object> toMap(final AggregatedCount count) {
+        Map<String, Object> result = new LinkedHashMap<>(8, 1);
+        result.put("value", count.getValue());
+        result.put("count", count.getCount());
+        result.put("errorCount", count.getErrorCount());
+        return result;
+    }
+    
+    private String createSlidingWindow(final Map<String, List<String>> parameters, final String query) {
+        long window = getLong(parameters, "window", DEFAULT_WINDOW_MILLIS);
+        List<List<AggregatedCount>> parts = new LinkedList<>();
+        parts.add(traceAggregator.getSlidingWindow(getString(parameters, "key"), window));
+        if (null != query) {
+            for (String each : clusterRouter.fetch(query)) {
+                parts.add(parseCounts(JSONObject.parseObject(each).getJSONArray("counts")));
+            }
+        }
+        List<Map<String, Object>> counts = new ArrayList<>();
+        for (AggregatedCount each : mergeCounts(parts)) {
+            Map<String, Object> count = toMap(each);
+            count.put("ratePerSecond", each.getCount() * 1000.0D / window);
+            counts.add(count);
+        }
+        Map<String, Object> result = new LinkedHashMap<>(4, 1);
+        result.put("windowMillis", window);
+        result.put("counts", counts);
+        return JSONObject.toJSONString(result);
+    }
+    
+    private String createBuckets(final Map<String, List<String>> parameters, final String query) {
+        String resolution = getString(parameters, "resolution", Resolution.MINUTE.name());
+        int limit = (int) getLong(parameters, "limit", DEFAULT_BUCKET_LIMIT);
+        Map<Long, List<List<AggregatedCount>>> buckets = new TreeMap<>(Collections.reverseOrder());
+        for (AggregatedBucket each : traceAggregator.getBuckets(getString(parameters, "key"), Resolution.valueOf(resolution.toUpperCase(Locale.ROOT)), limit)) {
+            buckets.computeIfAbsent(each.getStartMillis(), key -> new LinkedList<>()).add(each.getCounts());
+        }
+        if (null != query) {
+            for (String each : clusterRouter.fetch(query)) {
+                for (Object bucket : JSONArray.parseArray(each)) {
+                    JSONObject json = (JSONObject) bucket;
+                    buckets.computeIfAbsent(json.getLongValue("start"), key -> new LinkedList<>()).add(parseCounts(json.getJSONArray("counts")));
+                }
+            }
+        }
+        List<Map<String, Object>> result = new ArrayList<>(Math.min(limit, buckets.size()));
+        for (Map.Entry<Long, List<List<AggregatedCount>>> entry : buckets.entrySet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            List<Map<String, Object>> counts = new ArrayList<>();
+            for (AggregatedCount count : mergeCounts(entry.getValue())) {
+                counts.add(toMap(count));
+            }
+            Map<String, Object> bucket = new LinkedHashMap<>(4, 1);
+            bucket.put("start", entry.getKey());
+            bucket.put("counts", counts);
+            result.add(bucket);
+        }
+        return JSONObject.toJSONString(result);
+    }
+    
+    private static List<AggregatedCount> parseCounts(final JSONArray counts) {
+        List<AggregatedCount> result = new ArrayList<>(counts.size());
+        for (int i = 0; i < counts.size(); i++) {
+            JSONObject count = counts.getJSONObject(i);
+            result.add(new AggregatedCount(count.getString("value"), count.getLongValue("count"), count.getLongValue("errorCount")));
+        }
+        return result;
+    }
+    
+    private static List<AggregatedCount> mergeCounts(final List<List<AggregatedCount>> parts) {
+        if (1 == parts.size()) {
+            return parts.get(0);
+        }
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        for (List<AggregatedCount> part : parts) {
+            for (AggregatedCount each : part) {
+                long[] total = totals.computeIfAbsent(each.getValue(), key -> new long[2]);
+                total[0] += each.getCount();
+                total[1] += each.getErrorCount();
+            }
+        }
+        List<AggregatedCount> result = new ArrayList<>(totals.size());
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            result.add(new AggregatedCount(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+        result.sort((o1, o2) -> Long.compare(o2.getCount(), o1.getCount()));
+        return result;
+    }
+    
+    private String createDependencies() {
+        List<DependencyEdge> edges = dependencyGraph.getEdges();
+        List<Map<String, Object>> result = new ArrayList<>(edges.size());
+        for (DependencyEdge each : edges) {
+            Map<String, Object> edge = new LinkedHashMap<>(16, 1);
+            edge.put("caller", each.getCaller());
+            edge.put("callee", each.getCallee());
+            edge.put("callCount", each.getCallCount());
+            edge.put("errorCount", each.getErrorCount());
+            edge.put("meanMillis", each.getMeanMillis());
+            edge.put("p50Millis", each.getP50Millis());
+            edge.put("p90Millis", each.getP90Millis());
+            edge.put("p99Millis", each.getP99Millis());
+            edge.put("maxMillis", each.getMaxMillis());
+            result.add(edge);
+        }
+        return JSONObject.toJSONString(result);
+    }
+    
+    private void search(final ChannelHandlerContext ctx, final String query, final Map<String, List<String>> parameters, final boolean fanOut) {
+        long from = getLong(parameters, "from", 0L);
+        long to = getLong(parameters, "to", Long.MAX_VALUE);
+        long limit = getLong(parameters, "limit", DEFAULT_LIMIT);
+        AttributeFilter filter = createFilter(parameters);
+        NdjsonResponseWriter current = new NdjsonResponseWriter(ctx.channel(), EXECUTOR_SERVICE_MANAGER.getExecutorService(), queryResultCache.getMaxResultBytes());
+        writer = current;
+        EXECUTOR_SERVICE_MANAGER.getExecutorService().execute(new SearchTask(current, query, fanOut, from, to, filter, limit));
+    }
+    
+    private static long getLong(final Map<String, List<String>> parameters, final String name, final long defaultValue) {
+        List<String> values = parameters.get(name);
+        return null == values || values.isEmpty() ? defaultValue : Long.parseLong(values.get(0));
+    }
+    
+    private static String getString(final Map<String, List<String>> parameters, final String name) {
+        List<String> values = parameters.get(name);
+        if (null == values || values.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Missing parameter %s", name));
+        }
+        return values.get(0);
+    }
+    
+    private static String getString(final Map<String, List<String>> parameters, final String name, final String defaultValue) {
+        List<String> values = parameters.get(name);
+        return null == values || values.isEmpty() ? defaultValue : values.get(0);
+    }
+    
+    private static AttributeFilter createFilter(final Map<String, List<String>> parameters) {
+        List<AttributeFilter> filters = new LinkedList<>();
+        for (String each : parameters.getOrDefault("tag", Collections.emptyList())) {
+            filters.add(createTermFilter(each));
+        }
+        for (String each : parameters.getOrDefault("exclude", Collections.emptyList())) {
+            filters.add(new NotFilter(createTermFilter(each)));
+        }
+        return filters.isEmpty() ? null : new AndFilter(filters);
+    }
+    
+    private static TermFilter createTermFilter(final String tag) {
+        int index = tag.indexOf(':');
+        if (index <= 0) {
+            throw new IllegalArgumentException(String.format("Illegal tag %s", tag));
+        }
+        return new TermFilter(tag.substring(0, index), tag.substring(index + 1));
+    }
+    
+    @Override
+    public void channelWritabilityChanged(final ChannelHandlerContext ctx) {
+        NdjsonResponseWriter current = writer;
+        if (null != current) {
+            current.onChannelChanged();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+    
+    @Override
+    public void channelInactive(final ChannelHandlerContext ctx) {
+        NdjsonResponseWriter current = writer;
+        if (null != current) {
+            current.onChannelChanged();
+        }
+        ctx.fireChannelInactive();
+    }
+    
+    private void sendJson(final ChannelHandlerContext ctx, final Supplier<String> content) {
+        byte[] json;
+        try {
+            json = content.get().getBytes(StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            send(GalaxyTracingServerMessage.WRONG_REQUEST_ERROR, ctx, HttpResponseStatus.BAD_REQUEST);
+            return;
+        }
+        sendJson(ctx, json);
+    }
+    
+    private void sendJson(final ChannelHandlerContext ctx, final byte[] content) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(content));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json;charset=UTF-8");
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+    
+    private void send(final String content, final ChannelHandlerContext ctx, final HttpResponseStatus status) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.copiedBuffer(content, CharsetUtil.UTF_8));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain;charset=UTF-8");
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+    
+    private final class SearchTask implements Runnable {
+        
+        private final NdjsonResponseWriter writer;
+        
+        private final String query;
+        
+        private final boolean fanOut;
+        
+        private final long from;
+        
+        private final long to;
+        
+        private final AttributeFilter filter;
+        
+        private final SearchCursor cursor = new SearchCursor();
+        
+        private final Set<Long> written;
+        
+        private ClusterSearch clusterSearch;
+        
+        private long remaining;
+        
+        private long generation = -1L;
+        
+        private boolean localDone;
+        
+        private boolean paused;
+        
+        SearchTask(final NdjsonResponseWriter writer, final String query, final boolean fanOut, final long from, final long to, final AttributeFilter filter, final long limit) {
+            this.writer = writer;
+            this.query = query;
+            this.fanOut = fanOut;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+            written = fanOut ? new HashSet<>() : null;
+            remaining = limit;
+        }
+        
+        @Override
+        public void run() {
+            if (generation < 0L && serveCached()) {
+                return;
+            }
+            paused = false;
+            try {
+                searchLocally();
+                if (!paused && fanOut && remaining > 0L && !writer.isBroken()) {
+                    searchCluster();
+                }
+            } catch (GalaxyTracingException ex) {
+                log.error("Search of traces failed", ex);
+                closeClusterSearch();
+                writer.abort();
+                return;
+            }
+            if (paused) {
+                writer.resumeWhenWritable(this);
+                return;
+            }
+            closeClusterSearch();
+            byte[] body = fanOut ? null : writer.getCaptured();
+            if (null != body) {
+                queryResultCache.put(query, generation, body);
+            }
+            writer.finish();
+        }
+        
+        private boolean serveCached() {
+            generation = traceStore.getGeneration();
+            byte[] cached = fanOut ? null : queryResultCache.get(query, generation);
+            writer.start();
+            if (null == cached) {
+                return false;
+            }
+            writer.writeCaptured(cached);
+            writer.finish();
+            return true;
+        }
+        
+        private void searchLocally() {
+            if (localDone) {
+                return;
+            }
+            TraceRecordVisitor visitor = record -> {
+                long timestamp = SnowflakeIdParser.getTimestamp(record.getTraceId());
+                return timestamp < from || timestamp > to || visit(record.getTraceId(), TraceRecordCodec.encode(record.getAttributes()));
+            };
+            localDone = null == filter ? traceStore.searchByTime(from, to, cursor, visitor) : traceStore.searchByAttributes(filter, cursor, visitor);
+        }
+        
+        private void searchCluster() {
+            if (null == clusterSearch) {
+                clusterSearch = clusterRouter.search(query);
+            }
+            clusterSearch.resume(line -> visit(TraceRecordCodec.decode(new String(line, StandardCharsets.UTF_8)).getTraceId(), line));
+        }
+        
+        private void closeClusterSearch() {
+            if (null != clusterSearch) {
+                clusterSearch.close();
+            }
+        }
+        
+        private boolean visit(final long traceId, final byte[] line) {
+            if (null != written && !written.add(traceId)) {
+                return true;
+            }
+            if (!writer.write(line)) {
+                paused = !writer.isBroken() && --remaining > 0;
+                return false;
+            }
+            return --remaining > 0;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.http.stream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stream newline delimited JSON to a channel as a chunked HTTP response.
+ *
+ * <p>Lines are gathered into chunks of {@link #CHUNK_SIZE} bytes. Once a written chunk leaves the channel unwritable,
+ * {@link #write(byte[])} asks the query to stop. The query hands its continuation to
+ * {@link #resumeWhenWritable(Runnable)} and frees its thread, the continuation is run on the executor once the event
+ * loop reports the channel writable again. A slow client thus slows the query down without piling the result up in
+ * memory or holding a query thread.</p>
+ *
+ * <p>The body can also be captured up to a limit, so a complete small result can be cached.</p>
+ *
+ * @author JiekerTime
+ */
+public final class NdjsonResponseWriter {
+    
+    private static final int CHUNK_SIZE = 16 * 1024;
+    
+    private static final String CONTENT_TYPE = "application/x-ndjson;charset=UTF-8";
+    
+    private final Channel channel;
+    
+    private final Executor executor;
+    
+    private final AtomicReference<Runnable> continuation = new AtomicReference<>();
+    
+    private final int captureLimit;
+    
+    private ByteArrayOutputStream captured;
+    
+    private boolean broken;
+    
+    private ByteBuf chunk;
+    
+    public NdjsonResponseWriter(final Channel channel, final Executor executor, final int captureLimit) {
+        this.channel = channel;
+        this.executor = executor;
+        this.captureLimit = captureLimit;
+        captured = captureLimit > 0 ? new ByteArrayOutputStream() : null;
+    }
+    
+    /**
+     * Write the response headers.
+     */
+    public void start() {
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE);
+        response.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        channel.write(response);
+    }
+    
+    /**
+     * Write a line.
+     *
+     * @param line UTF-8 bytes of a JSON object
+     * @return true if the query may go on, false if the client went away, see {@link #isBroken()}, or the channel is
+     *         not writable any more
+     */
+    public boolean write(final byte[] line) {
+        if (!channel.isActive()) {
+            broken = true;
+            return false;
+        }
+        if (null == chunk) {
+            chunk = channel.alloc().buffer(CHUNK_SIZE);
+        }
+        chunk.writeBytes(line).writeByte('\n');
+        capture(line);
+        return chunk.readableBytes() < CHUNK_SIZE || flush();
+    }
+    
+    private void capture(final byte[] line) {
+        if (null == captured) {
+            return;
+        }
+        if (captured.size() + line.length + 1 > captureLimit) {
+            captured = null;
+            return;
+        }
+        captured.write(line, 0, line.length);
+        captured.write('\n');
+    }
+    
+    /**
+     * Write a body captured by an earlier query.
+     *
+     * @param body NDJSON body
+     */
+    public void writeCaptured(final byte[] body) {
+        channel.writeAndFlush(new DefaultHttpContent(Unpooled.wrappedBuffer(body)));
+    }
+    
+    /**
+     * Whether the client went away.
+     *
+     * @return broken or not
+     */
+    public boolean isBroken() {
+        return broken;
+    }
+    
+    /**
+     * Get the captured body.
+     *
+     * @return body, or null if it exceeded the capture limit or the client went away
+     */
+    public byte[] getCaptured() {
+        return broken || null == captured ? null : captured.toByteArray();
+    }
+    
+    private boolean flush() {
+        ByteBuf current = chunk;
+        chunk = null;
+        if (!channel.isActive()) {
+            current.release();
+            broken = true;
+            return false;
+        }
+        channel.writeAndFlush(new DefaultHttpContent(current));
+        return channel.isWritable();
+    }
+    
+    /**
+     * Run the continuation of the query on the executor once the channel is writable or closed.
+     *
+     * @param continuation continuation of the query
+     */
+    public void resumeWhenWritable(final Runnable continuation) {
+        this.continuation.set(continuation);
+        onChannelChanged();
+    }
+    
+    /**
+     * Resume the query waiting for the channel, called by the event loop when writability or activity changes.
+     */
+    public void onChannelChanged() {
+        if (channel.isActive() && !channel.isWritable()) {
+            return;
+        }
+        Runnable current = continuation.getAndSet(null);
+        if (null != current) {
+            executor.execute(current);
+        }
+    }
+    
+    /**
+     * Write the last chunk and close the connection.
+     */
+    public void finish() {
+        ByteBuf current = chunk;
+        chunk = null;
+        LastHttpContent last = null == current ? LastHttpContent.EMPTY_LAST_CONTENT : new DefaultLastHttpContent(current);
+        channel.writeAndFlush(last).addListener(ChannelFutureListener.CLOSE);
+    }
+    
+    /**
+     * Drop the pending chunk and close the connection, the client sees a truncated response.
+     */
+    public void abort() {
+        if (null != chunk) {
+            chunk.release();
+            chunk = null;
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.metrics;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probe of the event loops of a group.
+ *
+ * <p>Every loop runs a probe task at a fixed rate. The delay between the time the task was due and the time it ran is
+ * the time a task waits for the loop, it grows as soon as the loop is saturated.</p>
+ *
+ * @author JiekerTime
+ */
+public final class EventLoopProbe {
+    
+    private final List<EventExecutor> eventLoops = new ArrayList<>();
+    
+    private final List<LatencyHistogram> lags = new ArrayList<>();
+    
+    /**
+     * Start probing the event loops of the group.
+     *
+     * @param group event loop group
+     * @param intervalMillis interval of the probe task in milliseconds
+     */
+    public EventLoopProbe(final EventLoopGroup group, final long intervalMillis) {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        for (EventExecutor each : group) {
+            LatencyHistogram lag = new LatencyHistogram();
+            eventLoops.add(each);
+            lags.add(lag);
+            each.scheduleAtFixedRate(new ProbeTask(lag, System.nanoTime() + intervalNanos, intervalNanos), intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    /**
+     * Get the lag histograms, one per event loop.
+     *
+     * @return lag histograms
+     */
+    public List<LatencyHistogram> getLags() {
+        return Collections.unmodifiableList(lags);
+    }
+    
+    /**
+     * Get the number of tasks waiting for the event loop.
+     *
+     * @param index index of the event loop
+     * @return pending tasks, -1 if the event loop does not tell
+     */
+    public int getPendingTasks(final int index) {
+        EventExecutor eventLoop = eventLoops.get(index);
+        return eventLoop instanceof SingleThreadEventExecutor ? ((SingleThreadEventExecutor) eventLoop).pendingTasks() : -1;
+    }
+    
+    private static final class ProbeTask implements Runnable {
+        
+        private final LatencyHistogram lag;
+        
+        private final long intervalNanos;
+        
+        private long dueNanos;
+        
+        ProbeTask(final LatencyHistogram lag, final long firstDueNanos, final long intervalNanos) {
+            this.lag = lag;
+            this.intervalNanos = intervalNanos;
+            dueNanos = firstDueNanos;
+        }
+        
+        @Override
+        public void run() {
+            lag.record(Math.max(0L, System.nanoTime() - dueNanos));
+            dueNanos += intervalNanos;
+        }
+    }
+}
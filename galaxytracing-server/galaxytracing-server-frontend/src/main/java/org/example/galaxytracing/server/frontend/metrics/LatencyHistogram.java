@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with fixed buckets from 50 microseconds to 5 seconds, exposed as a Prometheus histogram.
+ *
+ * <p>Recording only increments atomic counters, it neither allocates nor locks.</p>
+ *
+ * @author JiekerTime
+ */
+public final class LatencyHistogram {
+    
+    private static final long[] BOUNDS_NANOS = {50_000L, 100_000L, 250_000L, 500_000L, 1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L,
+        50_000_000L, 100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L, 5_000_000_000L};
+    
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_NANOS.length + 1);
+    
+    private final AtomicLong sumNanos = new AtomicLong();
+    
+    /**
+     * Record a latency.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(final long nanos) {
+        int index = 0;
+        while (index < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[index]) {
+            index++;
+        }
+        counts.incrementAndGet(index);
+        sumNanos.addAndGet(nanos);
+    }
+    
+    /**
+     * Write the histogram in the Prometheus text format, without the HELP and TYPE lines.
+     *
+     * @param output output
+     * @param name metric name
+     * @param labels labels such as {@code loop="0"}, empty if there is none
+     */
+    public void writeTo(final StringBuilder output, final String name, final String labels) {
+        String separator = labels.isEmpty() ? "" : ",";
+        long cumulative = 0L;
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            cumulative += counts.get(i);
+            output.append(name).append("_bucket{").append(labels).append(separator).append("le=\"").append(BOUNDS_NANOS[i] / NANOS_PER_SECOND).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        cumulative += counts.get(BOUNDS_NANOS.length);
+        output.append(name).append("_bucket{").append(labels).append(separator).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        output.append(name).append("_sum").append(suffix).append(sumNanos.get() / NANOS_PER_SECOND).append('\n');
+        output.append(name).append("_count").append(suffix).append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.metrics;
+
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.netty.channel.EventLoopGroup;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Self metrics of the collector, rendered in the Prometheus text format.
+ *
+ * <ul>
+ *     <li>lag and pending tasks of every worker event loop, see {@link EventLoopProbe}</li>
+ *     <li>queue depth and queue wait of the agent executor</li>
+ *     <li>connections, bytes, requests and responses by status class</li>
+ *     <li>memory and arenas of {@link PooledByteBufAllocator#DEFAULT}</li>
+ * </ul>
+ *
+ * <p>Recording only updates atomic counters, so the I/O and ingestion threads neither allocate nor lock for it. The
+ * gauges of the event loops and the allocator are read when the metrics are rendered.</p>
+ *
+ * <p>Label values are escaped as the text format requires, see {@link #label(String, String)}.</p>
+ *
+ * @author JiekerTime
+ */
+public final class ServerMetrics {
+    
+    private static final long PROBE_INTERVAL_MILLIS = 100L;
+    
+    private static final String PREFIX = "galaxytracing_";
+    
+    private final EventLoopProbe eventLoopProbe;
+    
+    private final AtomicInteger connections = new AtomicInteger();
+    
+    private final AtomicLong receivedBytes = new AtomicLong();
+    
+    private final AtomicLong sentBytes = new AtomicLong();
+    
+    private final AtomicLong requests = new AtomicLong();
+    
+    private final AtomicLongArray responses = new AtomicLongArray(5);
+    
+    private final AtomicInteger agentQueueDepth = new AtomicInteger();
+    
+    private final LatencyHistogram agentQueueWait = new LatencyHistogram();
+    
+    public ServerMetrics(final EventLoopGroup workerGroup) {
+        eventLoopProbe = new EventLoopProbe(workerGroup, PROBE_INTERVAL_MILLIS);
+    }
+    
+    /**
+     * Record an opened connection.
+     */
+    public void onConnectionOpened() {
+        connections.incrementAndGet();
+    }
+    
+    /**
+     * Record a closed connection.
+     */
+    public void onConnectionClosed() {
+        connections.decrementAndGet();
+    }
+    
+    /**
+     * Record bytes read from a connection.
+     *
+     * @param bytes bytes
+     */
+    public void onBytesReceived(final long bytes) {
+        receivedBytes.addAndGet(bytes);
+    }
+    
+    /**
+     * Record bytes written to a connection.
+     *
+     * @param bytes bytes
+     */
+    public void onBytesSent(final long bytes) {
+        sentBytes.addAndGet(bytes);
+    }
+    
+    /**
+     * Record a received request.
+     */
+    public void onRequest() {
+        requests.incrementAndGet();
+    }
+    
+    /**
+     * Record a sent response.
+     *
+     * @param statusCode HTTP status code
+     */
+    public void onResponse(final int statusCode) {
+        responses.incrementAndGet(Math.min(Math.max(statusCode / 100, 1), 5) - 1);
+    }
+    
+    /**
+     * Record a task queued on the agent executor.
+     */
+    public void onAgentTaskQueued() {
+        agentQueueDepth.incrementAndGet();
+    }
+    
+    /**
+     * Record a task of the agent executor which starts running.
+     *
+     * @param waitNanos time the task waited in the queue in nanoseconds
+     */
+    public void onAgentTaskStarted(final long waitNanos) {
+        agentQueueDepth.decrementAndGet();
+        agentQueueWait.record(waitNanos);
+    }
+    
+    /**
+     * Render the metrics.
+     *
+     * @return metrics in the Prometheus text format
+     */
+    public String render() {
+        StringBuilder result = new StringBuilder(8192);
+        writeHeader(result, "event_loop_lag_seconds", "Delay of the probe task of the event loop.", "histogram");
+        List<LatencyHistogram> lags = eventLoopProbe.getLags();
+        for (int i = 0; i < lags.size(); i++) {
+            lags.get(i).writeTo(result, PREFIX + "event_loop_lag_seconds", label("loop", String.valueOf(i)));
+        }
+        writeHeader(result, "event_loop_pending_tasks", "Tasks waiting for the event loop.", "gauge");
+        for (int i = 0; i < lags.size(); i++) {
+            writeSample(result, "event_loop_pending_tasks", label("loop", String.valueOf(i)), eventLoopProbe.getPendingTasks(i));
+        }
+        writeHeader(result, "agent_executor_queue_depth", "Agent requests waiting for the agent executor.", "gauge");
+        writeSample(result, "agent_executor_queue_depth", "", agentQueueDepth.get());
+        writeHeader(result, "agent_executor_wait_seconds", "Time agent requests waited for the agent executor.", "histogram");
+        agentQueueWait.writeTo(result, PREFIX + "agent_executor_wait_seconds", "");
+        writeHeader(result, "http_connections", "Open connections.", "gauge");
+        writeSample(result, "http_connections", "", connections.get());
+        writeHeader(result, "http_received_bytes_total", "Bytes read from the connections.", "counter");
+        writeSample(result, "http_received_bytes_total", "", receivedBytes.get());
+        writeHeader(result, "http_sent_bytes_total", "Bytes written to the connections.", "counter");
+        writeSample(result, "http_sent_bytes_total", "", sentBytes.get());
+        writeHeader(result, "http_requests_total", "Received requests.", "counter");
+        writeSample(result, "http_requests_total", "", requests.get());
+        writeHeader(result, "http_responses_total", "Sent responses by status class.", "counter");
+        for (int i = 0; i < responses.length(); i++) {
+            writeSample(result, "http_responses_total", label("code", (i + 1) + "xx"), responses.get(i));
+        }
+        writeAllocator(result, PooledByteBufAllocator.DEFAULT.metric());
+        return result.toString();
+    }
+    
+    private static void writeAllocator(final StringBuilder output, final PooledByteBufAllocatorMetric metric) {
+        writeHeader(output, "netty_allocator_used_memory_bytes", "Memory used by the pooled allocator.", "gauge");
+        writeSample(output, "netty_allocator_used_memory_bytes", label("type", "direct"), metric.usedDirectMemory());
+        writeSample(output, "netty_allocator_used_memory_bytes", label("type", "heap"), metric.usedHeapMemory());
+        writeHeader(output, "netty_allocator_arenas", "Arenas of the pooled allocator.", "gauge");
+        writeSample(output, "netty_allocator_arenas", label("type", "direct"), metric.numDirectArenas());
+        writeSample(output, "netty_allocator_arenas", label("type", "heap"), metric.numHeapArenas());
+        writeHeader(output, "netty_allocator_thread_local_caches", "Thread local caches of the pooled allocator.", "gauge");
+        writeSample(output, "netty_allocator_thread_local_caches", "", metric.numThreadLocalCaches());
+        writeHeader(output, "netty_allocator_chunk_size_bytes", "Chunk size of the pooled allocator.", "gauge");
+        writeSample(output, "netty_allocator_chunk_size_bytes", "", metric.chunkSize());
+        writeHeader(output, "netty_arena_active_bytes", "Bytes allocated from the arena and not yet released.", "gauge");
+        writeArenas(output, "direct", metric.directArenas());
+        writeArenas(output, "heap", metric.heapArenas());
+    }
+    
+    private static void writeArenas(final StringBuilder output, final String type, final List<PoolArenaMetric> arenas) {
+        for (int i = 0; i < arenas.size(); i++) {
+            writeSample(output, "netty_arena_active_bytes", label("type", type) + "," + label("arena", String.valueOf(i)), arenas.get(i).numActiveBytes());
+        }
+    }
+    
+    /**
+     * Render a label, the backslash, double quote and line feed in its value are escaped.
+     *
+     * @param name label name
+     * @param value label value
+     * @return label such as {@code loop="0"}
+     */
+    static String label(final String name, final String value) {
+        StringBuilder result = new StringBuilder(name.length() + value.length() + 3).append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char each = value.charAt(i);
+            if ('\\' == each || '"' == each) {
+                result.append('\\').append(each);
+            } else if ('\n' == each) {
+                result.append("\\n");
+            } else {
+                result.append(each);
+            }
+        }
+        return result.append('"').toString();
+    }
+    
+    private static void writeHeader(final StringBuilder output, final String name, final String help, final String type) {
+        output.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        output.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+    
+    private static void writeSample(final StringBuilder output, final String name, final String labels, final long value) {
+        output.append(PREFIX).append(name);
+        if (!labels.isEmpty()) {
+            output.append('{').append(labels).append('}');
+        }
+        output.append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Handler at the head of the pipeline counting the connections and the bytes read and written.
+ *
+ * @author JiekerTime
+ */
+@Sharable
+@RequiredArgsConstructor
+public final class TrafficMetricsHandler extends ChannelDuplexHandler {
+    
+    private final ServerMetrics serverMetrics;
+    
+    @Override
+    public void channelActive(final ChannelHandlerContext ctx) {
+        serverMetrics.onConnectionOpened();
+        ctx.fireChannelActive();
+    }
+    
+    @Override
+    public void channelInactive(final ChannelHandlerContext ctx) {
+        serverMetrics.onConnectionClosed();
+        ctx.fireChannelInactive();
+    }
+    
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        if (msg instanceof ByteBuf) {
+            serverMetrics.onBytesReceived(((ByteBuf) msg).readableBytes());
+        }
+        ctx.fireChannelRead(msg);
+    }
+    
+    @Override
+    public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+        if (msg instanceof ByteBuf) {
+            serverMetrics.onBytesSent(((ByteBuf) msg).readableBytes());
+        }
+        ctx.write(msg, promise);
+    }
+}
@@ -23,23 +23,65 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
+import lombok.RequiredArgsConstructor;
+import org.example.galaxytracing.server.backend.aggregation.TraceAggregator;
+import org.example.galaxytracing.server.backend.dedup.BatchDeduplicator;
+import org.example.galaxytracing.server.backend.dependency.DependencyGraph;
+import org.example.galaxytracing.server.backend.schema.TraceSchemaRegistry;
+import org.example.galaxytracing.server.backend.sink.JdbcTraceSink;
+import org.example.galaxytracing.server.backend.storage.TraceStore;
+import org.example.galaxytracing.server.backend.wal.WriteAheadLog;
+import org.example.galaxytracing.server.center.ClusterRouter;
+import org.example.galaxytracing.server.frontend.http.cache.QueryResultCache;
 import org.example.galaxytracing.server.frontend.http.handler.HttpAgentHandler;
+import org.example.galaxytracing.server.frontend.http.handler.HttpClusterHandler;
+import org.example.galaxytracing.server.frontend.http.handler.HttpMetricsHandler;
+import org.example.galaxytracing.server.frontend.http.handler.HttpQueryHandler;
+import org.example.galaxytracing.server.frontend.metrics.RequestMetricsHandler;
+import org.example.galaxytracing.server.frontend.metrics.ServerMetrics;
+import org.example.galaxytracing.server.frontend.metrics.TrafficMetricsHandler;
 
 /**
  * Server handler initializer.
  *
  * @author JiekerTime
  */
+@RequiredArgsConstructor
 public final class ServerHandlerInitializer extends ChannelInitializer<SocketChannel> {
     
+    private final TraceStore traceStore;
+    
+    private final WriteAheadLog writeAheadLog;
+    
+    private final QueryResultCache queryResultCache;
+    
+    private final JdbcTraceSink traceSink;
+    
+    private final ClusterRouter clusterRouter;
+    
+    private final TraceAggregator traceAggregator;
+    
+    private final DependencyGraph dependencyGraph;
+    
+    private final BatchDeduplicator batchDeduplicator;
+    
+    private final ServerMetrics serverMetrics;
+    
+    private final TraceSchemaRegistry schemaRegistry;
+    
     @Override
     protected void initChannel(final SocketChannel socketChannel) {
         ChannelPipeline pipeline = socketChannel.pipeline();
         
+        pipeline.addLast("traffic", new TrafficMetricsHandler(serverMetrics));
         pipeline.addLast("codec", new HttpServerCodec());
+        pipeline.addLast("requests", new RequestMetricsHandler(serverMetrics));
         pipeline.addLast("aggregator", new HttpObjectAggregator(10 * 1024 * 1024));
         pipeline.addLast("compressor", new HttpContentCompressor());
         
-        pipeline.addLast("handler", new HttpAgentHandler());
+        pipeline.addLast("handler", new HttpAgentHandler(writeAheadLog, traceSink, clusterRouter, batchDeduplicator, serverMetrics, schemaRegistry));
+        pipeline.addLast("cluster", new HttpClusterHandler(writeAheadLog, traceSink));
+        pipeline.addLast("metrics", new HttpMetricsHandler(serverMetrics));
+        pipeline.addLast("query", new HttpQueryHandler(traceStore, queryResultCache, clusterRouter, traceAggregator, dependencyGraph));
     }
 }
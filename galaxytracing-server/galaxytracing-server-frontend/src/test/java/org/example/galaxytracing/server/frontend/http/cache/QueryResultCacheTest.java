@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.http.cache;
+
+import org.example.galaxytracing.infra.config.entity.server.QueryConfig;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public final class QueryResultCacheTest {
+    
+    private static final byte[] BODY = "{\"traceId\":\"1\"}\n".getBytes(StandardCharsets.UTF_8);
+    
+    @Test
+    public void assertGetResultOfSameGeneration() {
+        QueryResultCache cache = new QueryResultCache(new QueryConfig());
+        cache.put("/traces?limit=1", 0L, BODY);
+        assertThat(cache.get("/traces?limit=1", 0L), is(BODY));
+        assertThat(cache.get("/traces?limit=2", 0L), is(nullValue()));
+    }
+    
+    @Test
+    public void assertDropResultsWhenGenerationMoves() {
+        QueryResultCache cache = new QueryResultCache(new QueryConfig());
+        cache.put("/traces?limit=1", 0L, BODY);
+        assertThat(cache.get("/traces?limit=1", 1L), is(nullValue()));
+        assertThat(cache.get("/traces?limit=1", 0L), is(nullValue()));
+        assertThat(cache.stats().getEntryCount(), is(0L));
+    }
+    
+    @Test
+    public void assertIgnoreResultOfStaleGeneration() {
+        QueryResultCache cache = new QueryResultCache(new QueryConfig());
+        assertThat(cache.get("/traces?limit=1", 1L), is(nullValue()));
+        cache.put("/traces?limit=1", 0L, BODY);
+        assertThat(cache.get("/traces?limit=1", 1L), is(nullValue()));
+        cache.put("/traces?limit=1", 1L, BODY);
+        assertThat(cache.get("/traces?limit=1", 1L), is(BODY));
+    }
+    
+    @Test
+    public void assertExpireResult() throws InterruptedException {
+        QueryConfig config = new QueryConfig();
+        config.setResultCacheExpireMillis(1L);
+        QueryResultCache cache = new QueryResultCache(config);
+        cache.put("/traces?limit=1", 0L, BODY);
+        Thread.sleep(5L);
+        assertThat(cache.get("/traces?limit=1", 0L), is(nullValue()));
+        assertThat(cache.stats().getExpirationCount(), is(1L));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.http.handler;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import org.example.galaxytracing.server.frontend.metrics.ServerMetrics;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class HttpMetricsHandlerTest {
+    
+    private final EventLoopGroup workerGroup = new DefaultEventLoopGroup(1);
+    
+    @After
+    public void tearDown() {
+        workerGroup.shutdownGracefully(0L, 1L, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+    
+    @Test
+    public void assertRenderMetrics() {
+        ServerMetrics serverMetrics = new ServerMetrics(workerGroup);
+        serverMetrics.onRequest();
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpMetricsHandler(serverMetrics));
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/metrics?format=text"));
+        FullHttpResponse response = channel.readOutbound();
+        assertThat(response.status(), is(HttpResponseStatus.OK));
+        assertThat(response.headers().get(HttpHeaderNames.CONTENT_TYPE), is("text/plain; version=0.0.4; charset=utf-8"));
+        String body = response.content().toString(CharsetUtil.UTF_8);
+        assertThat(body, containsString("# TYPE galaxytracing_http_requests_total counter\n"));
+        assertThat(body, containsString("galaxytracing_http_requests_total 1\n"));
+        response.release();
+        assertFalse(channel.isOpen());
+    }
+    
+    @Test
+    public void assertPassOtherRequests() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpMetricsHandler(new ServerMetrics(workerGroup)));
+        FullHttpRequest query = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/traces");
+        FullHttpRequest post = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/metrics");
+        channel.writeInbound(query, post);
+        assertThat(channel.readInbound(), sameInstance((Object) query));
+        assertThat(channel.readInbound(), sameInstance((Object) post));
+        assertTrue(channel.isOpen());
+        assertThat(channel.outboundMessages().size(), is(0));
+        channel.finishAndReleaseAll();
+    }
+}
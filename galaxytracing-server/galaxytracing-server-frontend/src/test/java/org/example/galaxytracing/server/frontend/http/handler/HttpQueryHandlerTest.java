@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.http.handler;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import org.example.galaxytracing.infra.common.traceid.SnowflakeIdParser;
+import org.example.galaxytracing.infra.config.entity.server.QueryConfig;
+import org.example.galaxytracing.infra.config.entity.server.StorageConfig;
+import org.example.galaxytracing.server.backend.entity.TraceRecord;
+import org.example.galaxytracing.server.backend.storage.TraceStore;
+import org.example.galaxytracing.server.backend.storage.codec.TraceRecordCodec;
+import org.example.galaxytracing.server.frontend.http.cache.QueryResultCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class HttpQueryHandlerTest {
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private final long startMillis = System.currentTimeMillis() - 60L * 1000;
+    
+    private TraceStore traceStore;
+    
+    private EventLoopGroup eventLoopGroup;
+    
+    private Channel serverChannel;
+    
+    @Before
+    public void setUp() throws IOException, InterruptedException {
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setDataDir(temporaryFolder.getRoot().getPath());
+        storageConfig.setSegmentSize(64L * 1024);
+        storageConfig.setExpectedTraceCount(4096L);
+        storageConfig.setCompactionIntervalMillis(0L);
+        storageConfig.setTraceCacheBytes(1024L * 1024);
+        traceStore = new TraceStore(storageConfig);
+        traceStore.open();
+        QueryConfig queryConfig = new QueryConfig();
+        queryConfig.setMaxCachedResultBytes(0);
+        QueryResultCache queryResultCache = new QueryResultCache(queryConfig);
+        eventLoopGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap().group(eventLoopGroup).channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.SO_SNDBUF, 4 * 1024)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(4 * 1024, 16 * 1024))
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    
+                    @Override
+                    protected void initChannel(final SocketChannel channel) {
+                        channel.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(64 * 1024), new HttpQueryHandler(traceStore, queryResultCache, null, null, null));
+                    }
+                }).bind("127.0.0.1", 0).sync().channel();
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        serverChannel.close().syncUninterruptibly();
+        eventLoopGroup.shutdownGracefully(0L, 1L, TimeUnit.SECONDS).syncUninterruptibly();
+        traceStore.close();
+    }
+    
+    @Test
+    public void assertLookupByTraceId() throws IOException {
+        List<TraceRecord> records = appendRecords(3);
+        TraceRecord expected = records.get(1);
+        List<String> actual = get("/traces/" + expected.getTraceId());
+        assertThat(actual.size(), is(1));
+        assertThat(TraceRecordCodec.decode(actual.get(0)).getAttributes(), is(expected.getAttributes()));
+        assertThat(getResponseCode("/traces/1"), is(404));
+    }
+    
+    @Test
+    public void assertSearchByTimeRange() throws IOException {
+        List<TraceRecord> records = appendRecords(10);
+        List<String> actual = get(String.format("/traces?from=%d&to=%d", startMillis + 2000L, startMillis + 4000L));
+        assertThat(parseTraceIds(actual), is(toTraceIds(records.subList(2, 5))));
+    }
+    
+    @Test
+    public void assertSearchByAttributeFilter() throws IOException {
+        List<TraceRecord> records = appendRecords(10);
+        List<String> actual = get("/traces?tag=serviceName:order-service&exclude=status:error");
+        assertThat(parseTraceIds(actual), is(toTraceIds(Arrays.asList(records.get(0), records.get(4), records.get(8)))));
+    }
+    
+    @Test
+    public void assertSearchUpToLimit() throws IOException {
+        List<TraceRecord> records = appendRecords(10);
+        assertThat(parseTraceIds(get("/traces?limit=3")), is(toTraceIds(records.subList(0, 3))));
+        assertThat(parseTraceIds(get("/traces?tag=serviceName:order-service&limit=1")), is(toTraceIds(records.subList(0, 1))));
+    }
+    
+    @Test
+    public void assertResumeSearchOfSlowClient() throws IOException, InterruptedException {
+        final List<TraceRecord> records = appendRecords(2000);
+        assertTrue(traceStore.getSegments().size() > 1);
+        HttpURLConnection connection = open("/traces?limit=5000");
+        assertThat(connection.getResponseCode(), is(200));
+        Thread.sleep(300L);
+        assertThat(parseTraceIds(readLines(connection)), is(toTraceIds(records)));
+        HttpURLConnection filtered = open("/traces?tag=serviceName:order-service&limit=5000");
+        assertThat(filtered.getResponseCode(), is(200));
+        Thread.sleep(300L);
+        List<TraceRecord> expected = new ArrayList<>();
+        for (TraceRecord each : records) {
+            if ("order-service".equals(each.getAttributes().get("serviceName"))) {
+                expected.add(each);
+            }
+        }
+        assertThat(parseTraceIds(readLines(filtered)), is(toTraceIds(expected)));
+    }
+    
+    private List<TraceRecord> appendRecords(final int count) {
+        char[] padding = new char[512];
+        Arrays.fill(padding, 'a');
+        List<TraceRecord> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long traceId = SnowflakeIdParser.getMinId(startMillis + i * 1000L) + 1L;
+            Map<String, String> attributes = new HashMap<>(8, 1);
+            attributes.put("traceId", String.valueOf(traceId));
+            attributes.put("serviceName", 0 == i % 2 ? "order-service" : "pay-service");
+            attributes.put("status", 0 == i % 4 ? "ok" : "error");
+            attributes.put("padding", new String(padding));
+            TraceRecord record = new TraceRecord(traceId, attributes);
+            traceStore.append(record);
+            result.add(record);
+        }
+        return result;
+    }
+    
+    private List<String> get(final String path) throws IOException {
+        HttpURLConnection connection = open(path);
+        assertThat(connection.getResponseCode(), is(200));
+        return readLines(connection);
+    }
+    
+    private int getResponseCode(final String path) throws IOException {
+        HttpURLConnection connection = open(path);
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+    
+    private HttpURLConnection open(final String path) throws IOException {
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+        HttpURLConnection result = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+        result.setReadTimeout(10 * 1000);
+        return result;
+    }
+    
+    private static List<String> readLines(final HttpURLConnection connection) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            while (null != line) {
+                result.add(line);
+                line = reader.readLine();
+            }
+        }
+        return result;
+    }
+    
+    private static List<Long> toTraceIds(final List<TraceRecord> records) {
+        List<Long> result = new ArrayList<>(records.size());
+        for (TraceRecord each : records) {
+            result.add(each.getTraceId());
+        }
+        return result;
+    }
+    
+    private static List<Long> parseTraceIds(final List<String> lines) {
+        List<Long> result = new ArrayList<>(lines.size());
+        for (String each : lines) {
+            result.add(TraceRecordCodec.decode(each).getTraceId());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.http.stream;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class NdjsonResponseWriterTest {
+    
+    private static final byte[] LINE = createLine(16 * 1024);
+    
+    @Test
+    public void assertKeepWritingWhileWritable() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        NdjsonResponseWriter writer = new NdjsonResponseWriter(channel, Runnable::run, 0);
+        writer.start();
+        assertTrue(writer.write(LINE));
+        assertTrue(writer.write(LINE));
+        assertFalse(writer.isBroken());
+    }
+    
+    @Test
+    public void assertResumeOnceWritable() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        NdjsonResponseWriter writer = new NdjsonResponseWriter(channel, Runnable::run, 0);
+        writer.start();
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        assertFalse(writer.write(LINE));
+        assertFalse(writer.isBroken());
+        AtomicInteger resumed = new AtomicInteger();
+        writer.resumeWhenWritable(resumed::incrementAndGet);
+        writer.onChannelChanged();
+        assertThat(resumed.get(), is(0));
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        writer.onChannelChanged();
+        writer.onChannelChanged();
+        assertThat(resumed.get(), is(1));
+    }
+    
+    @Test
+    public void assertResumeRightAwayIfWritableAgain() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        AtomicInteger resumed = new AtomicInteger();
+        NdjsonResponseWriter writer = new NdjsonResponseWriter(channel, Runnable::run, 0);
+        writer.resumeWhenWritable(resumed::incrementAndGet);
+        assertThat(resumed.get(), is(1));
+    }
+    
+    @Test
+    public void assertStopOnceClientIsGone() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        AtomicInteger resumed = new AtomicInteger();
+        NdjsonResponseWriter writer = new NdjsonResponseWriter(channel, Runnable::run, 0);
+        writer.start();
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        writer.resumeWhenWritable(resumed::incrementAndGet);
+        channel.close();
+        writer.onChannelChanged();
+        assertThat(resumed.get(), is(1));
+        assertFalse(writer.write(LINE));
+        assertTrue(writer.isBroken());
+        assertThat(writer.getCaptured(), is((byte[]) null));
+    }
+    
+    private static byte[] createLine(final int size) {
+        byte[] result = new byte[size];
+        Arrays.fill(result, (byte) 'a');
+        return result;
+    }
+}
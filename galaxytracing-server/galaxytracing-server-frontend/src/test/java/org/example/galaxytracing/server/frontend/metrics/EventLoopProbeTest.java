@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.metrics;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class EventLoopProbeTest {
+    
+    private final EventLoopGroup group = new DefaultEventLoopGroup(1);
+    
+    @After
+    public void tearDown() {
+        group.shutdownGracefully(0L, 1L, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+    
+    @Test
+    public void assertRecordLagOfBlockedLoop() throws InterruptedException {
+        EventLoopProbe probe = new EventLoopProbe(group, 10L);
+        assertThat(probe.getLags().size(), is(1));
+        EventExecutor eventLoop = group.next();
+        CountDownLatch release = new CountDownLatch(1);
+        eventLoop.execute(() -> {
+            try {
+                release.await();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            eventLoop.execute(() -> { });
+        }
+        assertTrue(probe.getPendingTasks(0) >= 3);
+        Thread.sleep(300L);
+        release.countDown();
+        Thread.sleep(100L);
+        assertThat(probe.getPendingTasks(0), is(0));
+        String lag = render(probe.getLags().get(0));
+        assertTrue(lag, count(lag, "lag_count ") > count(lag, "lag_bucket{le=\"0.1\"} "));
+    }
+    
+    private static String render(final LatencyHistogram histogram) {
+        StringBuilder result = new StringBuilder();
+        histogram.writeTo(result, "lag", "");
+        return result.toString();
+    }
+    
+    private static long count(final String output, final String prefix) {
+        int start = output.indexOf(prefix) + prefix.length();
+        return Long.parseLong(output.substring(start, output.indexOf('\n', start)));
+    }
+}
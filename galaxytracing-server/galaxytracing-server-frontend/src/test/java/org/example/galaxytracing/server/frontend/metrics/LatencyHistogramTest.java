@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class LatencyHistogramTest {
+    
+    @Test
+    public void assertWriteCumulativeBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(40_000L);
+        histogram.record(50_000L);
+        histogram.record(60_000L);
+        histogram.record(3_000_000_000L);
+        histogram.record(10_000_000_000L);
+        List<String> lines = write(histogram, "loop=\"0\"");
+        assertThat(lines.size(), is(19));
+        assertThat(lines.get(0), is("lag_bucket{loop=\"0\",le=\"5.0E-5\"} 2"));
+        assertThat(lines.get(1), is("lag_bucket{loop=\"0\",le=\"1.0E-4\"} 3"));
+        assertThat(lines.get(14), is("lag_bucket{loop=\"0\",le=\"2.5\"} 3"));
+        assertThat(lines.get(15), is("lag_bucket{loop=\"0\",le=\"5.0\"} 4"));
+        assertThat(lines.get(16), is("lag_bucket{loop=\"0\",le=\"+Inf\"} 5"));
+        assertThat(lines.get(17), is("lag_sum{loop=\"0\"} " + 13_000_150_000L / 1e9));
+        assertThat(lines.get(18), is("lag_count{loop=\"0\"} 5"));
+        long previous = 0L;
+        for (int i = 0; i < 17; i++) {
+            long cumulative = Long.parseLong(lines.get(i).substring(lines.get(i).lastIndexOf(' ') + 1));
+            assertTrue(cumulative >= previous);
+            previous = cumulative;
+        }
+    }
+    
+    @Test
+    public void assertWriteWithoutLabels() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000L);
+        List<String> lines = write(histogram, "");
+        assertThat(lines.get(0), is("lag_bucket{le=\"5.0E-5\"} 0"));
+        assertThat(lines.get(16), is("lag_bucket{le=\"+Inf\"} 1"));
+        assertThat(lines.get(17), is("lag_sum 0.001"));
+        assertThat(lines.get(18), is("lag_count 1"));
+    }
+    
+    private static List<String> write(final LatencyHistogram histogram, final String labels) {
+        StringBuilder output = new StringBuilder();
+        histogram.writeTo(output, "lag", labels);
+        assertTrue(output.toString().endsWith("\n"));
+        return Arrays.asList(output.toString().split("\n"));
+    }
+}
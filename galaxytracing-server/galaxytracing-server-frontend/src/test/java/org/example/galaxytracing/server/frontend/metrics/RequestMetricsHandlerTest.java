@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.metrics;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertThat;
+
+public final class RequestMetricsHandlerTest {
+    
+    private final EventLoopGroup workerGroup = new DefaultEventLoopGroup(1);
+    
+    @After
+    public void tearDown() {
+        workerGroup.shutdownGracefully(0L, 1L, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+    
+    @Test
+    public void assertCountRequestsAndResponsesByStatusClass() {
+        ServerMetrics serverMetrics = new ServerMetrics(workerGroup);
+        EmbeddedChannel channel = new EmbeddedChannel(new RequestMetricsHandler(serverMetrics));
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/traces"));
+        channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/agent"));
+        channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND));
+        channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.SERVICE_UNAVAILABLE));
+        channel.finishAndReleaseAll();
+        String rendered = serverMetrics.render();
+        assertThat(rendered, containsString("galaxytracing_http_requests_total 2\n"));
+        assertThat(rendered, containsString("galaxytracing_http_responses_total{code=\"2xx\"} 1\n"));
+        assertThat(rendered, containsString("galaxytracing_http_responses_total{code=\"3xx\"} 0\n"));
+        assertThat(rendered, containsString("galaxytracing_http_responses_total{code=\"4xx\"} 1\n"));
+        assertThat(rendered, containsString("galaxytracing_http_responses_total{code=\"5xx\"} 1\n"));
+    }
+}
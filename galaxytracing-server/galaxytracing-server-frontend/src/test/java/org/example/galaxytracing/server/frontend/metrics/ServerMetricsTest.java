@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.metrics;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class ServerMetricsTest {
+    
+    private final EventLoopGroup workerGroup = new DefaultEventLoopGroup(2);
+    
+    @After
+    public void tearDown() {
+        workerGroup.shutdownGracefully(0L, 1L, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+    
+    @Test
+    public void assertDeclareEveryFamilyBeforeItsSamples() {
+        List<String> lines = Arrays.asList(new ServerMetrics(workerGroup).render().split("\n"));
+        Map<String, String> types = new HashMap<>();
+        String help = null;
+        for (String each : lines) {
+            if (each.startsWith("# HELP ")) {
+                help = each.split(" ")[2];
+                assertFalse(types.containsKey(help));
+            } else if (each.startsWith("# TYPE ")) {
+                String[] fields = each.split(" ");
+                assertThat(fields[2], is(help));
+                types.put(fields[2], fields[3]);
+            } else {
+                assertTrue(each, types.containsKey(familyOf(each, types)));
+            }
+        }
+        assertThat(types.get("galaxytracing_event_loop_lag_seconds"), is("histogram"));
+        assertThat(types.get("galaxytracing_http_requests_total"), is("counter"));
+        assertThat(types.get("galaxytracing_http_connections"), is("gauge"));
+        assertTrue(lines.stream().anyMatch(each -> each.startsWith("galaxytracing_event_loop_lag_seconds_count{loop=\"1\"} ")));
+        assertTrue(lines.stream().anyMatch(each -> each.startsWith("galaxytracing_event_loop_pending_tasks{loop=\"1\"} ")));
+    }
+    
+    private static String familyOf(final String sample, final Map<String, String> types) {
+        String name = sample.substring(0, sample.contains("{") ? sample.indexOf('{') : sample.indexOf(' '));
+        for (String each : new String[]{"_bucket", "_sum", "_count"}) {
+            String family = name.substring(0, name.length() - each.length());
+            if (name.endsWith(each) && "histogram".equals(types.get(family))) {
+                return family;
+            }
+        }
+        return name;
+    }
+    
+    @Test
+    public void assertRenderCounters() {
+        ServerMetrics serverMetrics = new ServerMetrics(workerGroup);
+        serverMetrics.onConnectionOpened();
+        serverMetrics.onConnectionOpened();
+        serverMetrics.onConnectionClosed();
+        serverMetrics.onBytesReceived(100L);
+        serverMetrics.onBytesSent(40L);
+        serverMetrics.onRequest();
+        serverMetrics.onResponse(200);
+        serverMetrics.onResponse(599);
+        serverMetrics.onResponse(99);
+        serverMetrics.onAgentTaskQueued();
+        serverMetrics.onAgentTaskQueued();
+        serverMetrics.onAgentTaskStarted(2_000_000L);
+        List<String> lines = Arrays.asList(serverMetrics.render().split("\n"));
+        assertThat(lines, hasItem("galaxytracing_http_connections 1"));
+        assertThat(lines, hasItem("galaxytracing_http_received_bytes_total 100"));
+        assertThat(lines, hasItem("galaxytracing_http_sent_bytes_total 40"));
+        assertThat(lines, hasItem("galaxytracing_http_requests_total 1"));
+        assertThat(lines, hasItem("galaxytracing_http_responses_total{code=\"1xx\"} 1"));
+        assertThat(lines, hasItem("galaxytracing_http_responses_total{code=\"2xx\"} 1"));
+        assertThat(lines, hasItem("galaxytracing_http_responses_total{code=\"4xx\"} 0"));
+        assertThat(lines, hasItem("galaxytracing_http_responses_total{code=\"5xx\"} 1"));
+        assertThat(lines, hasItem("galaxytracing_agent_executor_queue_depth 1"));
+        assertThat(lines, hasItem("galaxytracing_agent_executor_wait_seconds_bucket{le=\"0.0025\"} 1"));
+        assertThat(lines, hasItem("galaxytracing_agent_executor_wait_seconds_count 1"));
+    }
+    
+    @Test
+    public void assertEscapeLabelValue() {
+        assertThat(ServerMetrics.label("loop", "0"), is("loop=\"0\""));
+        assertThat(ServerMetrics.label("path", "a\"b\\c\nd"), is("path=\"a\\\"b\\\\c\\nd\""));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example.galaxytracing.server.frontend.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public final class TrafficMetricsHandlerTest {
+    
+    private final EventLoopGroup workerGroup = new DefaultEventLoopGroup(1);
+    
+    @After
+    public void tearDown() {
+        workerGroup.shutdownGracefully(0L, 1L, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+    
+    @Test
+    public void assertCountConnectionsAndBytes() {
+        ServerMetrics serverMetrics = new ServerMetrics(workerGroup);
+        EmbeddedChannel channel = new EmbeddedChannel(new TrafficMetricsHandler(serverMetrics));
+        assertThat(serverMetrics.render(), containsString("galaxytracing_http_connections 1\n"));
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[10]));
+        channel.writeOutbound(Unpooled.wrappedBuffer(new byte[7]));
+        channel.writeOutbound("not a buffer");
+        ByteBuf received = channel.readInbound();
+        assertThat(received.readableBytes(), is(10));
+        received.release();
+        String rendered = serverMetrics.render();
+        assertThat(rendered, containsString("galaxytracing_http_received_bytes_total 10\n"));
+        assertThat(rendered, containsString("galaxytracing_http_sent_bytes_total 7\n"));
+        channel.finishAndReleaseAll();
+        assertThat(serverMetrics.render(), containsString("galaxytracing_http_connections 0\n"));
+    }
+}